@@ -2419,6 +2419,10 @@ public interface OdeMessages extends Messages, AutogeneratedOdeMessages {
   @Description("")
   String waitingForBarcode();
 
+  @DefaultMessage("Waiting for the build server (position {0} in line)")
+  @Description("Shown while a build waits for a free slot on the build server")
+  String waitingInBuildQueue(int position);
+
   @DefaultMessage("Preparing application icon")
   @Description("")
   String preparingApplicationIcon();
@@ -16,15 +16,19 @@ import com.google.appinventor.client.editor.youngandroid.YailGenerationException
 import com.google.appinventor.client.explorer.project.Project;
 import com.google.appinventor.client.settings.project.ProjectSettings;
 import com.google.appinventor.shared.rpc.BlocksTruncatedException;
+import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
 import com.google.appinventor.shared.rpc.project.FileDescriptorWithContent;
+import com.google.appinventor.shared.rpc.project.FilePatch;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.common.collect.Maps;
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Timer;
+import com.google.gwt.user.client.rpc.AsyncCallback;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +63,9 @@ public final class EditorManager {
   private final Set<FileEditor> dirtyFileEditors;
   private final HashMap<String,FileEditor> pendingFileEditors;
   private final Timer autoSaveTimer;
+  // Content of each file as it was last saved, keyed by project ID and file ID,
+  // from which the next save of the file is sent as a patch.
+  private final Map<String, String> savedContents;
   private boolean autoSaveIsScheduled;
   private long autoSaveRequestTime;
 
@@ -76,6 +83,7 @@ public final class EditorManager {
     dirtyProjectSettings = new HashSet<ProjectSettings>();
     dirtyFileEditors = new HashSet<FileEditor>();
     pendingFileEditors = new HashMap<String,FileEditor>();
+    savedContents = new HashMap<String, String>();
 
     autoSaveTimer = new Timer() {
       @Override
@@ -172,6 +180,13 @@ public final class EditorManager {
     ProjectSettings projectSettings = project.getSettings();
     dirtyProjectSettings.remove(projectSettings);
     openProjectEditors.remove(projectId);
+    String prefix = projectId + "/";
+    Iterator<String> keys = savedContents.keySet().iterator();
+    while (keys.hasNext()) {
+      if (keys.next().startsWith(prefix)) {
+        keys.remove();
+      }
+    }
   }
 
   /**
@@ -365,12 +380,13 @@ public final class EditorManager {
 
 
   /**
-   * This code used to send the contents of all changed files to the server
-   * in the same RPC transaction. However we are now sending them separately
-   * so that we can have more fine grained control over handling errors that
-   * happen only on one file. In particular, we need to handle the case where
-   * a trivial blocks workspace is attempting to be written over a non-trivial
-   * file.
+   * Sends the contents of all changed files to the server. A file whose last
+   * saved content is known is sent as a patch, on its own. The other files are
+   * sent together, so that the server writes the files of each project in one
+   * batch. Errors are still handled for each file. In particular, if a trivial
+   * blocks workspace is attempting to be written over a non-trivial file, none
+   * of the files of its project are written, and they are sent again one at a
+   * time so that the user is asked about that file alone.
    *
    * If any unhandled errors occur while saving, the afterSavingFiles
    * command will not be executed.  If filesWithContent is empty, the
@@ -391,15 +407,18 @@ public final class EditorManager {
       }
 
     } else {
+      List<FileDescriptorWithContent> fullFiles = new ArrayList<FileDescriptorWithContent>();
+      List<OdeAsyncCallback<Long>> fullFileCallbacks = new ArrayList<OdeAsyncCallback<Long>>();
       for (FileDescriptorWithContent fileDescriptor : filesWithContent ) {
         final long projectId = fileDescriptor.getProjectId();
         final String fileId = fileDescriptor.getFileId();
         final String content = fileDescriptor.getContent();
+        final String savedContentKey = projectId + "/" + fileId;
         Ode.CLog("Saving fileId " + fileId + " for projectId " + projectId);
-        Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
-          projectId, fileId, false, content, new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
+        final OdeAsyncCallback<Long> callback = new OdeAsyncCallback<Long>(MESSAGES.saveErrorMultipleFiles()) {
             @Override
             public void onSuccess(Long date) {
+              savedContents.put(savedContentKey, content);
               if (dateHolder.date != 0) {
                 // This sets the project modification time to that of one of
                 // the successful file saves. It doesn't really matter which
@@ -416,6 +435,8 @@ public final class EditorManager {
             }
             @Override
             public void onFailure(Throwable caught) {
+              // The server's content is unknown after a failed save.
+              savedContents.remove(savedContentKey);
               // Here is where we handle BlocksTruncatedException
               if (caught instanceof BlocksTruncatedException) {
                 Ode.getInstance().blocksTruncatedDialog(projectId, fileId, content, this);
@@ -438,8 +459,102 @@ public final class EditorManager {
                 afterSavingFiles.execute();   // of files saved (or not in this case)
               }
             }
-          });
+          };
+        FilePatch patch = createPatch(savedContents.get(savedContentKey), content);
+        if (patch == null) {
+          fullFiles.add(fileDescriptor);
+          fullFileCallbacks.add(callback);
+        } else {
+          Ode.getInstance().getProjectService().savePatch(Ode.getInstance().getSessionId(),
+              projectId, fileId, false, patch, new AsyncCallback<Long>() {
+                @Override
+                public void onSuccess(Long date) {
+                  callback.onSuccess(date);
+                }
+
+                @Override
+                public void onFailure(Throwable caught) {
+                  if (caught instanceof ChecksumedFileException) {
+                    // The file was changed elsewhere since we last saved it, or the patch
+                    // was damaged. Save the whole content instead.
+                    Ode.CLog("Patch rejected for fileId " + fileId + ", saving it in full");
+                    Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+                        projectId, fileId, false, content, callback);
+                  } else {
+                    callback.onFailure(caught);
+                  }
+                }
+              });
+        }
       }
+      saveFullContents(fullFiles, fullFileCallbacks);
+    }
+  }
+
+  /**
+   * Saves the whole content of several files with one request, and passes
+   * the result to the callback of each file. If a trivial blocks workspace
+   * would have been written over a non-trivial file, the files are saved again
+   * one at a time, so that only the callback of that file gets the error.
+   *
+   * @param files  the files to save
+   * @param callbacks  the callback of each file
+   */
+  private void saveFullContents(final List<FileDescriptorWithContent> files,
+      final List<OdeAsyncCallback<Long>> callbacks) {
+    if (files.isEmpty()) {
+      return;
+    } else if (files.size() == 1) {
+      saveFullContent(files.get(0), callbacks.get(0));
+      return;
+    }
+    Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(), files, false,
+        new AsyncCallback<Long>() {
+          @Override
+          public void onSuccess(Long date) {
+            for (OdeAsyncCallback<Long> callback : callbacks) {
+              callback.onSuccess(date);
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable caught) {
+            for (int i = 0; i < files.size(); i++) {
+              if (caught instanceof BlocksTruncatedException) {
+                saveFullContent(files.get(i), callbacks.get(i));
+              } else {
+                callbacks.get(i).onFailure(caught);
+              }
+            }
+          }
+        });
+  }
+
+  private static void saveFullContent(FileDescriptorWithContent file,
+      OdeAsyncCallback<Long> callback) {
+    Ode.getInstance().getProjectService().save2(Ode.getInstance().getSessionId(),
+        file.getProjectId(), file.getFileId(), false, file.getContent(), callback);
+  }
+
+  /**
+   * Creates a patch from the last saved content of a file to its new content,
+   * if it is worth sending instead of the whole content.
+   *
+   * @param savedContent  the content that was last saved, or null if unknown
+   * @param content  the new content
+   * @return the patch, or null if the whole content should be saved
+   */
+  private static FilePatch createPatch(String savedContent, String content) {
+    if (savedContent == null) {
+      return null;
+    }
+    try {
+      FilePatch patch = FilePatch.create(savedContent, content);
+      // The patch carries two checksums and the server has to read the file,
+      // so only use it when it saves most of the upload.
+      return patch.getSize() < content.length() / 2 ? patch : null;
+    } catch (ChecksumedFileException e) {
+      return null;
     }
   }
 }
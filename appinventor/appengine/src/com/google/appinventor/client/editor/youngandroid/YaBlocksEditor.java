@@ -44,6 +44,7 @@ import com.google.common.collect.Maps;
 import com.google.gwt.core.client.Callback;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.event.logical.shared.ResizeEvent;
 import com.google.gwt.event.logical.shared.ResizeHandler;
 import com.google.gwt.user.client.Command;
@@ -192,7 +193,7 @@ public final class YaBlocksEditor extends FileEditor
   public void loadFile(final Command afterFileLoaded) {
     final long projectId = getProjectId();
     final String fileId = getFileId();
-    OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
+    final OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
       @Override
       public void onSuccess(ChecksumedLoadFile result) {
         String blkFileContent;
@@ -224,7 +225,19 @@ public final class YaBlocksEditor extends FileEditor
         super.onFailure(caught);
       }
     };
-    Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
+    final ChecksumedLoadFile preloaded = Ode.getInstance().getProjectManager()
+        .getProject(projectId).takePreloadedFile(fileId);
+    if (preloaded != null) {
+      // Keep the callback asynchronous, as it is when the file has to be loaded.
+      Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+        @Override
+        public void execute() {
+          callback.onSuccess(preloaded);
+        }
+      });
+    } else {
+      Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
+    }
   }
 
   @Override
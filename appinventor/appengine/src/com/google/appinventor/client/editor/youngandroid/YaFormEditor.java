@@ -210,7 +210,7 @@ public final class YaFormEditor extends SimpleEditor implements FormChangeListen
   public void loadFile(final Command afterFileLoaded) {
     final long projectId = getProjectId();
     final String fileId = getFileId();
-    OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
+    final OdeAsyncCallback<ChecksumedLoadFile> callback = new OdeAsyncCallback<ChecksumedLoadFile>(MESSAGES.loadError()) {
       @Override
       public void onSuccess(ChecksumedLoadFile result) {
         String contents;
@@ -243,7 +243,19 @@ public final class YaFormEditor extends SimpleEditor implements FormChangeListen
         super.onFailure(caught);
       }
     };
-    Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
+    final ChecksumedLoadFile preloaded = Ode.getInstance().getProjectManager()
+        .getProject(projectId).takePreloadedFile(fileId);
+    if (preloaded != null) {
+      // Keep the callback asynchronous, as it is when the file has to be loaded.
+      Scheduler.get().scheduleDeferred(new Scheduler.ScheduledCommand() {
+        @Override
+        public void execute() {
+          callback.onSuccess(preloaded);
+        }
+      });
+    } else {
+      Ode.getInstance().getProjectService().load2(projectId, fileId, callback);
+    }
   }
 
   @Override
@@ -126,9 +126,12 @@ public class ShowProgressBarCommand extends ChainableCommand {
       }
     } else {
       try {
-        currentProgress = Math.max(currentProgress,
-            Integer.parseInt(result.getOutput()));
-        if (currentProgress <= 10) {
+        int progress = Integer.parseInt(result.getOutput());
+        currentProgress = Math.max(currentProgress, progress);
+        if (progress < 0) {
+          // The build server reports the position of a waiting build as a negative number.
+          labelContent = "<br />" + MESSAGES.waitingInBuildQueue(-progress);
+        } else if (currentProgress <= 10) {
           labelContent = "<br />" + MESSAGES.preparingApplicationIcon();
         } else if (currentProgress < 15) {
           labelContent = "<br />" + MESSAGES.determiningPermissions();
@@ -11,13 +11,17 @@ import static com.google.appinventor.client.Ode.MESSAGES;
 import com.google.appinventor.client.OdeAsyncCallback;
 import com.google.appinventor.client.settings.project.ProjectSettings;
 import com.google.appinventor.client.tracking.Tracking;
+import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
+import com.google.appinventor.shared.rpc.project.ProjectContents;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.UserProject;
 import com.google.appinventor.client.explorer.folder.ProjectFolder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents a project.
@@ -38,6 +42,11 @@ public final class Project {
   // Project specific settings
   private ProjectSettings settings; // lazily and asynchronously initialized
 
+  // Contents of files fetched along with the project nodes that have not been
+  // taken by their editors yet
+  private final Map<String, ChecksumedLoadFile> preloadedFiles =
+      new HashMap<String, ChecksumedLoadFile>();
+
   private ProjectFolder homeFolder = null;
 
   /**
@@ -58,19 +67,25 @@ public final class Project {
     if (projectRoot == null && !loadingInProgress) {
       loadingInProgress = true;
 
-      if (settings == null) {
+      final boolean loadSettings = settings == null;
+      if (loadSettings) {
         settings = new ProjectSettings(Project.this);
-        settings.loadSettings();
       }
 
-      Ode.getInstance().getProjectService().getProject(
+      // The root node, the settings, and the files of the screens are all fetched at once,
+      // rather than by a call for each of them as the editors are opened.
+      Ode.getInstance().getProjectService().loadProject(
           getProjectId(),
-          new OdeAsyncCallback<ProjectRootNode>(
+          new OdeAsyncCallback<ProjectContents>(
               // failure message
               MESSAGES.projectLoadError()) {
             @Override
-            public void onSuccess(ProjectRootNode result) {
-              projectRoot = result;
+            public void onSuccess(ProjectContents result) {
+              projectRoot = result.getRootNode();
+              if (loadSettings) {
+                settings.loadSettings(result.getSettings());
+              }
+              preloadedFiles.putAll(result.getFiles());
 
               loadingInProgress = false;
               fireProjectLoaded();
@@ -79,6 +94,10 @@ public final class Project {
             @Override
             public void onFailure(Throwable caught) {
               loadingInProgress = false;
+              if (loadSettings) {
+                // The settings were never decoded, so the next attempt must load them again.
+                settings = null;
+              }
               super.onFailure(caught);
             }
       });
@@ -178,6 +197,18 @@ public final class Project {
     return settings;
   }
 
+  /**
+   * Returns the content of the given file if it was fetched along with the
+   * project nodes, or null if it must be loaded. The content is only returned
+   * once, since the file may be changed after it has been loaded.
+   *
+   * @param fileId  file ID
+   * @return file content, or null
+   */
+  public ChecksumedLoadFile takePreloadedFile(String fileId) {
+    return preloadedFiles.remove(fileId);
+  }
+
   /**
    * Returns the project's root node, or null if the project nodes haven't
    * been loaded.
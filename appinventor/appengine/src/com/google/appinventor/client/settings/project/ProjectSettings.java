@@ -62,6 +62,17 @@ public final class ProjectSettings extends CommonSettings implements SettingsAcc
         });
   }
 
+  /**
+   * Loads the settings from their encoded form, as fetched along with the project.
+   *
+   * @param encodedSettings  encoded project settings
+   */
+  public void loadSettings(String encodedSettings) {
+    LOG.info("Loaded project settings: " + encodedSettings);
+    decodeSettings(encodedSettings);
+    changed = false;
+  }
+
   @Override
   public void saveSettings(final Command command) {
     if (Ode.getInstance().isReadOnly()) {
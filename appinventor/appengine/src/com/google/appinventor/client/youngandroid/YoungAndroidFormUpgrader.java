@@ -1694,6 +1694,12 @@ public final class YoungAndroidFormUpgrader {
       // Added Property: GetEntries
       srcCompVersion = 3;
     }
+
+    if (srcCompVersion < 4) {
+      // Added Property: BatchWrites
+      // Added Method: StoreValues
+      srcCompVersion = 4;
+    }
     return srcCompVersion;
   }
 
@@ -1938,6 +1944,11 @@ public final class YoungAndroidFormUpgrader {
       // Properties related to this component have now been upgraded to version 9
       srcCompVersion = 9;
     }
+    if (srcCompVersion < 10) {
+      // The CacheResponses property was added.
+      // No properties need to be modified to upgrade to version 10.
+      srcCompVersion = 10;
+    }
     return srcCompVersion;
   }
 
@@ -2103,6 +2114,11 @@ public final class YoungAndroidFormUpgrader {
       // UpdateDone event and ProvideUpdateDone property were added
       srcCompVersion = 2;
     }
+    if (srcCompVersion < 3) {
+      // Version 3
+      // StoreValues and GetValues methods were added
+      srcCompVersion = 3;
+    }
     return srcCompVersion;
   }
 
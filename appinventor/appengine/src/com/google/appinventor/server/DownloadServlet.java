@@ -211,14 +211,19 @@ public class DownloadServlet extends OdeServlet {
         for (String projectId : projectIdStrings) {
           projectIds.add(Long.valueOf(projectId));
         }
-        ProjectSourceZip zipFile = fileExporter.exportSelectedProjectsSourceZip(
-          userId, "selected-projects.zip", projectIds);
-        downloadableFile = zipFile.getRawFile();
+        // The zip of zips is streamed to the response as the projects are exported.
+        setDownloadHeaders(req, resp, "selected-projects.zip");
+        ServletOutputStream out = resp.getOutputStream();
+        fileExporter.exportSelectedProjectsSourceZip(userId, projectIds, out);
+        out.close();
+        return;
       } else if (downloadKind.equals(ServerLayout.DOWNLOAD_ALL_PROJECTS_SOURCE)) {
-        // Download all project source files as a zip of zips.
-        ProjectSourceZip zipFile = fileExporter.exportAllProjectsSourceZip(
-            userId, "all-projects.zip");
-        downloadableFile = zipFile.getRawFile();
+        // Download all project source files as a zip of zips, streamed to the response.
+        setDownloadHeaders(req, resp, "all-projects.zip");
+        ServletOutputStream out = resp.getOutputStream();
+        fileExporter.exportAllProjectsSourceZip(userId, out);
+        out.close();
+        return;
 
       } else if (downloadKind.equals(ServerLayout.DOWNLOAD_FILE)) {
         // Download a specific file.
@@ -254,10 +259,12 @@ public class DownloadServlet extends OdeServlet {
         throw new IllegalArgumentException("Unknown download kind: " + downloadKind);
       }
     } catch (IllegalArgumentException e) {
+      resetDownloadHeaders(resp);
       throw CrashReport.createAndLogError(LOG, req, "user=" + userId, e);
     } catch (SecurityException e) {
       // Not having appropriate permission is akin to not being able to find the project anyway,
       // so we use 404 here to not leak that the project may exist.
+      resetDownloadHeaders(resp);
       final String message = "404 Not Found";
       resp.setStatus(HttpServletResponse.SC_NOT_FOUND);
       resp.setContentType("text/plain");
@@ -274,13 +281,9 @@ public class DownloadServlet extends OdeServlet {
 
     if (statusCode == HttpServletResponse.SC_OK) {
       LOG.fine("Sending File!");
-      String fileName = downloadableFile.getFileName();
       byte[] content = downloadableFile.getContent();
       // Set http response information
-      resp.setHeader(
-        "content-disposition",
-        req.getParameter("inline") != null ? "inline" : "attachment" + "; filename=\"" + fileName + "\"");
-      resp.setContentType(StorageUtil.getContentTypeForFilePath(fileName));
+      setDownloadHeaders(req, resp, downloadableFile.getFileName());
       resp.setContentLength(content.length);
 
       // Attach download data
@@ -295,6 +298,24 @@ public class DownloadServlet extends OdeServlet {
     }
   }
 
+  private static void setDownloadHeaders(HttpServletRequest req, HttpServletResponse resp,
+      String fileName) {
+    resp.setHeader(
+      "content-disposition",
+      req.getParameter("inline") != null ? "inline" : "attachment" + "; filename=\"" + fileName + "\"");
+    resp.setContentType(StorageUtil.getContentTypeForFilePath(fileName));
+  }
+
+  /*
+   * The streamed zip downloads set their headers before exporting, so an export that fails
+   * before anything is written must not leave the attachment headers on the error response.
+   */
+  private static void resetDownloadHeaders(HttpServletResponse resp) {
+    if (!resp.isCommitted()) {
+      resp.reset();
+    }
+  }
+
   private static String byteArray2Hex(final byte[] hash) {
     Formatter formatter = new Formatter();
     for (byte b : hash) {
@@ -10,6 +10,7 @@ import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.annotation.Nullable;
@@ -59,29 +60,34 @@ public interface FileExporter {
     boolean fatalError, boolean forGallery) throws IOException;
 
   /**
-   * Exports projects selected by the user as a zip of zips.
+   * Exports projects selected by the user as a zip of zips. The zip is
+   * written to the given stream as the projects are exported, so that it
+   * never has to be held in memory.
    *
    * @param userId the userId
-   * @param zipName the desired name for the zip
    * @param projectIds the list of project ids corresponding to selected projects
-   * @return the name, contents, and number of files in the zip
+   * @param out the stream to which the zip is written; it is not closed
+   * @return the number of files in the zip
    * @throws IllegalArgumentException if download request cannot be fulfilled
-   *         (no projects)
+   *         (no projects); nothing has been written to the stream in that case
    * @throws IOException if files cannot be written
    */
-  ProjectSourceZip exportSelectedProjectsSourceZip(String userId, String zipName, List<Long> projectIds) throws IOException;
+  int exportSelectedProjectsSourceZip(String userId, List<Long> projectIds, OutputStream out)
+      throws IOException;
 
   /**
-   * Exports all of the user's projects' source files as a zip of zips.
+   * Exports all of the user's projects' source files as a zip of zips. The
+   * zip is written to the given stream as the projects are exported, so that
+   * it never has to be held in memory.
    *
    * @param userId the userId
-   * @param zipName the desired name for the zip
-   * @return the name, contents, and number of files in the zip
+   * @param out the stream to which the zip is written; it is not closed
+   * @return the number of files in the zip
    * @throws IllegalArgumentException if download request cannot be fulfilled
-   *         (no projects)
+   *         (no projects); nothing has been written to the stream in that case
    * @throws IOException if files cannot be written
    */
-  ProjectSourceZip exportAllProjectsSourceZip(String userId, String zipName) throws IOException;
+  int exportAllProjectsSourceZip(String userId, OutputStream out) throws IOException;
 
   /**
    * Exports a specific project file.
@@ -6,17 +6,25 @@
 
 package com.google.appinventor.server;
 
+import com.google.appengine.api.ThreadManager;
 import com.google.appinventor.server.storage.StorageIo;
 import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
 import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.storage.StorageUtil;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -28,6 +36,9 @@ import javax.annotation.Nullable;
  */
 public final class FileExporterImpl implements FileExporter {
 
+  // Maximum number of projects exported ahead of the one being written to a zip of zips
+  private static final int PROJECT_PREFETCH = 4;
+
   private final StorageIo storageIo = StorageIoInstanceHolder.getInstance();
 
   @Override
@@ -71,92 +82,76 @@ public final class FileExporterImpl implements FileExporter {
   }
 
   @Override
-  public ProjectSourceZip exportSelectedProjectsSourceZip(String userId,
-      String zipName, List<Long> projectIds) throws IOException {
-      // Create a zip file for each project's sources.
+  public int exportSelectedProjectsSourceZip(String userId, List<Long> projectIds,
+      OutputStream out) throws IOException {
     if (projectIds.size() == 0) {
       throw new IllegalArgumentException("No projects to download");
     }
-
-    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
-    ZipOutputStream out = new ZipOutputStream(zipFile);
-    int count = 0;
-    String metadata = "";
-    for (Long projectId : projectIds) {
-      try {
-        ProjectSourceZip projectSourceZip =
-            exportProjectSourceZip(userId, projectId, false, false, null, false, false, false, false);
-        byte[] data = projectSourceZip.getContent();
-        String name = projectSourceZip.getFileName();
-
-        // If necessary, renae duplicate projects
-        while (true) {
-          try {
-            out.putNextEntry(new ZipEntry(name));
-            break;
-          } catch (IOException e) {
-            name = "duplicate-" + name;
-          }
-        }
-        metadata += projectSourceZip.getMetadata() + "\n";
-
-        out.write(data, 0, data.length);
-        out.closeEntry();
-        count++;
-      } catch (IllegalArgumentException e) {
-        System.err.println("No files found for userid: " + userId +
-            " for projectid: " + projectId);
-      } catch (IOException e) {
-        System.err.println("IOException while reading files found for userid: " +
-            userId + " for projectid: " + projectId);
-        continue;
-      }
-    }
-    if (count == 0) {
-      throw new IllegalArgumentException("No files to download");
-    }
-
-    List<String> userFiles = storageIo.getUserFiles(userId);
-    if (userFiles.contains(StorageUtil.ANDROID_KEYSTORE_FILENAME)) {
-      byte[] androidKeystoreBytes =
-          storageIo.downloadRawUserFile(userId, StorageUtil.ANDROID_KEYSTORE_FILENAME);
-      if (androidKeystoreBytes.length > 0) {
-        out.putNextEntry(new ZipEntry(StorageUtil.ANDROID_KEYSTORE_FILENAME));
-        out.write(androidKeystoreBytes, 0, androidKeystoreBytes.length);
-        out.closeEntry();
-        count++;
-      }
-    }
-
-    out.close();
-
-    // Package the big zip file up as a ProjectSourceZip and return it.
-    byte[] content = zipFile.toByteArray();
-    ProjectSourceZip projectSourceZip = new ProjectSourceZip(zipName, content, count);
-    projectSourceZip.setMetadata(metadata);
-    return projectSourceZip;
+    return exportProjectsSourceZip(userId, projectIds, out);
   }
 
   @Override
-  public ProjectSourceZip exportAllProjectsSourceZip(String userId,
-      String zipName) throws IOException {
-    // Create a zip file for each project's sources.
+  public int exportAllProjectsSourceZip(String userId, OutputStream out) throws IOException {
     List<Long> projectIds = storageIo.getProjects(userId);
     if (projectIds.size() == 0) {
       throw new IllegalArgumentException("No projects to download");
     }
+    return exportProjectsSourceZip(userId, projectIds, out);
+  }
 
-    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
+  /*
+   * Writes a zip containing the source zip of each of the given projects to the given stream.
+   * The projects following the one being written are exported in parallel, but no more than
+   * PROJECT_PREFETCH of them at a time, so that memory use does not grow with the number of
+   * projects.
+   */
+  private int exportProjectsSourceZip(final String userId, List<Long> projectIds,
+      OutputStream zipFile) throws IOException {
     ZipOutputStream out = new ZipOutputStream(zipFile);
     int count = 0;
-    String metadata = "";
-    for (Long projectId : projectIds) {
-      try {
-        // Note: We never include Yail files when exporting all source projects
-        // even for Admins. If you are an admin and want to debug a project, download
-        // it explicitly.
-        ProjectSourceZip projectSourceZip =
-          exportProjectSourceZip(userId, projectId, false, false, null, false, false, false, false);
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(projectIds.size(), PROJECT_PREFETCH),
+        ThreadManager.currentRequestThreadFactory());
+    try {
+      LinkedList<Long> exportedIds = new LinkedList<Long>();
+      LinkedList<Future<ProjectSourceZip>> exports = new LinkedList<Future<ProjectSourceZip>>();
+      Iterator<Long> projectIdIterator = projectIds.iterator();
+      while (projectIdIterator.hasNext() || !exports.isEmpty()) {
+        while (projectIdIterator.hasNext() && exports.size() < PROJECT_PREFETCH) {
+          final long projectId = projectIdIterator.next();
+          exportedIds.add(projectId);
+          exports.add(executor.submit(new Callable<ProjectSourceZip>() {
+            @Override
+            public ProjectSourceZip call() throws IOException {
+              // Note: We never include Yail files when exporting several projects
+              // even for Admins. If you are an admin and want to debug a project, download
+              // it explicitly.
+              return exportProjectSourceZip(userId, projectId, false, false, null, false, false,
+                  false, false);
+            }
+          }));
+        }
+        long projectId = exportedIds.removeFirst();
+        ProjectSourceZip projectSourceZip;
+        try {
+          projectSourceZip = exports.removeFirst().get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IllegalArgumentException) {
+            System.err.println("No files found for userid: " + userId +
+                " for projectid: " + projectId);
+            continue;
+          } else if (e.getCause() instanceof IOException) {
+            System.err.println("IOException while reading files found for userid: " +
+                userId + " for projectid: " + projectId);
+            continue;
+          } else if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
         byte[] data = projectSourceZip.getContent();
         String name = projectSourceZip.getFileName();
 
@@ -169,22 +164,15 @@ public final class FileExporterImpl implements FileExporter {
             name = "duplicate-" + name;
           }
         }
-        metadata += projectSourceZip.getMetadata() + "\n";
-
         out.write(data, 0, data.length);
         out.closeEntry();
         count++;
-      } catch (IllegalArgumentException e) {
-        System.err.println("No files found for userid: " + userId +
-            " for projectid: " + projectId);
-        continue;
-      } catch (IOException e) {
-        System.err.println("IOException while reading files found for userid: " +
-            userId + " for projectid: " + projectId);
-        continue;
       }
+    } finally {
+      executor.shutdownNow();
     }
     if (count == 0) {
+      // Nothing has been written to the stream yet.
       throw new IllegalArgumentException("No files to download");
     }
 
@@ -200,13 +188,8 @@ public final class FileExporterImpl implements FileExporter {
       }
     }
 
-    out.close();
-
-    // Package the big zip file up as a ProjectSourceZip and return it.
-    byte[] content = zipFile.toByteArray();
-    ProjectSourceZip projectSourceZip = new ProjectSourceZip(zipName, content, count);
-    projectSourceZip.setMetadata(metadata);
-    return projectSourceZip;
+    out.finish();
+    return count;
   }
 
   @Override
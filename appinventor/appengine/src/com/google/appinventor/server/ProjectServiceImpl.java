@@ -26,7 +26,9 @@ import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
 import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
 import com.google.appinventor.shared.rpc.project.FileDescriptor;
 import com.google.appinventor.shared.rpc.project.FileDescriptorWithContent;
+import com.google.appinventor.shared.rpc.project.FilePatch;
 import com.google.appinventor.shared.rpc.project.NewProjectParameters;
+import com.google.appinventor.shared.rpc.project.ProjectContents;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.ProjectService;
 import com.google.appinventor.shared.rpc.project.TextFile;
@@ -45,6 +47,7 @@ import java.io.FileReader;
 import java.io.IOException;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -348,6 +351,19 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
     return storageIo.loadProjectSettings(userId, projectId);
   }
 
+  /**
+   * Returns the root node, the settings, and the contents of the editor files
+   * of the given project.
+   * @param projectId  project ID
+   *
+   * @return  contents of the project
+   */
+  @Override
+  public ProjectContents loadProject(long projectId) throws ChecksumedFileException {
+    final String userId = userInfoProvider.getUserId();
+    return getProjectRpcImpl(userId, projectId).loadProject(userId, projectId);
+  }
+
   /**
    * Stores a string with the project settings.
    * @param sessionId session id
@@ -681,6 +697,26 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
         content);
   }
 
+  /**
+   * Saves the content of a file by applying a patch to its current content.
+   *
+   * @param sessionId current session id
+   * @param projectId  project ID
+   * @param fileId  project node whose source should be saved
+   * @param force  whether to save a trivial blocks file
+   * @param patch  change from the content that was last saved
+   * @return modification date for project
+   */
+  @Override
+  public long savePatch(String sessionId, long projectId, String fileId, boolean force,
+      FilePatch patch) throws InvalidSessionException, BlocksTruncatedException,
+      ChecksumedFileException {
+    validateSessionId(sessionId);
+    final String userId = userInfoProvider.getUserId();
+    return getProjectRpcImpl(userId, projectId).savePatch(userId, projectId, fileId, force,
+        patch);
+  }
+
   /**
    * Saves the contents of multiple files.
    *
@@ -692,13 +728,44 @@ public class ProjectServiceImpl extends OdeRemoteServiceServlet implements Proje
   @Override
   public long save(String sessionId, List<FileDescriptorWithContent> filesAndContent) throws InvalidSessionException,
       BlocksTruncatedException {
+    return save2(sessionId, filesAndContent, true);
+  }
+
+  /**
+   * Saves the contents of multiple files, with the files of each project
+   * saved together.
+   *
+   * @param sessionId session id
+   * @param filesAndContent  list containing file descriptors and their
+   *                         associated content
+   * @param force  whether to write empty blocks workspaces
+   * @return modification date for last modified project of list
+   */
+  @Override
+  public long save2(String sessionId, List<FileDescriptorWithContent> filesAndContent,
+      boolean force) throws InvalidSessionException, BlocksTruncatedException {
     validateSessionId(sessionId);
     final String userId = userInfoProvider.getUserId();
-    long date = 0;
+    // Group the files by project, so that the files of each project are saved in one batch.
+    Map<Long, Map<String, String>> filesByProject = new LinkedHashMap<Long, Map<String, String>>();
+    long lastProjectId = 0;
     for (FileDescriptorWithContent fileAndContent : filesAndContent) {
-     long projectId = fileAndContent.getProjectId();
-     date = getProjectRpcImpl(userId, projectId).
-         save(userId, projectId, fileAndContent.getFileId(), fileAndContent.getContent());
+      lastProjectId = fileAndContent.getProjectId();
+      Map<String, String> files = filesByProject.get(lastProjectId);
+      if (files == null) {
+        files = new LinkedHashMap<String, String>();
+        filesByProject.put(lastProjectId, files);
+      }
+      files.put(fileAndContent.getFileId(), fileAndContent.getContent());
+    }
+    long date = 0;
+    for (Map.Entry<Long, Map<String, String>> entry : filesByProject.entrySet()) {
+      long projectId = entry.getKey();
+      long projectDate = getProjectRpcImpl(userId, projectId).
+          save2(userId, projectId, force, entry.getValue());
+      if (projectId == lastProjectId) {
+        date = projectDate;
+      }
     }
     return date;
   }
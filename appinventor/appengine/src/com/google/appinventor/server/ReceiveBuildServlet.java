@@ -14,6 +14,7 @@ import com.google.appinventor.shared.storage.StorageUtil;
 import com.google.common.io.ByteStreams;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -61,6 +62,22 @@ public class ReceiveBuildServlet extends OdeServlet {
     // Set the user in the OdeFilter, which is used everywhere as the UserInfoProvider.
     odeFilter.setUserFromUserId(userId, false, false);
     try {
+      String contentType = req.getContentType();
+      if (contentType != null && contentType.startsWith("text/plain")) {
+        // Progress reports are sent as a plain text integer rather than a zip.
+        String status = new String(ByteStreams.toByteArray(req.getInputStream()),
+            StandardCharsets.UTF_8).trim();
+        int progress;
+        try {
+          progress = Integer.parseInt(status);
+        } catch (NumberFormatException e) {
+          resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid build status");
+          return;
+        }
+        storageIo.storeBuildStatus(userId, projectId, progress);
+        return;
+      }
+
       String buildFileDirPath = uriComponents[4];
       ZipInputStream zipInputStream = new ZipInputStream(req.getInputStream());
       while (true) {
@@ -75,6 +92,7 @@ public class ReceiveBuildServlet extends OdeServlet {
           storageIo.addFilesToUser(userId, StorageUtil.ANDROID_KEYSTORE_FILENAME);
           storageIo.uploadRawUserFile(userId, fileName, fileBytes);
         } else if (fileName.equals("build.status")) {
+          // Used by build servers that predate plain text progress reports
           int progress = Integer.parseInt((new String(fileBytes)).trim());
           LOG.info("Received a build.status file contents = " + progress);
           storageIo.storeBuildStatus(userId, projectId, progress);
@@ -11,7 +11,10 @@ import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.RpcResult;
 import com.google.appinventor.shared.rpc.project.ChecksumedLoadFile;
 import com.google.appinventor.shared.rpc.project.ChecksumedFileException;
+import com.google.appinventor.shared.rpc.project.FilePatch;
 import com.google.appinventor.shared.rpc.project.NewProjectParameters;
+import com.google.appinventor.shared.rpc.project.ProjectContents;
+import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
@@ -24,7 +27,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The base class for classes that provide project services for a specific
@@ -222,6 +228,51 @@ public abstract class CommonProjectService {
     return retval;
   }
 
+  /**
+   * Loads everything needed to open a project: its root node, its settings,
+   * and the contents of the files for which {@link #isEditorFile(String)}
+   * is true. The files are read from storage together. A file that cannot
+   * be read is left out, and its editor loads it with {@link #load2} instead.
+   *
+   * @param userId the user id
+   * @param projectId  project root node ID
+   *
+   * @return  contents of the project
+   */
+  public ProjectContents loadProject(String userId, long projectId)
+      throws ChecksumedFileException {
+    ProjectRootNode rootNode = getRootNode(userId, projectId);
+    String settings = storageIo.loadProjectSettings(userId, projectId);
+    List<String> fileIds = new ArrayList<String>();
+    for (ProjectNode node : rootNode.getAllSourceNodes()) {
+      if (isEditorFile(node.getFileId())) {
+        fileIds.add(node.getFileId());
+      }
+    }
+    HashMap<String, ChecksumedLoadFile> files = new HashMap<String, ChecksumedLoadFile>();
+    if (!fileIds.isEmpty()) {
+      Map<String, String> contents = storageIo.downloadFiles(userId, projectId, fileIds,
+          StorageUtil.DEFAULT_CHARSET);
+      for (Map.Entry<String, String> entry : contents.entrySet()) {
+        ChecksumedLoadFile file = new ChecksumedLoadFile();
+        file.setContent(entry.getValue());
+        files.put(entry.getKey(), file);
+      }
+    }
+    return new ProjectContents(rootNode, settings, files);
+  }
+
+  /**
+   * Returns whether the given file is loaded into an editor whenever its
+   * project is opened, and should therefore be sent along with the project
+   * by {@link #loadProject(String, long)}.
+   *
+   * @param fileId  file ID
+   */
+  protected boolean isEditorFile(String fileId) {
+    return false;
+  }
+
   /**
    * Attempt to record the project Id and error message when we detect a corruption
    * while loading a project.
@@ -288,6 +339,22 @@ public abstract class CommonProjectService {
     }
   }
 
+  /**
+   * Saves the contents of several files of a project at once. If force is
+   * false, an error is thrown, and none of the files are saved, if one of them
+   * is a trivial (empty) blocks workspace that would replace one with contents.
+   *
+   * @param userId the user id
+   * @param projectId  project root node ID
+   * @param force  whether to save trivial blocks files
+   * @param contents  map from the project nodes whose source should be saved to their content
+   * @return modification date for project
+   */
+  public long save2(String userId, long projectId, boolean force, Map<String, String> contents)
+      throws BlocksTruncatedException {
+    return storageIo.uploadFiles(projectId, userId, force, contents, StorageUtil.DEFAULT_CHARSET);
+  }
+
   /**
    * Saves the content of the file associated with a node in the project tree.
    * if force is false, an error is thrown if an attempt is made to save a
@@ -311,6 +378,26 @@ public abstract class CommonProjectService {
     }
   }
 
+  /**
+   * Saves the content of the file associated with a node in the project tree
+   * by applying a patch to the content currently stored.
+   *
+   * @param userId the user id
+   * @param projectId  project root node ID
+   * @param fileId  project node whose source should be saved
+   * @param force  whether to save a trivial blocks file
+   * @param patch  change from the content that was last saved
+   * @return modification date for project
+   * @throws ChecksumedFileException if the stored content is not the one the
+   *     patch was made from
+   */
+  public long savePatch(String userId, long projectId, String fileId, boolean force,
+      FilePatch patch) throws BlocksTruncatedException, ChecksumedFileException {
+    String content = patch.apply(storageIo.downloadFile(userId, projectId, fileId,
+        StorageUtil.DEFAULT_CHARSET));
+    return save2(userId, projectId, fileId, force, content);
+  }
+
   /**
    * Saves a screenshot of a current blocks editor. This is called from the client side
    * whenever the user leaves a blocks editor. The data is shipped to us in base64 encoding
@@ -35,7 +35,6 @@ import com.google.appinventor.shared.rpc.project.Project;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.ProjectSourceZip;
-import com.google.appinventor.shared.rpc.project.RawFile;
 import com.google.appinventor.shared.rpc.project.TextFile;
 import com.google.appinventor.shared.rpc.project.UserProject;
 import com.google.appinventor.shared.rpc.project.youngandroid.NewYoungAndroidProjectParameters;
@@ -77,6 +76,7 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -298,6 +298,7 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     Project newProject = new Project(newName);
     newProject.setProjectType(YoungAndroidProjectNode.YOUNG_ANDROID_PROJECT_TYPE);
     newProject.setProjectHistory(oldProjectHistory);
+    Map<String, String> copiedFiles = new HashMap<String, String>();
 
     // Get the old project's source files and add them to new project, modifying where necessary.
     for (String oldSourceFileName : storageIo.getProjectSourceFiles(userId, oldProjectId)) {
@@ -328,15 +329,14 @@ public final class YoungAndroidProjectService extends CommonProjectService {
         newProject.addTextFile(new TextFile(newSourceFileName, newContents));
       } else {
         // If we get here, we know that the contents of the file can just be copied from the old
-        // project. Since it might be a binary file, we copy it as a raw file (that works for both
-        // text and binary files).
-        byte[] contents = storageIo.downloadRawFile(userId, oldProjectId, oldSourceFileName);
-        newProject.addRawFile(new RawFile(newSourceFileName, contents));
+        // project. The storage copies it without reading it where it can, sharing the content
+        // of large files such as assets between the two projects.
+        copiedFiles.put(newSourceFileName, oldSourceFileName);
       }
     }
 
     // Create the new project and return the new project's id.
-    return storageIo.createProject(userId, newProject, builder.build());
+    return storageIo.copyProject(userId, oldProjectId, newProject, copiedFiles, builder.build());
   }
 
   @Override
@@ -417,6 +417,12 @@ public final class YoungAndroidProjectService extends CommonProjectService {
     return "";
   }
 
+  @Override
+  protected boolean isEditorFile(String fileId) {
+    // The designer and the blocks editor of every screen are loaded when a project is opened.
+    return fileId.endsWith(FORM_PROPERTIES_EXTENSION) || fileId.endsWith(BLOCKLY_SOURCE_EXTENSION);
+  }
+
   @Override
   public long addFile(String userId, long projectId, String fileId) {
     if (fileId.endsWith(FORM_PROPERTIES_EXTENSION) ||
@@ -6,6 +6,7 @@
 
 package com.google.appinventor.server.storage;
 
+import com.google.appengine.api.ThreadManager;
 import com.google.appengine.api.appidentity.AppIdentityService;
 import com.google.appengine.api.appidentity.AppIdentityServiceFactory;
 import com.google.appengine.api.appidentity.AppIdentityServiceFailureException;
@@ -35,6 +36,9 @@ import com.google.appinventor.server.storage.StoredData.FileData;
 import com.google.appinventor.server.storage.StoredData.MotdData;
 import com.google.appinventor.server.storage.StoredData.NonceData;
 import com.google.appinventor.server.storage.StoredData.ProjectData;
+import com.google.appinventor.server.storage.StoredData.SharedBlobData;
+import com.google.appinventor.server.storage.StoredData.SharedBlobRefData;
+import com.google.appinventor.server.storage.StoredData.SharedBlobShardData;
 import com.google.appinventor.server.storage.StoredData.PWData;
 import com.google.appinventor.server.storage.StoredData.SplashData;
 import com.google.appinventor.server.storage.StoredData.UserData;
@@ -64,6 +68,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
 import com.google.common.io.ByteStreams;
 
@@ -90,13 +95,23 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
@@ -130,6 +145,12 @@ public class ObjectifyStorageIo implements StorageIo {
   // TODO(user): need a way to modify this. Also, what is really a good value?
   private static final int MAX_JOB_RETRIES = 10;
 
+  // Maximum number of GCS files read or written at the same time by one request
+  private static final int MAX_PARALLEL_GCS_REQUESTS = 8;
+
+  // Number of shards that the references to a shared blob are spread over
+  private static final int SHARED_BLOB_SHARDS = 16;
+
   private final MemcacheService memcache = MemcacheServiceFactory.getMemcacheService();
 
   private final GcsService gcsService;
@@ -195,6 +216,8 @@ public class ObjectifyStorageIo implements StorageIo {
     ObjectifyService.register(ProjectData.class);
     ObjectifyService.register(UserProjectData.class);
     ObjectifyService.register(FileData.class);
+    ObjectifyService.register(SharedBlobData.class);
+    ObjectifyService.register(SharedBlobRefData.class);
     ObjectifyService.register(UserFileData.class);
     ObjectifyService.register(MotdData.class);
     ObjectifyService.register(RendezvousData.class);
@@ -498,9 +521,51 @@ public class ObjectifyStorageIo implements StorageIo {
   @Override
   public long createProject(final String userId, final Project project,
       final String projectSettings) {
-    final Result<Long> projectId = new Result<Long>();
-    final List<FileData> addedFiles = new ArrayList<FileData>();
+    // The id is allocated first, so that the shared blobs can be acquired for the files.
+    long projectId = ObjectifyService.factory().allocateId(ProjectData.class);
+    final List<FileData> files = new ArrayList<FileData>();
+    final Map<FileData, byte[]> blobContents = new LinkedHashMap<FileData, byte[]>();
+    for (TextFile file : project.getSourceFiles()) {
+      try {
+        files.add(createRawFile(FileData.RoleEnum.SOURCE, userId, file.getFileName(),
+            file.getContent().getBytes(DEFAULT_ENCODING), blobContents));
+      } catch (UnsupportedEncodingException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectUserErrorInfo(userId, file.getFileName()), e);
+      }
+    }
+    for (RawFile file : project.getRawSourceFiles()) {
+      files.add(createRawFile(FileData.RoleEnum.SOURCE, userId, file.getFileName(),
+          file.getContent(), blobContents));
+    }
 
+    // Large files such as assets are stored as shared blobs, so that a project created from the
+    // same template or imported from the same file as an earlier one refers to the blobs
+    // already written for it.
+    Map<String, String> fileHashes = new HashMap<String, String>();
+    Map<String, byte[]> contents = new HashMap<String, byte[]>();
+    for (Map.Entry<FileData, byte[]> entry : blobContents.entrySet()) {
+      fileHashes.put(entry.getKey().fileName, entry.getKey().blobHash);
+      contents.put(entry.getKey().blobHash, entry.getValue());
+    }
+    try {
+      Map<String, String> gcsNames = acquireBlobs(projectId, fileHashes, contents);
+      for (FileData file : blobContents.keySet()) {
+        file.gcsName = gcsNames.get(file.blobHash);
+      }
+    } catch (IOException e) {
+      throw CrashReport.createAndLogError(LOG, null, collectUserErrorInfo(userId), e);
+    }
+    return createProject(userId, projectId, project, projectSettings, files);
+  }
+
+  /**
+   * Creates a project with the given id and files. The shared blobs that the files refer to
+   * must already have been acquired for them, and are released if the project cannot be
+   * created.
+   */
+  private long createProject(final String userId, final long projectId, final Project project,
+      final String projectSettings, final List<FileData> files) {
     try {
       // first job is on the project entity, creating the ProjectData object
       // and the associated files.
@@ -509,7 +574,7 @@ public class ObjectifyStorageIo implements StorageIo {
         public void run(Objectify datastore) throws ObjectifyException {
           long date = System.currentTimeMillis();
           ProjectData pd = new ProjectData();
-          pd.id = null;  // let Objectify auto-generate the project id
+          pd.id = projectId;
           pd.dateCreated = date;
           pd.dateModified = date;
           pd.dateBuilt = 0;
@@ -517,58 +582,28 @@ public class ObjectifyStorageIo implements StorageIo {
           pd.name = project.getProjectName();
           pd.settings = projectSettings;
           pd.type = project.getProjectType();
-          datastore.put(pd); // put the project in the db so that it gets assigned an id
-
-          assert pd.id != null;
-          projectId.t = pd.id;
-          // After the job commits projectId.t should end up with the last value
-          // we've gotten for pd.id (i.e. the one that committed if there
-          // was no error).
-          // Note that while we cannot expect to read back a value that we've
-          // written in this job, reading the assigned id from pd should work.
-
-          Key<ProjectData> projectKey = projectKey(projectId.t);
-          for (TextFile file : project.getSourceFiles()) {
-            try {
-              addedFiles.add(createRawFile(projectKey, FileData.RoleEnum.SOURCE, userId,
-                  file.getFileName(), file.getContent().getBytes(DEFAULT_ENCODING)));
-            } catch (IOException e) { // GCS throws this
-              throw CrashReport.createAndLogError(LOG, null,
-                collectProjectErrorInfo(userId, projectId.t, file.getFileName()), e);
-            }
-          }
-          for (RawFile file : project.getRawSourceFiles()) {
-            try {
-              addedFiles.add(createRawFile(projectKey, FileData.RoleEnum.SOURCE, userId, file.getFileName(),
-                  file.getContent()));
-            } catch (IOException e) {
-              throw CrashReport.createAndLogError(LOG, null,
-                collectProjectErrorInfo(userId, projectId.t, file.getFileName()), e);
-            }
+          datastore.put(pd);
+
+          Key<ProjectData> projectKey = projectKey(projectId);
+          for (FileData file : files) {
+            file.projectKey = projectKey;
           }
-          datastore.put(addedFiles);  // batch put
+          datastore.put(files);  // batch put
         }
 
         @Override
         public void onNonFatalError() {
         }
 
-      }, Server.isProductionServer()); // Only use a transaction on the production server
-                                       // The App Engine dev server simulates the Google Cloud
-                                       // Store using the datastore. If we use a transaction
-                                       // here we wind up covering more then one entity group
-                                       // (Our access to FileData and Fake-GCS access to its own
-                                       // datastore kind to simulate GCS) which is an error.
-                                       // We can use a transaction in production between the
-                                       // production implementation of GCS does not touch the
-                                       // datastore
+      }, true);  // The content of the files was written to GCS beforehand, so the job only
+                 // touches the project's entity group.
 
       // second job is on the user entity
       runJobWithRetries(new JobRetryHelper() {
         @Override
         public void run(Objectify datastore) {
           UserProjectData upd = new UserProjectData();
-          upd.projectId = projectId.t;
+          upd.projectId = projectId;
           upd.settings = projectSettings;
           upd.state = UserProjectData.StateEnum.OPEN;
           upd.userKey = userKey(userId);
@@ -576,58 +611,469 @@ public class ObjectifyStorageIo implements StorageIo {
         }
       }, true);
     } catch (ObjectifyException e) {
-      for (FileData addedFile : addedFiles) {
-        if (isTrue(addedFile.isGCS)) {  // Do something
-          if (addedFile.gcsName != null) {
-            try {
-              gcsService.delete(new GcsFilename(getGcsBucketToUse(addedFile.role), addedFile.gcsName));
-            } catch (IOException ee) {
-              LOG.log(Level.WARNING, "Unable to delete " + addedFile.gcsName +
-                " from GCS while aborting project creation.", ee);
-          }
+      Map<String, String> fileHashes = new HashMap<String, String>();
+      for (FileData file : files) {
+        if (file.blobHash != null) {
+          fileHashes.put(file.fileName, file.blobHash);
         }
       }
-      // clear addedFiles in case we end up here more than once
-      addedFiles.clear();
+      releaseBlobs(projectId, fileHashes);
       throw CrashReport.createAndLogError(LOG, null,
-          collectUserProjectErrorInfo(userId, projectId.t), e);
-      }
+          collectUserProjectErrorInfo(userId, projectId), e);
     }
-    return projectId.t;
+    return projectId;
   }
 
   /*
    *  Creates and returns a new FileData object with the specified fields.
    *  Does not check for the existence of the object and does not update
-   *  the database.
+   *  the database. If the content belongs in GCS, the FileData refers to a
+   *  shared blob, and is added to blobContents with its content so that the
+   *  caller can acquire the blob.
    */
-  private FileData createRawFile(Key<ProjectData> projectKey, FileData.RoleEnum role,
-    String userId, String fileName, byte[] content) throws ObjectifyException, IOException {
+  private FileData createRawFile(FileData.RoleEnum role, String userId, String fileName,
+      byte[] content, Map<FileData, byte[]> blobContents) {
     validateGCS();
     FileData file = new FileData();
     file.fileName = fileName;
-    file.projectKey = projectKey;
     file.role = role;
     file.userId = userId;
     if (useGCSforFile(fileName, content.length)) {
       file.isGCS = true;
-      file.gcsName = makeGCSfileName(fileName, projectKey.getId());
-      GcsOutputChannel outputChannel =
-        gcsService.createOrReplace(new GcsFilename(getGcsBucketToUse(file.role), file.gcsName), GcsFileOptions.getDefaultInstance());
-      outputChannel.write(ByteBuffer.wrap(content));
-      outputChannel.close();
+      file.blobHash = blobHash(content);
+      blobContents.put(file, content);
     } else {
       file.content = content;
     }
     return file;
   }
 
+  @Override
+  public long copyProject(final String userId, final long oldProjectId, final Project project,
+      final Map<String, String> copiedFiles, final String projectSettings) {
+    validateGCS();
+    long projectId = ObjectifyService.factory().allocateId(ProjectData.class);
+    final List<String> newNames = new ArrayList<String>(copiedFiles.keySet());
+    Key<ProjectData> oldProjectKey = projectKey(oldProjectId);
+    List<Key<FileData>> oldKeys = new ArrayList<Key<FileData>>(newNames.size());
+    for (String newName : newNames) {
+      oldKeys.add(projectFileKey(oldProjectKey, copiedFiles.get(newName)));
+    }
+    Map<Key<FileData>, FileData> oldFiles = ObjectifyService.begin().get(oldKeys);
+
+    List<FileData> files = new ArrayList<FileData>();
+    final Map<FileData, byte[]> blobContents = new LinkedHashMap<FileData, byte[]>();
+    Map<String, String> fileHashes = new HashMap<String, String>();
+    List<FileData> shared = new ArrayList<FileData>();
+    List<Callable<byte[]>> reads = new ArrayList<Callable<byte[]>>();
+    final List<FileData> readFiles = new ArrayList<FileData>();
+    for (int i = 0; i < newNames.size(); i++) {
+      final String newName = newNames.get(i);
+      final FileData oldFile = oldFiles.get(oldKeys.get(i));
+      if (oldFile == null) {
+        continue;
+      }
+      if (oldFile.userId != null && !oldFile.userId.equals("")
+          && !oldFile.userId.equals(userId)) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectUserProjectErrorInfo(userId, oldProjectId),
+            new UnauthorizedAccessException(userId, oldProjectId, null));
+      }
+      if (oldFile.blobHash != null) {
+        // Only the reference to the blob is copied.
+        FileData file = copyFileData(oldFile, newName, userId);
+        file.isGCS = true;
+        file.blobHash = oldFile.blobHash;
+        fileHashes.put(newName, file.blobHash);
+        shared.add(file);
+        files.add(file);
+      } else if (isTrue(oldFile.isGCS) || oldFile.isBlob) {
+        // The file predates shared blobs, so its content is read once to make it one.
+        readFiles.add(copyFileData(oldFile, newName, userId));
+        reads.add(new Callable<byte[]>() {
+          @Override
+          public byte[] call() {
+            return readFileContent(oldFile, userId, oldProjectId, oldFile.fileName);
+          }
+        });
+      } else {
+        FileData file = copyFileData(oldFile, newName, userId);
+        file.content = oldFile.content;
+        files.add(file);
+      }
+    }
+    for (TextFile file : project.getSourceFiles()) {
+      try {
+        files.add(createRawFile(FileData.RoleEnum.SOURCE, userId, file.getFileName(),
+            file.getContent().getBytes(DEFAULT_ENCODING), blobContents));
+      } catch (UnsupportedEncodingException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, oldProjectId, file.getFileName()), e);
+      }
+    }
+
+    Map<String, byte[]> contents = new HashMap<String, byte[]>();
+    try {
+      List<byte[]> readContents = callInParallel(reads);
+      for (int i = 0; i < readFiles.size(); i++) {
+        FileData file = readFiles.get(i);
+        file.isGCS = true;
+        file.blobHash = blobHash(readContents.get(i));
+        blobContents.put(file, readContents.get(i));
+        files.add(file);
+      }
+      for (Map.Entry<FileData, byte[]> entry : blobContents.entrySet()) {
+        fileHashes.put(entry.getKey().fileName, entry.getKey().blobHash);
+        contents.put(entry.getKey().blobHash, entry.getValue());
+      }
+      Map<String, String> gcsNames = acquireBlobs(projectId, fileHashes, contents);
+      for (FileData file : shared) {
+        file.gcsName = gcsNames.get(file.blobHash);
+      }
+      for (FileData file : blobContents.keySet()) {
+        file.gcsName = gcsNames.get(file.blobHash);
+      }
+    } catch (IOException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, oldProjectId), e);
+    }
+    return createProject(userId, projectId, project, projectSettings, files);
+  }
+
+  /*
+   * Creates a FileData for a copy of a file with the given name, without its content.
+   */
+  private static FileData copyFileData(FileData oldFile, String fileName, String userId) {
+    FileData file = new FileData();
+    file.fileName = fileName;
+    file.role = oldFile.role;
+    file.settings = oldFile.settings;
+    file.userId = userId;
+    return file;
+  }
+
+  /**
+   * Returns the hash that identifies content as a shared blob.
+   */
+  private static String blobHash(byte[] content) {
+    return Hashing.sha256().hashBytes(content).toString();
+  }
+
+  /**
+   * Adds references from files of a project to shared blobs, storing the blobs that do not
+   * exist yet.
+   *
+   * <p>Each blob is a SharedBlobData and a GCS object in the source bucket that holds its
+   * content. The name of the object is unique to the SharedBlobData, so that a blob that is
+   * stored again after it was released never reuses an object that is being deleted. The
+   * references are SharedBlobRefData entities, one for each file, grouped by shard of projects,
+   * so that acquiring a blob does not write to the SharedBlobData once it exists.
+   *
+   * <p>The references are added before the blobs are looked up. A release that is about to
+   * delete a blob marks it first, and checks for references afterwards, so it either finds the
+   * new references or has its mark cleared here before it deletes the blob.
+   *
+   * @param projectId the ID of the project of the files
+   * @param fileHashes the hashes of the blobs that the files refer to, by file name
+   * @param contents the contents of the blobs, by hash. A blob whose content
+   *     is not given must exist.
+   * @return the names of the GCS objects of the blobs, by hash
+   * @throws IOException if a blob could not be written, or does not exist
+   *     and its content is not given. The references are released before
+   *     it is thrown.
+   */
+  private Map<String, String> acquireBlobs(long projectId, Map<String, String> fileHashes,
+      final Map<String, byte[]> contents) throws IOException {
+    final Map<String, String> gcsNames = new HashMap<String, String>();
+    if (fileHashes.isEmpty()) {
+      return gcsNames;
+    }
+    boolean acquired = false;
+    try {
+      updateBlobRefs(projectId, fileHashes, true);
+
+      List<String> pending = new ArrayList<String>(new HashSet<String>(fileHashes.values()));
+      while (!pending.isEmpty()) {
+        List<Key<SharedBlobData>> keys = new ArrayList<Key<SharedBlobData>>(pending.size());
+        for (String hash : pending) {
+          keys.add(sharedBlobKey(hash));
+        }
+        Map<Key<SharedBlobData>, SharedBlobData> existing = ObjectifyService.begin().get(keys);
+
+        // Write the blobs that were not found, several at a time.
+        final Map<String, String> written = new HashMap<String, String>();
+        final List<String> claimed = new ArrayList<String>();
+        List<Callable<Void>> writes = new ArrayList<Callable<Void>>();
+        for (final String hash : pending) {
+          SharedBlobData blob = existing.get(sharedBlobKey(hash));
+          if (blob != null && blob.releaseToken == null) {
+            gcsNames.put(hash, blob.gcsName);
+            continue;
+          }
+          claimed.add(hash);
+          if (blob != null) {
+            continue;
+          }
+          if (!contents.containsKey(hash)) {
+            throw new IOException("Shared blob " + hash + " does not exist");
+          }
+          final String gcsName = "blobs/" + hash + "/" + UUID.randomUUID();
+          written.put(hash, gcsName);
+          writes.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              new GcsWrite(hash, new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE),
+                  gcsName), contents.get(hash)).write(gcsService);
+              return null;
+            }
+          });
+        }
+        callInParallel(writes);
+
+        // Store the new blobs and clear the marks of releases. A blob that was deleted in the
+        // meantime is written again.
+        List<Callable<String>> claims = new ArrayList<Callable<String>>(claimed.size());
+        for (final String hash : claimed) {
+          claims.add(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+              return claimBlob(hash, written.get(hash));
+            }
+          });
+        }
+        List<String> claimedNames = callInParallel(claims);
+        List<String> missing = new ArrayList<String>();
+        List<String> unused = new ArrayList<String>();
+        for (int i = 0; i < claimed.size(); i++) {
+          String hash = claimed.get(i);
+          String gcsName = claimedNames.get(i);
+          if (gcsName == null) {
+            missing.add(hash);
+          } else {
+            gcsNames.put(hash, gcsName);
+            if (written.containsKey(hash) && !written.get(hash).equals(gcsName)) {
+              unused.add(written.get(hash));  // the blob was stored concurrently
+            }
+          }
+        }
+        deleteGcsFiles(unused);
+        pending = missing;
+      }
+      acquired = true;
+    } finally {
+      if (!acquired) {
+        releaseBlobs(projectId, fileHashes);
+      }
+    }
+    return gcsNames;
+  }
+
+  /*
+   * Makes sure that a shared blob exists and that no release deletes it, and returns the name
+   * of its GCS object. A blob that does not exist is stored with the given object, or null is
+   * returned if none is given.
+   */
+  private String claimBlob(final String hash, final String gcsName) throws IOException {
+    final Result<String> result = new Result<String>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          result.t = null;
+          SharedBlobData blob = datastore.find(sharedBlobKey(hash));
+          if (blob == null) {
+            if (gcsName == null) {
+              return;
+            }
+            blob = new SharedBlobData();
+            blob.hash = hash;
+            blob.gcsName = gcsName;
+          } else if (blob.releaseToken == null) {
+            result.t = blob.gcsName;
+            return;
+          }
+          blob.releaseToken = null;
+          datastore.put(blob);
+          result.t = blob.gcsName;
+        }
+      }, true);
+    } catch (ObjectifyException e) {
+      throw new IOException(e);
+    }
+    return result.t;
+  }
+
+  /**
+   * Removes references from files of a project to shared blobs, and deletes
+   * the blobs that are no longer referred to. Removing a reference that was
+   * already removed has no effect, so concurrent saves or deletes of the same
+   * file release its blob only once. Errors are logged, since they only leave
+   * unused blobs behind.
+   *
+   * @param projectId the ID of the project of the files
+   * @param fileHashes the hashes of the blobs that the files referred to, by file name
+   */
+  @VisibleForTesting
+  void releaseBlobs(long projectId, Map<String, String> fileHashes) {
+    if (fileHashes.isEmpty()) {
+      return;
+    }
+    List<String> emptied;
+    try {
+      emptied = updateBlobRefs(projectId, fileHashes, false);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to release the shared blobs of project " + projectId, e);
+      return;
+    }
+    List<String> unused = new ArrayList<String>();
+    for (String hash : emptied) {
+      String gcsName = collectBlob(hash);
+      if (gcsName != null) {
+        unused.add(gcsName);
+      }
+    }
+    deleteGcsFiles(unused);
+  }
+
+  /*
+   * Adds or removes the references from files of a project to shared blobs, with one batch put
+   * or delete. Adding a reference that is already there, or removing one that is not, has no
+   * effect. Returns the hashes of the blobs that have no references left in the shard of the
+   * project after a removal.
+   */
+  private List<String> updateBlobRefs(long projectId, Map<String, String> fileHashes,
+      final boolean add) throws IOException {
+    Key<ProjectData> projectKey = projectKey(projectId);
+    final long shard = projectId % SHARED_BLOB_SHARDS;
+    final List<SharedBlobRefData> refs = new ArrayList<SharedBlobRefData>(fileHashes.size());
+    Set<String> hashes = new LinkedHashSet<String>();
+    for (Map.Entry<String, String> entry : fileHashes.entrySet()) {
+      SharedBlobRefData ref = new SharedBlobRefData();
+      ref.shardKey = sharedBlobShardKey(entry.getValue(), shard);
+      ref.fileKey = projectFileKey(projectKey, entry.getKey()).getString();
+      refs.add(ref);
+      hashes.add(entry.getValue());
+    }
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          if (add) {
+            datastore.put(refs);  // batch put
+          } else {
+            datastore.delete(refs);  // batch delete
+          }
+        }
+      }, false);  // Each reference is written or deleted as a whole, so no transaction is needed.
+    } catch (ObjectifyException e) {
+      throw new IOException(e);
+    }
+    List<String> emptied = new ArrayList<String>();
+    if (add) {
+      return emptied;
+    }
+    List<Callable<String>> checks = new ArrayList<Callable<String>>(hashes.size());
+    for (final String hash : hashes) {
+      checks.add(new Callable<String>() {
+        @Override
+        public String call() {
+          return hasBlobRefs(hash, shard) ? null : hash;
+        }
+      });
+    }
+    for (String hash : callInParallel(checks)) {
+      if (hash != null) {
+        emptied.add(hash);
+      }
+    }
+    return emptied;
+  }
+
+  /*
+   * Returns whether there are references to a shared blob in a shard, with a keys-only
+   * ancestor query, which is strongly consistent.
+   */
+  private boolean hasBlobRefs(String hash, long shard) {
+    return !ObjectifyService.begin().query(SharedBlobRefData.class)
+        .ancestor(sharedBlobShardKey(hash, shard)).limit(1).listKeys().isEmpty();
+  }
+
+  /*
+   * Deletes a shared blob if no references to it are left in any shard, and returns the name
+   * of its GCS object, or null if the blob was not deleted. The blob is marked before the
+   * shards are queried, and only deleted if it is still marked afterwards, since an acquire
+   * that added a reference in the meantime clears the mark.
+   */
+  private String collectBlob(final String hash) {
+    final String token = UUID.randomUUID().toString();
+    final Result<Boolean> marked = new Result<Boolean>();
+    final Result<String> gcsName = new Result<String>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          SharedBlobData blob = datastore.find(sharedBlobKey(hash));
+          marked.t = blob != null;  // null if a concurrent release deleted it
+          if (blob != null) {
+            blob.releaseToken = token;
+            datastore.put(blob);
+          }
+        }
+      }, true);
+      if (!marked.t) {
+        return null;
+      }
+      List<Callable<Boolean>> checks = new ArrayList<Callable<Boolean>>(SHARED_BLOB_SHARDS);
+      for (long shard = 0; shard < SHARED_BLOB_SHARDS; shard++) {
+        final long queriedShard = shard;
+        checks.add(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            return hasBlobRefs(hash, queriedShard);
+          }
+        });
+      }
+      if (callInParallel(checks).contains(true)) {
+        return null;  // an acquire clears the mark
+      }
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          gcsName.t = null;
+          SharedBlobData blob = datastore.find(sharedBlobKey(hash));
+          if (blob != null && token.equals(blob.releaseToken)) {
+            datastore.delete(blob);
+            gcsName.t = blob.gcsName;
+          }
+        }
+      }, true);
+    } catch (ObjectifyException e) {
+      LOG.log(Level.WARNING, "Unable to release shared blob " + hash, e);
+      return null;
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to release shared blob " + hash, e);
+      return null;
+    }
+    return gcsName.t;
+  }
+
+  private void deleteGcsFiles(List<String> gcsNames) {
+    for (String gcsName : gcsNames) {
+      try {
+        gcsService.delete(new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE), gcsName));
+      } catch (IOException e) {
+        LOG.log(Level.WARNING, "Unable to delete " + gcsName + " from GCS.", e);
+      }
+    }
+  }
+
   @Override
   public void deleteProject(final String userId, final long projectId) {
     validateGCS();
     // blobs associated with the project
     final List<String> blobKeys = new ArrayList<String>();
     final List<String> gcsPaths = new ArrayList<String>();
+    final Map<String, String> blobHashes = new HashMap<String, String>();
     try {
       // first job deletes the UserProjectData in the user's entity group
       runJobWithRetries(new JobRetryHelper() {
@@ -646,8 +1092,13 @@ public class ObjectifyStorageIo implements StorageIo {
         public void run(Objectify datastore) {
           Key<ProjectData> projectKey = projectKey(projectId);
           Query<FileData> fdq = datastore.query(FileData.class).ancestor(projectKey);
+          blobKeys.clear();
+          gcsPaths.clear();
+          blobHashes.clear();
           for (FileData fd: fdq) {
-            if (isTrue(fd.isGCS)) {
+            if (fd.blobHash != null) {
+              blobHashes.put(fd.fileName, fd.blobHash);
+            } else if (isTrue(fd.isGCS)) {
               gcsPaths.add(fd.gcsName);
             } else if (fd.isBlob) {
               blobKeys.add(fd.blobKey);
@@ -672,6 +1123,7 @@ public class ObjectifyStorageIo implements StorageIo {
           LOG.log(Level.WARNING, "Unable to delete " + gcsName + " from GCS while deleting project", e);
         }
       }
+      releaseBlobs(projectId, blobHashes);
     } catch (ObjectifyException e) {
       throw CrashReport.createAndLogError(LOG, null,
           collectUserProjectErrorInfo(userId, projectId), e);
@@ -1391,10 +1843,7 @@ public class ObjectifyStorageIo implements StorageIo {
       final boolean force, final byte[] content) throws BlocksTruncatedException {
     validateGCS();
     final Result<Long> modTime = new Result<Long>();
-    final boolean useGCS = useGCSforFile(fileName, content.length);
-
-    final boolean considerBackup = (fileName.contains("src/") &&
-      (fileName.endsWith(".bky") || fileName.endsWith(".scm")));
+    final Map<String, String> releasedBlobs = new HashMap<String, String>();
 
     try {
       runJobWithRetries(new JobRetryHelper() {
@@ -1412,83 +1861,11 @@ public class ObjectifyStorageIo implements StorageIo {
             }
           }
 
-          // <Screen>.yail files are missing when user converts AI1 project to AI2
-          // instead of blowing up, just create a <Screen>.yail file
-          if (fd == null && (fileName.endsWith(".yail") || (fileName.endsWith(".png")))){
-            fd = createProjectFile(datastore, projectKey(projectId), FileData.RoleEnum.SOURCE, fileName);
-            fd.userId = userId;
-          }
-
-          Preconditions.checkState(fd != null);
-
-          if (fd.userId != null && !fd.userId.equals("")) {
-            if (!fd.userId.equals(userId)) {
-              throw CrashReport.createAndLogError(LOG, null,
-                collectUserProjectErrorInfo(userId, projectId),
-                new UnauthorizedAccessException(userId, projectId, null));
-            }
-          }
-
-          if ((content.length < 125) && (fileName.endsWith(".bky"))) { // Likely this is an empty blocks workspace
-            if (!force) {            // force is true if we *really* want to save it!
-              checkForBlocksTruncation(fd); // See if we had previous content and throw and exception if so
-            }
-          }
-
-          if (useGCS) {
-            fd.isGCS = true;
-            fd.gcsName = makeGCSfileName(fileName, projectId);
-            try {
-              GcsOutputChannel outputChannel =
-                  gcsService.createOrReplace(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName), GcsFileOptions.getDefaultInstance());
-              outputChannel.write(ByteBuffer.wrap(content));
-              outputChannel.close();
-            } catch (IOException e) {
-              throw CrashReport.createAndLogError(LOG, null,
-                collectProjectErrorInfo(userId, projectId, fileName), e);
-            }
-            // If the content was previously stored in the datastore, clear it out.
-            fd.content = null;
-            fd.isBlob = false;  // in case we are converting from a blob
-            fd.blobstorePath = null;
-          } else {
-            if (isTrue(fd.isGCS)) {     // Was a GCS file, must have gotten smaller
-              try {             // and is now stored in the data store
-                gcsService.delete(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName));
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                  collectProjectErrorInfo(userId, projectId, fileName), e);
-              }
-              fd.isGCS = false;
-              fd.gcsName = null;
-            }
-            // Note, Don't have to do anything if the file was in the
-            // Blobstore and shrank because the code above (3 lines
-            // into the function) already handles removing the old
-            // contents from the Blobstore.
-            fd.isBlob = false;
-            fd.blobstorePath = null;
-            fd.content = content;
-          }
-          if (considerBackup) {
-            if ((fd.lastBackup + TWENTYFOURHOURS) < System.currentTimeMillis()) {
-              try {
-                String gcsName = makeGCSfileName(fileName + "." + formattedTime() + ".backup", projectId);
-                GcsOutputChannel outputChannel =
-                    gcsService.createOrReplace((new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE), gcsName)), GcsFileOptions.getDefaultInstance());
-                outputChannel.write(ByteBuffer.wrap(content));
-                outputChannel.close();
-                fd.lastBackup = System.currentTimeMillis();
-              } catch (IOException e) {
-                throw CrashReport.createAndLogError(LOG, null,
-                    collectProjectErrorInfo(userId, projectId, fileName + "(backup)"), e);
-              }
-            }
-          }
-          // Old file not marked with ownership, mark it now
-          if (fd.userId == null || fd.userId.equals("")) {
-            fd.userId = userId;
-          }
+          List<GcsWrite> gcsWrites = new ArrayList<GcsWrite>();
+          releasedBlobs.clear();
+          fd = prepareUpload(datastore, fd, projectId, fileName, userId, force, content,
+              gcsWrites, releasedBlobs);
+          writeToGcs(gcsWrites, userId, projectId);
           datastore.put(fd);
           memcache.put(key.getString(), fd); // Store the updated data in memcache
           modTime.t = updateProjectModDate(datastore, projectId);
@@ -1503,9 +1880,350 @@ public class ObjectifyStorageIo implements StorageIo {
       throw CrashReport.createAndLogError(LOG, null,
           collectProjectErrorInfo(userId, projectId, fileName), e);
     }
+    releaseBlobs(projectId, releasedBlobs);
+    return modTime.t;
+  }
+
+  @Override
+  public long uploadFilesForce(final long projectId, final String userId,
+      final Map<String, String> contents, final String encoding) {
+    try {
+      return uploadFiles(projectId, userId, true, contents, encoding);
+    } catch (BlocksTruncatedException e) {
+      // Won't get here, exception isn't thrown when force is true
+      return 0;
+    }
+  }
+
+  @Override
+  public long uploadFiles(final long projectId, final String userId, final boolean force,
+      final Map<String, String> contents, final String encoding) throws BlocksTruncatedException {
+    validateGCS();
+    final Result<Long> modTime = new Result<Long>();
+    final List<String> fileNames = new ArrayList<String>(contents.keySet());
+    final List<byte[]> rawContents = new ArrayList<byte[]>(fileNames.size());
+    final Map<String, String> releasedBlobs = new HashMap<String, String>();
+    for (String fileName : fileNames) {
+      try {
+        rawContents.add(contents.get(fileName).getBytes(encoding));
+      } catch (UnsupportedEncodingException e) {
+        throw CrashReport.createAndLogError(LOG, null, "Unsupported file content encoding,"
+            + collectProjectErrorInfo(null, projectId, fileName), e);
+      }
+    }
+    Key<ProjectData> projectKey = projectKey(projectId);
+    final List<Key<FileData>> keys = new ArrayList<Key<FileData>>(fileNames.size());
+    final List<String> cacheKeys = new ArrayList<String>(fileNames.size());
+    for (String fileName : fileNames) {
+      Key<FileData> key = projectFileKey(projectKey, fileName);
+      keys.add(key);
+      cacheKeys.add(key.getString());
+    }
+    final List<FileData> updated = new ArrayList<FileData>(fileNames.size());
+
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) throws ObjectifyException {
+          // The cached FileData would not take part in the transaction, so the files are read
+          // from the datastore, all at once, and their cache entries are dropped until the
+          // transaction commits.
+          memcache.deleteAll(cacheKeys);
+          Map<Key<FileData>, FileData> stored = datastore.get(keys);
+
+          List<GcsWrite> gcsWrites = new ArrayList<GcsWrite>();
+          updated.clear();
+          releasedBlobs.clear();
+          for (int i = 0; i < fileNames.size(); i++) {
+            updated.add(prepareUpload(datastore, stored.get(keys.get(i)), projectId,
+                fileNames.get(i), userId, force, rawContents.get(i), gcsWrites, releasedBlobs));
+          }
+          writeToGcs(gcsWrites, userId, projectId);
+          datastore.put(updated);  // batch put
+          modTime.t = updateProjectModDate(datastore, projectId);
+        }
+      }, true);  // The files are children of the project, so the files and the project's
+                 // modification date are written in one transaction on its entity group.
+    } catch (ObjectifyException e) {
+      if (e.getMessage().startsWith("Blocks")) { // Convert Exception
+        throw new BlocksTruncatedException();
+      }
+      throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileNames.toString()), e);
+    }
+    Map<String, FileData> toCache = new HashMap<String, FileData>();
+    for (int i = 0; i < fileNames.size(); i++) {
+      toCache.put(cacheKeys.get(i), updated.get(i));
+    }
+    memcache.putAll(toCache);
+    releaseBlobs(projectId, releasedBlobs);
     return modTime.t;
   }
 
+  /**
+   * Updates the FileData of a project file to hold new content. Content and backups that go to
+   * GCS are added to gcsWrites instead of being written, so that the caller can write the
+   * content of several files at once before it puts their FileData. If the file referred to a
+   * shared blob, its hash is added to releasedBlobs under the file name, for the caller to
+   * release once the FileData is put. Releasing is idempotent, so a concurrent save or delete
+   * of the same file that releases it too does no harm.
+   *
+   * @param datastore the datastore of the current job
+   * @param fd the current FileData of the file, or null if none was found
+   * @param projectId the project ID
+   * @param fileName the file name
+   * @param userId the user who owns the file
+   * @param force write the file even if it is a trivial workspace
+   * @param content the new content of the file
+   * @param gcsWrites the list to which writes to GCS are added
+   * @param releasedBlobs the map to which the hashes of shared blobs to release are added
+   * @return the updated FileData, which still needs to be put
+   * @throws ObjectifyException if a blocks workspace would be truncated
+   */
+  private FileData prepareUpload(Objectify datastore, FileData fd, long projectId,
+      String fileName, String userId, boolean force, byte[] content, List<GcsWrite> gcsWrites,
+      Map<String, String> releasedBlobs) throws ObjectifyException {
+    boolean useGCS = useGCSforFile(fileName, content.length);
+    boolean considerBackup = (fileName.contains("src/") &&
+      (fileName.endsWith(".bky") || fileName.endsWith(".scm")));
+
+    // <Screen>.yail files are missing when user converts AI1 project to AI2
+    // instead of blowing up, just create a <Screen>.yail file
+    if (fd == null && (fileName.endsWith(".yail") || (fileName.endsWith(".png")))){
+      fd = createProjectFile(datastore, projectKey(projectId), FileData.RoleEnum.SOURCE, fileName);
+      fd.userId = userId;
+    }
+
+    Preconditions.checkState(fd != null);
+
+    if (fd.userId != null && !fd.userId.equals("")) {
+      if (!fd.userId.equals(userId)) {
+        throw CrashReport.createAndLogError(LOG, null,
+          collectUserProjectErrorInfo(userId, projectId),
+          new UnauthorizedAccessException(userId, projectId, null));
+      }
+    }
+
+    if ((content.length < 125) && (fileName.endsWith(".bky"))) { // Likely this is an empty blocks workspace
+      if (!force) {            // force is true if we *really* want to save it!
+        checkForBlocksTruncation(fd); // See if we had previous content and throw and exception if so
+      }
+    }
+
+    if (fd.blobHash != null) {
+      // The content is shared with other projects, so the new content is written to a GCS
+      // file of the project's own instead.
+      releasedBlobs.put(fileName, fd.blobHash);
+      fd.blobHash = null;
+      fd.isGCS = false;
+      fd.gcsName = null;
+    }
+    if (useGCS) {
+      fd.isGCS = true;
+      fd.gcsName = makeGCSfileName(fileName, projectId);
+      gcsWrites.add(new GcsWrite(fileName,
+          new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName), content));
+      // If the content was previously stored in the datastore, clear it out.
+      fd.content = null;
+      fd.isBlob = false;  // in case we are converting from a blob
+      fd.blobstorePath = null;
+    } else {
+      if (isTrue(fd.isGCS)) {     // Was a GCS file, must have gotten smaller
+        try {             // and is now stored in the data store
+          gcsService.delete(new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName));
+        } catch (IOException e) {
+          throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, fileName), e);
+        }
+        fd.isGCS = false;
+        fd.gcsName = null;
+      }
+      // Note, Don't have to do anything if the file was in the
+      // Blobstore and shrank because the code above (3 lines
+      // into the function) already handles removing the old
+      // contents from the Blobstore.
+      fd.isBlob = false;
+      fd.blobstorePath = null;
+      fd.content = content;
+    }
+    if (considerBackup) {
+      if ((fd.lastBackup + TWENTYFOURHOURS) < System.currentTimeMillis()) {
+        String gcsName = makeGCSfileName(fileName + "." + formattedTime() + ".backup", projectId);
+        gcsWrites.add(new GcsWrite(fileName + "(backup)",
+            new GcsFilename(getGcsBucketToUse(FileData.RoleEnum.SOURCE), gcsName), content));
+        fd.lastBackup = System.currentTimeMillis();
+      }
+    }
+    // Old file not marked with ownership, mark it now
+    if (fd.userId == null || fd.userId.equals("")) {
+      fd.userId = userId;
+    }
+    return fd;
+  }
+
+  /**
+   * Content to be written to a GCS file by {@link #writeToGcs(List, String, long)}.
+   */
+  private static class GcsWrite {
+    final String fileName;  // for error reports
+    final GcsFilename gcsFilename;
+    final byte[] content;
+
+    GcsWrite(String fileName, GcsFilename gcsFilename, byte[] content) {
+      this.fileName = fileName;
+      this.gcsFilename = gcsFilename;
+      this.content = content;
+    }
+
+    void write(GcsService gcsService) throws IOException {
+      GcsOutputChannel outputChannel =
+          gcsService.createOrReplace(gcsFilename, GcsFileOptions.getDefaultInstance());
+      outputChannel.write(ByteBuffer.wrap(content));
+      outputChannel.close();
+    }
+  }
+
+  /**
+   * Writes content to GCS. When there are several writes, as when a batch of files is uploaded,
+   * they are made in parallel on request threads, since each one waits on a round trip to GCS.
+   */
+  private void writeToGcs(List<GcsWrite> gcsWrites, String userId, long projectId) {
+    if (gcsWrites.size() == 1) {
+      GcsWrite gcsWrite = gcsWrites.get(0);
+      try {
+        gcsWrite.write(gcsService);
+      } catch (IOException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, gcsWrite.fileName), e);
+      }
+      return;
+    }
+    if (gcsWrites.isEmpty()) {
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(gcsWrites.size(), MAX_PARALLEL_GCS_REQUESTS),
+        ThreadManager.currentRequestThreadFactory());
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>(gcsWrites.size());
+      for (final GcsWrite gcsWrite : gcsWrites) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            gcsWrite.write(gcsService);
+            return null;
+          }
+        }));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          throw CrashReport.createAndLogError(LOG, null,
+              collectProjectErrorInfo(userId, projectId, gcsWrites.get(i).fileName),
+              e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw CrashReport.createAndLogError(LOG, null,
+              collectProjectErrorInfo(userId, projectId, gcsWrites.get(i).fileName), e);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Calls tasks that each wait on a round trip to GCS or the datastore, several at a time on
+   * request threads, and returns their results in order. Runtime exceptions and IOExceptions
+   * thrown by a task are rethrown as they are.
+   */
+  private static <T> List<T> callInParallel(List<Callable<T>> tasks) throws IOException {
+    List<T> results = new ArrayList<T>(tasks.size());
+    if (tasks.size() <= 1) {
+      for (Callable<T> task : tasks) {
+        try {
+          results.add(task.call());
+        } catch (IOException e) {
+          throw e;
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+      return results;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(tasks.size(), MAX_PARALLEL_GCS_REQUESTS),
+        ThreadManager.currentRequestThreadFactory());
+    try {
+      List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+      for (Callable<T> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<T> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IOException(cause);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  /**
+   * Reads the content of one project file.
+   */
+  private interface ContentReader {
+    byte[] read(FileData fileData) throws IOException;
+  }
+
+  /**
+   * Reads the contents of the given files, in order. Only files kept in GCS or the Blobstore
+   * need a round trip, so only they are read in parallel. Contents kept in the datastore are
+   * read on this thread.
+   */
+  private List<byte[]> readContents(List<FileData> files, final ContentReader reader)
+      throws IOException {
+    byte[][] contents = new byte[files.size()][];
+    List<Integer> remoteIndexes = new ArrayList<Integer>();
+    List<Callable<byte[]>> remoteReads = new ArrayList<Callable<byte[]>>();
+    for (int i = 0; i < files.size(); i++) {
+      final FileData file = files.get(i);
+      if (isTrue(file.isGCS) || file.isBlob) {
+        remoteIndexes.add(i);
+        remoteReads.add(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws IOException {
+            return reader.read(file);
+          }
+        });
+      } else {
+        contents[i] = reader.read(file);
+      }
+    }
+    List<byte[]> remoteContents = callInParallel(remoteReads);
+    for (int i = 0; i < remoteIndexes.size(); i++) {
+      contents[remoteIndexes.get(i)] = remoteContents.get(i);
+    }
+    return Arrays.asList(contents);
+  }
+
   protected void deleteBlobstoreFile(String blobKeyString) {
     // It would be nice if there were an AppEngineFile.delete() method but alas there isn't, so we
     // have to get the BlobKey and delete via the BlobstoreService.
@@ -1544,6 +2262,7 @@ public class ObjectifyStorageIo implements StorageIo {
     final Result<Long> modTime = new Result<Long>();
     final Result<String> oldBlobKeyString = new Result<String>();
     final Result<String> oldgcsName = new Result<String>();
+    final Result<String> oldBlobHash = new Result<String>();
     try {
       runJobWithRetries(new JobRetryHelper() {
         @Override
@@ -1560,7 +2279,8 @@ public class ObjectifyStorageIo implements StorageIo {
               }
             }
             oldBlobKeyString.t = fileData.blobKey;
-            if (isTrue(fileData.isGCS)) {
+            oldBlobHash.t = fileData.blobHash;
+            if (isTrue(fileData.isGCS) && fileData.blobHash == null) {
               oldgcsName.t = fileData.gcsName;
             }
           }
@@ -1584,6 +2304,9 @@ public class ObjectifyStorageIo implements StorageIo {
         LOG.log(Level.WARNING, "Unable to delete " + oldgcsName + " from GCS.", e);
       }
     }
+    if (oldBlobHash.t != null) {
+      releaseBlobs(projectId, Collections.singletonMap(fileName, oldBlobHash.t));
+    }
     return (modTime.t == null) ? 0 : modTime.t;
   }
 
@@ -1626,7 +2349,6 @@ public class ObjectifyStorageIo implements StorageIo {
   @Override
   public byte[] downloadRawFile(final String userId, final long projectId, final String fileName) {
     validateGCS();
-    final Result<byte[]> result = new Result<byte[]>();
     final Result<FileData> fd = new Result<FileData>();
     try {
       runJobWithRetries(new JobRetryHelper() {
@@ -1644,7 +2366,109 @@ public class ObjectifyStorageIo implements StorageIo {
           collectProjectErrorInfo(userId, projectId, fileName), e);
     }
     // read the blob/GCS File outside of the job
-    FileData fileData = fd.t;
+    return readFileContent(fd.t, userId, projectId, fileName);
+  }
+
+  @Override
+  public Map<String, String> downloadFiles(final String userId, final long projectId,
+      final List<String> fileNames, final String encoding) {
+    validateGCS();
+    final Map<String, FileData> fileDatas = new HashMap<String, FileData>();
+    try {
+      runJobWithRetries(new JobRetryHelper() {
+        @Override
+        public void run(Objectify datastore) {
+          // Fetch all of the files at once, from memcache where possible.
+          fileDatas.clear();
+          Key<ProjectData> projectKey = projectKey(projectId);
+          List<String> cacheKeys = new ArrayList<String>(fileNames.size());
+          for (String fileName : fileNames) {
+            cacheKeys.add(projectFileKey(projectKey, fileName).getString());
+          }
+          Map<String, Object> cached = memcache.getAll(cacheKeys);
+          List<Key<FileData>> missing = new ArrayList<Key<FileData>>();
+          for (int i = 0; i < fileNames.size(); i++) {
+            FileData fd = (FileData) cached.get(cacheKeys.get(i));
+            if (fd != null) {
+              fileDatas.put(fileNames.get(i), fd);
+            } else {
+              missing.add(projectFileKey(projectKey, fileNames.get(i)));
+            }
+          }
+          if (!missing.isEmpty()) {
+            for (FileData fd : datastore.get(missing).values()) {
+              fileDatas.put(fd.fileName, fd);
+            }
+          }
+        }
+      }, false); // Transaction not needed
+    } catch (ObjectifyException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileNames.toString()), e);
+    }
+
+    // Read the contents outside of the job. A file that cannot be read is left out, so that
+    // only its editor fails when it loads the file by itself.
+    final List<String> foundFileNames = new ArrayList<String>();
+    List<FileData> foundFiles = new ArrayList<FileData>();
+    for (String fileName : fileNames) {
+      FileData fileData = fileDatas.get(fileName);
+      if (fileData != null) {
+        foundFileNames.add(fileName);
+        foundFiles.add(fileData);
+      }
+    }
+    List<byte[]> rawContents;
+    try {
+      rawContents = readContents(foundFiles, new ContentReader() {
+        @Override
+        public byte[] read(FileData fileData) {
+          try {
+            return readFileContent(fileData, userId, projectId, fileData.fileName);
+          } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to read "
+                + collectProjectErrorInfo(userId, projectId, fileData.fileName), e);
+            return null;
+          }
+        }
+      });
+    } catch (IOException e) {
+      throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileNames.toString()), e);
+    }
+    Map<String, String> contents = new LinkedHashMap<String, String>();
+    for (int i = 0; i < foundFileNames.size(); i++) {
+      if (rawContents.get(i) != null) {
+        String fileName = foundFileNames.get(i);
+        contents.put(fileName, decode(rawContents.get(i), encoding, userId, projectId, fileName));
+      }
+    }
+    return contents;
+  }
+
+  private static String decode(byte[] content, String encoding, String userId, long projectId,
+      String fileName) {
+    try {
+      return new String(content, encoding);
+    } catch (UnsupportedEncodingException e) {
+      throw CrashReport.createAndLogError(LOG, null, "Unsupported file content encoding, "
+          + collectProjectErrorInfo(userId, projectId, fileName), e);
+    }
+  }
+
+  /**
+   * Reads the content of a project file, from GCS or the Blobstore if it is not kept in the
+   * datastore.
+   *
+   * @param fileData the FileData of the file, or null if it was not found
+   * @param userId the user on whose behalf the file is read
+   * @param projectId the project ID
+   * @param fileName the file name
+   * @return the content of the file
+   */
+  private byte[] readFileContent(FileData fileData, String userId, long projectId,
+      String fileName) {
+    final Result<byte[]> result = new Result<byte[]>();
     if (fileData != null) {
       if (fileData.userId != null && !fileData.userId.equals("")) {
         if (!fileData.userId.equals(userId)) {
@@ -1858,79 +2682,15 @@ public class ObjectifyStorageIo implements StorageIo {
       }
       // Process the file contents outside of the job since we can't read
       // blobs in the job.
-      for (FileData fd : fileData) {
-        fileName = fd.fileName;
-        byte[] data = null;
-        if (fd.isBlob) {
-          try {
-            if (fd.blobKey == null) {
-              throw new BlobReadException("blobKey is null");
-            }
-            data = getBlobstoreBytes(fd.blobKey);
-          } catch (BlobReadException e) {
-            throw CrashReport.createAndLogError(LOG, null,
-                collectProjectErrorInfo(userId, projectId, fileName), e);
-          }
-        } else if (isTrue(fd.isGCS)) {
-          try {
-            int count;
-            boolean npfHappened = false;
-            boolean recovered = false;
-            for (count = 0; count < 5; count++) {
-              GcsFilename gcsFileName = new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName);
-              int bytesRead = 0;
-              int fileSize = 0;
-              ByteBuffer resultBuffer;
-              try {
-                fileSize = (int) gcsService.getMetadata(gcsFileName).getLength();
-                resultBuffer = ByteBuffer.allocate(fileSize);
-                GcsInputChannel readChannel = gcsService.openReadChannel(gcsFileName, 0);
-                try {
-                  while (bytesRead < fileSize) {
-                    bytesRead += readChannel.read(resultBuffer);
-                    if (bytesRead < fileSize) {
-                      if (DEBUG) {
-                        LOG.log(Level.INFO, "readChannel: bytesRead = " + bytesRead + " fileSize = " + fileSize);
-                      }
-                    }
-                  }
-                  recovered = true;
-                  data = resultBuffer.array();
-                  break;        // We got the data, break out of the loop!
-                } finally {
-                  readChannel.close();
-                }
-              } catch (NullPointerException e) {
-                // This happens if the object in GCS is non-existent, which would happen
-                // when people uploaded a zero length object. As of this change, we now
-                // store zero length objects into GCS, but there are plenty of older objects
-                // that are missing in GCS.
-                LOG.log(Level.WARNING, "exportProjectFile: NPF recorded for " + fd.gcsName);
-                npfHappened = true;
-                resultBuffer = ByteBuffer.allocate(0);
-                data = resultBuffer.array();
-              }
-            }
-
-            // report out on how things went above
-            if (npfHappened) {    // We lost at least once
-              if (recovered) {
-                LOG.log(Level.WARNING, "recovered from NPF in exportProjectFile filename = " + fd.gcsName +
-                  " count = " + count);
-              } else {
-                LOG.log(Level.WARNING, "FATAL NPF in exportProjectFile filename = " + fd.gcsName);
-                if (fatalError) {
-                  throw new IOException("FATAL Error reading file from GCS filename = " + fd.gcsName);
-                }
-              }
-            }
-          } catch (IOException e) {
-            throw CrashReport.createAndLogError(LOG, null,
-              collectProjectErrorInfo(userId, projectId, fileName), e);
-          }
-        } else {
-          data = fd.content;
+      List<byte[]> contents = readContents(fileData, new ContentReader() {
+        @Override
+        public byte[] read(FileData fd) throws IOException {
+          return readExportedFile(fd, userId, projectId, fatalError);
         }
+      });
+      for (int i = 0; i < fileData.size(); i++) {
+        fileName = fileData.get(i).fileName;
+        byte[] data = contents.get(i);
         if (data == null) {     // This happens if file creation is interrupted
           data = new byte[0];
         }
@@ -2002,6 +2762,93 @@ public class ObjectifyStorageIo implements StorageIo {
     return projectSourceZip;
   }
 
+  /**
+   * Reads the content of a file being exported, from GCS or the Blobstore if it is not kept in
+   * the datastore.
+   *
+   * @param fd the FileData of the file
+   * @param userId the user whose project is exported
+   * @param projectId the project ID
+   * @param fatalError whether a file missing in GCS is an error
+   * @return the content of the file, or null if there is none
+   */
+  private byte[] readExportedFile(FileData fd, String userId, long projectId,
+      boolean fatalError) throws IOException {
+    String fileName = fd.fileName;
+    byte[] data = null;
+    if (fd.isBlob) {
+      try {
+        if (fd.blobKey == null) {
+          throw new BlobReadException("blobKey is null");
+        }
+        data = getBlobstoreBytes(fd.blobKey);
+      } catch (BlobReadException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+            collectProjectErrorInfo(userId, projectId, fileName), e);
+      }
+    } else if (isTrue(fd.isGCS)) {
+      try {
+        int count;
+        boolean npfHappened = false;
+        boolean recovered = false;
+        for (count = 0; count < 5; count++) {
+          GcsFilename gcsFileName = new GcsFilename(getGcsBucketToUse(fd.role), fd.gcsName);
+          int bytesRead = 0;
+          int fileSize = 0;
+          ByteBuffer resultBuffer;
+          try {
+            fileSize = (int) gcsService.getMetadata(gcsFileName).getLength();
+            resultBuffer = ByteBuffer.allocate(fileSize);
+            GcsInputChannel readChannel = gcsService.openReadChannel(gcsFileName, 0);
+            try {
+              while (bytesRead < fileSize) {
+                bytesRead += readChannel.read(resultBuffer);
+                if (bytesRead < fileSize) {
+                  if (DEBUG) {
+                    LOG.log(Level.INFO, "readChannel: bytesRead = " + bytesRead + " fileSize = " + fileSize);
+                  }
+                }
+              }
+              recovered = true;
+              data = resultBuffer.array();
+              break;        // We got the data, break out of the loop!
+            } finally {
+              readChannel.close();
+            }
+          } catch (NullPointerException e) {
+            // This happens if the object in GCS is non-existent, which would happen
+            // when people uploaded a zero length object. As of this change, we now
+            // store zero length objects into GCS, but there are plenty of older objects
+            // that are missing in GCS.
+            LOG.log(Level.WARNING, "exportProjectFile: NPF recorded for " + fd.gcsName);
+            npfHappened = true;
+            resultBuffer = ByteBuffer.allocate(0);
+            data = resultBuffer.array();
+          }
+        }
+
+        // report out on how things went above
+        if (npfHappened) {    // We lost at least once
+          if (recovered) {
+            LOG.log(Level.WARNING, "recovered from NPF in exportProjectFile filename = " + fd.gcsName +
+              " count = " + count);
+          } else {
+            LOG.log(Level.WARNING, "FATAL NPF in exportProjectFile filename = " + fd.gcsName);
+            if (fatalError) {
+              throw new IOException("FATAL Error reading file from GCS filename = " + fd.gcsName);
+            }
+          }
+        }
+      } catch (IOException e) {
+        throw CrashReport.createAndLogError(LOG, null,
+          collectProjectErrorInfo(userId, projectId, fileName), e);
+      }
+    } else {
+      data = fd.content;
+    }
+    return data;
+  }
+
   @Override
   public Motd getCurrentMotd() {
     final Result<Motd> motd = new Result<Motd>();
@@ -2314,6 +3161,14 @@ public class ObjectifyStorageIo implements StorageIo {
     return new Key<FileData>(projectKey, FileData.class, fileName);
   }
 
+  private Key<SharedBlobData> sharedBlobKey(String hash) {
+    return new Key<SharedBlobData>(SharedBlobData.class, hash);
+  }
+
+  private Key<SharedBlobShardData> sharedBlobShardKey(String hash, long shard) {
+    return new Key<SharedBlobShardData>(SharedBlobShardData.class, hash + "/" + shard);
+  }
+
   /**
    * Call job.run() if we get a {@link java.util.ConcurrentModificationException}
    * or {@link com.google.appinventor.server.storage.ObjectifyException}
@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import javax.annotation.Nullable;
@@ -134,6 +135,26 @@ public interface StorageIo {
    */
   long createProject(String userId, Project project, String projectSettings);
 
+  /**
+   * Creates a new project with copies of files of an existing project, and
+   * uploads the other files of the new project.
+   *
+   * <p>
+   * Files whose content is stored outside of the datastore, such as assets,
+   * are not duplicated; the copies share the content of the original files
+   * until either is modified.
+   *
+   * @param userId user id
+   * @param oldProjectId project id of the project to copy the files from
+   * @param project project information and the files that are not copied
+   * @param copiedFiles the names of the files of the old project to copy,
+   *     keyed by their names in the new project
+   * @param projectSettings project settings
+   * @return project id
+   */
+  long copyProject(String userId, long oldProjectId, Project project,
+      Map<String, String> copiedFiles, String projectSettings);
+
   /**
    * Deletes a project and all its files.
    *
@@ -432,6 +453,34 @@ public interface StorageIo {
    */
   long uploadRawFileForce(long projectId, String fileId, String userId, byte[] content);
 
+  /**
+   * Uploads several files of a project at once.
+   * The files are written in one transaction and the modification date of the project is
+   * updated once. If one of the files is a trivial workspace that would replace a non-trivial
+   * one and force is false, none of the files are written.
+   * @param projectId  project ID
+   * @param userId the user who owns the files
+   * @param force write the files even if they are trivial workspaces
+   * @param contents  map from file IDs to their content
+   * @param encoding encoding of the contents
+   * @return modification date for project
+   */
+  long uploadFiles(long projectId, String userId, boolean force, Map<String, String> contents,
+      String encoding) throws BlocksTruncatedException;
+
+  /**
+   * Uploads several files of a project at once. -- forces the save even with trivial workspaces
+   * The files are written in one transaction and the modification date of the project is
+   * updated once.
+   * @param projectId  project ID
+   * @param userId the user who owns the files
+   * @param contents  map from file IDs to their content
+   * @param encoding encoding of the contents
+   * @return modification date for project
+   */
+  long uploadFilesForce(long projectId, String userId, Map<String, String> contents,
+      String encoding);
+
   /**
    * Deletes a file.
    * @param userId a user Id (the request is made on behalf of this user)
@@ -452,6 +501,20 @@ public interface StorageIo {
    */
   String downloadFile(String userId, long projectId, String fileId, String encoding);
 
+  /**
+   * Downloads the data of several text files of a project at once.
+   * Files that do not exist, or whose content cannot be read, are left out
+   * of the result.
+   * @param userId a user Id (the request is made on behalf of this user)
+   * @param projectId  project ID
+   * @param fileIds  file IDs
+   * @param encoding  encoding of text files
+   *
+   * @return  map from file IDs to their content
+   */
+  Map<String, String> downloadFiles(String userId, long projectId, List<String> fileIds,
+      String encoding);
+
   /**
    * Records a "corruption" record so we can analyze if corruption is
    * happening.
@@ -191,6 +191,11 @@ public class StoredData {
     // The GCS filename, sans bucket name
     String gcsName;
 
+    // If not null, the content is the shared blob with this hash, and gcsName is the name of
+    // its GCS file. Copies of the file in other projects refer to the same blob, so the GCS
+    // file must not be overwritten or deleted; instead the reference is released.
+    String blobHash;
+
     // File settings
     String settings;
 
@@ -202,6 +207,42 @@ public class StoredData {
                                 // it yet
   }
 
+  // The content of files shared between projects, such as the assets of a
+  // copied project. The content is stored in GCS, and is deleted when no
+  // SharedBlobRefData refers to it anymore.
+  @Unindexed
+  static final class SharedBlobData {
+    // The SHA-256 hash of the content, in hex
+    @Id String hash;
+
+    // The GCS filename of the content, sans bucket name
+    String gcsName;
+
+    // If not null, a release found no references left and deletes the blob
+    // unless an acquire clears this first
+    String releaseToken;
+  }
+
+  // A reference from a FileData to a shared blob. The references to a blob
+  // are grouped under a SharedBlobShardData key for each shard of projects,
+  // so that projects created at the same time from the same content seldom
+  // write to the same entity group. Adding a reference that exists, or
+  // deleting one that does not, has no effect.
+  @Unindexed
+  static final class SharedBlobRefData {
+    @Parent Key<SharedBlobShardData> shardKey;
+
+    // The key of the FileData, as a string
+    @Id String fileKey;
+  }
+
+  // The parent of the references to a shared blob from the projects of one
+  // shard. Only its key is used; no entity of this kind is stored.
+  static final class SharedBlobShardData {
+    // The hash of the blob, a slash and the shard number
+    @Id String id;
+  }
+
   // MOTD data.
   @Unindexed
   static final class MotdData {
@@ -0,0 +1,102 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import java.io.Serializable;
+
+/**
+ * A change to the content of a text file, in particular a .bky or .scm file,
+ * sent from the client to the App Inventor service instead of the whole new
+ * content. Most autosaves change only a small part of a large file, such as
+ * the position of the block that was moved.
+ *
+ * The patch replaces a single range of the content that the server already
+ * has, between the common prefix and the common suffix of the old and the
+ * new content. It carries the checksum of the content it applies to, so the
+ * server can refuse it if its copy of the file differs from the client's,
+ * and the checksum of the result, to detect corruption in transit. In both
+ * cases the client falls back to saving the whole content.
+ *
+ */
+public class FilePatch implements Serializable {
+
+  // For serialization
+  private static final long serialVersionUID = 5069412530742135384L;
+
+  private String baseChecksum;
+  private int start;
+  private int end;
+  private String replacement;
+  private String checksum;
+
+  // For serialization
+  @SuppressWarnings("unused")
+  private FilePatch() {
+  }
+
+  private FilePatch(String baseChecksum, int start, int end, String replacement,
+      String checksum) {
+    this.baseChecksum = baseChecksum;
+    this.start = start;
+    this.end = end;
+    this.replacement = replacement;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Creates a patch that turns the base content into the new content.
+   *
+   * @param base  content that the server has
+   * @param content  new content
+   * @return the patch
+   */
+  public static FilePatch create(String base, String content) throws ChecksumedFileException {
+    int prefix = 0;
+    int maxPrefix = Math.min(base.length(), content.length());
+    while (prefix < maxPrefix && base.charAt(prefix) == content.charAt(prefix)) {
+      prefix++;
+    }
+    // The suffix may not overlap the prefix in either string.
+    int suffix = 0;
+    int maxSuffix = maxPrefix - prefix;
+    while (suffix < maxSuffix && base.charAt(base.length() - 1 - suffix)
+        == content.charAt(content.length() - 1 - suffix)) {
+      suffix++;
+    }
+    return new FilePatch(ChecksumedLoadFile.computeChecksum(base), prefix,
+        base.length() - suffix, content.substring(prefix, content.length() - suffix),
+        ChecksumedLoadFile.computeChecksum(content));
+  }
+
+  /**
+   * Returns the number of characters of new content carried by this patch.
+   */
+  public int getSize() {
+    return replacement.length();
+  }
+
+  /**
+   * Applies this patch to the given content.
+   *
+   * @param base  content to patch
+   * @return the patched content
+   * @throws ChecksumedFileException if the patch was not made for the given
+   *     content or if the result is not what the patch was made to produce
+   */
+  public String apply(String base) throws ChecksumedFileException {
+    if (!ChecksumedLoadFile.computeChecksum(base).equals(baseChecksum)) {
+      throw new ChecksumedFileException("Patch base doesn't match");
+    }
+    if (start < 0 || start > end || end > base.length()) {
+      throw new ChecksumedFileException("Patch range is invalid");
+    }
+    String result = base.substring(0, start) + replacement + base.substring(end);
+    if (!ChecksumedLoadFile.computeChecksum(result).equals(checksum)) {
+      throw new ChecksumedFileException("Checksum of patched content doesn't match");
+    }
+    return result;
+  }
+}
@@ -0,0 +1,62 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Everything the client needs to open a project, returned by a single call
+ * to the App Inventor service: the project's root node, its settings, and
+ * the contents of the files that its editors load when they are opened,
+ * such as the form and blocks files of each screen.
+ *
+ */
+public class ProjectContents implements Serializable {
+
+  // For serialization
+  private static final long serialVersionUID = 2718532480926150423L;
+
+  private ProjectRootNode rootNode;
+  private String settings;
+  private HashMap<String, ChecksumedLoadFile> files;
+
+  // For serialization
+  @SuppressWarnings("unused")
+  private ProjectContents() {
+  }
+
+  /**
+   * Creates the contents of a project.
+   *
+   * @param rootNode  root node of the project
+   * @param settings  encoded project settings
+   * @param files  contents of the project's editor files, keyed by file ID
+   */
+  public ProjectContents(ProjectRootNode rootNode, String settings,
+      HashMap<String, ChecksumedLoadFile> files) {
+    this.rootNode = rootNode;
+    this.settings = settings;
+    this.files = files;
+  }
+
+  public ProjectRootNode getRootNode() {
+    return rootNode;
+  }
+
+  public String getSettings() {
+    return settings;
+  }
+
+  /**
+   * Returns the contents of the project's editor files, keyed by file ID.
+   * Files whose editors were not expected to be opened are not included.
+   */
+  public Map<String, ChecksumedLoadFile> getFiles() {
+    return files;
+  }
+}
@@ -154,6 +154,15 @@ public interface ProjectService extends RemoteService {
    */
   String loadProjectSettings(long projectId);
 
+  /**
+   * Returns everything needed to open the given project in one call: its
+   * root node, its settings, and the contents of the files of its editors.
+   * @param projectId  project ID
+   *
+   * @return  contents of the project
+   */
+  ProjectContents loadProject(long projectId) throws ChecksumedFileException;
+
   /**
    * Stores a string with the project settings.
    * @param sessionId current session id
@@ -304,6 +313,25 @@ public interface ProjectService extends RemoteService {
   long save2(String sessionId, long projectId, String fileId, boolean force, String content) throws InvalidSessionException,
       BlocksTruncatedException;
 
+  /**
+   * Saves the content of the file associated with a node in the project tree
+   * by applying a patch to the content that the server has. The patch is
+   * refused with a ChecksumedFileException if the server's content is not
+   * the one the patch was made from, in which case the client should save
+   * the whole content with {@link #save2}.
+   *
+   * @param sessionId current session id
+   * @param projectId  project ID
+   * @param fileId  project node whose source should be saved
+   * @param force  whether to save a trivial blocks file
+   * @param patch  change from the content that was last saved
+   * @return modification date for project
+   *
+   * @see #save2(String, long, String, boolean, String)
+   */
+  long savePatch(String sessionId, long projectId, String fileId, boolean force, FilePatch patch)
+      throws InvalidSessionException, BlocksTruncatedException, ChecksumedFileException;
+
   /**
    * Saves the contents of multiple files.
    *
@@ -315,6 +343,21 @@ public interface ProjectService extends RemoteService {
   public long save(String sessionId, List<FileDescriptorWithContent> filesAndContent) throws InvalidSessionException,
       BlocksTruncatedException;
 
+  /**
+   * Saves the contents of multiple files. The files of each project are saved
+   * together. If force is false, a BlocksTruncatedException is thrown if one
+   * of them is a trivial blocks file that would replace one with contents, and
+   * none of the files of its project are saved.
+   *
+   * @param sessionId current session id
+   * @param filesAndContent  list containing file descriptor and their
+   *                         associated content
+   * @param force  whether to save trivial blocks files
+   * @return modification date for last modified project of list
+   */
+  long save2(String sessionId, List<FileDescriptorWithContent> filesAndContent, boolean force)
+      throws InvalidSessionException, BlocksTruncatedException;
+
   /**
    * Saves a screenshot of the blocks
    * This is called on the client side when a user leaves a blocks editor
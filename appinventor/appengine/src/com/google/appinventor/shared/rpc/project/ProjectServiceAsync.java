@@ -100,6 +100,11 @@ public interface ProjectServiceAsync {
    */
   void loadProjectSettings(long projectId, AsyncCallback<String> callback);
 
+  /**
+   * @see ProjectService#loadProject(long)
+   */
+  void loadProject(long projectId, AsyncCallback<ProjectContents> callback);
+
   /**
    * @see ProjectService#storeProjectSettings(String, long, String)
    */
@@ -167,11 +172,22 @@ public interface ProjectServiceAsync {
    */
   void save2(String sessionId, long projectId, String fileId, boolean force, String source, AsyncCallback<Long> callback);
 
+  /**
+   * @see ProjectService#savePatch(String, long, String, boolean, FilePatch)
+   */
+  void savePatch(String sessionId, long projectId, String fileId, boolean force, FilePatch patch, AsyncCallback<Long> callback);
+
   /**
    * @see ProjectService#save(String, List)
    */
   void save(String sessionId, List<FileDescriptorWithContent> filesAndContent, AsyncCallback<Long> callback);
 
+  /**
+   * @see ProjectService#save2(String, List, boolean)
+   */
+  void save2(String sessionId, List<FileDescriptorWithContent> filesAndContent, boolean force,
+      AsyncCallback<Long> callback);
+
   /**
    * @see ProjectService#screnshot(String, long, String, String)
    */
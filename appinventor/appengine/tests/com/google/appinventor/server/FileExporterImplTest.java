@@ -167,5 +167,36 @@ public class FileExporterImplTest extends LocalDatastoreTestCase {
     }
   }
 
-  // TODO(user): Add test of exportAllProjectsSourceZip().
+  public void testExportAllProjectsSourceZip() throws IOException {
+    // A second project with the same name is renamed in the zip.
+    Project project = new Project(PROJECT_NAME);
+    project.setProjectType(FAKE_PROJECT_TYPE);
+    project.addTextFile(new TextFile(FORM1_QUALIFIED_NAME, FORM1_CONTENT));
+    storageIo.createProject(USER_ID, project, SETTINGS);
+
+    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
+    assertEquals(2, exporter.exportAllProjectsSourceZip(USER_ID, zipFile));
+    ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipFile.toByteArray()));
+    Map<String, byte[]> content = new HashMap<String, byte[]>();
+    ZipEntry zipEntry;
+    while ((zipEntry = zis.getNextEntry()) != null) {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      ByteStreams.copy(zis, baos);
+      content.put(zipEntry.getName(), baos.toByteArray());
+    }
+    assertEquals(2, content.size());
+    assertTrue(content.containsKey(PROJECT_NAME + ".aia"));
+    assertTrue(content.containsKey("duplicate-" + PROJECT_NAME + ".aia"));
+  }
+
+  public void testExportSelectedProjectsSourceZipWithNonExistingProject() throws IOException {
+    ByteArrayOutputStream zipFile = new ByteArrayOutputStream();
+    try {
+      exporter.exportSelectedProjectsSourceZip(USER_ID, Arrays.asList(projectId + 1), zipFile);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertEquals(0, zipFile.size());
+  }
 }
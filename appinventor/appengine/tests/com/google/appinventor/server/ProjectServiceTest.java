@@ -19,6 +19,7 @@ import com.google.appinventor.server.storage.StorageIoInstanceHolder;
 import com.google.appinventor.shared.rpc.BlocksTruncatedException;
 import com.google.appinventor.shared.rpc.project.FileDescriptor;
 import com.google.appinventor.shared.rpc.project.FileDescriptorWithContent;
+import com.google.appinventor.shared.rpc.project.ProjectContents;
 import com.google.appinventor.shared.rpc.project.ProjectNode;
 import com.google.appinventor.shared.rpc.project.ProjectRootNode;
 import com.google.appinventor.shared.rpc.project.UserProject;
@@ -491,6 +492,31 @@ public class ProjectServiceTest {
     PowerMock.verifyAll();
   }
 
+  @Test
+  public void testLoadProject() throws Exception {
+    expect(localUserMock.getUserId()).andReturn(USER_ID_ONE).anyTimes();
+    expect(localUserMock.getUser()).andReturn(storageIo.getUser(USER_ID_ONE, USER_EMAIL_ONE)).anyTimes();
+    PowerMock.replayAll();
+    do_init();
+
+    NewYoungAndroidProjectParameters params = new NewYoungAndroidProjectParameters(
+        PACKAGE_BASE + PROJECT1_NAME);
+    long projectId = projectServiceImpl.newProject(
+        YoungAndroidProjectNode.YOUNG_ANDROID_PROJECT_TYPE, PROJECT1_NAME, params).getProjectId();
+
+    ProjectContents contents = projectServiceImpl.loadProject(projectId);
+    assertEquals(projectId, contents.getRootNode().getProjectId());
+    assertEquals(projectServiceImpl.loadProjectSettings(projectId), contents.getSettings());
+    // The form and blocks files are sent, but not the yail file.
+    String scmFileId = "src/com/domain/noname/Project1/Screen1.scm";
+    String bkyFileId = "src/com/domain/noname/Project1/Screen1.bky";
+    assertEquals(2, contents.getFiles().size());
+    assertEquals(projectServiceImpl.load2(projectId, scmFileId).getContent(),
+        contents.getFiles().get(scmFileId).getContent());
+    assertEquals("", contents.getFiles().get(bkyFileId).getContent());
+    PowerMock.verifyAll();
+  }
+
   private String getProjectProperties(String userId, long projectId) {
     return storageIo.downloadFile(userId, projectId,
         "youngandroidproject/project.properties", StorageUtil.DEFAULT_CHARSET);
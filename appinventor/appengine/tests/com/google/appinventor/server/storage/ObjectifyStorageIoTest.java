@@ -21,6 +21,7 @@ import com.google.appinventor.shared.rpc.user.User;
 import com.google.appinventor.shared.storage.StorageUtil;
 
 import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -30,8 +31,12 @@ import java.io.UnsupportedEncodingException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.json.JSONObject;
 
@@ -168,8 +173,9 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
   public void testCreateProjectFailFirst() {
     final String USER_ID = "600";
     final String USER_EMAIL = "newuser600@test.com";
-    // fail on first job in createProject (2nd job overall)
-    StorageIo throwingStorage = new FailingJobObjectifyStorageIo(2);
+    // fail on first job in createProject (4th job overall, after the ones that add the
+    // references to the shared content of the two assets and store it)
+    StorageIo throwingStorage = new FailingJobObjectifyStorageIo(4);
 
     try {
       throwingStorage.getUser(USER_ID, USER_EMAIL);
@@ -185,8 +191,8 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
   public void testCreateProjectFailSecond() {
     final String USER_ID = "700";
     final String USER_EMAIL = "newuser700@test.com";
-    // fail on second job in createProject (3rd job overall)
-    StorageIo throwingStorage = new FailingJobObjectifyStorageIo(3);
+    // fail on second job in createProject (5th job overall)
+    StorageIo throwingStorage = new FailingJobObjectifyStorageIo(5);
 
     try {
       throwingStorage.getUser(USER_ID, USER_EMAIL);
@@ -333,6 +339,145 @@ public class ObjectifyStorageIoTest extends LocalDatastoreTestCase {
     assertFalse(storage.getProjectOutputFiles(USER_ID, projectId).contains(FILE_NAME_OUTPUT));
   }
 
+  public void testUploadFilesForce() {
+    final String USER_ID = "1250";
+    final String USER_EMAIL = "newuser1250@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, SCM_FILE_NAME1, BKY_FILE_NAME1);
+    Map<String, String> contents = new LinkedHashMap<String, String>();
+    contents.put(SCM_FILE_NAME1, FILE_CONTENT1);
+    contents.put(BKY_FILE_NAME1, "");  // an empty workspace is written anyway
+    long modificationDate = storage.uploadFilesForce(projectId, USER_ID, contents,
+        StorageUtil.DEFAULT_CHARSET);
+
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, SCM_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals("", storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(modificationDate, storage.getProjectDateModified(USER_ID, projectId));
+
+    contents.put(SCM_FILE_NAME1, FILE_CONTENT2);
+    contents.put(BKY_FILE_NAME1, FILE_CONTENT1);
+    storage.uploadFilesForce(projectId, USER_ID, contents, StorageUtil.DEFAULT_CHARSET);
+    assertEquals(FILE_CONTENT2, storage.downloadFile(USER_ID, projectId, SCM_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
+  public void testUploadFilesKeepsBlocks() throws BlocksTruncatedException {
+    final String USER_ID = "1255";
+    final String USER_EMAIL = "newuser1255@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, SCM_FILE_NAME1, BKY_FILE_NAME1);
+    StringBuilder blocks = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      blocks.append("<block type=\"text\"/>");
+    }
+    Map<String, String> contents = new LinkedHashMap<String, String>();
+    contents.put(SCM_FILE_NAME1, FILE_CONTENT1);
+    contents.put(BKY_FILE_NAME1, blocks.toString());
+    storage.uploadFiles(projectId, USER_ID, false, contents, StorageUtil.DEFAULT_CHARSET);
+
+    // An empty workspace over the blocks fails the whole batch.
+    contents.put(SCM_FILE_NAME1, FILE_CONTENT2);
+    contents.put(BKY_FILE_NAME1, "");
+    try {
+      storage.uploadFiles(projectId, USER_ID, false, contents, StorageUtil.DEFAULT_CHARSET);
+      fail("Allowed an empty workspace over blocks");
+    } catch (BlocksTruncatedException expected) {
+    }
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, projectId, SCM_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(blocks.toString(), storage.downloadFile(USER_ID, projectId, BKY_FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
+  public void testDownloadFiles() {
+    final String USER_ID = "1260";
+    final String USER_EMAIL = "newuser1260@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = createProject(USER_ID, PROJECT_NAME, FAKE_PROJECT_TYPE, FORM_QUALIFIED_NAME);
+    storage.addSourceFilesToProject(USER_ID, projectId, false, SCM_FILE_NAME1, BKY_FILE_NAME1);
+    Map<String, String> contents = new LinkedHashMap<String, String>();
+    contents.put(SCM_FILE_NAME1, FILE_CONTENT1);
+    contents.put(BKY_FILE_NAME1, FILE_CONTENT2);
+    storage.uploadFilesForce(projectId, USER_ID, contents, StorageUtil.DEFAULT_CHARSET);
+
+    // Files that do not exist are left out.
+    assertEquals(contents, storage.downloadFiles(USER_ID, projectId,
+        Arrays.asList(SCM_FILE_NAME1, "src/none/Missing.bky", BKY_FILE_NAME1),
+        StorageUtil.DEFAULT_CHARSET));
+  }
+
+  public void testCopyProjectSharesBlobs() throws BlocksTruncatedException {
+    final String USER_ID = "1270";
+    final String USER_EMAIL = "newuser1270@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = storage.createProject(USER_ID, project, SETTINGS);
+
+    Project newProject = new Project("Project2");
+    newProject.setProjectType(FAKE_PROJECT_TYPE);
+    newProject.addTextFile(new TextFile(FILE_NAME2, FILE_CONTENT1));
+    Map<String, String> copiedFiles = new HashMap<String, String>();
+    copiedFiles.put(FILE_NAME1, FILE_NAME1);
+    copiedFiles.put(RAW_FILE_NAME1, RAW_FILE_NAME1);
+    copiedFiles.put(RAW_FILE_NAME2, RAW_FILE_NAME2);
+    long copyId = storage.copyProject(USER_ID, projectId, newProject, copiedFiles, SETTINGS);
+
+    assertEquals(2, storage.getProjects(USER_ID).size());
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, copyId, FILE_NAME1,
+        StorageUtil.DEFAULT_CHARSET));
+    assertEquals(FILE_CONTENT1, storage.downloadFile(USER_ID, copyId, FILE_NAME2,
+        StorageUtil.DEFAULT_CHARSET));
+    assertTrue(storage.isGcsFile(copyId, RAW_FILE_NAME1));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME2)));
+
+    // Modifying the copy leaves the original as it was.
+    storage.uploadRawFileForce(copyId, RAW_FILE_NAME1, USER_ID, RAW_FILE_CONTENT3);
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT3,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME1)));
+
+    // Deleting the original leaves the content of the copy.
+    storage.deleteProject(USER_ID, projectId);
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, copyId, RAW_FILE_NAME2)));
+  }
+
+  public void testReleasingBlobTwiceKeepsOtherReferences() {
+    final String USER_ID = "1280";
+    final String USER_EMAIL = "newuser1280@test.com";
+    storage.getUser(USER_ID, USER_EMAIL);
+    long projectId = storage.createProject(USER_ID, project, SETTINGS);
+
+    Project newProject = new Project("Project2");
+    newProject.setProjectType(FAKE_PROJECT_TYPE);
+    newProject.addTextFile(new TextFile(FILE_NAME2, FILE_CONTENT1));
+    Map<String, String> copiedFiles = new HashMap<String, String>();
+    copiedFiles.put(RAW_FILE_NAME1, RAW_FILE_NAME1);
+    copiedFiles.put(RAW_FILE_NAME2, RAW_FILE_NAME2);
+    long copyId = storage.copyProject(USER_ID, projectId, newProject, copiedFiles, SETTINGS);
+
+    // A save and a delete of the same file that race both release its reference.
+    Map<String, String> released = Collections.singletonMap(RAW_FILE_NAME1,
+        Hashing.sha256().hashBytes(RAW_FILE_CONTENT1).toString());
+    storage.releaseBlobs(copyId, released);
+    storage.releaseBlobs(copyId, released);
+    storage.deleteProject(USER_ID, copyId);
+
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT1,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME1)));
+    assertTrue(Arrays.equals(RAW_FILE_CONTENT2,
+        storage.downloadRawFile(USER_ID, projectId, RAW_FILE_NAME2)));
+  }
+
   public void testAddRemoveUserFile() {
     // Note that neither FILE_NAME1 nor FILE_NAME_OUTPUT should exist
     // at the start of this test
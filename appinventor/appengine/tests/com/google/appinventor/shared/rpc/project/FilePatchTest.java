@@ -0,0 +1,49 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.shared.rpc.project;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link FilePatch}.
+ *
+ */
+public class FilePatchTest extends TestCase {
+  private static final String BASE =
+      "<xml><block type=\"controls_if\" x=\"10\" y=\"20\"></block></xml>";
+
+  public void testApply() throws Exception {
+    assertPatches(BASE, BASE.replace("x=\"10\"", "x=\"110\""));
+    assertPatches(BASE, BASE.replace("x=\"10\" ", ""));
+    assertPatches(BASE, "<?xml?>" + BASE);
+    assertPatches(BASE, BASE + "\n");
+    assertPatches(BASE, BASE);
+    assertPatches(BASE, "");
+    assertPatches("", BASE);
+    assertPatches("aaa", "aaaa");
+    assertPatches("abab", "ab");
+    assertPatches(BASE, BASE.replace("controls_if", "\u00e9t\u00e9"));
+  }
+
+  public void testSize() throws Exception {
+    FilePatch patch = FilePatch.create(BASE, BASE.replace("x=\"10\"", "x=\"110\""));
+    assertEquals(1, patch.getSize());
+  }
+
+  public void testBaseMismatch() throws Exception {
+    FilePatch patch = FilePatch.create(BASE, BASE.replace("10", "11"));
+    try {
+      patch.apply(BASE.replace("20", "21"));
+      fail();
+    } catch (ChecksumedFileException expected) {
+      // expected
+    }
+  }
+
+  private static void assertPatches(String base, String content) throws Exception {
+    assertEquals(content, FilePatch.create(base, content).apply(base));
+  }
+}
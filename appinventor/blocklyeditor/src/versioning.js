@@ -1909,7 +1909,9 @@ Blockly.Versioning.AllUpgradeMaps =
     // This is initial version. Placeholder for future upgrades
     1: "noUpgrade",
     // UpdateDone event was added.
-    2: "noUpgrade"
+    2: "noUpgrade",
+    // StoreValues and GetValues methods were added.
+    3: "noUpgrade"
 
   },
 
@@ -3265,7 +3267,10 @@ Blockly.Versioning.AllUpgradeMaps =
     2: "noUpgrade",
 
     //Added blocks GetEntries
-    3: "noUpgrade"
+    3: "noUpgrade",
+
+    //Added Property: BatchWrites and block StoreValues
+    4: "noUpgrade"
 
   }, // End TinyDB upgraders
 
@@ -3447,7 +3452,10 @@ Blockly.Versioning.AllUpgradeMaps =
     8: "noUpgrade",
 
     // AI2: Added ResponseTextEncoding property
-    9: "noUpgrade"
+    9: "noUpgrade",
+
+    // AI2: Added CacheResponses property
+    10: "noUpgrade"
 
   }, // End Web upgraders
 
@@ -0,0 +1,307 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+package com.google.appinventor.buildserver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs builds on their own threads, allowing only a certain number of simultaneous builds.
+ *
+ * <p>Unlike {@link NonQueuingExecutor}, builds that arrive while the server is at capacity wait
+ * in a bounded queue rather than being rejected immediately. Waiting builds are served
+ * round-robin by user, so that one user submitting many builds cannot hold up everyone else.
+ * Each waiting build is told its position in the queue whenever it changes. Updates that pile up
+ * while earlier ones are being delivered are coalesced, and no update is delivered once the
+ * build has started.</p>
+ */
+final class BuildQueue {
+  /**
+   * Receives the position of a waiting build.
+   */
+  interface QueueListener {
+    /**
+     * Called when the position of the build in the queue changes.
+     *
+     * @param position the number of builds that will start before this one, plus one
+     */
+    void positionChanged(int position);
+  }
+
+  private static final Logger LOG = Logger.getLogger(BuildQueue.class.getName());
+
+  private static class Job {
+    final String user;
+    final Runnable runnable;
+    final QueueListener listener;
+    final long enqueuedAt = System.currentTimeMillis();
+    int position = 0;
+    // Guarded by the job itself, so that a build does not start while its position is being sent.
+    boolean started = false;
+
+    Job(String user, Runnable runnable, QueueListener listener) {
+      this.user = user;
+      this.runnable = runnable;
+      this.listener = listener;
+    }
+  }
+
+  // The maximum number of active tasks. O means unlimited.
+  private final int maxActiveTasks;
+
+  // The maximum number of waiting tasks. 0 means that tasks are rejected when at capacity.
+  private final int maxQueuedTasks;
+
+  // The waiting jobs of each user. The iteration order of the users is the round-robin order in
+  // which they are served.
+  private final LinkedHashMap<String, Deque<Job>> queue = new LinkedHashMap<>();
+
+  // Jobs whose position changed since it was last delivered, and whether a delivery is scheduled.
+  private final Set<Job> positionsToSend = new LinkedHashSet<>();
+  private boolean sendingPositions = false;
+
+  // Position updates may involve network calls, so they are delivered on their own thread.
+  private final Executor notifier = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "build-queue-notifier");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  private int activeTaskCount = 0;
+  private int queuedTaskCount = 0;
+  private int completedTaskCount = 0;
+  private int waitedTaskCount = 0;
+  private long totalWaitMillis = 0;
+  private long maxWaitMillis = 0;
+
+  /**
+   * Creates a BuildQueue.
+   *
+   * @param maxActiveTasks the maximum number of active tasks, or 0 for unlimited
+   * @param maxQueuedTasks the maximum number of tasks waiting to start
+   */
+  BuildQueue(int maxActiveTasks, int maxQueuedTasks) {
+    this.maxActiveTasks = maxActiveTasks;
+    this.maxQueuedTasks = maxQueuedTasks;
+  }
+
+  /**
+   * Runs a task now if the server is below capacity, or queues it otherwise.
+   *
+   * @param user the user who requested the task, used to share the queue fairly
+   * @param runnable the task
+   * @param listener receives the position of the task while it waits, or null
+   * @throws RejectedExecutionException if the queue is full
+   */
+  void execute(String user, Runnable runnable, QueueListener listener) {
+    Job job = new Job(user == null ? "" : user, runnable, listener);
+    synchronized (this) {
+      if (maxActiveTasks == 0 || activeTaskCount < maxActiveTasks) {
+        start(job);
+        return;
+      }
+      if (queuedTaskCount >= maxQueuedTasks) {
+        throw new RejectedExecutionException();
+      }
+      Deque<Job> userJobs = queue.get(job.user);
+      if (userJobs == null) {
+        userJobs = new ArrayDeque<>();
+        queue.put(job.user, userJobs);
+      }
+      userJobs.add(job);
+      queuedTaskCount++;
+    }
+    notifyPositions();
+  }
+
+  // Must be called while holding the lock.
+  private void start(final Job job) {
+    activeTaskCount++;
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        // Waits for a position update of this job that is being delivered right now.
+        synchronized (job) {
+          job.started = true;
+        }
+        try {
+          job.runnable.run();
+        } finally {
+          finished();
+        }
+      }
+    });
+    thread.start();
+  }
+
+  private void finished() {
+    synchronized (this) {
+      activeTaskCount--;
+      completedTaskCount++;
+      Job next = poll();
+      if (next == null) {
+        return;
+      }
+      long wait = System.currentTimeMillis() - next.enqueuedAt;
+      waitedTaskCount++;
+      totalWaitMillis += wait;
+      maxWaitMillis = Math.max(maxWaitMillis, wait);
+      start(next);
+    }
+    notifyPositions();
+  }
+
+  /**
+   * Removes the next job to run from the queue. Must be called while holding the lock.
+   *
+   * @return the next job, or null if no job is waiting
+   */
+  private Job poll() {
+    Iterator<Map.Entry<String, Deque<Job>>> it = queue.entrySet().iterator();
+    if (!it.hasNext()) {
+      return null;
+    }
+    Map.Entry<String, Deque<Job>> entry = it.next();
+    Job job = entry.getValue().poll();
+    it.remove();
+    if (!entry.getValue().isEmpty()) {
+      // Move the user to the back of the line.
+      queue.put(entry.getKey(), entry.getValue());
+    }
+    queuedTaskCount--;
+    positionsToSend.remove(job);
+    return job;
+  }
+
+  /**
+   * Computes the position of every waiting job and schedules an update for the listeners of the
+   * jobs whose position changed.
+   */
+  private void notifyPositions() {
+    synchronized (this) {
+      int position = 0;
+      // Simulate the round-robin order in which poll() will return the jobs.
+      List<Iterator<Job>> users = new ArrayList<>();
+      for (Deque<Job> userJobs : queue.values()) {
+        users.add(userJobs.iterator());
+      }
+      while (!users.isEmpty()) {
+        Iterator<Iterator<Job>> it = users.iterator();
+        while (it.hasNext()) {
+          Iterator<Job> userJobs = it.next();
+          Job job = userJobs.next();
+          position++;
+          if (job.position != position) {
+            job.position = position;
+            if (job.listener != null) {
+              positionsToSend.add(job);
+            }
+          }
+          if (!userJobs.hasNext()) {
+            it.remove();
+          }
+        }
+      }
+      if (positionsToSend.isEmpty() || sendingPositions) {
+        return;
+      }
+      sendingPositions = true;
+    }
+    notifier.execute(new Runnable() {
+      @Override
+      public void run() {
+        sendPositions();
+      }
+    });
+  }
+
+  /**
+   * Delivers the latest position of each job in {@link #positionsToSend} until none is left.
+   * A job that changes position again while updates are being delivered is sent only its newest
+   * position, and a job that has been started is skipped.
+   */
+  private void sendPositions() {
+    while (true) {
+      List<Job> jobs;
+      synchronized (this) {
+        if (positionsToSend.isEmpty()) {
+          sendingPositions = false;
+          return;
+        }
+        jobs = new ArrayList<>(positionsToSend);
+        positionsToSend.clear();
+      }
+      for (Job job : jobs) {
+        synchronized (job) {
+          if (job.started) {
+            continue;
+          }
+          int position;
+          synchronized (this) {
+            position = job.position;
+          }
+          try {
+            job.listener.positionChanged(position);
+          } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Unable to report queue position", e);
+          }
+        }
+      }
+    }
+  }
+
+  public int getMaxActiveTasks() {
+    return maxActiveTasks;
+  }
+
+  public int getMaxQueuedTasks() {
+    return maxQueuedTasks;
+  }
+
+  public synchronized int getActiveTaskCount() {
+    return activeTaskCount;
+  }
+
+  public synchronized int getQueuedTaskCount() {
+    return queuedTaskCount;
+  }
+
+  public synchronized int getCompletedTaskCount() {
+    return completedTaskCount;
+  }
+
+  /**
+   * Gets the average time that builds which had to wait spent in the queue.
+   *
+   * @return the average wait in milliseconds, or 0 if no build has waited
+   */
+  public synchronized long getAverageWaitMillis() {
+    return waitedTaskCount == 0 ? 0 : totalWaitMillis / waitedTaskCount;
+  }
+
+  public synchronized long getMaxWaitMillis() {
+    return maxWaitMillis;
+  }
+
+  public synchronized int getWaitedTaskCount() {
+    return waitedTaskCount;
+  }
+}
@@ -11,6 +11,10 @@ import com.google.appinventor.buildserver.stats.StatCalculator;
 import com.google.appinventor.buildserver.stats.StatCalculator.Stats;
 import com.google.appinventor.buildserver.stats.StatReporter;
 import com.google.appinventor.buildserver.tasks.android.AndroidBuildFactory;
+import com.google.appinventor.buildserver.context.Resources;
+import com.google.appinventor.buildserver.util.AARCache;
+import com.google.appinventor.buildserver.util.BuildCache;
+import com.google.appinventor.buildserver.util.KawaCompilerPool;
 import com.google.appinventor.common.version.GitBuildId;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
@@ -26,18 +30,16 @@ import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
 import org.kohsuke.args4j.spi.StringArrayOptionHandler;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.PrintWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.OperatingSystemMXBean;
@@ -46,6 +48,7 @@ import java.lang.Math;
 import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -53,6 +56,7 @@ import java.util.Map;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -75,61 +79,83 @@ import javax.ws.rs.core.Response;
 // The Java class will be hosted at the URI path "/buildserver"
 @Path("/buildserver")
 public class BuildServer {
-  private ProjectBuilder projectBuilder = new ProjectBuilder(statReporter);
+  private ProjectBuilder projectBuilder = new ProjectBuilder(statReporter, buildCache);
   private String hostname = getEtcHostname();
 
   public static class ProgressReporter {
     // We create a ProgressReporter instance which is handed off to the
     // project builder and compiler. It is called to report the progress
-    // of the build. The reporting is done by calling the callback URL
-    // and putting the status inside a "build.status" file. This isn't
-    // particularly efficient, but this is the version 0.9 implementation
+    // of the build. The reporting is done by POSTing the progress to the
+    // callback URL as a plain text body. The response is read in full so
+    // that the connection is kept alive and reused for the next report.
     String callbackUrlStr;
+    private int lastProgress = Integer.MIN_VALUE;
+
     ProgressReporter(String callbackUrlStr) {
       this.callbackUrlStr = callbackUrlStr;
     }
 
-    public void report(int progress) {
+    /**
+     * Reports the position of a build that is waiting for the build server. Positions are sent
+     * as negative progress values so that they can share the build.status protocol.
+     *
+     * @param position the position of the build in the queue, starting at 1
+     */
+    public void reportQueuePosition(int position) {
+      report(-position);
+    }
+
+    public synchronized void report(int progress) {
+      if (progress == lastProgress) {
+        return;  // Nothing new to tell the callback
+      }
+      lastProgress = progress;
       try {
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        ZipOutputStream zipoutput = new ZipOutputStream(output);
-        zipoutput.putNextEntry(new ZipEntry("build.status"));
-        PrintWriter pout = new PrintWriter(zipoutput);
-        pout.println(progress);
-        pout.flush();
-        zipoutput.flush();
-        zipoutput.close();
-        ByteArrayInputStream zipinput = new ByteArrayInputStream(output.toByteArray());
+        byte[] body = (progress + "\n").getBytes(StandardCharsets.UTF_8);
         URL callbackUrl = new URL(callbackUrlStr);
         HttpURLConnection connection = (HttpURLConnection) callbackUrl.openConnection();
         connection.setDoOutput(true);
         connection.setRequestMethod("POST");
-        // Make sure we aren't misinterpreted as
-        // form-url-encoded
-        connection.addRequestProperty("Content-Type","application/zip; charset=utf-8");
+        // The receiver tells a progress report from build output by its content type.
+        connection.addRequestProperty("Content-Type", PROGRESS_CONTENT_TYPE);
+        connection.setFixedLengthStreamingMode(body.length);
         connection.setConnectTimeout(5000);
         connection.setReadTimeout(5000);
-        BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(connection.getOutputStream());
-        try {
-          BufferedInputStream bufferedInputStream = new BufferedInputStream(zipinput);
-          try {
-            ByteStreams.copy(bufferedInputStream,bufferedOutputStream);
-            bufferedOutputStream.flush();
-          } finally {
-            bufferedInputStream.close();
-          }
-        } finally {
-          bufferedOutputStream.close();
+        try (OutputStream out = connection.getOutputStream()) {
+          out.write(body);
         }
         if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
           LOG.severe("Bad Response Code! (sending status): "+ connection.getResponseCode());
         }
+        drainResponse(connection);
       } catch (IOException e) {
         LOG.severe("IOException during progress report!");
       }
     }
   }
 
+  /**
+   * Reads and closes the response to a request so that the underlying connection can be reused
+   * by the next request to the same host.
+   *
+   * @param connection the connection whose response should be consumed
+   */
+  private static void drainResponse(HttpURLConnection connection) {
+    try {
+      InputStream in = connection.getResponseCode() < HttpURLConnection.HTTP_BAD_REQUEST
+          ? connection.getInputStream() : connection.getErrorStream();
+      if (in != null) {
+        try {
+          ByteStreams.copy(in, ByteStreams.nullOutputStream());
+        } finally {
+          in.close();
+        }
+      }
+    } catch (IOException e) {
+      // The connection will not be reused, which is harmless.
+    }
+  }
+
 
   static class CommandLineOptions {
     @Option(name = "--shutdownToken",
@@ -144,6 +170,11 @@ public class BuildServer {
       usage = "Maximum number of builds that can run in parallel. O means unlimited.")
     int maxSimultaneousBuilds = 0;  // The default is unlimited.
 
+    @Option(name = "--maxQueuedBuilds",
+      usage = "Maximum number of builds that can wait for a free slot when --maxSimultaneousBuilds "
+          + "builds are running. 0 means additional builds are rejected.")
+    int maxQueuedBuilds = 0;
+
     @Option(name = "--port",
       usage = "The port number to bind to on the local machine.")
     int port = 9990;
@@ -161,6 +192,26 @@ public class BuildServer {
             usage = "the directory to cache the pre-dexed libraries")
     String dexCacheDir = null;
 
+    @Option(name = "--buildCacheDir",
+            usage = "the directory to cache the outputs of build tasks between builds")
+    String buildCacheDir = null;
+
+    @Option(name = "--buildCacheMaxMb",
+            usage = "Maximum size of the build cache, in MB. 0 means unlimited.")
+    int buildCacheMaxMb = 4096;
+
+    @Option(name = "--aarCacheDir",
+        usage = "the directory to share exploded AARs and their merged resources between builds")
+    String aarCacheDir = null;
+
+    @Option(name = "--kawaWorkers",
+        usage = "Number of resident Kawa compiler processes. 0 means start one per build.")
+    int kawaWorkers = 0;
+
+    @Option(name = "--kawaWorkerMaxCompiles",
+        usage = "Number of compiles after which a resident Kawa compiler process is replaced.")
+    int kawaWorkerMaxCompiles = 50;
+
     @Option(name = "--statreporter",
         usage = "the reporter to use for collecting stats")
     String statReporter = "com.google.appinventor.buildserver.stats.SimpleStatReporter";
@@ -179,6 +230,9 @@ public class BuildServer {
   private static final MediaType ZIP_MEDIA_TYPE =
     new MediaType("application", "zip", ImmutableMap.of("charset", "utf-8"));
 
+  // The content type of progress reports sent to the callback URL.
+  private static final String PROGRESS_CONTENT_TYPE = "text/plain; charset=utf-8";
+
   private static final AtomicInteger buildCount = new AtomicInteger(0);
 
   // The number of build requests for this server run
@@ -196,6 +250,12 @@ public class BuildServer {
   // The reporter for gathering build stats.
   private static StatReporter statReporter;
 
+  // The cache of task outputs shared between builds, or null if --buildCacheDir is not given.
+  private static BuildCache buildCache;
+
+  // The resident Kawa compilers, or null if --kawaWorkers is 0.
+  private static KawaCompilerPool kawaCompilerPool;
+
   //The number of failed build requests for this server run
   private static int maximumActiveBuildTasks = 0;
 
@@ -203,7 +263,7 @@ public class BuildServer {
   // NOTE(lizlooney) - the buildExecutor must be created after the command line options are
   // processed in main(). If it is created here, the number of simultaneous builds will always be
   // the default value, even if the --maxSimultaneousBuilds option is on the command line.
-  private static NonQueuingExecutor buildExecutor;
+  private static BuildQueue buildExecutor;
 
   // The input zip file. It will be deleted in cleanUp.
   private File inputZip;
@@ -330,6 +390,19 @@ public class BuildServer {
     variables.put("maximum-simultaneous-build-tasks-occurred", maximumActiveBuildTasks + "");
     variables.put("active-build-tasks", buildExecutor.getActiveTaskCount() + "");
 
+    // Build queue
+    variables.put("maximum-queued-build-tasks-allowed", buildExecutor.getMaxQueuedTasks() + "");
+    variables.put("queued-build-tasks", buildExecutor.getQueuedTaskCount() + "");
+    variables.put("build-tasks-that-waited", buildExecutor.getWaitedTaskCount() + "");
+    variables.put("average-queue-wait-in-ms", buildExecutor.getAverageWaitMillis() + "");
+    variables.put("maximum-queue-wait-in-ms", buildExecutor.getMaxWaitMillis() + "");
+
+    // Build cache
+    if (buildCache != null) {
+      variables.put("build-cache-hits", buildCache.getHitCount() + "");
+      variables.put("build-cache-misses", buildCache.getMissCount() + "");
+    }
+
     return mapToHtml(variables);
   }
 
@@ -545,6 +618,9 @@ public class BuildServer {
    * The status code returned here will be seen by the server in YoungAndroidProjectService.build
    * as connection.getResponseCode().
    *
+   * If the build server is running its maximum number of builds, the build waits in a queue and
+   * its position in the queue is sent to the callbackUrl as a negative progress value.
+   *
    * @param userName  The user name to be used in making the CN entry in the generated keystore.
    * @param gitBuildVersion  The value of GitBuildId.getVersion() sent from
    *     YoungAndroidProjectService.build.
@@ -614,6 +690,7 @@ public class BuildServer {
         }
       }
 
+      final ProgressReporter progressReporter = new ProgressReporter(callbackUrlStr);
       Runnable buildTask = new Runnable() {
           @Override
           public void run() {
@@ -621,7 +698,7 @@ public class BuildServer {
             try {
               LOG.info("START NEW BUILD " + count);
               checkMemory();
-              buildAndCreateZip(userName, inputZipFile, ext, new ProgressReporter(callbackUrlStr));
+              buildAndCreateZip(userName, inputZipFile, ext, progressReporter);
               // Send zip back to the callbackUrl
               LOG.info("CallbackURL: " + callbackUrlStr);
               URL callbackUrl = new URL(callbackUrlStr);
@@ -631,25 +708,18 @@ public class BuildServer {
               // Make sure we aren't misinterpreted as
               // form-url-encoded
               connection.addRequestProperty("Content-Type","application/zip; charset=utf-8");
+              // Stream the zip from disk rather than letting the connection buffer all of it.
+              connection.setFixedLengthStreamingMode(outputZip.length());
               connection.setConnectTimeout(60000);
               connection.setReadTimeout(60000);
-              BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(connection.getOutputStream());
-              try {
-                BufferedInputStream bufferedInputStream = new BufferedInputStream(
-                  new FileInputStream(outputZip));
-                try {
-                  ByteStreams.copy(bufferedInputStream,bufferedOutputStream);
-                  checkMemory();
-                  bufferedOutputStream.flush();
-                } finally {
-                  bufferedInputStream.close();
-                }
-              } finally {
-                bufferedOutputStream.close();
+              try (OutputStream out = connection.getOutputStream()) {
+                Files.copy(outputZip, out);
               }
+              checkMemory();
               if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {LOG.severe("Bad Response Code!: "+ connection.getResponseCode());
                 // TODO(user) Maybe do some retries
               }
+              drainResponse(connection);
             } catch (Exception e) {
               // TODO(user): Maybe send a failure callback
               LOG.severe("Exception: " + e.getMessage()+ " and the length is of inputZip is "+ inputZip.length());
@@ -661,10 +731,15 @@ public class BuildServer {
           }
         };
       try {
-        buildExecutor.execute(buildTask);
+        buildExecutor.execute(userName, buildTask, new BuildQueue.QueueListener() {
+          @Override
+          public void positionChanged(int position) {
+            progressReporter.reportQueuePosition(position);
+          }
+        });
       } catch (RejectedExecutionException e) {
         // This request was rejected because all threads in the build
-        // executor are busy.
+        // executor are busy and the queue is full.
         rejectedAsyncBuildRequests.incrementAndGet();
         cleanUp();
         // Here, we use SERVICE_UNAVAILABLE (response code 503), which
@@ -691,6 +766,8 @@ public class BuildServer {
     outputZip.deleteOnExit();  // In case build server is killed before cleanUp executes.
     ZipOutputStream zipOutputStream =
       new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(outputZip)));
+    // The APK is already compressed, so compressing it again only costs time.
+    zipOutputStream.setLevel(Deflater.NO_COMPRESSION);
     if (buildSucceeded) {
       if (outputKeystore != null) {
         zipOutputStream.putNextEntry(new ZipEntry(outputKeystore.getName()));
@@ -794,6 +871,22 @@ public class BuildServer {
       }
     }
 
+    if (commandLineOptions.buildCacheDir != null) {
+      buildCache = new BuildCache(new File(commandLineOptions.buildCacheDir),
+          commandLineOptions.buildCacheMaxMb * 1024L * 1024L, GitBuildId.getVersion());
+    }
+
+    if (commandLineOptions.aarCacheDir != null) {
+      Resources.setAarCache(new AARCache(new File(commandLineOptions.aarCacheDir),
+          GitBuildId.getVersion()));
+    }
+
+    if (commandLineOptions.kawaWorkers > 0) {
+      kawaCompilerPool = new KawaCompilerPool(commandLineOptions.kawaWorkers,
+          commandLineOptions.kawaWorkerMaxCompiles, commandLineOptions.childProcessRamMb - 200);
+      Resources.setKawaCompilerPool(kawaCompilerPool);
+    }
+
     // Add a Shutdown Hook. In a container swarm, the swarm orchestrator
     // may choose to shutdown a container (running a buildserver) as part
     // of load balancing and other maintenance tasks. It will send a
@@ -812,8 +905,11 @@ public class BuildServer {
             return;
           }
           while (true) {
-            int tasks = buildExecutor.getActiveTaskCount();
+            int tasks = buildExecutor.getActiveTaskCount() + buildExecutor.getQueuedTaskCount();
             if (tasks <= 0) {
+              if (kawaCompilerPool != null) {
+                kawaCompilerPool.shutdown();
+              }
               try {
                 Thread.sleep(10000); // One final wait so people can get
                                      // their barcode
@@ -833,7 +929,8 @@ public class BuildServer {
     // Now that the command line options have been processed, we can create the buildExecutor.
     AndroidBuildFactory.install();
     // TODO(ewpatton): Enable iOS build factory here when published
-    buildExecutor = new NonQueuingExecutor(commandLineOptions.maxSimultaneousBuilds);
+    buildExecutor = new BuildQueue(commandLineOptions.maxSimultaneousBuilds,
+        commandLineOptions.maxQueuedBuilds);
 
     int port = commandLineOptions.port;
     final ResourceConfig rc = new ResourceConfig(BuildServer.class);
@@ -846,6 +943,7 @@ public class BuildServer {
       LOG.info("Maximum simultaneous builds = unlimited!");
     } else {
       LOG.info("Maximum simultaneous builds = " + commandLineOptions.maxSimultaneousBuilds);
+      LOG.info("Maximum queued builds = " + commandLineOptions.maxQueuedBuilds);
     }
     LOG.info("Visit: http://" + hostAddress + ":" + port +
       "/buildserver/health for server health");
@@ -8,12 +8,26 @@ package com.google.appinventor.buildserver;
 
 import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.context.Paths;
+import com.google.appinventor.buildserver.interfaces.CacheableTask;
 import com.google.appinventor.buildserver.interfaces.Task;
+import com.google.appinventor.buildserver.util.BuildCache;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,12 +40,27 @@ import java.util.logging.Logger;
  * style pattern, where receives build information, and then
  * {@link Task} can be added.</p>
  *
+ * <p>Tasks run as soon as the tasks they declare with {@link DependsOn}
+ * have finished, so independent tasks run in parallel. Each build has its
+ * own bounded pool of threads, so a slow build never holds up the tasks of
+ * another.</p>
+ *
  * @see CompilerContext
  *
  * @author diego@barreiro.xyz (Diego Barreiro)
  */
 public class Compiler<P extends Paths, T extends CompilerContext<P>> implements Callable<Boolean> {
   private static final Logger LOG = Logger.getLogger(Compiler.class.getName());
+
+  /**
+   * The maximum number of tasks of one build that run at the same time. Many tasks spend their
+   * time waiting on external tools, so at least two run at once even on a single processor.
+   */
+  private static final int MAX_PARALLEL_TASKS =
+      Math.max(2, Runtime.getRuntime().availableProcessors());
+
+  private static final AtomicInteger TASK_THREAD_COUNT = new AtomicInteger(0);
+
   private final List<Class<? extends Task<? super T>>> tasks;
   private T context;
   private String ext = BuildType.APK_EXTENSION;
@@ -109,7 +138,7 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
     // Initializes progress to 0.
     context.getReporter().setProgress(0);
     context.getStatReporter().startBuild(this);
-    int numTasks = this.tasks.size();
+    final int numTasks = this.tasks.size();
 
     // If no tasks, we technically have successfully built everything.
     if (numTasks == 0) {
@@ -118,78 +147,243 @@ public class Compiler<P extends Paths, T extends CompilerContext<P>> implements
       return true;
     }
 
-    for (int i = 0; i < numTasks; i++) {
-      // We accept Classes, but not initialized ones.
-      Class<? extends Task<?>> task = this.tasks.get(i);
-      String taskName = task.getSimpleName();
-
-      // We try to initialize a Task instance.
-      Object taskObject;
-      try {
-        taskObject = task.newInstance();
-      } catch (IllegalAccessException | InstantiationException e) {
-        LOG.log(Level.SEVERE, "Could not create new task " + taskName, e);
-        context.getReporter().error("Could not create new task " + taskName);
+    // Create all of the tasks up front so that a misconfigured build fails before any task runs.
+    final List<Object> taskObjects = new ArrayList<>(numTasks);
+    for (Class<? extends Task<? super T>> task : this.tasks) {
+      Object taskObject = createTask(task);
+      if (taskObject == null) {
         return false;
       }
+      taskObjects.add(taskObject);
+    }
+
+    // Work out which tasks wait on which, then start every task whose dependencies have finished.
+    int[] pending = new int[numTasks];
+    List<List<Integer>> dependents = computeDependents(this.tasks, pending);
+    ExecutorService executor = newTaskExecutor(Math.min(numTasks, MAX_PARALLEL_TASKS));
+    CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+    Map<Future<Boolean>, Integer> running = new HashMap<>();
+    for (int i = 0; i < numTasks; i++) {
+      if (pending[i] == 0) {
+        running.put(submitTask(completionService, i, taskObjects.get(i)), i);
+      }
+    }
 
-      // Task's will have an annotation to make sure they only run in
-      // the specified build type. If no annotation present, we throw
-      // a warning.
-      if (task.isAnnotationPresent(BuildType.class)) {
-        BuildType buildType = task.getAnnotation(BuildType.class);
-        switch (ext) {
-          case BuildType.AAB_EXTENSION:
-            if (!buildType.aab()) {
-              context.getReporter().error("Task " + taskName + " does not support builds on AABs!");
-              return false;
-            }
-            break;
-          default:
-          case BuildType.APK_EXTENSION:
-            if (!buildType.apk()) {
-              context.getReporter().error("Task " + taskName + " does not support builds on APKs!");
-              return false;
+    boolean success = true;
+    int finished = 0;
+    try {
+      while (!running.isEmpty()) {
+        Future<Boolean> done = completionService.take();
+        int index = running.remove(done);
+        boolean taskSuccess;
+        try {
+          taskSuccess = done.get();
+        } catch (ExecutionException e) {
+          LOG.log(Level.SEVERE, "Error running task " + this.tasks.get(index), e.getCause());
+          taskSuccess = false;
+        }
+        if (!taskSuccess) {
+          // Don't start any more tasks, but let the ones in progress finish.
+          success = false;
+          continue;
+        }
+
+        // Update progress depending on the number of steps.
+        finished++;
+        context.getReporter().setProgress((finished * 100) / numTasks);
+        if (success) {
+          for (int dependent : dependents.get(index)) {
+            if (--pending[dependent] == 0) {
+              running.put(submitTask(completionService, dependent, taskObjects.get(dependent)),
+                  dependent);
             }
-            break;
+          }
         }
-      } else {
-        context.getReporter().warn("Task " + taskName + " does not contain build type targets!");
       }
+    } catch (InterruptedException e) {
+      for (Future<Boolean> future : running.keySet()) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      return false;
+    } finally {
+      executor.shutdown();
+    }
+    return success;
+  }
+
+  private static ExecutorService newTaskExecutor(int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "compiler-task-" + TASK_THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Creates a new instance of {@code task}, checking that it supports the current build type.
+   *
+   * @return the new task, or null if the task cannot be used in this build
+   */
+  private Object createTask(Class<? extends Task<? super T>> task) {
+    String taskName = task.getSimpleName();
+
+    // We try to initialize a Task instance.
+    Object taskObject;
+    try {
+      taskObject = task.newInstance();
+    } catch (IllegalAccessException | InstantiationException e) {
+      LOG.log(Level.SEVERE, "Could not create new task " + taskName, e);
+      context.getReporter().error("Could not create new task " + taskName);
+      return null;
+    }
 
-      // Get the current time to know the time needed to execute it.
-      context.getReporter().taskStart(taskName);
-      context.getStatReporter().nextStage(this, task.getSimpleName());
-      long start = System.currentTimeMillis();
+    // Task's will have an annotation to make sure they only run in
+    // the specified build type. If no annotation present, we throw
+    // a warning.
+    if (task.isAnnotationPresent(BuildType.class)) {
+      BuildType buildType = task.getAnnotation(BuildType.class);
+      switch (ext) {
+        case BuildType.AAB_EXTENSION:
+          if (!buildType.aab()) {
+            context.getReporter().error("Task " + taskName + " does not support builds on AABs!");
+            return null;
+          }
+          break;
+        default:
+        case BuildType.APK_EXTENSION:
+          if (!buildType.apk()) {
+            context.getReporter().error("Task " + taskName + " does not support builds on APKs!");
+            return null;
+          }
+          break;
+      }
+    } else {
+      context.getReporter().warn("Task " + taskName + " does not contain build type targets!");
+    }
+    return taskObject;
+  }
 
-      // And then invoke the execute(ExecutorContext) method to run the Task.
-      TaskResult result;
-      try {
+  /**
+   * Builds the dependency graph of the tasks from their {@link DependsOn} annotations. A task may
+   * only depend on tasks that were added before it, which keeps the graph acyclic.
+   *
+   * @param tasks the tasks of the build, in the order they were added
+   * @param pending receives the number of unfinished dependencies of each task
+   * @return the indices of the tasks that depend on each task
+   */
+  static List<List<Integer>> computeDependents(List<? extends Class<?>> tasks, int[] pending) {
+    List<List<Integer>> dependents = new ArrayList<>(tasks.size());
+    for (int i = 0; i < tasks.size(); i++) {
+      dependents.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < tasks.size(); i++) {
+      DependsOn dependsOn = tasks.get(i).getAnnotation(DependsOn.class);
+      for (int j = 0; j < i; j++) {
+        if (dependsOn == null || dependsOn(dependsOn, tasks.get(j))) {
+          dependents.get(j).add(i);
+          pending[i]++;
+        }
+      }
+    }
+    return dependents;
+  }
+
+  private static boolean dependsOn(DependsOn dependsOn, Class<?> task) {
+    for (Class<?> dependency : dependsOn.value()) {
+      if (dependency.isAssignableFrom(task)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Future<Boolean> submitTask(CompletionService<Boolean> completionService,
+      final int index, final Object taskObject) {
+    return completionService.submit(new Callable<Boolean>() {
+      @Override
+      public Boolean call() {
+        return runTask(tasks.get(index), taskObject);
+      }
+    });
+  }
+
+  /**
+   * Runs a single task and reports its outcome. This is called on a thread of the task pool, so
+   * the reporter attributes any messages the task logs to it even when other tasks overlap.
+   *
+   * @return true if the task succeeded
+   */
+  private boolean runTask(Class<? extends Task<? super T>> task, Object taskObject) {
+    String taskName = task.getSimpleName();
+
+    // Get the current time to know the time needed to execute it.
+    context.getReporter().taskStart(taskName);
+    context.getStatReporter().nextStage(this, taskName);
+    long start = System.currentTimeMillis();
+
+    // And then invoke the execute(ExecutorContext) method to run the Task.
+    TaskResult result;
+    try {
+      if (taskObject instanceof CacheableTask && context.getBuildCache() != null) {
+        @SuppressWarnings("unchecked")
+        CacheableTask<? super T> cacheable = (CacheableTask<? super T>) taskObject;
+        result = executeCached(cacheable, context.getBuildCache());
+      } else {
         Method execute = task.getMethod("execute", CompilerContext.class);
         result = (TaskResult) execute.invoke(taskObject, context);
-      } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-        context.getReporter().taskError(-1);
-        LOG.log(Level.SEVERE, "Error running task " + task, e);
-        return false;
-      }
-      double endTime = (System.currentTimeMillis() - start) / 1000.0;
-
-      // Make sure result is success, else we'll throw an error and don't run
-      // more tasks.
-      if (result == null || !result.isSuccess()) {
-        context.getReporter().error(result == null || result.getError() == null
-            ? "Unknown exception" : result.getError().getMessage(), true);
-        context.getReporter().taskError(endTime);
-        return false;
       }
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException
+        | RuntimeException e) {
+      context.getReporter().taskError(-1);
+      context.getStatReporter().endStage(this, taskName);
+      LOG.log(Level.SEVERE, "Error running task " + task, e);
+      return false;
+    }
+    double endTime = (System.currentTimeMillis() - start) / 1000.0;
+    context.getStatReporter().endStage(this, taskName);
 
-      // Update progress depending on the number of steps.
-      context.getReporter().setProgress(((i + 1) * 100) / numTasks);
-      context.getReporter().taskSuccess(endTime);
+    // Make sure result is success, else we'll throw an error and don't run
+    // more tasks.
+    if (result == null || !result.isSuccess()) {
+      context.getReporter().error(result == null || result.getError() == null
+          ? "Unknown exception" : result.getError().getMessage(), true);
+      context.getReporter().taskError(endTime);
+      return false;
     }
+
+    context.getReporter().taskSuccess(endTime);
     return true;
   }
 
+  /**
+   * Runs a cacheable task, restoring its outputs from the build cache when an earlier build
+   * has already run it with the same inputs.
+   */
+  private TaskResult executeCached(CacheableTask<? super T> task, BuildCache cache) {
+    task.prepare(context);
+    BuildCache.Key key = cache.newKey(task.getClass().getSimpleName());
+    try {
+      task.addInputs(context, key);
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to hash inputs of " + task.getClass().getSimpleName(), e);
+      return task.execute(context);
+    }
+    List<File> outputs = task.getOutputs(context);
+    if (cache.restore(key, outputs)) {
+      context.getReporter().info("Restored outputs from build cache");
+      return TaskResult.generateSuccess();
+    }
+    TaskResult result = task.execute(context);
+    if (result != null && result.isSuccess()) {
+      cache.store(key, outputs);
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return "Compiler{"
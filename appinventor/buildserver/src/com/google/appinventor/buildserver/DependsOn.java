@@ -0,0 +1,29 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import com.google.appinventor.buildserver.interfaces.Task;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the tasks whose outputs the annotated task uses. The {@link Compiler} starts a task
+ * once every dependency that was added to the build before it has finished, so tasks that do not
+ * depend on each other run at the same time. Dependencies that are not part of the build, such
+ * as {@code RunAapt2} in an APK build, are ignored.
+ *
+ * <p>A task without this annotation depends on every task added to the build before it.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DependsOn {
+  /**
+   * The tasks that must finish before the annotated task starts.
+   */
+  Class<? extends Task<?>>[] value();
+}
@@ -17,6 +17,7 @@ import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.context.Paths;
 import com.google.appinventor.buildserver.stats.StatReporter;
 import com.google.appinventor.buildserver.tasks.common.BuildFactory;
+import com.google.appinventor.buildserver.util.BuildCache;
 import com.google.appinventor.buildserver.util.Execution;
 
 import com.google.appinventor.buildserver.util.ProjectUtils;
@@ -96,9 +97,21 @@ public final class ProjectBuilder {
   }
 
   private final StatReporter statReporter;
+  private final BuildCache buildCache;
 
   public ProjectBuilder(StatReporter statReporter) {
+    this(statReporter, null);
+  }
+
+  /**
+   * Creates a new ProjectBuilder.
+   *
+   * @param statReporter the reporter used to collect build statistics
+   * @param buildCache the cache of task outputs shared between builds, or null to disable caching
+   */
+  public ProjectBuilder(StatReporter statReporter, BuildCache buildCache) {
     this.statReporter = statReporter;
+    this.buildCache = buildCache;
   }
 
   Result build(String userName, ZipFile inputZip, File outputDir, String outputFileName,
@@ -193,6 +206,7 @@ public final class ProjectBuilder {
                 .withKeystore(keyStorePath)
                 .withRam(childProcessRam)
                 .withCache(dexCachePath)
+                .withBuildCache(buildCache)
                 .withOutput(outputFileName)
                 .build();
 
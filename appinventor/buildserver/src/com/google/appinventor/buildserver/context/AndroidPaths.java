@@ -17,6 +17,7 @@ public class AndroidPaths extends Paths {
   private File drawableDir;
   private File libsDir;
   private File classesDir;
+  private File rClassesDir;
   private File manifest;
   private File mergedResDir;
   private File tmpPackageName;
@@ -29,6 +30,7 @@ public class AndroidPaths extends Paths {
     setDrawableDir(ExecutorUtils.createDir(buildDir, "drawable"));
     setLibsDir(ExecutorUtils.createDir(buildDir, "libs"));
     setClassesDir(ExecutorUtils.createDir(buildDir, "classes"));
+    setRClassesDir(ExecutorUtils.createDir(buildDir, "rclasses"));
   }
 
   public File getDrawableDir() {
@@ -55,6 +57,14 @@ public class AndroidPaths extends Paths {
     this.classesDir = classesDir;
   }
 
+  public File getRClassesDir() {
+    return rClassesDir;
+  }
+
+  public void setRClassesDir(File rClassesDir) {
+    this.rClassesDir = rClassesDir;
+  }
+
   public File getManifest() {
     return manifest;
   }
@@ -9,13 +9,13 @@ package com.google.appinventor.buildserver.context;
 import com.google.appinventor.buildserver.Project;
 import com.google.appinventor.buildserver.Reporter;
 import com.google.appinventor.buildserver.stats.StatReporter;
+import com.google.appinventor.buildserver.util.BuildCache;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 
-import org.codehaus.jettison.json.JSONArray;
 
 public class CompilerContext<P extends Paths> {
   Project project;
@@ -36,11 +36,9 @@ public class CompilerContext<P extends Paths> {
   String keystoreFilePath;
   int childProcessRam;
   String dexCacheDir;
+  BuildCache buildCache;
   String outputFileName;
 
-  JSONArray simpleCompsBuildInfo;
-  JSONArray extCompsBuildInfo;
-  JSONArray buildInfo;
   Set<String> simpleCompTypes;  // types needed by the project
   Set<String> extCompTypes; // types needed by the project
 
@@ -65,6 +63,7 @@ public class CompilerContext<P extends Paths> {
     private String keystoreFilePath;
     private int childProcessRam = 2048;
     private String dexCacheDir = null;
+    private BuildCache buildCache = null;
     private String outputFileName = null;
 
     private Class<? extends T> clazz;
@@ -134,6 +133,11 @@ public class CompilerContext<P extends Paths> {
       return this;
     }
 
+    public Builder<R, T> withBuildCache(BuildCache buildCache) {
+      this.buildCache = buildCache;
+      return this;
+    }
+
     public Builder<R, T> withOutput(String outputFileName) {
       this.outputFileName = outputFileName;
       return this;
@@ -180,6 +184,7 @@ public class CompilerContext<P extends Paths> {
       context.includeDangerousPermissions = includeDangerousPermissions;
       context.keystoreFilePath = keystoreFilePath;
       context.dexCacheDir = dexCacheDir;
+      context.buildCache = buildCache;
       context.outputFileName = outputFileName;
       context.childProcessRam = childProcessRam;
 
@@ -260,24 +265,17 @@ public class CompilerContext<P extends Paths> {
     return dexCacheDir;
   }
 
-  public String getOutputFileName() {
-    return outputFileName;
-  }
-
-  public JSONArray getBuildInfo() {
-    return buildInfo;
-  }
-
-  public void setBuildInfo(JSONArray buildInfo) {
-    this.buildInfo = buildInfo;
-  }
-
-  public JSONArray getSimpleCompsBuildInfo() {
-    return simpleCompsBuildInfo;
+  /**
+   * Gets the cache of task outputs shared between builds.
+   *
+   * @return the build cache, or null if caching is disabled
+   */
+  public BuildCache getBuildCache() {
+    return buildCache;
   }
 
-  public JSONArray getExtCompsBuildInfo() {
-    return extCompsBuildInfo;
+  public String getOutputFileName() {
+    return outputFileName;
   }
 
   public Set<String> getSimpleCompTypes() {
@@ -292,14 +290,6 @@ public class CompilerContext<P extends Paths> {
     return paths;
   }
 
-  public void setSimpleCompsBuildInfo(JSONArray simpleCompsBuildInfo) {
-    this.simpleCompsBuildInfo = simpleCompsBuildInfo;
-  }
-
-  public void setExtCompsBuildInfo(JSONArray extCompsBuildInfo) {
-    this.extCompsBuildInfo = extCompsBuildInfo;
-  }
-
   public void setSimpleCompTypes(Set<String> simpleCompTypes) {
     this.simpleCompTypes = simpleCompTypes;
   }
@@ -347,8 +337,6 @@ public class CompilerContext<P extends Paths> {
         + ", childProcessRam=" + childProcessRam
         + ", dexCacheDir='" + dexCacheDir + '\''
         + ", outputFileName='" + outputFileName + '\''
-        + ", simpleCompsBuildInfo=" + simpleCompsBuildInfo
-        + ", extCompsBuildInfo=" + extCompsBuildInfo
         + ", simpleCompTypes=" + simpleCompTypes
         + ", extCompTypes=" + extCompTypes
         + ", extTypePathCache=" + extTypePathCache
@@ -0,0 +1,271 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.context;
+
+import com.google.appinventor.buildserver.util.PermissionConstraint;
+import com.google.appinventor.components.common.ComponentDescriptorConstants;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.codehaus.jettison.json.JSONTokener;
+
+/**
+ * The parsed build information of a single component type, as found in
+ * simple_components_build_info.json or in an extension's component_build_infos.json.
+ *
+ * <p>Instances are immutable and are shared by every build in the process. Parsed documents are
+ * kept in a process-wide index: the built-in components are parsed once, and extensions are
+ * indexed by the SHA-256 of their build info, so that each version of an extension is parsed
+ * only once no matter how many projects use it.</p>
+ */
+public final class ComponentBuildInfo {
+  // The maximum number of extension build info documents kept in the index.
+  private static final int MAX_EXTENSION_DOCUMENTS = 1000;
+
+  private static Map<String, ComponentBuildInfo> simpleComponents;
+
+  private static final Map<String, Map<String, ComponentBuildInfo>> EXTENSIONS =
+      new LinkedHashMap<String, Map<String, ComponentBuildInfo>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(
+            Map.Entry<String, Map<String, ComponentBuildInfo>> eldest) {
+          return size() > MAX_EXTENSION_DOCUMENTS;
+        }
+      };
+
+  private final String type;
+
+  /**
+   * Maps annotation targets (e.g., permissions) to their values. Targets that the component
+   * does not specify are absent.
+   */
+  private final Map<String, Set<String>> info;
+
+  /**
+   * Maps annotation targets to block names to the values needed when the block is used.
+   */
+  private final Map<String, Map<String, Set<String>>> conditionals;
+
+  /**
+   * Maps permissions to permission constraints, or null if none are specified.
+   */
+  private final Map<String, Set<PermissionConstraint<?>>> permissionConstraints;
+
+  /**
+   * Maps block names to permissions to permission constraints.
+   */
+  private final Map<String, Map<String, Set<PermissionConstraint<?>>>>
+      conditionalPermissionConstraints;
+
+  private ComponentBuildInfo(JSONObject compJson) throws JSONException {
+    type = compJson.getString("type");
+
+    ImmutableMap.Builder<String, Set<String>> infoBuilder = ImmutableMap.builder();
+    Iterator<?> it = compJson.keys();
+    while (it.hasNext()) {
+      String target = (String) it.next();
+      JSONArray infoArray = compJson.optJSONArray(target);
+      if (infoArray == null) {
+        continue;
+      }
+      ImmutableSet.Builder<String> values = ImmutableSet.builder();
+      for (int i = 0; i < infoArray.length(); i++) {
+        String value = infoArray.getString(i);
+        if (!value.isEmpty()) {
+          values.add(value);
+        }
+      }
+      infoBuilder.put(target, values.build());
+    }
+    info = infoBuilder.build();
+
+    ImmutableMap.Builder<String, Map<String, Set<String>>> conditionalsBuilder =
+        ImmutableMap.builder();
+    JSONObject conditionalsJson = compJson.optJSONObject(
+        ComponentDescriptorConstants.CONDITIONALS_TARGET);
+    if (conditionalsJson != null) {
+      it = conditionalsJson.keys();
+      while (it.hasNext()) {
+        String target = (String) it.next();
+        JSONObject jsonBlockMap = conditionalsJson.optJSONObject(target);
+        if (jsonBlockMap == null
+            || target.equals(ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET)) {
+          continue;
+        }
+        ImmutableMap.Builder<String, Set<String>> blockMap = ImmutableMap.builder();
+        Iterator<?> blocks = jsonBlockMap.keys();
+        while (blocks.hasNext()) {
+          String blockName = (String) blocks.next();
+          JSONArray data = jsonBlockMap.optJSONArray(blockName);
+          if (data == null) {
+            continue;
+          }
+          ImmutableSet.Builder<String> values = ImmutableSet.builder();
+          for (int i = 0; i < data.length(); i++) {
+            values.add(data.optString(i));
+          }
+          blockMap.put(blockName, values.build());
+        }
+        conditionalsBuilder.put(target, blockMap.build());
+      }
+    }
+    conditionals = conditionalsBuilder.build();
+
+    JSONObject constraintsJson = compJson.optJSONObject(
+        ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
+    permissionConstraints = constraintsJson == null ? null
+        : processPermissionConstraints(constraintsJson);
+
+    ImmutableMap.Builder<String, Map<String, Set<PermissionConstraint<?>>>> blockConstraints =
+        ImmutableMap.builder();
+    if (conditionalsJson != null) {
+      JSONObject blockConstraintsJson = conditionalsJson.optJSONObject(
+          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
+      if (blockConstraintsJson != null) {
+        it = blockConstraintsJson.keys();
+        while (it.hasNext()) {
+          String blockName = (String) it.next();
+          blockConstraints.put(blockName,
+              processPermissionConstraints(blockConstraintsJson.getJSONObject(blockName)));
+        }
+      }
+    }
+    conditionalPermissionConstraints = blockConstraints.build();
+  }
+
+  private static Map<String, Set<PermissionConstraint<?>>> processPermissionConstraints(
+      JSONObject src) throws JSONException {
+    ImmutableMap.Builder<String, Set<PermissionConstraint<?>>> neededConstraints =
+        ImmutableMap.builder();
+    Iterator<?> it = src.keys();
+    while (it.hasNext()) {
+      String permissionName = (String) it.next();
+      ImmutableSet.Builder<PermissionConstraint<?>> constraintSet = ImmutableSet.builder();
+      JSONObject constraints = src.getJSONObject(permissionName);
+      Iterator<?> it2 = constraints.keys();
+      while (it2.hasNext()) {
+        String attribute = (String) it2.next();
+        Object value = constraints.get(attribute);
+        if (value instanceof Number) {
+          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
+              ((Number) value).intValue()));
+        } else {
+          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
+              value.toString()));
+        }
+      }
+      neededConstraints.put(permissionName, constraintSet.build());
+    }
+    return neededConstraints.build();
+  }
+
+  /**
+   * Gets the build info of the built-in components, parsing it on first use.
+   *
+   * @param resources the resources of the build, used to read the build info the first time
+   * @return an immutable map from component type to build info
+   * @throws JSONException if the build info cannot be parsed
+   */
+  public static synchronized Map<String, ComponentBuildInfo> getSimpleComponents(
+      Resources resources) throws JSONException {
+    if (simpleComponents == null) {
+      simpleComponents = parse(resources.getCompBuildInfo());
+    }
+    return simpleComponents;
+  }
+
+  /**
+   * Gets the build info of the components in an extension. Extensions are indexed by the
+   * content of their build info, so a new version of an extension is parsed again.
+   *
+   * @param json the contents of component_build_infos.json or component_build_info.json
+   * @return an immutable map from component type to build info
+   * @throws JSONException if the build info cannot be parsed
+   */
+  public static Map<String, ComponentBuildInfo> getExtensionComponents(String json)
+      throws JSONException {
+    String key = Hashing.sha256().hashString(json, Charsets.UTF_8).toString();
+    synchronized (EXTENSIONS) {
+      Map<String, ComponentBuildInfo> result = EXTENSIONS.get(key);
+      if (result != null) {
+        return result;
+      }
+    }
+    // Parse outside of the lock. Two builds may parse the same new extension at once, which
+    // is harmless since the results are equal.
+    Map<String, ComponentBuildInfo> result = parse(json);
+    synchronized (EXTENSIONS) {
+      EXTENSIONS.put(key, result);
+    }
+    return result;
+  }
+
+  private static Map<String, ComponentBuildInfo> parse(String json) throws JSONException {
+    Object value = new JSONTokener(json).nextValue();
+    ImmutableMap.Builder<String, ComponentBuildInfo> result = ImmutableMap.builder();
+    if (value instanceof JSONObject) {
+      // Old extension with a single component
+      ComponentBuildInfo info = new ComponentBuildInfo((JSONObject) value);
+      result.put(info.type, info);
+    } else if (value instanceof JSONArray) {
+      JSONArray infos = (JSONArray) value;
+      Map<String, ComponentBuildInfo> byType = new LinkedHashMap<>();
+      for (int i = 0; i < infos.length(); i++) {
+        ComponentBuildInfo info = new ComponentBuildInfo(infos.getJSONObject(i));
+        byType.put(info.type, info);
+      }
+      result.putAll(byType);
+    }
+    return result.build();
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  /**
+   * Gets the values the component specifies for an annotation target.
+   *
+   * @param target the annotation target, e.g., {@link ComponentDescriptorConstants#ASSETS_TARGET}
+   * @return the non-empty values for the target, or null if the component does not specify it
+   */
+  public Set<String> getInfo(String target) {
+    return info.get(target);
+  }
+
+  /**
+   * Gets the values the component needs for an annotation target when particular blocks are
+   * used.
+   *
+   * @param target the annotation target
+   * @return a map from block names to values, or null if there are none
+   */
+  public Map<String, Set<String>> getConditionals(String target) {
+    return conditionals.get(target);
+  }
+
+  public Map<String, Set<PermissionConstraint<?>>> getPermissionConstraints() {
+    return permissionConstraints;
+  }
+
+  public Map<String, Map<String, Set<PermissionConstraint<?>>>>
+      getConditionalPermissionConstraints() {
+    return conditionalPermissionConstraints;
+  }
+
+  @Override
+  public String toString() {
+    return "ComponentBuildInfo{type=" + type + '}';
+  }
+}
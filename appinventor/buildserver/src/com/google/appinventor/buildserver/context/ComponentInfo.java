@@ -40,6 +40,11 @@ public class ComponentInfo {
   private Set<String> uniqueLibsNeeded;
   private AARLibraries explodedAarLibs;
 
+  /**
+   * Maps the types used by the project to their build info.
+   */
+  private Map<String, ComponentBuildInfo> buildInfos;
+
   /**
    * Construct a new, uninitialized ComponentInfo.
    */
@@ -62,6 +67,14 @@ public class ComponentInfo {
     uniqueLibsNeeded = Sets.newHashSet();
   }
 
+  public Map<String, ComponentBuildInfo> getBuildInfos() {
+    return buildInfos;
+  }
+
+  public void setBuildInfos(Map<String, ComponentBuildInfo> buildInfos) {
+    this.buildInfos = buildInfos;
+  }
+
   public ConcurrentMap<String, Set<String>> getAssetsNeeded() {
     return assetsNeeded;
   }
@@ -7,6 +7,8 @@ package com.google.appinventor.buildserver.context;
 
 import com.google.appinventor.buildserver.Compiler;
 import com.google.appinventor.buildserver.PathUtil;
+import com.google.appinventor.buildserver.util.AARCache;
+import com.google.appinventor.buildserver.util.KawaCompilerPool;
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import java.awt.image.BufferedImage;
@@ -32,6 +34,12 @@ public class Resources {
   // Kawa and DX processes can use a lot of memory. We only launch one Kawa or DX process at a time.
   private static final Object SYNC_KAWA_OR_DX = new Object();
 
+  // Resident Kawa compilers shared by all builds, or null to start a Kawa process per build.
+  private static volatile KawaCompilerPool kawaCompilerPool;
+
+  // Exploded AARs and merged resources shared by all builds, or null to unpack them per build.
+  private static volatile AARCache aarCache;
+
   public static final String RUNTIME_FILES_DIR = "/files/";
   public static final String RUNTIME_TOOLS_DIR = "/tools/";
   private static final String ANDROID_RUNTIME = RUNTIME_FILES_DIR + "android.jar";
@@ -106,6 +114,32 @@ public class Resources {
     return SYNC_KAWA_OR_DX;
   }
 
+  /**
+   * Installs the pool of resident Kawa compilers used by all builds in this process.
+   *
+   * @param pool the pool of Kawa workers, or null to start a new Kawa process for each build
+   */
+  public static void setKawaCompilerPool(KawaCompilerPool pool) {
+    kawaCompilerPool = pool;
+  }
+
+  public KawaCompilerPool getKawaCompilerPool() {
+    return kawaCompilerPool;
+  }
+
+  /**
+   * Installs the cache of exploded AARs and merged resources used by all builds in this process.
+   *
+   * @param cache the shared cache, or null to unpack AARs into each build's directory
+   */
+  public static void setAarCache(AARCache cache) {
+    aarCache = cache;
+  }
+
+  public AARCache getAarCache() {
+    return aarCache;
+  }
+
   public String getRuntimeFilesDir() {
     return Resources.RUNTIME_FILES_DIR;
   }
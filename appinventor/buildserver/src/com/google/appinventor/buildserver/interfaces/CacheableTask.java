@@ -0,0 +1,47 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.interfaces;
+
+import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.util.BuildCache;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The CacheableTask interface is implemented by tasks whose outputs are fully determined by
+ * their declared inputs. When the build server has a {@link BuildCache}, the
+ * {@link com.google.appinventor.buildserver.Compiler} hashes the inputs of the task and, if an
+ * earlier build produced outputs for the same inputs, restores them instead of calling
+ * {@link #execute(CompilerContext)}.
+ */
+public interface CacheableTask<C extends CompilerContext<?>> extends Task<C> {
+  /**
+   * Prepares the context for the task. This is called whether or not the outputs are restored
+   * from the cache, so any state that later tasks read from the context (for example, paths)
+   * must be set here rather than in {@link #execute(CompilerContext)}.
+   *
+   * @param context the build context
+   */
+  void prepare(C context);
+
+  /**
+   * Adds every input that affects the outputs of the task to {@code key}.
+   *
+   * @param context the build context
+   * @param key the cache key to populate
+   * @throws IOException if an input file cannot be read
+   */
+  void addInputs(C context, BuildCache.Key key) throws IOException;
+
+  /**
+   * Gets the files and directories produced by the task.
+   *
+   * @param context the build context
+   * @return the outputs of the task, in a stable order
+   */
+  List<File> getOutputs(C context);
+}
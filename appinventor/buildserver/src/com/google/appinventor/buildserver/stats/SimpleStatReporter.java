@@ -33,9 +33,9 @@ public class SimpleStatReporter implements StatReporter {
   public static class BuildStats {
     private final long start = System.currentTimeMillis();
     private final Map<String, Long> stages = new LinkedHashMap<>();
+    private final Map<String, Long> running = new HashMap<>();
     private long end;
     private long duration;
-    private long last = start;
 
     private BuildStats() {
       // Not instantiable outside this class
@@ -59,52 +59,69 @@ public class SimpleStatReporter implements StatReporter {
   }
 
   private final Map<Compiler, BuildStats> activeBuilds = new HashMap<>();
-  private final Map<Compiler, String> currentStages = new HashMap<>();
 
   private final Deque<BuildStats> successfulBuilds = new LinkedList<>();
   private final Deque<BuildStats> failedBuilds = new LinkedList<>();
   private final Deque<BuildStats> orderedBuilds = new LinkedList<>();
 
   @Override
-  public void startBuild(Compiler compiler) {
+  public synchronized void startBuild(Compiler compiler) {
     activeBuilds.put(compiler, new BuildStats());
   }
 
   @Override
   public void nextStage(Compiler compiler, String newStage) {
     BuildStats stats;
-    String previousStage;
     synchronized (this) {
       stats = activeBuilds.get(compiler);
-      previousStage = currentStages.get(compiler);
     }
     if (stats == null) {
       LOG.warning("Got compiler with uninitialized stats object");
       return;
     }
-    if (previousStage != null) {
-      stats.stages.put(previousStage, System.currentTimeMillis() - stats.last);
+    synchronized (stats) {
+      // Reserve the stage's position so that stages are listed in the order they started.
+      stats.stages.put(newStage, 0L);
+      stats.running.put(newStage, System.currentTimeMillis());
+    }
+  }
+
+  @Override
+  public void endStage(Compiler compiler, String stage) {
+    BuildStats stats;
+    synchronized (this) {
+      stats = activeBuilds.get(compiler);
+    }
+    if (stats == null) {
+      LOG.warning("Got compiler with uninitialized stats object");
+      return;
+    }
+    synchronized (stats) {
+      Long stageStart = stats.running.remove(stage);
+      if (stageStart != null) {
+        stats.stages.put(stage, System.currentTimeMillis() - stageStart);
+      }
     }
-    currentStages.put(compiler, newStage);
-    stats.last = System.currentTimeMillis();
   }
 
   @Override
   public void stopBuild(Compiler compiler, boolean success) {
     BuildStats stats;
-    String previousStage;
     synchronized (this) {
       stats = activeBuilds.remove(compiler);
-      previousStage = currentStages.remove(compiler);
     }
     if (stats == null) {
       LOG.warning("Got compiler with uninitialized stats object");
       return;
     }
-    stats.end = System.currentTimeMillis();
-    stats.duration = stats.end - stats.start;
-    if (previousStage != null) {
-      stats.stages.put(previousStage, stats.end - stats.last);
+    synchronized (stats) {
+      stats.end = System.currentTimeMillis();
+      stats.duration = stats.end - stats.start;
+      // Close any stages that did not finish, for example because another stage failed.
+      for (Map.Entry<String, Long> stage : stats.running.entrySet()) {
+        stats.stages.put(stage.getKey(), stats.end - stage.getValue());
+      }
+      stats.running.clear();
     }
     queueAndExpire(stats, success ? successfulBuilds : failedBuilds);
     queueAndExpire(stats, orderedBuilds);
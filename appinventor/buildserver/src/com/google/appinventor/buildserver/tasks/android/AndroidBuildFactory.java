@@ -77,6 +77,7 @@ public class AndroidBuildFactory extends BuildFactory<AndroidPaths, AndroidCompi
   @Override
   protected void compileSources(Compiler<AndroidPaths, AndroidCompilerContext> compiler) {
     super.compileSources(compiler);
+    compiler.add(CompileRClasses.class);
     compiler.add(GenerateClasses.class);
     compiler.add(USE_D8 ? RunD8.class : RunMultidex.class);
   }
@@ -6,9 +6,12 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
+import com.google.appinventor.buildserver.tasks.common.LoadComponentInfo;
+import com.google.appinventor.buildserver.util.AARCache;
 import com.google.appinventor.buildserver.util.AARLibraries;
 import com.google.appinventor.buildserver.util.AARLibrary;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
@@ -27,16 +30,17 @@ import java.util.Set;
  */
 
 @BuildType(apk = true, aab = true)
+@DependsOn(LoadComponentInfo.class)
 public class AttachAarLibs implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
-    final File explodedBaseDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
-        "exploded-aars");
+    final File explodedBaseDir = new File(context.getPaths().getBuildDir(), "exploded-aars");
     final File generatedDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
         "generated");
     final File genSrcDir = ExecutorUtils.createDir(generatedDir, "src");
     context.getComponentInfo().setExplodedAarLibs(new AARLibraries(genSrcDir));
     final Set<String> processedLibs = new HashSet<>();
+    final AARCache cache = context.getResources().getAarCache();
 
     // Attach the Android support libraries (needed by every app)
     context.getComponentInfo().getLibsNeeded().put("ANDROID", new HashSet<>(Arrays.asList(
@@ -51,10 +55,15 @@ public class AttachAarLibs implements AndroidTask {
           if (libname.endsWith(".aar")) {
             i.remove();
             if (!processedLibs.contains(libname)) {
-              // explode libraries into ${buildDir}/exploded-aars/<package>/
               AARLibrary aarLib = new AARLibrary(new File(context.getResource(
                   context.getResources().getRuntimeFilesDir() + libname)));
-              aarLib.unpackToDirectory(explodedBaseDir);
+              if (cache != null) {
+                // reference the library unpacked in the shared cache
+                aarLib.unpackToCache(cache);
+              } else {
+                // explode libraries into ${buildDir}/exploded-aars/<package>/
+                aarLib.unpackToDirectory(explodedBaseDir);
+              }
               context.getComponentInfo().getExplodedAarLibs().add(aarLib);
               processedLibs.add(libname);
             }
@@ -0,0 +1,46 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.tasks.android;
+
+import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
+import com.google.appinventor.buildserver.Signatures;
+import com.google.appinventor.buildserver.TaskResult;
+import com.google.appinventor.buildserver.context.AndroidCompilerContext;
+import com.google.appinventor.buildserver.interfaces.AndroidTask;
+import java.io.IOException;
+
+/**
+ * Compiles the R classes of any AAR libraries used by the app. This needs the symbol table
+ * produced by aapt. The classes go to their own directory, which only the dex step reads, so
+ * {@link GenerateClasses} can compile the screens while resources are still being merged.
+ */
+@BuildType(apk = true, aab = true)
+@DependsOn({AttachAarLibs.class, RunAapt.class, RunAapt2.class})
+public class CompileRClasses implements AndroidTask {
+  @Override
+  public TaskResult execute(AndroidCompilerContext context) {
+    if (context.getComponentInfo().getExplodedAarLibs().isEmpty()) {
+      return TaskResult.generateSuccess();  // nothing to see here
+    }
+    int error;
+    try {
+      error = context.getComponentInfo().getExplodedAarLibs().writeRClasses(
+          context.getPaths().getRClassesDir(),
+          Signatures.getPackageName(context.getProject().getMainClass()),
+          context.getResources().getAppRTxt()
+      );
+    } catch (IOException | InterruptedException e) {
+      context.getReporter().error("Error while compiling R classes", true);
+      return TaskResult.generateError("Could not compile R classes");
+    }
+    if (error != 0) {
+      context.getReporter().error("Compile R Classes returned E=" + error, true);
+      return TaskResult.generateError("Could not compile R classes");
+    }
+    return TaskResult.generateSuccess();
+  }
+}
@@ -14,11 +14,11 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -27,7 +27,7 @@ public abstract class DexTask {
    * Maps JAR file references to their precomputed hash code representing the target dex file
    * created during pre-dexing.
    */
-  static final Map<File, String> PREDEX_CACHE = new HashMap<>();
+  static final Map<File, String> PREDEX_CACHE = new ConcurrentHashMap<>();
 
   /**
    * Retrieves the set of critical JARs in the build context.
@@ -183,11 +183,12 @@ public abstract class DexTask {
    *
    * @param inputFile the source JAR being considered for dexing
    * @param cacheDir the cache directory
+   * @param minApi the minimum API level targeted by the dex file
    * @return a dex file relative to {@code cacheDir}
    */
-  static File getDexFileName(File inputFile, File cacheDir) throws IOException {
+  static File getDexFileName(File inputFile, File cacheDir, int minApi) throws IOException {
     String hashed = getHashFor(inputFile);
-    return new File(cacheDir, "dex-cached-" + hashed + ".dex");
+    return new File(cacheDir, "dex-cached-" + hashed + "-" + minApi + ".dex");
   }
 
   /**
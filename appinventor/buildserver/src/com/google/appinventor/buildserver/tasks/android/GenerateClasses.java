@@ -6,6 +6,7 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.Project;
 import com.google.appinventor.buildserver.Signatures;
 import com.google.appinventor.buildserver.TaskResult;
@@ -14,9 +15,10 @@ import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.context.AndroidPaths;
 import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
+import com.google.appinventor.buildserver.tasks.common.LoadComponentInfo;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
-import com.google.common.annotations.VisibleForTesting;
+import com.google.appinventor.buildserver.util.KawaCompilerPool;
 import com.google.common.collect.Lists;
 
 import java.io.ByteArrayOutputStream;
@@ -31,9 +33,11 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * Compiles screen source files written in YAIL to Java class files.
+ * Compiles screen source files written in YAIL to Java class files. Screens never refer to the
+ * R classes of AAR libraries, so this does not wait for {@link CompileRClasses}.
  */
 @BuildType(apk = true, aab = true)
+@DependsOn({AttachAarLibs.class, LoadComponentInfo.class})
 public class GenerateClasses implements AndroidTask {
   CompilerContext<AndroidPaths> context;
 
@@ -41,10 +45,6 @@ public class GenerateClasses implements AndroidTask {
   public TaskResult execute(AndroidCompilerContext context) {
     this.context = context;
 
-    if (!this.compileRClasses()) {
-      return TaskResult.generateError("Could not compile R classes");
-    }
-
     try {
       List<Project.SourceDescriptor> sources = context.getProject().getSources();
       List<String> sourceFileNames = Lists.newArrayListWithCapacity(sources.size());
@@ -141,25 +141,14 @@ public class GenerateClasses implements AndroidTask {
           classpath.append(File.pathSeparator);
         }
       }
-      if (context.getComponentInfo().getExplodedAarLibs().size() > 0) {
-        classpath.append(context.getComponentInfo().getExplodedAarLibs().getOutputDirectory()
-            .getAbsolutePath());
-        classpath.append(File.pathSeparator);
-      }
 
       classpath.append(context.getResources().getAndroidRuntime());
 
       context.getReporter().info("Libraries Classpath = " + classpath);
 
       String yailRuntime = context.getResources().getYailRuntime();
-      List<String> kawaCommandArgs = Lists.newArrayList();
-      int mx = context.getChildProcessRam() - 200;
-      Collections.addAll(kawaCommandArgs,
-          System.getProperty("java.home") + "/bin/java",
-          "-Dfile.encoding=UTF-8",
-          "-mx" + mx + "M",
-          "-cp", classpath.toString(),
-          "kawa.repl",
+      List<String> kawaArgs = Lists.newArrayList();
+      Collections.addAll(kawaArgs,
           "-f", yailRuntime,
           "-d", context.getPaths().getClassesDir().getAbsolutePath(),
           "-P", Signatures.getPackageName(context.getProject().getMainClass()) + ".",
@@ -169,18 +158,38 @@ public class GenerateClasses implements AndroidTask {
       // including the name of the tmp directory that contains them. We may be able to avoid that
       // by using source file names that are relative to the project root and using the project
       // root as the working directory for the Kawa compiler process.
-      kawaCommandArgs.addAll(sourceFileNames);
-      kawaCommandArgs.add(yailRuntime);
-      String[] kawaCommandLine = kawaCommandArgs.toArray(new String[0]);
+      kawaArgs.addAll(sourceFileNames);
+      kawaArgs.add(yailRuntime);
 
       // Capture Kawa compiler stderr. The ODE server parses out the warnings and errors and adds
       // them to the protocol buffer for logging purposes. (See
       // buildserver/ProjectBuilder.processCompilerOutout.
       ByteArrayOutputStream kawaOutputStream = new ByteArrayOutputStream();
       boolean kawaSuccess;
-      synchronized (context.getResources().getSyncKawaOrDx()) {
-        kawaSuccess = Execution.execute(null, kawaCommandLine,
-            System.out, new PrintStream(kawaOutputStream));
+      KawaCompilerPool pool = context.getResources().getKawaCompilerPool();
+      if (pool != null) {
+        try {
+          kawaSuccess = pool.compile(classpath.toString(), kawaArgs, System.out,
+              new PrintStream(kawaOutputStream));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return TaskResult.generateError(e);
+        }
+      } else {
+        List<String> kawaCommandArgs = Lists.newArrayList();
+        int mx = context.getChildProcessRam() - 200;
+        Collections.addAll(kawaCommandArgs,
+            System.getProperty("java.home") + "/bin/java",
+            "-Dfile.encoding=UTF-8",
+            "-mx" + mx + "M",
+            "-cp", classpath.toString(),
+            "kawa.repl");
+        kawaCommandArgs.addAll(kawaArgs);
+        String[] kawaCommandLine = kawaCommandArgs.toArray(new String[0]);
+        synchronized (context.getResources().getSyncKawaOrDx()) {
+          kawaSuccess = Execution.execute(null, kawaCommandLine,
+              System.out, new PrintStream(kawaOutputStream));
+        }
       }
       if (!kawaSuccess) {
         context.getReporter().error("Kawa compile has failed.", true);
@@ -204,27 +213,4 @@ public class GenerateClasses implements AndroidTask {
 
     return TaskResult.generateSuccess();
   }
-
-  @VisibleForTesting
-  boolean compileRClasses() {
-    if (context.getComponentInfo().getExplodedAarLibs().isEmpty()) {
-      return true;  // nothing to see here
-    }
-    int error;
-    try {
-      error = context.getComponentInfo().getExplodedAarLibs().writeRClasses(
-          context.getPaths().getClassesDir(),
-          Signatures.getPackageName(context.getProject().getMainClass()),
-          context.getResources().getAppRTxt()
-      );
-    } catch (IOException | InterruptedException e) {
-      context.getReporter().error("Error while compiling R classes", true);
-      return false;
-    }
-    if (error != 0) {
-      context.getReporter().error("Compile R Classes returned E=" + error, true);
-      return false;
-    }
-    return true;
-  }
 }
@@ -9,21 +9,30 @@ import com.android.ide.common.internal.AaptCruncher;
 import com.android.ide.common.internal.PngCruncher;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
+import com.google.appinventor.buildserver.interfaces.CacheableTask;
+import com.google.appinventor.buildserver.util.AARLibrary;
+import com.google.appinventor.buildserver.util.BuildCache;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
 
 
 /**
  * compiler.mergeResources()
  */
 @BuildType(apk = true, aab = true)
-public class MergeResources implements AndroidTask {
+@DependsOn({AttachAarLibs.class, PrepareAppIcon.class, XmlConfig.class})
+public class MergeResources implements AndroidTask, CacheableTask<AndroidCompilerContext> {
   @Override
-  public TaskResult execute(AndroidCompilerContext context) {
+  public void prepare(AndroidCompilerContext context) {
     // these should exist from earlier build steps
     File intermediates = ExecutorUtils.createDir(context.getPaths().getBuildDir(), "intermediates");
     File resDir = ExecutorUtils.createDir(intermediates, "res");
@@ -31,10 +40,39 @@ public class MergeResources implements AndroidTask {
     context.getPaths().setTmpPackageName(new File(
         context.getPaths().getDeployDir().getAbsolutePath() + File.separator
             + context.getProject().getProjectName() + "._ap"));
+  }
+
+  @Override
+  public void addInputs(AndroidCompilerContext context, BuildCache.Key key) throws IOException {
+    key.addFile("res", context.getPaths().getResDir());
+    // The exploded AARs are kept in a hash set, so sort them to get a stable key.
+    TreeMap<String, AARLibrary> libraries = new TreeMap<>();
+    for (AARLibrary library : context.getComponentInfo().getExplodedAarLibs()) {
+      libraries.put(library.getDirectory().getName(), library);
+    }
+    for (String name : libraries.keySet()) {
+      AARLibrary library = libraries.get(name);
+      if (library.getContentKey() != null) {
+        // Libraries in the shared cache are identified by content, so skip hashing them again.
+        key.addString("aar:" + name, library.getContentKey());
+      } else {
+        key.addFile("aar:" + name, library.getResDirectory());
+      }
+    }
+  }
+
+  @Override
+  public List<File> getOutputs(AndroidCompilerContext context) {
+    return Collections.singletonList(context.getPaths().getMergedResDir());
+  }
 
+  @Override
+  public TaskResult execute(AndroidCompilerContext context) {
+    prepare(context);
     PngCruncher cruncher = new AaptCruncher(context.getResources().aapt(), null, null);
     if (!context.getComponentInfo().getExplodedAarLibs().mergeResources(
-        context.getPaths().getMergedResDir(), context.getPaths().getResDir(), cruncher)) {
+        context.getPaths().getMergedResDir(), context.getPaths().getResDir(), cruncher,
+        context.getResources().getAarCache())) {
       return TaskResult.generateError("Could not merge resources");
     }
     return TaskResult.generateSuccess();
@@ -6,16 +6,21 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.Signatures;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.YoungAndroidConstants;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
+import com.google.appinventor.buildserver.interfaces.CacheableTask;
+import com.google.appinventor.buildserver.util.BuildCache;
 import com.google.appinventor.buildserver.util.Execution;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -23,18 +28,46 @@ import java.util.List;
  */
 // RunAapt
 @BuildType(apk = true)
-public class RunAapt implements AndroidTask {
+@DependsOn({AttachCompAssets.class, CreateManifest.class, MergeResources.class, SetupLibs.class})
+public class RunAapt implements AndroidTask, CacheableTask<AndroidCompilerContext> {
+  private File sourceOutputDir;
+  private File symbolOutputDir;
+
   @Override
-  public TaskResult execute(AndroidCompilerContext context) {
+  public void prepare(AndroidCompilerContext context) {
     // Need to make sure assets directory exists otherwise aapt will fail.
     context.getPaths().setAssetsDir(
         ExecutorUtils.createDir(context.getProject().getBuildDirectory(),
             YoungAndroidConstants.ASSET_DIR_NAME));
 
-    File sourceOutputDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
+    sourceOutputDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
         "generated/src");
-    File symbolOutputDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
+    symbolOutputDir = ExecutorUtils.createDir(context.getPaths().getBuildDir(),
         "generated/symbols");
+    if (!context.getComponentInfo().getExplodedAarLibs().isEmpty()) {
+      context.getResources().setAppRTxt(new File(symbolOutputDir, "R.txt"));
+    }
+  }
+
+  @Override
+  public void addInputs(AndroidCompilerContext context, BuildCache.Key key) throws IOException {
+    key.addFile("manifest", context.getPaths().getManifest());
+    key.addFile("res", context.getPaths().getMergedResDir());
+    key.addFile("assets", context.getPaths().getAssetsDir());
+    key.addString("aars", Boolean.toString(
+        !context.getComponentInfo().getExplodedAarLibs().isEmpty()));
+    key.addString("package", Signatures.getPackageName(context.getProject().getMainClass()));
+  }
+
+  @Override
+  public List<File> getOutputs(AndroidCompilerContext context) {
+    return Arrays.asList(context.getPaths().getTmpPackageName(), sourceOutputDir,
+        symbolOutputDir);
+  }
+
+  @Override
+  public TaskResult execute(AndroidCompilerContext context) {
+    prepare(context);
 
     String aaptTool = context.getResources().aapt();
     if (aaptTool == null) {
@@ -67,7 +100,6 @@ public class RunAapt implements AndroidTask {
       aaptPackageCommandLineArgs.add("--output-text-symbols");
       aaptPackageCommandLineArgs.add(symbolOutputDir.getAbsolutePath());
       aaptPackageCommandLineArgs.add("--no-version-vectors");
-      context.getResources().setAppRTxt(new File(symbolOutputDir, "R.txt"));
     }
     String[] aaptPackageCommandLine = aaptPackageCommandLineArgs.toArray(new String[0]);
     // Using System.err and System.out on purpose. Don't want to pollute build messages with
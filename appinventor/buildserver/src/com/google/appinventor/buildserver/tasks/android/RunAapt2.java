@@ -6,6 +6,7 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.YoungAndroidConstants;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -19,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @BuildType(aab = true)
+@DependsOn({AttachCompAssets.class, CreateManifest.class, MergeResources.class, SetupLibs.class})
 public class RunAapt2 implements AndroidTask {
   CompilerContext<AndroidPaths> context;
   File resourcesZip;
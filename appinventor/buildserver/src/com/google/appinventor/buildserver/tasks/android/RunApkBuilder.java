@@ -8,6 +8,7 @@ package com.google.appinventor.buildserver.tasks.android;
 import com.android.sdklib.build.ApkBuilder;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
@@ -20,6 +21,7 @@ import java.util.logging.Logger;
  * compiler.runApkBuilder
  */
 @BuildType(apk = true)
+@DependsOn({AttachNativeLibs.class, RunAapt.class, RunD8.class, RunMultidex.class})
 public class RunApkBuilder implements AndroidTask {
   private static final Logger LOG = Logger.getLogger(RunApkBuilder.class.getName());
 
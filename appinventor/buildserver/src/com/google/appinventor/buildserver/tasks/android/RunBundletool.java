@@ -8,6 +8,7 @@ package com.google.appinventor.buildserver.tasks.android;
 import static java.nio.file.Files.newInputStream;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.context.AndroidPaths;
@@ -36,6 +37,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 @BuildType(aab = true)
+@DependsOn({AttachNativeLibs.class, RunAapt2.class, RunD8.class, RunMultidex.class})
 public class RunBundletool implements AndroidTask {
   private AabPaths aab;
 
@@ -6,54 +6,71 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
 import com.google.appinventor.buildserver.interfaces.AndroidTask;
-import com.google.appinventor.buildserver.util.Execution;
+import com.google.appinventor.buildserver.util.D8Compiler;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.apache.commons.io.FileUtils;
 
 @BuildType(aab = true, apk = true)
+@DependsOn({CompileRClasses.class, GenerateClasses.class})
 public class RunD8 extends DexTask implements AndroidTask {
   private static final boolean USE_D8_PROGUARD_RULES = true;
 
+  /**
+   * Pre-dex jobs that are running or have finished in this process, keyed by the name of the
+   * dex file they produce. Builds that need the same library wait on the same job.
+   */
+  private static final ConcurrentMap<String, Future<File>> PREDEX_JOBS =
+      new ConcurrentHashMap<>();
+
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
     Set<String> mainDexClasses = new HashSet<>();
     final List<File> inputs = new ArrayList<>();
+    final List<Future<File>> preDexed = new ArrayList<>();
     try {
       recordForMainDex(context.getPaths().getClassesDir(), mainDexClasses);
-      inputs.add(preDexLibrary(context, recordForMainDex(
+      preDexed.add(preDexLibrary(context, recordForMainDex(
           new File(context.getResources().getSimpleAndroidRuntimeJar()), mainDexClasses)));
-      inputs.add(preDexLibrary(context, recordForMainDex(
+      preDexed.add(preDexLibrary(context, recordForMainDex(
           new File(context.getResources().getKawaRuntime()), mainDexClasses)));
 
       final Set<String> criticalJars = getCriticalJars(context);
 
       for (String jar : criticalJars) {
-        inputs.add(preDexLibrary(context, recordForMainDex(
+        preDexed.add(preDexLibrary(context, recordForMainDex(
             new File(context.getResource(jar)), mainDexClasses)));
       }
 
       // Only include ACRA for the companion app
       if (context.isForCompanion()) {
-        inputs.add(preDexLibrary(context, recordForMainDex(
+        preDexed.add(preDexLibrary(context, recordForMainDex(
             new File(context.getResources().getAcraRuntime()), mainDexClasses)));
       }
 
@@ -61,12 +78,24 @@ public class RunD8 extends DexTask implements AndroidTask {
         if (criticalJars.contains(jar)) {  // already covered above
           continue;
         }
-        inputs.add(preDexLibrary(context, new File(context.getResource(jar))));
+        preDexed.add(preDexLibrary(context, new File(context.getResource(jar))));
       }
 
       // Add the rest of the libraries in any order
       for (String lib : context.getComponentInfo().getUniqueLibsNeeded()) {
-        inputs.add(preDexLibrary(context, new File(lib)));
+        preDexed.add(preDexLibrary(context, new File(lib)));
+      }
+
+      // Wait for the libraries, which are dexed in parallel
+      for (Future<File> library : preDexed) {
+        try {
+          inputs.add(library.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return TaskResult.generateError(e);
+        } catch (ExecutionException e) {
+          return TaskResult.generateError(e);
+        }
       }
 
       // Add extension libraries
@@ -81,32 +110,36 @@ public class RunD8 extends DexTask implements AndroidTask {
         }
       }
 
-      Files.walkFileTree(context.getPaths().getClassesDir().toPath(), new FileVisitor<Path>() {
-        @Override
-        public FileVisitResult preVisitDirectory(Path dir,
-            BasicFileAttributes attrs) {
-          return FileVisitResult.CONTINUE;
-        }
+      // The screens and the R classes of AAR libraries are compiled to separate directories
+      for (File classesDir : Arrays.asList(context.getPaths().getClassesDir(),
+          context.getPaths().getRClassesDir())) {
+        Files.walkFileTree(classesDir.toPath(), new FileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir,
+              BasicFileAttributes attrs) {
+            return FileVisitResult.CONTINUE;
+          }
 
-        @Override
-        public FileVisitResult visitFile(Path file,
-            BasicFileAttributes attrs) {
-          if (file.toString().endsWith(".class")) {
-            inputs.add(file.toFile());
+          @Override
+          public FileVisitResult visitFile(Path file,
+              BasicFileAttributes attrs) {
+            if (file.toString().endsWith(".class")) {
+              inputs.add(file.toFile());
+            }
+            return FileVisitResult.CONTINUE;
           }
-          return FileVisitResult.CONTINUE;
-        }
 
-        @Override
-        public FileVisitResult visitFileFailed(Path file, IOException exc) {
-          return FileVisitResult.CONTINUE;
-        }
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            return FileVisitResult.CONTINUE;
+          }
 
-        @Override
-        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
-          return FileVisitResult.CONTINUE;
-        }
-      });
+          @Override
+          public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            return FileVisitResult.CONTINUE;
+          }
+        });
+      }
 
       if (USE_D8_PROGUARD_RULES) {
         // Google is moving to proguard-style rules for computing the main dex in d8
@@ -151,106 +184,129 @@ public class RunD8 extends DexTask implements AndroidTask {
    * @param context the build context
    * @param inputs collection of input files. For a complete list of supported input types see
    *               <a href="https://developer.android.com/tools/d8">d8</a>.
-   * @return true if the process succeeded
-   * @throws IOException if the dex file is unable to be moved to the {@code intermediateFileName}
+   * @return true if d8 succeeded
    */
   private static boolean runD8(AndroidCompilerContext context, Collection<File> inputs,
-      Set<String> mainDexClasses) throws IOException {
-    return runD8(context, inputs, mainDexClasses, context.getPaths().getTmpDir().getAbsolutePath(),
-        null);
+      Set<String> mainDexClasses) {
+    List<String> arguments = getD8Arguments(context, inputs, false,
+        context.getPaths().getTmpDir().getAbsolutePath());
+    if (USE_D8_PROGUARD_RULES) {
+      arguments.add("--main-dex-rules");
+      arguments.add(writeClassRules(context.getPaths().getClassesDir(), mainDexClasses));
+    } else {
+      arguments.add("--main-dex-list");
+      arguments.add(writeClassList(context.getPaths().getClassesDir(), mainDexClasses));
+    }
+    return D8Compiler.run(context.getResources().getD8Jar(), arguments);
   }
 
   /**
-   * Run Android SDK's d8 program to create a dex file for the given collection of inputs.
+   * Constructs the command line for Android SDK's d8 program.
    *
    * @param context the build context
    * @param inputs collection of input files. For a complete list of supported input types see
    *               <a href="https://developer.android.com/tools/d8">d8</a>.
+   * @param intermediate true if the output is an intermediate (pre-dexed) library
    * @param outputDir the destination for the classes.dex file
-   * @param intermediateFileName an alternative name to use for the dex file when pre-dexing
-   * @return true if the process succeeded
-   * @throws IOException if the dex file is unable to be moved to the {@code intermediateFileName}
+   * @return the arguments for d8
    */
-  private static boolean runD8(AndroidCompilerContext context, Collection<File> inputs,
-      Set<String> mainDexClasses, String outputDir, String intermediateFileName)
-      throws IOException {
+  private static List<String> getD8Arguments(AndroidCompilerContext context,
+      Collection<File> inputs, boolean intermediate, String outputDir) {
     List<String> arguments = new ArrayList<>();
-    List<String> javaArgs = new ArrayList<>();
-    arguments.add("java");
-    javaArgs.add("-Xmx" + context.getChildProcessRam() + "M");
-    javaArgs.add("-Xss8m");
-    javaArgs.add("-cp");
-    javaArgs.add(context.getResources().getD8Jar());
-    javaArgs.add("com.android.tools.r8.D8");
-    if (intermediateFileName != null) {
-      javaArgs.add("--intermediate");
+    if (intermediate) {
+      arguments.add("--intermediate");
     }
-    javaArgs.add("--lib");
-    javaArgs.add(context.getResources().getAndroidRuntime());
-    if (intermediateFileName == null) {
-      javaArgs.add("--classpath");
-      javaArgs.add(context.getPaths().getClassesDir().getAbsolutePath());
-    }
-    javaArgs.add("--output");
-    javaArgs.add(outputDir);
-    javaArgs.add("--min-api");
-    javaArgs.add(Integer.toString(AndroidBuildUtils.computeMinSdk(context)));
-    if (mainDexClasses != null) {
-      if (USE_D8_PROGUARD_RULES) {
-        javaArgs.add("--main-dex-rules");
-        javaArgs.add(writeClassRules(context.getPaths().getClassesDir(), mainDexClasses));
-      } else {
-        javaArgs.add("--main-dex-list");
-        javaArgs.add(writeClassList(context.getPaths().getClassesDir(), mainDexClasses));
-      }
+    arguments.add("--lib");
+    arguments.add(context.getResources().getAndroidRuntime());
+    if (!intermediate) {
+      arguments.add("--classpath");
+      arguments.add(context.getPaths().getClassesDir().getAbsolutePath());
     }
+    arguments.add("--output");
+    arguments.add(outputDir);
+    arguments.add("--min-api");
+    arguments.add(Integer.toString(AndroidBuildUtils.computeMinSdk(context)));
     for (File input : inputs) {
-      javaArgs.add(input.getAbsolutePath());
-    }
-    File javaArgsFile = new File(context.getPaths().getTmpDir(), "d8arguments.txt");
-    try (PrintStream ps = new PrintStream(new FileOutputStream(javaArgsFile))) {
-      for (String arg : javaArgs) {
-        ps.println(arg);
-      }
-    }
-    arguments.add("@" + javaArgsFile.getAbsolutePath());
-    synchronized (context.getResources().getSyncKawaOrDx()) {
-      boolean result = Execution.execute(context.getPaths().getTmpDir(),
-          arguments.toArray(new String[0]), System.out, System.err);
-      if (!result) {
-        return false;
-      }
+      arguments.add(input.getAbsolutePath());
     }
-    if (intermediateFileName != null) {
-      Files.move(FileSystems.getDefault().getPath(outputDir, "classes.dex"),
-          FileSystems.getDefault().getPath(outputDir, intermediateFileName));
-    }
-    return true;
+    return arguments;
   }
 
   /**
-   * Dex the given {@code input} file and cache the results.
+   * Dex the given {@code input} file and cache the results. The cached dex file is named after
+   * the content hash of the input and the minimum API level, so it stays valid across build
+   * server restarts. Libraries that are not yet cached are dexed in parallel on the d8 thread
+   * pool, and concurrent builds that need the same library share a single job.
    *
    * @param context the build context
    * @param input the input JAR file
-   * @return the path of the library to use as an input to the downstream d8 process
-   * @throws IOException if the d8 process fails due to an I/O issue
+   * @return a future for the path of the library to use as an input to the downstream d8 step
+   * @throws IOException if the input cannot be read to compute its hash
    */
-  private static File preDexLibrary(AndroidCompilerContext context, File input) throws IOException {
-    synchronized (PREDEX_CACHE) {
-      File cacheDir = new File(context.getDexCacheDir());
-      File dexedLib = getDexFileName(input, cacheDir);
-      if (dexedLib.isFile()) {
-        context.getReporter().info(String.format("Using pre-dexed %1$s <- %2$s",
-            dexedLib.getName(), input));
-      } else {
-        boolean success = runD8(context, Collections.singleton(input), null,
-            context.getDexCacheDir(), dexedLib.getName());
-        if (!success) {
-          return input;
+  private static Future<File> preDexLibrary(final AndroidCompilerContext context,
+      final File input)
+      throws IOException {
+    final File cacheDir = new File(context.getDexCacheDir());
+    final File dexedLib = getDexFileName(input, cacheDir,
+        AndroidBuildUtils.computeMinSdk(context));
+    if (dexedLib.isFile()) {
+      context.getReporter().info(String.format("Using pre-dexed %1$s <- %2$s",
+          dexedLib.getName(), input));
+      return CompletableFuture.completedFuture(dexedLib);
+    }
+    final String key = dexedLib.getName();
+    final PreDexJob job = new PreDexJob(key, new Callable<File>() {
+      @Override
+      public File call() throws IOException {
+        // Dex into a private directory so that parallel jobs do not overwrite each other's
+        // classes.dex, then move the result into the cache in one step.
+        Path outputDir = Files.createTempDirectory(cacheDir.toPath(), "predex");
+        try {
+          List<String> arguments = getD8Arguments(context, Collections.singleton(input), true,
+              outputDir.toString());
+          if (!D8Compiler.compile(context.getResources().getD8Jar(), arguments)) {
+            return input;
+          }
+          Files.move(outputDir.resolve("classes.dex"), dexedLib.toPath(),
+              StandardCopyOption.ATOMIC_MOVE);
+          return dexedLib;
+        } finally {
+          FileUtils.deleteQuietly(outputDir.toFile());
         }
       }
-      return dexedLib;
+    });
+    while (true) {
+      Future<File> existing = PREDEX_JOBS.putIfAbsent(key, job);
+      if (existing == null) {
+        break;
+      }
+      if (!existing.isDone() || dexedLib.isFile()) {
+        return existing;
+      }
+      // A finished job whose output is gone must not be reused.
+      PREDEX_JOBS.remove(key, existing);
+    }
+    context.getReporter().info(String.format("Pre-dexing %1$s -> %2$s", input, key));
+    D8Compiler.execute(job);
+    return job;
+  }
+
+  /**
+   * A pre-dex job that removes itself from {@link #PREDEX_JOBS} when it finishes, whether it
+   * succeeds, fails, or throws. Once the dex file is in the cache, later builds find it on disk,
+   * and a failed job is retried by the next build that needs the library.
+   */
+  private static class PreDexJob extends FutureTask<File> {
+    private final String key;
+
+    PreDexJob(String key, Callable<File> callable) {
+      super(callable);
+      this.key = key;
+    }
+
+    @Override
+    protected void done() {
+      PREDEX_JOBS.remove(key, this);
     }
   }
 }
@@ -6,6 +6,7 @@
 package com.google.appinventor.buildserver.tasks.android;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.DexExecTask;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.AndroidCompilerContext;
@@ -25,6 +26,7 @@ import java.util.Set;
  * compiler.runMultidex()
  */
 @BuildType(apk = true, aab = true)
+@DependsOn({CompileRClasses.class, GenerateClasses.class})
 public class RunMultidex extends DexTask implements AndroidTask {
   @Override
   public TaskResult execute(AndroidCompilerContext context) {
@@ -34,6 +36,7 @@ public class RunMultidex extends DexTask implements AndroidTask {
     try {
       // Set up classes for main dex file
       inputList.add(recordForMainDex(context.getPaths().getClassesDir(), mainDexClasses));
+      inputList.add(context.getPaths().getRClassesDir());
       inputList.add(recordForMainDex(new File(context.getResources().getSimpleAndroidRuntimeJar()),
           mainDexClasses));
       inputList.add(recordForMainDex(new File(context.getResources().getKawaRuntime()),
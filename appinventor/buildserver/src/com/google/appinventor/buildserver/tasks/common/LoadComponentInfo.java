@@ -6,26 +6,21 @@
 package com.google.appinventor.buildserver.tasks.common;
 
 import com.google.appinventor.buildserver.BuildType;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
 import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.context.ComponentBuildInfo;
 import com.google.appinventor.buildserver.interfaces.CommonTask;
 import com.google.appinventor.buildserver.util.ExecutorUtils;
 import com.google.appinventor.buildserver.util.PermissionConstraint;
 import com.google.appinventor.components.common.ComponentDescriptorConstants;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import org.codehaus.jettison.json.JSONArray;
-import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
 
 
 
@@ -40,6 +35,7 @@ import org.codehaus.jettison.json.JSONObject;
  * compiler.generateBroadcastReceiver();
  */
 @BuildType(apk = true, aab = true)
+@DependsOn(ReadBuildInfo.class)
 public class LoadComponentInfo implements CommonTask {
   CompilerContext<?> context = null;
   private ConcurrentMap<String, Map<String, Map<String, Set<String>>>> conditionals;
@@ -54,7 +50,8 @@ public class LoadComponentInfo implements CommonTask {
     this.context = context;
     this.conditionals = new ConcurrentHashMap<>();
 
-    if (!loadJsonInfo()) {
+    if (context.getComponentInfo().getBuildInfos() == null) {
+      context.getReporter().error("There was an error loading component info", true);
       return TaskResult.generateError("Unable to load component information");
     }
 
@@ -89,14 +86,8 @@ public class LoadComponentInfo implements CommonTask {
    */
   private boolean generateAssets() {
     context.getReporter().info("Generating assets...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getAssetsNeeded(),
-          ComponentDescriptorConstants.ASSETS_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Assets stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getAssetsNeeded(),
+        ComponentDescriptorConstants.ASSETS_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getAssetsNeeded().keySet()) {
@@ -112,14 +103,8 @@ public class LoadComponentInfo implements CommonTask {
    */
   private boolean generateActivities() {
     context.getReporter().info("Generating activities...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getActivitiesNeeded(),
-          ComponentDescriptorConstants.ACTIVITIES_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Activities stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getActivitiesNeeded(),
+        ComponentDescriptorConstants.ACTIVITIES_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getActivitiesNeeded().keySet()) {
@@ -134,14 +119,8 @@ public class LoadComponentInfo implements CommonTask {
    * Generate a set of conditionally included metadata needed by this project.
    */
   private boolean generateMetadata() {
-    try {
-      loadJsonInfo(context.getComponentInfo().getMetadataNeeded(),
-          ComponentDescriptorConstants.METADATA_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Metadata stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getMetadataNeeded(),
+        ComponentDescriptorConstants.METADATA_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getMetadataNeeded().keySet()) {
@@ -156,14 +135,8 @@ public class LoadComponentInfo implements CommonTask {
    * Generate a set of conditionally included activity metadata needed by this project.
    */
   private boolean generateActivityMetadata() {
-    try {
-      loadJsonInfo(context.getComponentInfo().getActivityMetadataNeeded(),
-          ComponentDescriptorConstants.ACTIVITY_METADATA_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Activity Metadata stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getActivityMetadataNeeded(),
+        ComponentDescriptorConstants.ACTIVITY_METADATA_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getActivityMetadataNeeded().keySet()) {
@@ -179,14 +152,8 @@ public class LoadComponentInfo implements CommonTask {
    */
   private boolean generateBroadcastReceivers() {
     context.getReporter().info("Generating broadcast receivers...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getBroadcastReceiversNeeded(),
-          ComponentDescriptorConstants.BROADCAST_RECEIVERS_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the BroadcastReceivers stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getBroadcastReceiversNeeded(),
+        ComponentDescriptorConstants.BROADCAST_RECEIVERS_TARGET);
 
     mergeConditionals(conditionals.get(ComponentDescriptorConstants.BROADCAST_RECEIVERS_TARGET),
         context.getComponentInfo().getBroadcastReceiversNeeded());
@@ -200,14 +167,8 @@ public class LoadComponentInfo implements CommonTask {
    * Generate a set of conditionally included queries needed by this project.
    */
   private boolean generateQueries() {
-    try {
-      loadJsonInfo(context.getComponentInfo().getQueriesNeeded(),
-          ComponentDescriptorConstants.QUERIES_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Queries stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getQueriesNeeded(),
+        ComponentDescriptorConstants.QUERIES_TARGET);
 
     mergeConditionals(conditionals.get(ComponentDescriptorConstants.QUERIES_TARGET),
         context.getComponentInfo().getQueriesNeeded());
@@ -219,14 +180,8 @@ public class LoadComponentInfo implements CommonTask {
    * Generate a set of conditionally included activity metadata needed by this project.
    */
   private boolean generateServices() {
-    try {
-      loadJsonInfo(context.getComponentInfo().getServicesNeeded(),
-          ComponentDescriptorConstants.SERVICES_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Services stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getServicesNeeded(),
+        ComponentDescriptorConstants.SERVICES_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getServicesNeeded().keySet()) {
@@ -241,14 +196,8 @@ public class LoadComponentInfo implements CommonTask {
    * Generate a set of conditionally included activity metadata needed by this project.
    */
   private boolean generateContentProviders() {
-    try {
-      loadJsonInfo(context.getComponentInfo().getContentProvidersNeeded(),
-          ComponentDescriptorConstants.SERVICES_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Content Providers stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getContentProvidersNeeded(),
+        ComponentDescriptorConstants.SERVICES_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getContentProvidersNeeded().keySet()) {
@@ -264,14 +213,8 @@ public class LoadComponentInfo implements CommonTask {
    */
   private boolean generateLibNames() {
     context.getReporter().info("Generating libraries...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getLibsNeeded(),
-          ComponentDescriptorConstants.LIBRARIES_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Libraries stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getLibsNeeded(),
+        ComponentDescriptorConstants.LIBRARIES_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getLibsNeeded().keySet()) {
@@ -290,14 +233,8 @@ public class LoadComponentInfo implements CommonTask {
     if (context.isForEmulator()) {  // no libraries for emulator, so we return success
       return true;
     }
-    try {
-      loadJsonInfo(context.getComponentInfo().getNativeLibsNeeded(),
-          ComponentDescriptorConstants.NATIVE_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Native Libraries stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getNativeLibsNeeded(),
+        ComponentDescriptorConstants.NATIVE_TARGET);
 
     int n = 0;
     for (String type : context.getComponentInfo().getNativeLibsNeeded().keySet()) {
@@ -310,28 +247,22 @@ public class LoadComponentInfo implements CommonTask {
 
   private boolean generatePermissions() {
     context.getReporter().info("Generating permissions...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getPermissionsNeeded(),
-          ComponentDescriptorConstants.PERMISSIONS_TARGET);
-      loadPermissionConstraints();
-      if (context.getProject() != null) {
-        // Only do this if we have a project (testing doesn't provide one :-( ).
-        context.getReporter().log("usesLocation = " + context.getProject().getUsesLocation());
-        if (context.getProject().getUsesLocation().equals("True")) {
-          // Add location permissions if any WebViewer requests it
-          Set<String> locationPermissions = Sets.newHashSet(); // via a Property.
-          // See ProjectEditor.recordLocationSettings()
-          locationPermissions.add("android.permission.ACCESS_FINE_LOCATION");
-          locationPermissions.add("android.permission.ACCESS_COARSE_LOCATION");
-          locationPermissions.add("android.permission.ACCESS_MOCK_LOCATION");
-          context.getComponentInfo().getPermissionsNeeded()
-              .put("com.google.appinventor.components.runtime.WebViewer", locationPermissions);
-        }
+    loadJsonInfo(context.getComponentInfo().getPermissionsNeeded(),
+        ComponentDescriptorConstants.PERMISSIONS_TARGET);
+    loadPermissionConstraints();
+    if (context.getProject() != null) {
+      // Only do this if we have a project (testing doesn't provide one :-( ).
+      context.getReporter().log("usesLocation = " + context.getProject().getUsesLocation());
+      if (context.getProject().getUsesLocation().equals("True")) {
+        // Add location permissions if any WebViewer requests it
+        Set<String> locationPermissions = Sets.newHashSet(); // via a Property.
+        // See ProjectEditor.recordLocationSettings()
+        locationPermissions.add("android.permission.ACCESS_FINE_LOCATION");
+        locationPermissions.add("android.permission.ACCESS_COARSE_LOCATION");
+        locationPermissions.add("android.permission.ACCESS_MOCK_LOCATION");
+        context.getComponentInfo().getPermissionsNeeded()
+            .put("com.google.appinventor.components.runtime.WebViewer", locationPermissions);
       }
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Permissions stage", true);
-      return false;
     }
 
     mergeConditionals(conditionals.get(ComponentDescriptorConstants.PERMISSIONS_TARGET),
@@ -354,14 +285,8 @@ public class LoadComponentInfo implements CommonTask {
 
   private boolean generateMinSdks() {
     context.getReporter().info("Generating Android minimum SDK...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getMinSdksNeeded(),
-          ComponentDescriptorConstants.ANDROIDMINSDK_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the Android Min SDK stage", true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getMinSdksNeeded(),
+        ComponentDescriptorConstants.ANDROIDMINSDK_TARGET);
 
     return true;
   }
@@ -374,194 +299,91 @@ public class LoadComponentInfo implements CommonTask {
    */
   private boolean generateBroadcastReceiver() {
     context.getReporter().info("Generating component broadcast receivers...");
-    try {
-      loadJsonInfo(context.getComponentInfo().getComponentBroadcastReceiver(),
-          ComponentDescriptorConstants.BROADCAST_RECEIVER_TARGET);
-    } catch (IOException | JSONException e) {
-      // This is fatal.
-      context.getReporter().error("There was an error in the BroadcastReceiver Generator stage",
-          true);
-      return false;
-    }
+    loadJsonInfo(context.getComponentInfo().getComponentBroadcastReceiver(),
+        ComponentDescriptorConstants.BROADCAST_RECEIVER_TARGET);
     return true;
   }
 
-  private boolean loadJsonInfo() {
-    try {
-      context.setBuildInfo(new JSONArray(
-          "[" + context.getSimpleCompsBuildInfo().join(",") + ","
-              + context.getExtCompsBuildInfo().join(",") + "]"));
-      return true;
-    } catch (JSONException e) {
-      e.printStackTrace();
-      context.getReporter().error("There was an error loading component info", true);
-      return false;
-    }
-  }
-
   /*
    *  Loads permissions and information on component libraries and assets.
    */
-  private void loadJsonInfo(ConcurrentMap<String, Set<String>> infoMap, String targetInfo)
-      throws IOException, JSONException {
+  private void loadJsonInfo(ConcurrentMap<String, Set<String>> infoMap, String targetInfo) {
     synchronized (infoMap) {
       if (!infoMap.isEmpty()) {
         return;
       }
 
-      if (context.getBuildInfo() == null) {
-        loadJsonInfo();
-      }
-
-      final JSONArray buildInfo = context.getBuildInfo();
-
-      for (int i = 0; i < buildInfo.length(); ++i) {
-        JSONObject compJson = buildInfo.getJSONObject(i);
-        JSONArray infoArray = null;
-        String type = compJson.getString("type");
-        infoArray = compJson.optJSONArray(targetInfo);
-        if (infoArray == null) {
+      for (ComponentBuildInfo compInfo : context.getComponentInfo().getBuildInfos().values()) {
+        String type = compInfo.getType();
+        Set<String> infoSet = compInfo.getInfo(targetInfo);
+        if (infoSet == null) {
           context.getReporter().info("Component \"" + type + "\" does not specify " + targetInfo);
           // Continue to process other components
           continue;
         }
 
-        if (!context.getSimpleCompTypes().contains(type)
-            && !context.getExtCompTypes().contains(type)) {
-          continue;
-        }
-
-        Set<String> infoSet = Sets.newHashSet();
-        for (int j = 0; j < infoArray.length(); ++j) {
-          String info = infoArray.getString(j);
-          if (!info.isEmpty()) {
-            infoSet.add(info);
-          }
-        }
-
         if (!infoSet.isEmpty()) {
-          infoMap.put(type, infoSet);
+          // The shared build info is immutable, but later stages add to these sets.
+          infoMap.put(type, new HashSet<>(infoSet));
         }
 
-        processConditionalInfo(compJson, type, targetInfo);
+        processConditionalInfo(compInfo, type, targetInfo);
       }
     }
   }
 
   /**
-   * Processes the conditional info from simple_components_build_info.json into
-   * a structure mapping annotation types to component names to block names to
-   * values.
+   * Collects the conditional info of a component into a structure mapping
+   * annotation types to component names to block names to values.
    *
-   * @param compJson   Parsed component data from JSON
+   * @param compInfo   Build info of the component
    * @param type       The name of the type being processed
    * @param targetInfo Name of the annotation target being processed (e.g.,
    *                   permissions). Any of: PERMISSIONS_TARGET,
    *                   BROADCAST_RECEIVERS_TARGET
    */
-  private void processConditionalInfo(JSONObject compJson, String type, String targetInfo) {
+  private void processConditionalInfo(ComponentBuildInfo compInfo, String type,
+      String targetInfo) {
     // Strip off the package name since SCM and BKY use unqualified names
     type = type.substring(type.lastIndexOf('.') + 1);
 
-    JSONObject conditionals = compJson.optJSONObject(
-        ComponentDescriptorConstants.CONDITIONALS_TARGET);
-    if (conditionals != null) {
-      JSONObject jsonBlockMap = conditionals.optJSONObject(targetInfo);
-      if (jsonBlockMap != null) {
-        if (!this.conditionals.containsKey(targetInfo)) {
-          this.conditionals.put(targetInfo, new HashMap<String, Map<String, Set<String>>>());
-        }
-        Map<String, Set<String>> blockMap = new HashMap<>();
-        this.conditionals.get(targetInfo).put(type, blockMap);
-        for (String key : (List<String>) Lists.newArrayList(jsonBlockMap.keys())) {
-          JSONArray data = jsonBlockMap.optJSONArray(key);
-          HashSet<String> result = new HashSet<>();
-          for (int i = 0; i < data.length(); i++) {
-            result.add(data.optString(i));
-          }
-          blockMap.put(key, result);
-        }
+    Map<String, Set<String>> blockMap = compInfo.getConditionals(targetInfo);
+    if (blockMap != null) {
+      if (!this.conditionals.containsKey(targetInfo)) {
+        this.conditionals.put(targetInfo, new HashMap<String, Map<String, Set<String>>>());
       }
+      this.conditionals.get(targetInfo).put(type, blockMap);
     }
   }
 
-  private void loadPermissionConstraints() throws JSONException {
+  private void loadPermissionConstraints() {
     if (!context.getComponentInfo().getPermissionConstraintsNeeded().isEmpty()) {
       // Nothing to do here.
       return;
     }
 
-    final JSONArray buildInfo = context.getBuildInfo();
-    final Set<String> simpleCompTypes = context.getSimpleCompTypes();
-    final Set<String> extCompTypes = context.getExtCompTypes();
-
-    for (int i = 0; i < buildInfo.length(); i++) {
-      JSONObject compJson = buildInfo.getJSONObject(i);
-      String type = compJson.getString("type");
-      if (!simpleCompTypes.contains(type) && !extCompTypes.contains(type)) {
-        // Component type not used.
-        continue;
-      }
-
-      JSONObject infoObject = compJson.optJSONObject(
-          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
-      if (infoObject == null) {
+    for (ComponentBuildInfo compInfo : context.getComponentInfo().getBuildInfos().values()) {
+      String type = compInfo.getType();
+      Map<String, Set<PermissionConstraint<?>>> constraints = compInfo.getPermissionConstraints();
+      if (constraints == null) {
         context.getReporter().info("Component \"" + type + "\" does not specify "
             + ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
         continue;
       }
 
       // Handle declared constraints
-      context.getComponentInfo().getPermissionConstraintsNeeded()
-          .put(type, processPermissionConstraints(infoObject));
-
-      // Handle conditional constraints
-      infoObject = compJson.optJSONObject(ComponentDescriptorConstants.CONDITIONALS_TARGET);
-      if (infoObject == null) {
-        continue;
-      }
-      infoObject = infoObject.optJSONObject(
-          ComponentDescriptorConstants.PERMISSION_CONSTRAINTS_TARGET);
-      if (infoObject == null) {
-        continue;
-      }
-      Map<String, Map<String, Set<PermissionConstraint<?>>>> blockConstraints = new HashMap<>();
-      Iterator<?> it = infoObject.keys();
-      while (it.hasNext()) {
-        String blockName = (String) it.next();
-        JSONObject constraints = infoObject.getJSONObject(blockName);
-        blockConstraints.put(blockName, processPermissionConstraints(constraints));
+      Map<String, Set<PermissionConstraint<?>>> neededConstraints = new HashMap<>();
+      for (Map.Entry<String, Set<PermissionConstraint<?>>> entry : constraints.entrySet()) {
+        neededConstraints.put(entry.getKey(), new HashSet<>(entry.getValue()));
       }
-      conditionalPermissionConstraints.put(type, blockConstraints);
-    }
-  }
+      context.getComponentInfo().getPermissionConstraintsNeeded().put(type, neededConstraints);
 
-  private Map<String, Set<PermissionConstraint<?>>> processPermissionConstraints(JSONObject src)
-      throws JSONException {
-    Map<String, Set<PermissionConstraint<?>>> neededConstraints = new HashMap<>();
-    Iterator<?> it = src.keys();
-    while (it.hasNext()) {
-      String permissionName = (String) it.next();
-      Set<PermissionConstraint<?>> constraintSet = neededConstraints.get(permissionName);
-      if (constraintSet == null) {
-        constraintSet = new HashSet<>();
-        neededConstraints.put(permissionName, constraintSet);
-      }
-      JSONObject constraints = src.getJSONObject(permissionName);
-      Iterator<?> it2 = constraints.keys();
-      while (it2.hasNext()) {
-        String attribute = (String) it2.next();
-        Object value = constraints.get(attribute);
-        if (value instanceof Number) {
-          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
-              ((Number) value).intValue()));
-        } else {
-          constraintSet.add(new PermissionConstraint<>(permissionName, attribute,
-              value.toString()));
-        }
+      // Handle conditional constraints
+      if (!compInfo.getConditionalPermissionConstraints().isEmpty()) {
+        conditionalPermissionConstraints.put(type,
+            compInfo.getConditionalPermissionConstraints());
       }
     }
-    return neededConstraints;
   }
 
   private void mergeConditionals(Map<String, Map<String, Set<String>>> conditionalMap,
@@ -7,7 +7,9 @@ package com.google.appinventor.buildserver.tasks.common;
 
 import com.google.appinventor.buildserver.BuildType;
 import com.google.appinventor.buildserver.Compiler;
+import com.google.appinventor.buildserver.DependsOn;
 import com.google.appinventor.buildserver.TaskResult;
+import com.google.appinventor.buildserver.context.ComponentBuildInfo;
 import com.google.appinventor.buildserver.context.CompilerContext;
 import com.google.appinventor.buildserver.context.Paths;
 import com.google.appinventor.buildserver.interfaces.CommonTask;
@@ -19,19 +21,19 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import org.codehaus.jettison.json.JSONArray;
 import org.codehaus.jettison.json.JSONException;
-import org.codehaus.jettison.json.JSONObject;
-import org.codehaus.jettison.json.JSONTokener;
 
 /**
  * ReadBuildInfo sets up an initial state for Android builds.
  */
 @BuildType(apk = true, aab = true)
+@DependsOn({})
 public class ReadBuildInfo implements CommonTask {
   @Override
   public TaskResult execute(CompilerContext<?> context) {
@@ -69,32 +71,29 @@ public class ReadBuildInfo implements CommonTask {
     }
     context.getResources().setSupportJars(jars.toArray(new String[0]));
 
+    Map<String, ComponentBuildInfo> simpleCompsBuildInfo;
     try {
-      JSONArray buildInfo = new JSONArray(context.getResources().getCompBuildInfo());
-
-      Set<String> allSimpleTypes = Sets.newHashSet();
-      for (int i = 0; i < buildInfo.length(); ++i) {
-        JSONObject comp = buildInfo.getJSONObject(i);
-        allSimpleTypes.add(comp.getString("type"));
-      }
-
-      HashSet<String> simpleCompTypes = Sets.newHashSet(context.getCompTypes());
-      simpleCompTypes.retainAll(allSimpleTypes);
-      context.setSimpleCompTypes(simpleCompTypes);
-
-      HashSet<String> extCompTypes = Sets.newHashSet(context.getCompTypes());
-      extCompTypes.removeAll(allSimpleTypes);
-      context.setExtCompTypes(extCompTypes);
+      simpleCompsBuildInfo = ComponentBuildInfo.getSimpleComponents(context.getResources());
     } catch (JSONException e) {
       e.printStackTrace();
       return TaskResult.generateError(e);
     }
 
-    try {
-      JSONArray simpleCompsBuildInfo = new JSONArray(context.getResources().getCompBuildInfo());
-      context.setSimpleCompsBuildInfo(simpleCompsBuildInfo);
+    HashSet<String> simpleCompTypes = Sets.newHashSet(context.getCompTypes());
+    simpleCompTypes.retainAll(simpleCompsBuildInfo.keySet());
+    context.setSimpleCompTypes(simpleCompTypes);
 
-      JSONArray extCompsBuildInfo = new JSONArray();
+    HashSet<String> extCompTypes = Sets.newHashSet(context.getCompTypes());
+    extCompTypes.removeAll(simpleCompsBuildInfo.keySet());
+    context.setExtCompTypes(extCompTypes);
+
+    // Only keep the build info of the types used by the project.
+    Map<String, ComponentBuildInfo> buildInfos = new HashMap<>();
+    for (String type : simpleCompTypes) {
+      buildInfos.put(type, simpleCompsBuildInfo.get(type));
+    }
+
+    try {
       Set<String> readComponentInfos = new HashSet<String>();
       for (String type : context.getExtCompTypes()) {
         // .../assets/external_comps/com.package.MyExtComp/files/component_build_info.json
@@ -118,29 +117,23 @@ public class ReadBuildInfo implements CommonTask {
                 + type);
           }
         }
-        if (readComponentInfos.contains(jsonFile.getAbsolutePath())) {
+        if (!readComponentInfos.add(jsonFile.getAbsolutePath())) {
           continue;  // already read the build infos for this type (bundle extension)
         }
 
         String buildInfo = com.google.common.io.Resources.toString(jsonFile.toURI().toURL(),
             Charsets.UTF_8);
-        JSONTokener tokener = new JSONTokener(buildInfo);
-        Object value = tokener.nextValue();
-        if (value instanceof JSONObject) {
-          extCompsBuildInfo.put(value);
-          readComponentInfos.add(jsonFile.getAbsolutePath());
-        } else if (value instanceof JSONArray) {
-          JSONArray infos = (JSONArray) value;
-          for (int i = 0; i < infos.length(); i++) {
-            extCompsBuildInfo.put(infos.getJSONObject(i));
+        for (ComponentBuildInfo info
+            : ComponentBuildInfo.getExtensionComponents(buildInfo).values()) {
+          if (extCompTypes.contains(info.getType())) {
+            buildInfos.put(info.getType(), info);
           }
-          readComponentInfos.add(jsonFile.getAbsolutePath());
         }
       }
-      context.setExtCompsBuildInfo(extCompsBuildInfo);
     } catch (JSONException | IOException e) {
       return TaskResult.generateError(e);
     }
+    context.getComponentInfo().setBuildInfos(buildInfos);
     return TaskResult.generateSuccess();
   }
 }
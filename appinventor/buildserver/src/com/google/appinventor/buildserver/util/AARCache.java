@@ -0,0 +1,202 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * AARCache is a content-addressed, read-only store of exploded Android Archives and of the
+ * resources merged from them, shared by all builds on the server.
+ *
+ * <p>Every app built by the server unpacks the same support libraries and merges the same
+ * resources. With a cache, each distinct archive is unpacked once and each distinct set of
+ * archives has its resources merged once; builds then reference the cached directories in place
+ * instead of writing their own copies. Entries are keyed by the SHA-256 of the archives, so a new
+ * version of a library gets a new entry, and are never modified once created. Files in the cache
+ * are made read-only to protect them from a build that writes where it should not.</p>
+ *
+ * <p>Entries are built in a temporary directory and moved into place atomically, so several
+ * build server processes may share one cache directory.</p>
+ */
+public class AARCache {
+  private static final Logger LOG = Logger.getLogger(AARCache.class.getName());
+  private static final String EXPLODED_DIR = "exploded";
+  private static final String MERGED_RES_DIR = "merged-res";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  /**
+   * Creates the contents of a cache entry.
+   */
+  public interface EntryWriter {
+    /**
+     * Writes the contents of a cache entry.
+     *
+     * @param dir an empty directory to write the entry to
+     * @throws IOException if the entry cannot be written
+     */
+    void write(File dir) throws IOException;
+  }
+
+  /**
+   * Remembers the digest of each archive, since the runtime AARs are extracted once per process
+   * and do not change afterward.
+   */
+  private static final ConcurrentMap<String, String> DIGESTS = new ConcurrentHashMap<>();
+
+  private final File cacheDir;
+  private final String salt;
+  private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new AARCache.
+   *
+   * @param cacheDir the directory where cache entries are stored
+   * @param salt a value mixed into the key of merged resources, such as the build server
+   *             version, so that resources merged by a different version of the tools are
+   *             never reused
+   */
+  public AARCache(File cacheDir, String salt) {
+    this.cacheDir = cacheDir;
+    this.salt = salt;
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+      throw new IllegalArgumentException("Unable to create AAR cache directory " + cacheDir);
+    }
+  }
+
+  public File getCacheDir() {
+    return cacheDir;
+  }
+
+  /**
+   * Computes the content key of an archive.
+   *
+   * @param aar the archive
+   * @return the hexadecimal SHA-256 of the archive's contents
+   * @throws IOException if the archive cannot be read
+   */
+  public static String getKey(File aar) throws IOException {
+    String id = aar.getAbsolutePath() + ":" + aar.length() + ":" + aar.lastModified();
+    String digest = DIGESTS.get(id);
+    if (digest == null) {
+      digest = com.google.common.io.Files.hash(aar, Hashing.sha256()).toString();
+      DIGESTS.put(id, digest);
+    }
+    return digest;
+  }
+
+  /**
+   * Computes the key of the merged resources of a list of archives.
+   *
+   * @param keys the content keys of the archives, in the order their resources are merged
+   * @return the hexadecimal SHA-256 of the keys
+   */
+  public String getMergedResKey(List<String> keys) {
+    StringBuilder sb = new StringBuilder(salt);
+    for (String key : keys) {
+      sb.append('\n').append(key);
+    }
+    return Hashing.sha256().hashString(sb.toString(), Charsets.UTF_8).toString();
+  }
+
+  /**
+   * Gets the directory into which an archive has been unpacked, unpacking it if necessary. The
+   * directory contains a single subdirectory named with the archive's package name, as created
+   * by {@link AARLibrary#unpackToDirectory(File)}.
+   *
+   * @param aar the archive
+   * @param key the content key of the archive
+   * @return the cached directory
+   * @throws IOException if the archive cannot be unpacked
+   */
+  public File getExplodedDirectory(final File aar, String key) throws IOException {
+    return getEntry(EXPLODED_DIR, key, new EntryWriter() {
+      @Override
+      public void write(File dir) throws IOException {
+        new AARLibrary(aar).unpackToDirectory(dir);
+      }
+    });
+  }
+
+  /**
+   * Gets the directory holding the merged resources of a set of archives, creating it if
+   * necessary.
+   *
+   * @param key the key of the merged resources
+   * @param writer writes the merged resources when they are not cached
+   * @return the cached directory
+   * @throws IOException if the resources cannot be merged
+   */
+  public File getMergedResDirectory(String key, EntryWriter writer) throws IOException {
+    return getEntry(MERGED_RES_DIR, key, writer);
+  }
+
+  private File getEntry(String kind, String key, EntryWriter writer) throws IOException {
+    File entry = new File(new File(cacheDir, kind), key);
+    if (entry.exists()) {
+      return entry;
+    }
+    Object lock = locks.get(key);
+    if (lock == null) {
+      Object newLock = new Object();
+      lock = locks.putIfAbsent(key, newLock);
+      if (lock == null) {
+        lock = newLock;
+      }
+    }
+    synchronized (lock) {
+      if (entry.exists()) {
+        return entry;
+      }
+      File parent = entry.getParentFile();
+      if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+        throw new IOException("Unable to create directory " + parent);
+      }
+      File tmp = Files.createTempDirectory(parent.toPath(), key + TMP_SUFFIX).toFile();
+      try {
+        writer.write(tmp);
+        makeReadOnly(tmp);
+        Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        LOG.info("Added " + kind + " entry " + key + " to the AAR cache");
+      } catch (FileAlreadyExistsException e) {
+        // Another build server sharing the cache created the entry first.
+      } catch (IOException e) {
+        if (!entry.exists()) {
+          throw e;
+        }
+        // Depending on the platform, losing the race may also be reported this way.
+      } finally {
+        FileUtils.deleteQuietly(tmp);
+      }
+    }
+    return entry;
+  }
+
+  private static void makeReadOnly(File file) {
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children != null) {
+        for (File child : children) {
+          makeReadOnly(child);
+        }
+      }
+    } else if (!file.setWritable(false, false)) {
+      LOG.warning("Unable to make " + file + " read-only");
+    }
+  }
+}
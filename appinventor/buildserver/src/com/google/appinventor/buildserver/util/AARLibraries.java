@@ -15,6 +15,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.core.compiler.batch.BatchCompiler;
 
@@ -142,6 +143,23 @@ public class AARLibraries extends HashSet<AARLibrary> {
     return outputDir;
   }
 
+  /**
+   * Gets the AAR libraries in the collection that contain resources, in the order in which their
+   * resources are merged. The order is by package name so that it does not depend on where the
+   * libraries were unpacked.
+   *
+   * @return the libraries with resources
+   */
+  private List<AARLibrary> getLibrariesWithResources() {
+    TreeMap<String, AARLibrary> libraries = new TreeMap<>();
+    for (AARLibrary library : this) {
+      if (library.getResDirectory() != null) {
+        libraries.put(library.getDirectory().getName(), library);
+      }
+    }
+    return new ArrayList<>(libraries.values());
+  }
+
   /**
    * Gets a list of resource sets loaded from the AAR libraries in the collection. Note that this
    * is computed on every call (results are not cached), so it is recommended that the caller only
@@ -150,13 +168,60 @@ public class AARLibraries extends HashSet<AARLibrary> {
    */
   private List<ResourceSet> getResourceSets() {
     List<ResourceSet> resourceSets = new ArrayList<>();
-    for (AARLibrary library : this) {
-      if (library.getResDirectory() != null) {
-        ResourceSet resourceSet = new ResourceSet(library.getDirectory().getName());
-        resourceSet.addSource(library.getResDirectory());
-        resourceSets.add(resourceSet);
+    for (AARLibrary library : getLibrariesWithResources()) {
+      ResourceSet resourceSet = new ResourceSet(library.getDirectory().getName());
+      resourceSet.addSource(library.getResDirectory());
+      resourceSets.add(resourceSet);
+    }
+    return resourceSets;
+  }
+
+  /**
+   * Gets a single resource set holding the merged resources of all of the AAR libraries in the
+   * collection, merging them into the shared cache if no build has merged the same libraries
+   * before. Falls back to {@link #getResourceSets()} if any library was not unpacked into the
+   * cache.
+   *
+   * @param cache the shared cache of exploded libraries and merged resources
+   * @param cruncher configured PNG cruncher utility for reducing the size of PNG assets.
+   * @return the list of resource sets to merge with the app's resources
+   * @throws IOException if the libraries' resources cannot be merged into the cache
+   */
+  private List<ResourceSet> getCachedResourceSets(AARCache cache, final PngCruncher cruncher)
+      throws IOException {
+    List<AARLibrary> libraries = getLibrariesWithResources();
+    List<String> keys = new ArrayList<>();
+    for (AARLibrary library : libraries) {
+      if (library.getContentKey() == null) {
+        return getResourceSets();
       }
+      keys.add(library.getContentKey());
+    }
+    if (libraries.isEmpty()) {
+      return new ArrayList<>();
     }
+    File mergedDir = cache.getMergedResDirectory(cache.getMergedResKey(keys),
+        new AARCache.EntryWriter() {
+          @Override
+          public void write(File dir) throws IOException {
+            ResourceMerger merger = new ResourceMerger();
+            try {
+              for (ResourceSet resourceSet : getResourceSets()) {
+                resourceSet.loadFromFiles(LOG);
+                merger.addDataSet(resourceSet);
+              }
+              // Source markers would refer to the temporary directory, so leave them out.
+              merger.mergeData(new MergedResourceWriter(dir, cruncher, false, false, null),
+                  false);
+            } catch (MergingException e) {
+              throw new IOException("Unable to merge AAR resources", e);
+            }
+          }
+        });
+    ResourceSet resourceSet = new ResourceSet("aars");
+    resourceSet.addSource(mergedDir);
+    List<ResourceSet> resourceSets = new ArrayList<>();
+    resourceSets.add(resourceSet);
     return resourceSets;
   }
 
@@ -170,13 +235,31 @@ public class AARLibraries extends HashSet<AARLibrary> {
    * @return true if the merge was successful, otherwise false.
    */
   public boolean mergeResources(File outputDir, File mainResDir, PngCruncher cruncher) {
-    List<ResourceSet> resourceSets = getResourceSets();
-    ResourceSet mainResSet = new ResourceSet("main");
-    mainResSet.addSource(mainResDir);
-    resourceSets.add(mainResSet);
+    return mergeResources(outputDir, mainResDir, cruncher, null);
+  }
+
+  /**
+   * Merges the resources from all of the dependent AAR libraries into the main resource bundle for
+   * the compiling app. If a cache is given, the resources of the libraries are merged with each
+   * other only once and reused by every build that depends on the same libraries.
+   *
+   * @param outputDir the output directory to write the R.java files.
+   * @param mainResDir the resource directory where the resource descriptors for the app reside.
+   * @param cruncher configured PNG cruncher utility for reducing the size of PNG assets.
+   * @param cache the shared cache of exploded libraries and merged resources, or null.
+   * @return true if the merge was successful, otherwise false.
+   */
+  public boolean mergeResources(File outputDir, File mainResDir, PngCruncher cruncher,
+      AARCache cache) {
     ResourceMerger merger = new ResourceMerger();
 
     try {
+      List<ResourceSet> resourceSets = cache == null ? getResourceSets()
+          : getCachedResourceSets(cache, cruncher);
+      ResourceSet mainResSet = new ResourceSet("main");
+      mainResSet.addSource(mainResDir);
+      resourceSets.add(mainResSet);
+
       for (ResourceSet resourceSet : resourceSets) {
         resourceSet.loadFromFiles(LOG);
         merger.addDataSet(resourceSet);
@@ -186,7 +269,7 @@ public class AARLibraries extends HashSet<AARLibrary> {
       writer.setInsertSourceMarkers(true);
       merger.mergeData(writer, false);
       return true;
-    } catch(MergingException e) {
+    } catch(MergingException | IOException e) {
       e.printStackTrace();
       return false;
     }
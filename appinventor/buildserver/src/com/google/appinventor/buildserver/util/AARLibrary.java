@@ -79,6 +79,12 @@ public class AARLibrary {
    */
   private File rtxt;
 
+  /**
+   * The content key of the archive if it was unpacked into a shared {@link AARCache}, otherwise
+   * null.
+   */
+  private String contentKey = null;
+
   /**
    * Set of all descendants of the resources hierarchy.
    */
@@ -146,6 +152,10 @@ public class AARLibrary {
     return resdir;
   }
 
+  public String getContentKey() {
+    return contentKey;
+  }
+
   public File getManifest() {
     return manifest;
   }
@@ -271,6 +281,52 @@ public class AARLibrary {
     }
   }
 
+  /**
+   * Uses a copy of the Android Archive unpacked in a shared cache, unpacking it into the cache
+   * first if no build has done so yet. The files in the cache are read-only and must not be
+   * modified by the build.
+   *
+   * @param cache the shared cache of exploded archives
+   * @throws IOException if any error occurs attempting to read the archive or write new files to
+   *                     the cache.
+   */
+  public void unpackToCache(final AARCache cache) throws IOException {
+    contentKey = AARCache.getKey(aarPath);
+    File[] packages = cache.getExplodedDirectory(aarPath, contentKey).listFiles();
+    if (packages == null || packages.length != 1 || !packages[0].isDirectory()) {
+      throw new IOException("Malformed AAR cache entry for " + aarPath);
+    }
+    basedir = packages[0];
+    packageName = basedir.getName();
+    catalogDirectory(basedir, "");
+    resdir = new File(basedir, "res");
+    if (!resdir.exists()) {
+      resdir = null;
+    }
+  }
+
+  /**
+   * Catalogs the files in a directory unpacked from the Android Archive, as though they had
+   * just been unpacked by {@link #unpackToDirectory(File)}.
+   *
+   * @param dir the directory to catalog.
+   * @param prefix the path of the directory relative to the archive root.
+   */
+  private void catalogDirectory(File dir, String prefix) {
+    File[] children = dir.listFiles();
+    if (children == null) {
+      return;
+    }
+    for (File child : children) {
+      String entryName = prefix + child.getName();
+      if (child.isDirectory()) {
+        catalogDirectory(child, entryName + "/");
+      } else {
+        catalog(new File(basedir, entryName));
+      }
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
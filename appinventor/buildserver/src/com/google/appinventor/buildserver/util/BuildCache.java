@@ -0,0 +1,337 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * BuildCache is a content-addressed, on-disk store of task outputs shared by all builds on a
+ * build server. Each {@link com.google.appinventor.buildserver.interfaces.CacheableTask}
+ * describes its inputs with a {@link Key}, and the files it produces are stored under the
+ * SHA-256 digest of that key. A later build whose task inputs hash to the same digest restores
+ * the stored outputs instead of running the task again.
+ *
+ * <p>Entries are written to a temporary directory and renamed into place, so concurrent builds
+ * never observe a partially written entry. When the cache grows beyond its size limit, the
+ * least recently used entries are deleted.</p>
+ */
+public class BuildCache {
+  private static final Logger LOG = Logger.getLogger(BuildCache.class.getName());
+  private static final String OUTPUT_PREFIX = "out";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private final File cacheDir;
+  private final long maxSizeBytes;
+  private final String salt;
+  private final AtomicInteger hits = new AtomicInteger(0);
+  private final AtomicInteger misses = new AtomicInteger(0);
+  private final Object evictionLock = new Object();
+
+  /**
+   * A Key accumulates the inputs of a task into a single digest. Inputs are labeled so that the
+   * same content supplied for a different purpose produces a different key. Files are hashed by
+   * content and directories by the relative path and content of every file they contain, so a
+   * key does not depend on where a build's temporary directory is located.
+   */
+  public static class Key {
+    private final String taskName;
+    private final MessageDigest digest;
+    private String hex;
+
+    private Key(String taskName, String salt) {
+      this.taskName = taskName;
+      try {
+        digest = MessageDigest.getInstance("SHA-256");
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException("SHA-256 is not available", e);
+      }
+      addString("task", taskName);
+      addString("salt", salt);
+    }
+
+    /**
+     * Adds a string valued input to the key.
+     *
+     * @param label a name describing the input
+     * @param value the value of the input, which may be null
+     * @return this key for chaining
+     */
+    public Key addString(String label, String value) {
+      update(label);
+      update(value == null ? "\0null" : value);
+      return this;
+    }
+
+    /**
+     * Adds a file or directory to the key. Missing files are recorded as absent rather than
+     * raising an error so that optional inputs can be added unconditionally.
+     *
+     * @param label a name describing the input
+     * @param file the file or directory to hash
+     * @return this key for chaining
+     * @throws IOException if the contents of the file cannot be read
+     */
+    public Key addFile(String label, File file) throws IOException {
+      update(label);
+      if (file == null || !file.exists()) {
+        update("\0missing");
+      } else if (file.isDirectory()) {
+        addDirectory(file, "");
+      } else {
+        addContents(file);
+      }
+      return this;
+    }
+
+    private void addDirectory(File dir, String prefix) throws IOException {
+      File[] children = dir.listFiles();
+      if (children == null) {
+        return;
+      }
+      Arrays.sort(children, new Comparator<File>() {
+        @Override
+        public int compare(File o1, File o2) {
+          return o1.getName().compareTo(o2.getName());
+        }
+      });
+      for (File child : children) {
+        String path = prefix + "/" + child.getName();
+        update(path);
+        if (child.isDirectory()) {
+          addDirectory(child, path);
+        } else {
+          addContents(child);
+        }
+      }
+    }
+
+    private void addContents(File file) throws IOException {
+      update(Long.toString(file.length()));
+      byte[] buffer = new byte[8192];
+      try (InputStream in = new FileInputStream(file)) {
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+          digest.update(buffer, 0, read);
+        }
+      }
+    }
+
+    private void update(String value) {
+      if (hex != null) {
+        throw new IllegalStateException("Key has already been computed");
+      }
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      digest.update(bytes);
+      digest.update((byte) 0);
+    }
+
+    /**
+     * Finishes the key. No further inputs may be added after this is called.
+     *
+     * @return the hexadecimal digest of all inputs added to the key
+     */
+    public String toHex() {
+      if (hex == null) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+          sb.append(String.format("%02x", b));
+        }
+        hex = sb.toString();
+      }
+      return hex;
+    }
+  }
+
+  /**
+   * Creates a new build cache.
+   *
+   * @param cacheDir the directory where cache entries are stored
+   * @param maxSizeBytes the maximum size of the cache in bytes, or 0 for unlimited
+   * @param salt a value mixed into every key, such as the build server version, so that
+   *             entries produced by a different version of the tools are never reused
+   */
+  public BuildCache(File cacheDir, long maxSizeBytes, String salt) {
+    this.cacheDir = cacheDir;
+    this.maxSizeBytes = maxSizeBytes;
+    this.salt = salt == null ? "" : salt;
+    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+      throw new IllegalArgumentException(new IOException("Unable to create build cache dir "
+          + cacheDir));
+    }
+  }
+
+  /**
+   * Starts a new key for the given task.
+   *
+   * @param taskName the name of the task whose inputs will be added to the key
+   * @return a new, empty key
+   */
+  public Key newKey(String taskName) {
+    return new Key(taskName, salt);
+  }
+
+  /**
+   * Restores the outputs stored for {@code key}, if any.
+   *
+   * @param key the key describing the task inputs
+   * @param outputs the locations where the outputs should be restored, in the same order in
+   *                which they were stored
+   * @return true if the outputs were restored, otherwise false
+   */
+  public boolean restore(Key key, List<File> outputs) {
+    File entry = new File(new File(cacheDir, key.taskName), key.toHex());
+    if (!entry.isDirectory()) {
+      misses.incrementAndGet();
+      return false;
+    }
+    try {
+      for (int i = 0; i < outputs.size(); i++) {
+        File source = new File(entry, OUTPUT_PREFIX + i);
+        File target = outputs.get(i);
+        if (source.isDirectory()) {
+          FileUtils.copyDirectory(source, target);
+        } else if (source.exists()) {
+          FileUtils.copyFile(source, target);
+        }
+      }
+      // Touch the entry so that eviction treats it as recently used.
+      if (!entry.setLastModified(System.currentTimeMillis())) {
+        LOG.fine("Unable to update timestamp of " + entry);
+      }
+      hits.incrementAndGet();
+      return true;
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to restore cache entry " + entry, e);
+      misses.incrementAndGet();
+      return false;
+    }
+  }
+
+  /**
+   * Stores the outputs of a task under {@code key}. Failures are logged but otherwise ignored
+   * since the cache is only an optimization.
+   *
+   * @param key the key describing the task inputs
+   * @param outputs the files or directories produced by the task
+   */
+  public void store(Key key, List<File> outputs) {
+    File taskDir = new File(cacheDir, key.taskName);
+    File entry = new File(taskDir, key.toHex());
+    if (entry.exists()) {
+      return;
+    }
+    File tmp = new File(taskDir, entry.getName() + "-" + UUID.randomUUID() + TMP_SUFFIX);
+    try {
+      if (!tmp.mkdirs()) {
+        throw new IOException("Unable to create " + tmp);
+      }
+      for (int i = 0; i < outputs.size(); i++) {
+        File source = outputs.get(i);
+        File target = new File(tmp, OUTPUT_PREFIX + i);
+        if (source.isDirectory()) {
+          FileUtils.copyDirectory(source, target);
+        } else if (source.exists()) {
+          FileUtils.copyFile(source, target);
+        }
+      }
+      if (!tmp.renameTo(entry)) {
+        // Another build stored the same entry first.
+        FileUtils.deleteQuietly(tmp);
+      }
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Unable to store cache entry " + entry, e);
+      FileUtils.deleteQuietly(tmp);
+      return;
+    }
+    evictIfNeeded();
+  }
+
+  public int getHitCount() {
+    return hits.get();
+  }
+
+  public int getMissCount() {
+    return misses.get();
+  }
+
+  public File getCacheDir() {
+    return cacheDir;
+  }
+
+  /**
+   * Deletes the least recently used entries until the cache fits within its size limit.
+   */
+  void evictIfNeeded() {
+    if (maxSizeBytes <= 0) {
+      return;
+    }
+    synchronized (evictionLock) {
+      List<File> entries = new ArrayList<>();
+      File[] taskDirs = cacheDir.listFiles();
+      if (taskDirs == null) {
+        return;
+      }
+      for (File taskDir : taskDirs) {
+        File[] taskEntries = taskDir.listFiles();
+        if (taskEntries == null) {
+          continue;
+        }
+        for (File entry : taskEntries) {
+          if (!entry.getName().endsWith(TMP_SUFFIX)) {
+            entries.add(entry);
+          }
+        }
+      }
+      final List<Long> sizes = new ArrayList<>(entries.size());
+      long total = 0;
+      for (File entry : entries) {
+        long size = FileUtils.sizeOf(entry);
+        sizes.add(size);
+        total += size;
+      }
+      if (total <= maxSizeBytes) {
+        return;
+      }
+      List<Integer> order = new ArrayList<>(entries.size());
+      final long[] lastModified = new long[entries.size()];
+      for (int i = 0; i < entries.size(); i++) {
+        order.add(i);
+        lastModified[i] = entries.get(i).lastModified();
+      }
+      Collections.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+          return Long.compare(lastModified[o1], lastModified[o2]);
+        }
+      });
+      for (int i : order) {
+        if (total <= maxSizeBytes) {
+          break;
+        }
+        File entry = entries.get(i);
+        FileUtils.deleteQuietly(entry);
+        total -= sizes.get(i);
+        LOG.info("Evicted build cache entry " + entry);
+      }
+    }
+  }
+}
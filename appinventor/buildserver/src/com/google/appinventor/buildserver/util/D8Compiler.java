@@ -0,0 +1,143 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * D8Compiler runs the Android d8 dexer through its Java API inside the build server process
+ * rather than starting a new JVM for every invocation.
+ *
+ * <p>d8 is not on the build server's class path, so it is loaded once from the d8.jar
+ * resource into its own class loader and invoked reflectively. All invocations run on a
+ * bounded pool of threads with a large stack, matching the {@code -Xss8m} that was passed to
+ * the d8 process, so that several builds and pre-dex jobs can dex at the same time.</p>
+ */
+public final class D8Compiler {
+  private static final Logger LOG = Logger.getLogger(D8Compiler.class.getName());
+  private static final long STACK_SIZE = 8L * 1024 * 1024;
+
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(null, r, "d8-" + count.incrementAndGet(), STACK_SIZE);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+  private static ClassLoader loader;
+  private static String loaderJar;
+
+  private D8Compiler() {
+  }
+
+  /**
+   * Submits a task to the d8 thread pool. Tasks may call {@link #compile(String, List)}
+   * directly since they already run on a d8 thread.
+   *
+   * @param task the task to run
+   * @param <T> the result type of the task
+   * @return a future for the task's result
+   */
+  public static <T> Future<T> submit(Callable<T> task) {
+    return EXECUTOR.submit(task);
+  }
+
+  /**
+   * Runs a task on the d8 thread pool.
+   *
+   * @param task the task to run
+   */
+  public static void execute(Runnable task) {
+    EXECUTOR.execute(task);
+  }
+
+  /**
+   * Runs d8 on the d8 thread pool and waits for it to finish. This must not be called from a
+   * task that is itself running on the pool.
+   *
+   * @param d8Jar the absolute path to d8.jar
+   * @param args the command line arguments for d8
+   * @return true if d8 succeeded, otherwise false
+   */
+  public static boolean run(final String d8Jar, final List<String> args) {
+    try {
+      return submit(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return compile(d8Jar, args);
+        }
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (Exception e) {
+      LOG.log(Level.WARNING, "d8 failed", e);
+      return false;
+    }
+  }
+
+  /**
+   * Runs d8 in the calling thread.
+   *
+   * @param d8Jar the absolute path to d8.jar
+   * @param args the command line arguments for d8
+   * @return true if d8 succeeded, otherwise false
+   */
+  public static boolean compile(String d8Jar, List<String> args) {
+    try {
+      ClassLoader d8Loader = getLoader(d8Jar);
+      Class<?> commandClass = d8Loader.loadClass("com.android.tools.r8.D8Command");
+      Class<?> originClass = d8Loader.loadClass("com.android.tools.r8.origin.Origin");
+      Object origin = originClass.getMethod("root").invoke(null);
+      Object builder = commandClass.getMethod("parse", String[].class, originClass)
+          .invoke(null, args.toArray(new String[0]), origin);
+      Method build = builder.getClass().getMethod("build");
+      build.setAccessible(true);
+      Object command = build.invoke(builder);
+      d8Loader.loadClass("com.android.tools.r8.D8").getMethod("run", commandClass)
+          .invoke(null, command);
+      return true;
+    } catch (InvocationTargetException e) {
+      // d8 reports compilation errors through its diagnostics handler (stderr) and then throws
+      // a CompilationFailedException.
+      LOG.log(Level.WARNING, "d8 failed", e.getCause());
+      return false;
+    } catch (ReflectiveOperationException | MalformedURLException e) {
+      LOG.log(Level.SEVERE, "Unable to invoke d8", e);
+      return false;
+    }
+  }
+
+  private static synchronized ClassLoader getLoader(String d8Jar)
+      throws MalformedURLException {
+    if (loader == null || !d8Jar.equals(loaderJar)) {
+      // d8.jar bundles its own dependencies, so keep it isolated from the build server's.
+      loader = new URLClassLoader(new URL[] { new File(d8Jar).toURI().toURL() },
+          ClassLoader.getSystemClassLoader().getParent());
+      loaderJar = d8Jar;
+    }
+    return loader;
+  }
+}
@@ -28,7 +28,8 @@ public final class ExecutorUtils {
    */
   public static File createDir(File dir) {
     if (!dir.exists()) {
-      if (!dir.mkdir()) {
+      // Tasks running in parallel may create the same directory at the same time.
+      if (!dir.mkdir() && !dir.isDirectory()) {
         System.out.println("[WARN] Could not create directory: " + dir);
       }
     }
@@ -45,7 +46,8 @@ public final class ExecutorUtils {
   public static File createDir(File parentDir, String name) {
     File dir = new File(parentDir, name);
     if (!dir.exists()) {
-      if (!dir.mkdir()) {
+      // Tasks running in parallel may create the same directory at the same time.
+      if (!dir.mkdir() && !dir.isDirectory()) {
         System.out.println("[WARN] Could not create directory: " + dir);
       }
     }
@@ -0,0 +1,228 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * KawaCompilerPool keeps a bounded set of long-lived {@link KawaWorker} processes that compile
+ * YAIL sources on behalf of concurrent builds. Reusing a worker avoids the cost of starting a
+ * new JVM for every build, and the size of the pool replaces the global lock that previously
+ * allowed only one Kawa compile at a time.
+ *
+ * <p>Workers are started lazily, are retired after a fixed number of compiles to bound the
+ * effect of any leak in the compiler, and are replaced whenever they exit.</p>
+ */
+public class KawaCompilerPool {
+  private static final Logger LOG = Logger.getLogger(KawaCompilerPool.class.getName());
+  private static final int CONNECT_TIMEOUT_MS = 60000;
+
+  private final int maxCompilesPerWorker;
+  private final int workerRamMb;
+  private final Semaphore permits;
+  private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+
+  /**
+   * A running worker process and its connection.
+   */
+  private static class Worker {
+    private final Process process;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private int compiles = 0;
+
+    Worker(Process process, Socket socket) throws IOException {
+      this.process = process;
+      this.socket = socket;
+      this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    void destroy() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // We are discarding the worker anyway.
+      }
+      process.destroy();
+    }
+  }
+
+  /**
+   * Creates a new pool.
+   *
+   * @param size the maximum number of simultaneous Kawa compiles
+   * @param maxCompilesPerWorker the number of compiles after which a worker is replaced
+   * @param workerRamMb the maximum heap of each worker, in MB
+   */
+  public KawaCompilerPool(int size, int maxCompilesPerWorker, int workerRamMb) {
+    this.permits = new Semaphore(size, true);
+    this.maxCompilesPerWorker = maxCompilesPerWorker;
+    this.workerRamMb = workerRamMb;
+  }
+
+  /**
+   * Compiles YAIL using a pooled worker. The arguments are the same as those given to
+   * {@code kawa.repl} on the command line.
+   *
+   * @param classpath the class path for the compiler, including the Kawa runtime
+   * @param kawaArgs the arguments to {@code kawa.repl}
+   * @param out the stream that receives the compiler's standard output
+   * @param err the stream that receives the compiler's standard error
+   * @return true if compilation succeeded, otherwise false
+   * @throws InterruptedException if the thread is interrupted while waiting for a worker
+   */
+  public boolean compile(String classpath, List<String> kawaArgs, PrintStream out,
+      PrintStream err) throws InterruptedException {
+    permits.acquire();
+    Worker worker = null;
+    File outFile = null;
+    File errFile = null;
+    try {
+      outFile = File.createTempFile("kawa", ".out");
+      errFile = File.createTempFile("kawa", ".err");
+      worker = idle.poll();
+      if (worker == null) {
+        worker = startWorker();
+      }
+      Integer status = runCompile(worker, classpath, kawaArgs, outFile, errFile);
+      if (status == null) {
+        // The worker died without reporting a result, for example because it was killed or ran
+        // out of memory. Failed compiles are always reported, so the request can be repeated.
+        LOG.info("Kawa worker exited without a result, retrying on a new worker");
+        worker.destroy();
+        worker = startWorker();
+        status = runCompile(worker, classpath, kawaArgs, outFile, errFile);
+      }
+      if (status == null || status != KawaWorker.STATUS_SUCCESS) {
+        // Kawa exits the worker process when compilation fails.
+        worker.destroy();
+        worker = null;
+      }
+      out.write(Files.readAllBytes(outFile.toPath()));
+      err.write(Files.readAllBytes(errFile.toPath()));
+      if (worker != null && ++worker.compiles < maxCompilesPerWorker) {
+        idle.add(worker);
+      } else if (worker != null) {
+        worker.destroy();
+      }
+      worker = null;
+      return status != null && status == KawaWorker.STATUS_SUCCESS;
+    } catch (IOException e) {
+      LOG.log(Level.WARNING, "Kawa worker failed", e);
+      return false;
+    } finally {
+      if (worker != null) {
+        worker.destroy();
+      }
+      if (outFile != null && !outFile.delete()) {
+        outFile.deleteOnExit();
+      }
+      if (errFile != null && !errFile.delete()) {
+        errFile.deleteOnExit();
+      }
+      permits.release();
+    }
+  }
+
+  /**
+   * Sends one compile request to a worker and waits for its status.
+   *
+   * @return the status reported by the worker, or null if the connection to the worker failed
+   */
+  private static Integer runCompile(Worker worker, String classpath, List<String> kawaArgs,
+      File outFile, File errFile) {
+    try {
+      KawaWorker.writeString(worker.out, classpath);
+      KawaWorker.writeString(worker.out, outFile.getAbsolutePath());
+      KawaWorker.writeString(worker.out, errFile.getAbsolutePath());
+      worker.out.writeInt(kawaArgs.size());
+      for (String arg : kawaArgs) {
+        KawaWorker.writeString(worker.out, arg);
+      }
+      worker.out.flush();
+      return worker.in.readInt();
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Stops all idle workers.
+   */
+  public void shutdown() {
+    Worker worker;
+    while ((worker = idle.poll()) != null) {
+      worker.destroy();
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private Worker startWorker() throws IOException {
+    String token = UUID.randomUUID().toString();
+    try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      server.setSoTimeout(CONNECT_TIMEOUT_MS);
+      List<String> command = new ArrayList<>();
+      command.add(System.getProperty("java.home") + "/bin/java");
+      command.add("-Dfile.encoding=UTF-8");
+      command.add("-mx" + workerRamMb + "M");
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(KawaWorker.class.getName());
+      command.add(Integer.toString(server.getLocalPort()));
+      command.add(token);
+      Process process = new ProcessBuilder(command).inheritIO().start();
+      try {
+        while (true) {
+          Socket socket = server.accept();
+          socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+          Worker worker = new Worker(process, socket);
+          // Ignore connections from anything other than the process we started.
+          if (worker.in.readInt() == token.length()
+              && token.equals(new String(readBytes(worker.in, token.length()),
+                  StandardCharsets.UTF_8))) {
+            socket.setSoTimeout(0);
+            LOG.info("Started Kawa worker on port " + server.getLocalPort());
+            return worker;
+          }
+          socket.close();
+        }
+      } catch (SocketTimeoutException e) {
+        process.destroy();
+        throw new IOException("Kawa worker did not connect", e);
+      } catch (IOException e) {
+        process.destroy();
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,220 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Entry point of a resident Kawa compiler process managed by {@link KawaCompilerPool}.
+ *
+ * <p>The worker connects back to the build server over a loopback socket, identifies itself
+ * with the token it was started with, and then compiles one request at a time. Kawa is loaded
+ * and initialized once per class path, and only the state that belongs to a single compile (the
+ * output streams and the module registry) is reset between requests. Kawa calls
+ * {@link System#exit(int)} when compilation fails; a shutdown hook reports that as a failed
+ * compile, so the pool can tell it apart from a worker that died for any other reason.</p>
+ */
+public final class KawaWorker {
+  static final int STATUS_SUCCESS = 0;
+  static final int STATUS_FAILURE = 1;
+
+  /**
+   * The number of class paths whose Kawa instances are kept loaded. Builds of the same app, or
+   * of apps using the same extensions, share a class path.
+   */
+  private static final int MAX_LOADERS = 4;
+
+  private static final Map<String, KawaLoader> LOADERS =
+      new LinkedHashMap<String, KawaLoader>(MAX_LOADERS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KawaLoader> eldest) {
+          if (size() > MAX_LOADERS) {
+            eldest.getValue().close();
+            return true;
+          }
+          return false;
+        }
+      };
+
+  private static volatile boolean compiling = false;
+
+  private KawaWorker() {
+  }
+
+  /**
+   * A class loader for one class path together with the Kawa entry points loaded from it.
+   */
+  private static class KawaLoader {
+    private final URLClassLoader loader;
+    private final Method processArgs;
+    private final Method runCleanups;
+    private final Method setOutDefault;
+    private final Method setErrDefault;
+    private final Constructor<?> newOutPort;
+    private final Method getModuleManager;
+    private final Method clearModules;
+    private final Field compilationTopname;
+
+    KawaLoader(String classpath) throws IOException, ReflectiveOperationException {
+      loader = new URLClassLoader(toUrls(classpath),
+          ClassLoader.getSystemClassLoader().getParent());
+      Class<?> repl = Class.forName("kawa.repl", true, loader);
+      Class<?> outPort = Class.forName("gnu.mapping.OutPort", true, loader);
+      Class<?> moduleManager = Class.forName("gnu.expr.ModuleManager", true, loader);
+      processArgs = repl.getMethod("processArgs", String[].class, int.class, int.class);
+      compilationTopname = repl.getField("compilationTopname");
+      runCleanups = outPort.getMethod("runCleanups");
+      setOutDefault = outPort.getMethod("setOutDefault", outPort);
+      setErrDefault = outPort.getMethod("setErrDefault", outPort);
+      newOutPort = outPort.getConstructor(OutputStream.class);
+      getModuleManager = moduleManager.getMethod("getInstance");
+      clearModules = moduleManager.getMethod("clear");
+    }
+
+    void compile(String[] kawaArgs, PrintStream out, PrintStream err)
+        throws ReflectiveOperationException {
+      // Kawa keeps its own ports for the standard streams, and remembers every module it has
+      // compiled. Neither may carry over from the previous build.
+      setOutDefault.invoke(null, newOutPort.newInstance(out));
+      setErrDefault.invoke(null, newOutPort.newInstance(err));
+      clearModules.invoke(getModuleManager.invoke(null));
+      compilationTopname.set(null, null);
+      processArgs.invoke(null, kawaArgs, 0, kawaArgs.length);
+      runCleanups.invoke(null);
+    }
+
+    void close() {
+      try {
+        loader.close();
+      } catch (IOException e) {
+        // The loader is no longer used.
+      }
+    }
+  }
+
+  /**
+   * Main entry point.
+   *
+   * @param args the port of the pool's server socket and the token identifying this worker
+   */
+  public static void main(String[] args) throws IOException {
+    int port = Integer.parseInt(args[0]);
+    String token = args[1];
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      final DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+      writeString(out, token);
+      out.flush();
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          if (compiling) {
+            try {
+              out.writeInt(STATUS_FAILURE);
+              out.flush();
+            } catch (IOException e) {
+              // The pool will treat the closed connection as a crashed worker.
+            }
+          }
+        }
+      });
+      while (true) {
+        String classpath;
+        try {
+          classpath = readString(in);
+        } catch (EOFException e) {
+          return;  // The pool closed the connection.
+        }
+        File outFile = new File(readString(in));
+        File errFile = new File(readString(in));
+        String[] kawaArgs = new String[in.readInt()];
+        for (int i = 0; i < kawaArgs.length; i++) {
+          kawaArgs[i] = readString(in);
+        }
+        out.writeInt(compile(classpath, kawaArgs, outFile, errFile));
+        out.flush();
+      }
+    }
+  }
+
+  private static int compile(String classpath, String[] kawaArgs, File outFile, File errFile)
+      throws IOException {
+    PrintStream oldOut = System.out;
+    PrintStream oldErr = System.err;
+    try (PrintStream compileOut = new PrintStream(new FileOutputStream(outFile), true, "UTF-8");
+         PrintStream compileErr = new PrintStream(new FileOutputStream(errFile), true, "UTF-8")) {
+      System.setOut(compileOut);
+      System.setErr(compileErr);
+      compiling = true;
+      KawaLoader kawa = LOADERS.get(classpath);
+      if (kawa == null) {
+        kawa = new KawaLoader(classpath);
+        LOADERS.put(classpath, kawa);
+      }
+      Thread.currentThread().setContextClassLoader(kawa.loader);
+      kawa.compile(kawaArgs, compileOut, compileErr);
+      return STATUS_SUCCESS;
+    } catch (InvocationTargetException e) {
+      if (e.getCause() instanceof VirtualMachineError) {
+        // Let the worker die without a status so that the pool retries on a new worker.
+        compiling = false;
+        throw (VirtualMachineError) e.getCause();
+      }
+      e.printStackTrace(oldErr);
+      return STATUS_FAILURE;
+    } catch (ReflectiveOperationException e) {
+      e.printStackTrace(oldErr);
+      return STATUS_FAILURE;
+    } finally {
+      compiling = false;
+      Thread.currentThread().setContextClassLoader(null);
+      System.setOut(oldOut);
+      System.setErr(oldErr);
+    }
+  }
+  private static URL[] toUrls(String classpath) throws MalformedURLException {
+    String[] parts = classpath.split(File.pathSeparator);
+    URL[] urls = new URL[parts.length];
+    for (int i = 0; i < parts.length; i++) {
+      urls[i] = new File(parts[i]).toURI().toURL();
+    }
+    return urls;
+  }
+
+  static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+}
@@ -0,0 +1,184 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+package com.google.appinventor.buildserver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests BuildQueue class.
+ */
+public class BuildQueueTest extends TestCase {
+  public void testTaskIsQueuedWhenAtCapacity() throws Exception {
+    BuildQueue queue = new BuildQueue(1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    queue.execute("a", new TaskThatWaits(release), null);
+    queue.execute("b", new TaskThatCountsDown(done), null);
+
+    assertEquals(1, queue.getActiveTaskCount());
+    assertEquals(1, queue.getQueuedTaskCount());
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(1, queue.getWaitedTaskCount());
+  }
+
+  public void testAdditionalTaskIsRejectedWhenQueueIsFull() throws Exception {
+    BuildQueue queue = new BuildQueue(1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    queue.execute("a", new TaskThatWaits(release), null);
+    queue.execute("b", new TaskThatWaits(release), null);
+    try {
+      queue.execute("c", new TaskThatWaits(release), null);
+      fail();
+    } catch (RejectedExecutionException e) {
+      // expected
+    } finally {
+      release.countDown();
+    }
+  }
+
+  public void testQueueOrder() throws Exception {
+    BuildQueue queue = new BuildQueue(1, 10);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(5);
+    List<String> order = Collections.synchronizedList(new ArrayList<String>());
+    List<String> positions = Collections.synchronizedList(new ArrayList<String>());
+    queue.execute("a", new TaskThatWaits(release), null);
+
+    // User a submits three builds before users b and c submit one each.
+    queue.execute("a", new TaskThatRecords("a1", order, done), new Recorder("a1", order, positions));
+    queue.execute("a", new TaskThatRecords("a2", order, done), new Recorder("a2", order, positions));
+    queue.execute("a", new TaskThatRecords("a3", order, done), new Recorder("a3", order, positions));
+    queue.execute("b", new TaskThatRecords("b1", order, done), new Recorder("b1", order, positions));
+    queue.execute("c", new TaskThatRecords("c1", order, done), new Recorder("c1", order, positions));
+
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "a3"), order);
+
+    // Positions are delivered asynchronously and may be coalesced, but never after the build
+    // has started.
+    for (String position : positions) {
+      assertFalse(position, position.endsWith("late"));
+    }
+  }
+
+  public void testPositionsAreCoalesced() throws Exception {
+    BuildQueue queue = new BuildQueue(1, 10);
+    CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch firstUpdate = new CountDownLatch(1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    final List<Integer> updates = Collections.synchronizedList(new ArrayList<Integer>());
+    queue.execute("a", new TaskThatWaits(release), null);
+    queue.execute("b", new TaskThatWaits(release), new BuildQueue.QueueListener() {
+      @Override
+      public void positionChanged(int position) {
+        firstUpdate.countDown();
+        try {
+          unblock.await();
+        } catch (InterruptedException e) {
+          // ignored
+        }
+      }
+    });
+    assertTrue(firstUpdate.await(10, TimeUnit.SECONDS));
+
+    // While the first update is being delivered, b's second build moves from 2 to 4 as other
+    // users' builds arrive, but only its latest position is sent.
+    queue.execute("b", new TaskThatWaits(release), new BuildQueue.QueueListener() {
+      @Override
+      public void positionChanged(int position) {
+        updates.add(position);
+      }
+    });
+    queue.execute("c", new TaskThatWaits(release), null);
+    queue.execute("d", new TaskThatWaits(release), null);
+    unblock.countDown();
+    long deadline = System.currentTimeMillis() + 10000;
+    while (updates.isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(100);
+    try {
+      assertEquals(Arrays.asList(4), updates);
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private static class TaskThatWaits implements Runnable {
+    private final CountDownLatch release;
+
+    private TaskThatWaits(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void run() {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        // ignored
+      }
+    }
+  }
+
+  private static class TaskThatCountsDown implements Runnable {
+    private final CountDownLatch done;
+
+    private TaskThatCountsDown(CountDownLatch done) {
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      done.countDown();
+    }
+  }
+
+  private static class TaskThatRecords implements Runnable {
+    private final String name;
+    private final List<String> order;
+    private final CountDownLatch done;
+
+    private TaskThatRecords(String name, List<String> order, CountDownLatch done) {
+      this.name = name;
+      this.order = order;
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      order.add(name);
+      done.countDown();
+    }
+  }
+
+  private static class Recorder implements BuildQueue.QueueListener {
+    private final String name;
+    private final List<String> order;
+    private final List<String> positions;
+
+    private Recorder(String name, List<String> order, List<String> positions) {
+      this.name = name;
+      this.order = order;
+      this.positions = positions;
+    }
+
+    @Override
+    public void positionChanged(int position) {
+      positions.add(name + "=" + position + (order.contains(name) ? " late" : ""));
+    }
+  }
+}
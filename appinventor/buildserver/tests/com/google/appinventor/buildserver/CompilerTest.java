@@ -0,0 +1,179 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.appinventor.buildserver.context.AndroidCompilerContext;
+import com.google.appinventor.buildserver.context.AndroidPaths;
+import com.google.appinventor.buildserver.context.CompilerContext;
+import com.google.appinventor.buildserver.interfaces.Task;
+import com.google.appinventor.buildserver.stats.NullStatReporter;
+import com.google.appinventor.buildserver.tasks.android.AttachAarLibs;
+import com.google.appinventor.buildserver.tasks.android.CompileRClasses;
+import com.google.appinventor.buildserver.tasks.android.GenerateClasses;
+import com.google.appinventor.buildserver.tasks.android.RunAapt;
+import com.google.appinventor.buildserver.tasks.android.RunD8;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link Compiler} runs tasks in the order given by their {@link DependsOn}
+ * annotations.
+ */
+public class CompilerTest {
+  private static final List<String> EVENTS = Collections.synchronizedList(
+      new ArrayList<String>());
+  private static final CyclicBarrier BOTH_RUNNING = new CyclicBarrier(2);
+
+  private AndroidCompilerContext context;
+
+  @Before
+  public void setUp() {
+    EVENTS.clear();
+    BOTH_RUNNING.reset();
+    context = new CompilerContext.Builder<AndroidPaths, AndroidCompilerContext>(null, "apk")
+        .withClass(AndroidCompilerContext.class)
+        .withTypes(Collections.<String>emptySet())
+        .withBlocks(Collections.<String, Set<String>>emptyMap())
+        .withReporter(new Reporter(null))
+        .withStatReporter(new NullStatReporter())
+        .withKeystore("test.keystore")
+        .build();
+  }
+
+  @Test
+  public void testTasksRunAfterTheirDependencies() {
+    Compiler<AndroidPaths, AndroidCompilerContext> compiler = newCompiler();
+    compiler.add(First.class);
+    compiler.add(Left.class);
+    compiler.add(Right.class);
+    compiler.add(Join.class);
+    compiler.add(Last.class);
+    assertTrue(compiler.call());
+
+    assertEquals(10, EVENTS.size());
+    assertEquals(Arrays.asList("start First", "end First"), EVENTS.subList(0, 2));
+    // Left and Right wait for each other, so they can only finish if they run at the same time.
+    assertTrue(EVENTS.subList(2, 6).containsAll(Arrays.asList(
+        "start Left", "end Left", "start Right", "end Right")));
+    assertEquals(Arrays.asList("start Join", "end Join", "start Last", "end Last"),
+        EVENTS.subList(6, 10));
+  }
+
+  @Test
+  public void testFailedTaskStopsDependents() {
+    Compiler<AndroidPaths, AndroidCompilerContext> compiler = newCompiler();
+    compiler.add(First.class);
+    compiler.add(Throws.class);
+    compiler.add(Last.class);
+    assertFalse(compiler.call());
+    assertEquals(Arrays.asList("start First", "end First"), EVENTS);
+  }
+
+  @Test
+  public void testGenerateClassesDoesNotWaitForResources() {
+    List<Class<?>> tasks = Arrays.<Class<?>>asList(AttachAarLibs.class, RunAapt.class,
+        CompileRClasses.class, GenerateClasses.class, RunD8.class);
+    int[] pending = new int[tasks.size()];
+    List<List<Integer>> dependents = Compiler.computeDependents(tasks, pending);
+    assertFalse(dependents.get(1).contains(3));
+    assertFalse(dependents.get(2).contains(3));
+    assertTrue(dependents.get(0).contains(3));
+    assertTrue(dependents.get(2).contains(4));
+    assertTrue(dependents.get(3).contains(4));
+    assertEquals(0, pending[0]);
+    assertEquals(1, pending[3]);
+    assertEquals(2, pending[4]);
+  }
+
+  private Compiler<AndroidPaths, AndroidCompilerContext> newCompiler() {
+    return new Compiler.Builder<AndroidPaths, AndroidCompilerContext>()
+        .withContext(context)
+        .withType(BuildType.APK_EXTENSION)
+        .build();
+  }
+
+  private static TaskResult record(Object task) {
+    EVENTS.add("start " + task.getClass().getSimpleName());
+    EVENTS.add("end " + task.getClass().getSimpleName());
+    return TaskResult.generateSuccess();
+  }
+
+  private static TaskResult recordTogether(Object task) {
+    EVENTS.add("start " + task.getClass().getSimpleName());
+    try {
+      BOTH_RUNNING.await(10, TimeUnit.SECONDS);
+    } catch (Exception e) {
+      return TaskResult.generateError(e);
+    }
+    EVENTS.add("end " + task.getClass().getSimpleName());
+    return TaskResult.generateSuccess();
+  }
+
+  @BuildType(apk = true, aab = true)
+  @DependsOn({})
+  public static class First implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+
+  @BuildType(apk = true, aab = true)
+  @DependsOn(First.class)
+  public static class Left implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return recordTogether(this);
+    }
+  }
+
+  @BuildType(apk = true, aab = true)
+  @DependsOn(First.class)
+  public static class Right implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return recordTogether(this);
+    }
+  }
+
+  @BuildType(apk = true, aab = true)
+  @DependsOn({Left.class, Right.class})
+  public static class Join implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+
+  /** Has no {@link DependsOn}, so it waits for every earlier task. */
+  @BuildType(apk = true, aab = true)
+  public static class Last implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      return record(this);
+    }
+  }
+
+  @BuildType(apk = true, aab = true)
+  @DependsOn(First.class)
+  public static class Throws implements Task<CompilerContext<?>> {
+    @Override
+    public TaskResult execute(CompilerContext<?> context) {
+      throw new IllegalStateException("task failed");
+    }
+  }
+}
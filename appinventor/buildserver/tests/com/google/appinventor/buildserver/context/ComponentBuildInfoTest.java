@@ -0,0 +1,84 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Sets;
+import java.util.Map;
+import java.util.Set;
+import org.codehaus.jettison.json.JSONException;
+import org.junit.Test;
+
+/**
+ * Tests the {@link ComponentBuildInfo} class.
+ */
+public class ComponentBuildInfoTest {
+  private static final String EXTENSION = "[{\"type\": \"com.example.Foo\","
+      + " \"permissions\": [\"android.permission.INTERNET\", \"\"],"
+      + " \"libraries\": [],"
+      + " \"permissionConstraints\": {\"android.permission.READ_EXTERNAL_STORAGE\":"
+      + " {\"maxSdkVersion\": 29}},"
+      + " \"conditionals\": {"
+      + "   \"permissions\": {\"Send\": [\"android.permission.SEND_SMS\"]},"
+      + "   \"permissionConstraints\": {\"Send\": {\"android.permission.SEND_SMS\":"
+      + "     {\"usesPermissionFlags\": \"neverForLocation\"}}}}},"
+      + " {\"type\": \"com.example.Bar\"}]";
+
+  @Test
+  public void testParseExtension() throws JSONException {
+    Map<String, ComponentBuildInfo> infos = ComponentBuildInfo.getExtensionComponents(EXTENSION);
+    assertEquals(Sets.newHashSet("com.example.Foo", "com.example.Bar"), infos.keySet());
+
+    ComponentBuildInfo foo = infos.get("com.example.Foo");
+    assertEquals(Sets.newHashSet("android.permission.INTERNET"), foo.getInfo("permissions"));
+    assertTrue(foo.getInfo("libraries").isEmpty());
+    assertNull(foo.getInfo("assets"));
+    assertEquals(Sets.newHashSet("android.permission.SEND_SMS"),
+        foo.getConditionals("permissions").get("Send"));
+    assertNull(foo.getConditionals("permissionConstraints"));
+    assertEquals(1, foo.getPermissionConstraints()
+        .get("android.permission.READ_EXTERNAL_STORAGE").size());
+    assertEquals(1, foo.getConditionalPermissionConstraints().get("Send").size());
+
+    ComponentBuildInfo bar = infos.get("com.example.Bar");
+    assertNull(bar.getInfo("permissions"));
+    assertNull(bar.getPermissionConstraints());
+    assertTrue(bar.getConditionalPermissionConstraints().isEmpty());
+  }
+
+  @Test
+  public void testParseLegacyExtension() throws JSONException {
+    Map<String, ComponentBuildInfo> infos = ComponentBuildInfo.getExtensionComponents(
+        "{\"type\": \"com.example.Legacy\", \"assets\": [\"a.png\"]}");
+    assertEquals(Sets.newHashSet("a.png"), infos.get("com.example.Legacy").getInfo("assets"));
+  }
+
+  @Test
+  public void testExtensionsAreIndexedByContent() throws JSONException {
+    Map<String, ComponentBuildInfo> first = ComponentBuildInfo.getExtensionComponents(EXTENSION);
+    Map<String, ComponentBuildInfo> second =
+        ComponentBuildInfo.getExtensionComponents(new String(EXTENSION));
+    assertSame(first, second);
+
+    Map<String, ComponentBuildInfo> updated = ComponentBuildInfo.getExtensionComponents(
+        EXTENSION.replace("INTERNET", "CAMERA"));
+    assertNotSame(first, updated);
+    assertEquals(Sets.newHashSet("android.permission.CAMERA"),
+        updated.get("com.example.Foo").getInfo("permissions"));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testInfoIsImmutable() throws JSONException {
+    Set<String> permissions = ComponentBuildInfo.getExtensionComponents(EXTENSION)
+        .get("com.example.Foo").getInfo("permissions");
+    permissions.add("android.permission.CAMERA");
+  }
+}
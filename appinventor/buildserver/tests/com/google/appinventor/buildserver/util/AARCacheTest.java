@@ -0,0 +1,121 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.android.ide.common.internal.AaptCruncher;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link AARCache} class.
+ */
+public class AARCacheTest {
+  private File root;
+  private AARCache cache;
+
+  @Before
+  public void setUp() {
+    root = ProjectUtils.createNewTempDir();
+    cache = new AARCache(new File(root, "cache"), "test");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(root);
+  }
+
+  @Test
+  public void testUnpackToCache() throws IOException {
+    File aar = createAar("lib.aar", "com.example.lib", "hello");
+
+    AARLibrary first = new AARLibrary(aar);
+    first.unpackToCache(cache);
+    AARLibrary second = new AARLibrary(aar);
+    second.unpackToCache(cache);
+
+    assertEquals("com.example.lib", first.getPackageName());
+    assertEquals(first.getDirectory(), second.getDirectory());
+    assertEquals(first.getContentKey(), second.getContentKey());
+    assertNotNull(first.getManifest());
+    assertNotNull(first.getClassesJar());
+    assertNotNull(first.getResDirectory());
+    // Checked through the permissions since canWrite() is always true for root.
+    assertFalse(Files.getPosixFilePermissions(first.getManifest().toPath())
+        .contains(PosixFilePermission.OWNER_WRITE));
+    assertTrue(first.getDirectory().getAbsolutePath()
+        .startsWith(cache.getCacheDir().getAbsolutePath()));
+  }
+
+  @Test
+  public void testNewVersionGetsNewEntry() throws IOException {
+    AARLibrary first = new AARLibrary(createAar("v1.aar", "com.example.lib", "hello"));
+    first.unpackToCache(cache);
+    AARLibrary second = new AARLibrary(createAar("v2.aar", "com.example.lib", "goodbye"));
+    second.unpackToCache(cache);
+
+    assertFalse(first.getContentKey().equals(second.getContentKey()));
+    assertFalse(first.getDirectory().equals(second.getDirectory()));
+  }
+
+  @Test
+  public void testMergeResourcesWithCache() throws IOException {
+    File mainRes = new File(root, "res");
+    writeFile(new File(mainRes, "values/strings.xml"),
+        "<resources><string name=\"app\">App</string></resources>");
+
+    AARLibraries libraries = new AARLibraries(new File(root, "generated"));
+    AARLibrary library = new AARLibrary(createAar("lib.aar", "com.example.lib", "hello"));
+    library.unpackToCache(cache);
+    libraries.add(library);
+
+    File merged = new File(root, "merged");
+    assertTrue(libraries.mergeResources(merged, mainRes, new AaptCruncher("aapt", null, null),
+        cache));
+    String values = FileUtils.readFileToString(new File(merged, "values/values.xml"), "UTF-8");
+    assertTrue(values.contains("hello"));
+    assertTrue(values.contains("App"));
+    assertEquals(1, new File(cache.getCacheDir(), "merged-res").list().length);
+  }
+
+  private File createAar(String name, String packageName, String greeting) throws IOException {
+    File aar = new File(root, name);
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(aar))) {
+      addEntry(out, "AndroidManifest.xml", "<manifest "
+          + "xmlns:android=\"http://schemas.android.com/apk/res/android\" package=\""
+          + packageName + "\"/>");
+      addEntry(out, "classes.jar", "");
+      addEntry(out, "res/values/values.xml",
+          "<resources><string name=\"greeting\">" + greeting + "</string></resources>");
+    }
+    return aar;
+  }
+
+  private static void addEntry(ZipOutputStream out, String name, String contents)
+      throws IOException {
+    out.putNextEntry(new ZipEntry(name));
+    out.write(contents.getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+  }
+
+  private static void writeFile(File file, String contents) throws IOException {
+    FileUtils.writeStringToFile(file, contents, "UTF-8");
+  }
+}
@@ -0,0 +1,91 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.buildserver.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BuildCache} class.
+ */
+public class BuildCacheTest {
+  private File root;
+  private BuildCache cache;
+
+  @Before
+  public void setUp() {
+    root = ProjectUtils.createNewTempDir();
+    cache = new BuildCache(new File(root, "cache"), 0, "test");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(root);
+  }
+
+  @Test
+  public void testKeyIgnoresDirectoryLocation() throws IOException {
+    File first = makeTree(new File(root, "first"), "hello");
+    File second = makeTree(new File(root, "second"), "hello");
+    assertEquals(cache.newKey("Task").addFile("res", first).toHex(),
+        cache.newKey("Task").addFile("res", second).toHex());
+  }
+
+  @Test
+  public void testKeyDependsOnContent() throws IOException {
+    File first = makeTree(new File(root, "first"), "hello");
+    File second = makeTree(new File(root, "second"), "world");
+    assertNotEquals(cache.newKey("Task").addFile("res", first).toHex(),
+        cache.newKey("Task").addFile("res", second).toHex());
+  }
+
+  @Test
+  public void testStoreAndRestore() throws IOException {
+    File input = makeTree(new File(root, "input"), "hello");
+    File output = makeTree(new File(root, "output"), "merged");
+    List<File> outputs = Collections.singletonList(output);
+
+    BuildCache.Key key = cache.newKey("Task").addFile("res", input);
+    assertFalse(cache.restore(key, outputs));
+    cache.store(key, outputs);
+
+    File restored = new File(root, "restored");
+    key = cache.newKey("Task").addFile("res", input);
+    assertTrue(cache.restore(key, Collections.singletonList(restored)));
+    assertEquals("merged", FileUtils.readFileToString(new File(restored, "values/strings.xml"),
+        "UTF-8"));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    BuildCache small = new BuildCache(new File(root, "small"), 10, "test");
+    File output = makeTree(new File(root, "output"), "more than ten bytes");
+    List<File> outputs = Collections.singletonList(output);
+    BuildCache.Key key = small.newKey("Task").addString("input", "a");
+    small.store(key, outputs);
+    key = small.newKey("Task").addString("input", "a");
+    assertFalse(small.restore(key, Collections.singletonList(new File(root, "restored"))));
+  }
+
+  private static File makeTree(File dir, String content) throws IOException {
+    FileUtils.writeStringToFile(new File(dir, "values/strings.xml"), content,
+        "UTF-8");
+    return dir;
+  }
+}
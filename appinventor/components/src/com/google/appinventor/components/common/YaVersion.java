@@ -596,7 +596,13 @@ public class YaVersion {
   // - TRENDLINE_COMPONENT_VERSION was introduced
   // For YOUNG_ANDROID_VERSION 228:
   // - Renamed LineOfBestFit to Trendline
-  public static final int YOUNG_ANDROID_VERSION = 228;
+  // For YOUNG_ANDROID_VERSION 229:
+  // - WEB_COMPONENT_VERSION was incremented to 10
+  // For YOUNG_ANDROID_VERSION 230:
+  // - TINYDB_COMPONENT_VERSION was incremented to 4
+  // For YOUNG_ANDROID_VERSION 231:
+  // - CLOUDDB_COMPONENT_VERSION was incremented to 3
+  public static final int YOUNG_ANDROID_VERSION = 231;
 
   // ............................... Blocks Language Version Number ...............................
 
@@ -1463,7 +1469,9 @@ public class YaVersion {
   // - Added Property: Namespace
   // For TINYDB_COMPONENT_VERSION 3:
   // - Added GetEntries method
-  public static final int TINYDB_COMPONENT_VERSION = 3;
+  // For TINYDB_COMPONENT_VERSION 4:
+  // - Added BatchWrites property and StoreValues method
+  public static final int TINYDB_COMPONENT_VERSION = 4;
 
   // For TINYWEBDB_COMPONENT_VERSION 2:
   // - The TinyWebDB.ShowAlert method was removed. Notifier.ShowAlert should be used instead.
@@ -1483,7 +1491,9 @@ public class YaVersion {
   // For CLOUDDB_COMPONENT_VERSION 2:
   // - Added the UpdateDone event
   //   to control its use
-  public static final int CLOUDDB_COMPONENT_VERSION = 2;
+  // For CLOUDDB_COMPONENT_VERSION 3:
+  // - Added the StoreValues and GetValues methods
+  public static final int CLOUDDB_COMPONENT_VERSION = 3;
 
   // For TRENDLINE_COMPONENT_VERSION 1:
   // - Initial implementation
@@ -1570,7 +1580,9 @@ public class YaVersion {
   // - PATCH methods added (PatchText, PatchTextWithEncoding, and PatchFile).
   // For WEB_COMPONENT_VERSION 9:
   // - Added property ResponseTextEncoding
-  public static final int WEB_COMPONENT_VERSION = 9;
+  // For WEB_COMPONENT_VERSION 10:
+  // - Added property CacheResponses
+  public static final int WEB_COMPONENT_VERSION = 10;
 
   // For WEBVIEWER_COMPONENT_VERSION 2:
   // - The CanGoForward and CanGoBack methods were added
@@ -140,7 +140,10 @@ public class BarChartDataModel
         // have to instead set the Y value of the Entry to be
         // removed to 0 in order to preserve the Bar Chart Data
         // properties (x values sorted and correspond to indexes)
-        entries.get(index).setY(0f);
+        BarEntry entry = entries.get(index);
+        entry.setY(0f);
+        // Set the entry again, since its key in the index of entries changed.
+        entries.set(index, entry);
       }
     }
   }
@@ -181,6 +184,14 @@ public class BarChartDataModel
         && e1.getY() == e2.getY();
   }
 
+  @Override
+  protected Object getEntryKey(Entry entry) {
+    if (!(entry instanceof BarEntry) || Float.isNaN(entry.getY())) {
+      return null;
+    }
+    return getPointKey((float) Math.floor(entry.getX()), entry.getY());
+  }
+
   @Override
   public YailList getTupleFromEntry(Entry entry) {
     // Create a list with the X and Y values of the entry, and
@@ -130,7 +130,8 @@ public final class BluetoothServer extends BluetoothConnectionBase {
       return;
     }
 
-    AsynchUtil.runAsynchronously(new Runnable() {
+    // Waiting for a connection may take forever, so it gets its own thread.
+    AsynchUtil.runOnNewThread(new Runnable() {
       public void run() {
         BluetoothSocket acceptedSocket = null;
 
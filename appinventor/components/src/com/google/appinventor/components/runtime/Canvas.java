@@ -24,6 +24,7 @@ import android.graphics.RectF;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
 
 import android.text.TextUtils;
 
@@ -74,6 +75,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -179,6 +183,23 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
   // sorted by increasing sprite.Z().
   private final List<Sprite> sprites;
 
+  // Index of the sprites' locations, used to find possible collisions
+  private final SpriteGrid spriteGrid = new SpriteGrid();
+
+  // Sprites that have changed since collisions were last checked. Collisions are
+  // checked once for all of the sprites moved while handling the same event, such
+  // as a Clock tick, rather than each time a sprite moves.
+  private final Set<Sprite> changedSprites = new LinkedHashSet<Sprite>();
+  private final Handler androidUIHandler = new Handler();
+  private boolean collisionCheckPosted = false;
+  private final Runnable collisionCheck = new Runnable() {
+    @Override
+    public void run() {
+      collisionCheckPosted = false;
+      checkPendingCollisions();
+    }
+  };
+
   // Handle touches and drags
   private final MotionEventParser motionEventParser;
 
@@ -852,6 +873,8 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    */
   void removeSprite(Sprite sprite) {
     sprites.remove(sprite);
+    spriteGrid.remove(sprite);
+    changedSprites.remove(sprite);
   }
 
   /**
@@ -861,7 +884,7 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param sprite the Sprite whose Z property has changed
    */
   void changeSpriteLayer(Sprite sprite) {
-    removeSprite(sprite);
+    sprites.remove(sprite);
     addSprite(sprite);
     view.invalidate();
   }
@@ -900,13 +923,37 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
 
   /**
    * Indicates that a sprite has changed, triggering invalidation of the view
-   * and a check for collisions.
+   * and a check for collisions once the current event has been handled.
    *
    * @param sprite the sprite whose location, size, or appearance has changed
    */
   void registerChange(Sprite sprite) {
     view.invalidate();
-    findSpriteCollisions(sprite);
+    changedSprites.add(sprite);
+    if (!collisionCheckPosted) {
+      collisionCheckPosted = true;
+      androidUIHandler.post(collisionCheck);
+    }
+  }
+
+  /**
+   * Checks for collisions involving the sprites that have changed since the
+   * last check.  Each pair of changed sprites is only checked once.
+   */
+  void checkPendingCollisions() {
+    if (changedSprites.isEmpty()) {
+      return;
+    }
+    List<Sprite> changed = new ArrayList<Sprite>(changedSprites);
+    changedSprites.clear();
+    for (Sprite sprite : changed) {
+      spriteGrid.update(sprite);
+    }
+    Set<Sprite> checked = new HashSet<Sprite>();
+    for (Sprite sprite : changed) {
+      findSpriteCollisions(sprite, checked);
+      checked.add(sprite);
+    }
   }
 
 
@@ -928,10 +975,22 @@ public final class Canvas extends AndroidViewComponent implements ComponentConta
    * @param movedSprite the sprite that has just changed position
    */
   protected void findSpriteCollisions(Sprite movedSprite) {
-    for (Sprite sprite : sprites) {
-      if (sprite != movedSprite) {
+    spriteGrid.update(movedSprite);
+    findSpriteCollisions(movedSprite, Collections.<Sprite>emptySet());
+  }
+
+  private void findSpriteCollisions(Sprite movedSprite, Set<Sprite> alreadyChecked) {
+    // Only sprites that share a cell of the grid with the moved sprite can be
+    // colliding with it, but sprites it was colliding with must be checked too
+    // in case it has moved away from them.
+    Set<Sprite> candidates = new LinkedHashSet<Sprite>();
+    spriteGrid.getNeighbors(movedSprite, candidates);
+    movedSprite.getRegisteredCollisions(candidates);
+    for (Sprite sprite : candidates) {
+      if (sprite != movedSprite && !alreadyChecked.contains(sprite)
+          && spriteGrid.contains(sprite)) {
         // Check whether we already raised an event for their collision.
-        if (movedSprite.CollidingWith(sprite)) {
+        if (movedSprite.hasRegisteredCollision(sprite)) {
           // If they no longer conflict, note that.
           if (!movedSprite.Visible() || !movedSprite.Enabled() ||
               !sprite.Visible() || !sprite.Enabled() ||
@@ -11,11 +11,14 @@ import com.github.mikephil.charting.data.DataSet;
 import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.interfaces.datasets.IDataSet;
+import com.google.appinventor.components.runtime.util.RingBufferList;
 import com.google.appinventor.components.runtime.util.YailList;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -39,6 +42,7 @@ public abstract class ChartDataModel<
   protected D data;
   protected T dataset;
   protected V view;
+  private final EntryList entryList = new EntryList();
 
   /**
    * Initializes a new ChartDataModel object instance.
@@ -50,7 +54,7 @@ public abstract class ChartDataModel<
     this.data = data;
     this.view = view;
 
-    entries = new ArrayList<>();
+    entries = entryList;
   }
 
   /**
@@ -306,6 +310,16 @@ public abstract class ChartDataModel<
    * @return index of the entry, or -1 if entry is not found
    */
   public int findEntryIndex(Entry entry) {
+    if (entry == null) {
+      return -1;
+    }
+
+    // Use the index of the entries if the entry can be looked up in it.
+    Object key = getEntryKey(entry);
+    if (key != null && entries == entryList) {
+      return entryList.indexOfKey(key);
+    }
+
     for (int i = 0; i < entries.size(); ++i) {
       Entry currentEntry = entries.get(i);
 
@@ -399,6 +413,37 @@ public abstract class ChartDataModel<
     return e1.equalTo(e2);
   }
 
+  /**
+   * Returns a key identifying the specified entry, such that two entries
+   * have equal keys exactly when {@link #areEntriesEqual(Entry, Entry)}
+   * considers them equal. The keys are used to find entries without
+   * comparing against every entry of the Data Series.
+   *
+   * <p>Subclasses that override {@link #areEntriesEqual(Entry, Entry)} must
+   * override this method as well, or return null to have the entries
+   * compared one by one.
+   *
+   * @param entry Entry to get the key of
+   * @return key of the entry, or null if the entry cannot be looked up by key
+   */
+  protected Object getEntryKey(Entry entry) {
+    // equalTo() compares the data objects by reference, and NaN values
+    // do not compare as expected, so such entries are not indexed.
+    if (entry.getData() != null || Float.isNaN(entry.getX()) || Float.isNaN(entry.getY())) {
+      return null;
+    }
+    return getPointKey(entry.getX(), entry.getY());
+  }
+
+  /**
+   * Combines an x and a y value into a key for {@link #getEntryKey(Entry)}.
+   * Adding 0 turns -0 into 0, which compares equal to it.
+   */
+  protected static Long getPointKey(float x, float y) {
+    return ((long) Float.floatToIntBits(x + 0f) << 32)
+        | (Float.floatToIntBits(y + 0f) & 0xffffffffL);
+  }
+
   /**
    * Returns the entries of the Chart Data Model.
    *
@@ -407,4 +452,126 @@ public abstract class ChartDataModel<
   public List<E> getEntries() {
     return Collections.unmodifiableList(entries);
   }
+
+  /**
+   * The list of entries of the Data Series, together with an index from
+   * the keys of the entries to their positions.
+   *
+   * <p>Entries are kept in a ring buffer, so that removing the oldest entry
+   * when adding a time entry does not move the rest. Each indexed entry is
+   * given a sequence number when added to the end of the list, and its
+   * position is its sequence number minus the number of entries removed
+   * from the start since then. This keeps the index valid while entries are
+   * only added at the end and removed at the start, as for time entries.
+   * Any other change discards the index, and it is rebuilt when next
+   * needed, which costs no more than the search it replaces.</p>
+   */
+  private final class EntryList extends RingBufferList<E> {
+    private Map<Object, Slot> index = new HashMap<>();
+    // The sequence number of the first entry of the list.
+    private long offset;
+
+    int indexOfKey(Object key) {
+      if (index == null) {
+        rebuildIndex();
+      }
+      Slot slot = index.get(key);
+      return slot == null ? -1 : (int) (slot.first - offset);
+    }
+
+    @Override
+    public void add(int position, E element) {
+      super.add(position, element);
+      if (index != null) {
+        if (position == size() - 1) {
+          addToIndex(element, offset + position);
+        } else {
+          index = null;
+        }
+      }
+    }
+
+    @Override
+    public E set(int position, E element) {
+      E old = super.set(position, element);
+      index = null;
+      return old;
+    }
+
+    @Override
+    public E remove(int position) {
+      E old = super.remove(position);
+      if (index != null) {
+        if (position == 0) {
+          removeFirstFromIndex(old);
+        } else {
+          index = null;
+        }
+      }
+      return old;
+    }
+
+    @Override
+    public void clear() {
+      super.clear();
+      index = new HashMap<>();
+      offset = 0;
+    }
+
+    private void addToIndex(E element, long sequence) {
+      Object key = getEntryKey(element);
+      if (key != null) {
+        Slot slot = index.get(key);
+        if (slot == null) {
+          index.put(key, new Slot(sequence));
+        } else {
+          slot.count++;
+        }
+      }
+    }
+
+    private void removeFirstFromIndex(E element) {
+      offset++;
+      Object key = getEntryKey(element);
+      if (key == null) {
+        return;
+      }
+      Slot slot = index.get(key);
+      if (slot == null) {
+        return;
+      }
+      if (--slot.count == 0) {
+        index.remove(key);
+        return;
+      }
+      // Only duplicate entries get here; look for the next one with the same key.
+      for (int i = 0; i < size(); i++) {
+        if (key.equals(getEntryKey(get(i)))) {
+          slot.first = offset + i;
+          return;
+        }
+      }
+    }
+
+    private void rebuildIndex() {
+      index = new HashMap<>();
+      offset = 0;
+      for (int i = 0; i < size(); i++) {
+        addToIndex(get(i), i);
+      }
+    }
+  }
+
+  /**
+   * The position of the first entry with a given key, and the number of
+   * entries with that key.
+   */
+  private static final class Slot {
+    long first;
+    int count = 1;
+
+    Slot(long first) {
+      this.first = first;
+    }
+  }
 }
@@ -37,10 +37,12 @@ import com.google.appinventor.components.common.YaVersion;
 
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
+import com.google.appinventor.components.runtime.util.AsynchUtil;
 import com.google.appinventor.components.runtime.util.BulkPermissionRequest;
 import com.google.appinventor.components.runtime.util.CloudDBJedisListener;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.JsonUtil;
+import com.google.appinventor.components.runtime.util.YailDictionary;
 import com.google.appinventor.components.runtime.util.YailList;
 
 import java.io.ByteArrayInputStream;
@@ -54,13 +56,14 @@ import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -74,6 +77,8 @@ import org.json.JSONException;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisShardInfo;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.exceptions.JedisConnectionException;
 import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.exceptions.JedisException;
@@ -234,12 +239,13 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
   private volatile boolean listenerRunning = false;
 
   // To avoid blocking the UI thread, we do most Jedis operations in the background.
-  // Rather then spawning a new thread for each request, we use an ExcutorService with
-  // a single background thread to perform all the Jedis work. Using a single thread
+  // Rather then spawning a new thread for each request, we use a serial ExcutorService
+  // to perform all the Jedis work one task at a time. Running one task at a time
   // also means that we can share a single Jedis connection and not worry about thread
-  // synchronization.
+  // synchronization. It is not cancelled when the form is destroyed, so that pending
+  // stores are still sent.
 
-  private volatile ExecutorService background = Executors.newSingleThreadExecutor();
+  private volatile ExecutorService background = AsynchUtil.newSerialExecutor();
 
   // Store can be called frequenly and quickly in some situations. For example
   // using store inside of a Canvas Drag event (for realtime updating of a remote
@@ -585,146 +591,152 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
   @SimpleFunction(description = "Store a value at a tag.")
   public void StoreValue(final String tag, final Object valueToStore) {
     checkProjectIDNotBlank();
-    final String value;
-    NetworkInfo networkInfo = cm.getActiveNetworkInfo();
-    boolean isConnected = networkInfo != null && networkInfo.isConnected();
+    String value = toStoredValue(valueToStore);
+    if (CloudConnected()) {
+      if (DEBUG) {
+        Log.d(LOG_TAG,"Device is online...");
+      }
+      enqueueStore(Collections.singletonList(new storedValue(tag, toValueList(value))));
+    } else {
+      CloudDBError("Cannot store values off-line.");
+    }
+  }
+
+  /**
+   * Asks `CloudDB` to store each value of the given `values`{:.dictionary.block} under its
+   * key. All the values are sent to the server together, which is much faster than storing
+   * them one at a time.
+   *
+   * @param values The dictionary of tags and the values to store under them.
+   */
+  @SimpleFunction(description = "Store each value of a dictionary at its key. The values are "
+      + "sent to the server together.")
+  public void StoreValues(final YailDictionary values) {
+    checkProjectIDNotBlank();
+    // Convert every value before storing any, so that nothing is stored if one fails.
+    List<storedValue> work = new ArrayList<storedValue>();
+    for (Map.Entry<Object, Object> entry : values.entrySet()) {
+      work.add(new storedValue(entry.getKey().toString(),
+          toValueList(toStoredValue(entry.getValue()))));
+    }
+    if (CloudConnected()) {
+      enqueueStore(work);
+    } else {
+      CloudDBError("Cannot store values off-line.");
+    }
+  }
 
+  private String toStoredValue(Object valueToStore) {
     try {
       if (valueToStore != null) {
         String strval = valueToStore.toString();
         if (strval.startsWith("file:///") || strval.startsWith("/storage")) {
-          value = JsonUtil.getJsonRepresentation(readFile(strval));
+          return JsonUtil.getJsonRepresentation(readFile(strval));
         } else {
-          value = JsonUtil.getJsonRepresentation(valueToStore);
+          return JsonUtil.getJsonRepresentation(valueToStore);
         }
       } else {
-        value = "";
+        return "";
       }
     } catch(JSONException e) {
       throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
     }
+  }
 
-    if (isConnected) {
-      if (DEBUG) {
-        Log.d(LOG_TAG,"Device is online...");
-      }
-      synchronized(storeQueue) {
-        boolean kickit = false;
-        if (storeQueue.size() == 0) { // Need to kick off the background task
-          if (DEBUG) {
-            Log.d(LOG_TAG, "storeQueue is zero length, kicking background");
-          }
-          kickit = true;
-        } else {
-          if (DEBUG) {
-            Log.d(LOG_TAG, "storeQueue has " + storeQueue.size() + " entries");
-          }
+  private static JSONArray toValueList(String value) {
+    JSONArray valueList = new JSONArray();
+    try {
+      valueList.put(0, value);
+    } catch (JSONException e) {
+      throw new YailRuntimeError("JSON Error putting value.", "value is not convertable");
+    }
+    return valueList;
+  }
+
+  /**
+   * Adds values to the queue of pending stores, and starts a background task to send
+   * them if the queue was empty. The background task takes everything in the queue at
+   * once and sends it to the server in a single pipeline, so values stored while a
+   * previous batch is in flight go out together in the next one.
+   */
+  private void enqueueStore(List<storedValue> work) {
+    synchronized(storeQueue) {
+      boolean kickit = false;
+      if (storeQueue.size() == 0) { // Need to kick off the background task
+        if (DEBUG) {
+          Log.d(LOG_TAG, "storeQueue is zero length, kicking background");
         }
-        JSONArray valueList = new JSONArray();
-        try {
-          valueList.put(0, value);
-        } catch (JSONException e) {
-          throw new YailRuntimeError("JSON Error putting value.", "value is not convertable");
+        kickit = true;
+      } else {
+        if (DEBUG) {
+          Log.d(LOG_TAG, "storeQueue has " + storeQueue.size() + " entries");
         }
-        storedValue work  = new storedValue(tag, valueList);
-        storeQueue.add(work);
-        if (kickit) {
-          background.submit(new Runnable() {
-              public void run() {
-                JSONArray pendingValueList = null;
+      }
+      storeQueue.addAll(work);
+      if (kickit) {
+        background.submit(new Runnable() {
+            public void run() {
+              try {
+                List<storedValue> work;
+                if (DEBUG) {
+                  Log.d(LOG_TAG, "store background task running.");
+                }
+                synchronized(storeQueue) {
+                  work = new ArrayList<storedValue>(storeQueue);
+                  storeQueue.clear();
+                }
+                if (DEBUG) {
+                  Log.d(LOG_TAG, "store: got " + work.size() + " values.");
+                }
+
+                // Consecutive stores to the same tag are combined: the last value is
+                // stored and all of them are published, as a list, to listeners.
+                List<String[]> commands = new ArrayList<String[]>();
                 String pendingTag = null;
+                JSONArray pendingValueList = null;
                 String pendingValue = null;
-                try {
-                  storedValue work;
+                for (storedValue value : work) {
+                  String tag = value.getTag();
+                  JSONArray valueList = value.getValueList();
+                  if (pendingTag != null && pendingTag.equals(tag)) {
+                    pendingValue = valueList.getString(0);
+                    pendingValueList.put(pendingValue);
+                    continue;
+                  }
+                  if (pendingTag != null) {
+                    commands.add(new String[] { pendingTag, pendingValue,
+                        pendingValueList.toString(), projectID });
+                  }
+                  pendingTag = tag;
+                  pendingValueList = valueList;
+                  pendingValue = valueList.getString(0);
+                }
+                if (pendingTag == null) {
                   if (DEBUG) {
-                    Log.d(LOG_TAG, "store background task running.");
+                    Log.d(LOG_TAG, "store background task exiting.");
                   }
-                  while (true) {
-                    synchronized(storeQueue) {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "store: In background synchronized block");
-                      }
-                      int size = storeQueue.size();
-                      if (size == 0) {
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store background task exiting.");
-                        }
-                        work = null;
-                      } else {
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store: storeQueue.size() == " + size);
-                        }
-                        work = storeQueue.remove(0);
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "store: got work.");
-                        }
-                      }
-                    }
-                    if (DEBUG) {
-                      Log.d(LOG_TAG, "store: left synchronized block");
-                    }
-                    if (work == null) {
-                      try {
-                        if (pendingTag != null) {
-                          String jsonValueList = pendingValueList.toString();
-                          if (DEBUG) {
-                            Log.d(LOG_TAG, "Workqueue empty, sending pendingTag, valueListLength = " + pendingValueList.length());
-                          }
-                          jEval(SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, 1, pendingTag, pendingValue, jsonValueList, projectID);
-                          UpdateDone(pendingTag, "StoreValue");
-                        }
-                      } catch (JedisException e) {
-                        CloudDBError(e.getMessage());
-                        flushJedis(true);
-                      }
-                      return;
-                    }
-
-                    String tag = work.getTag();
-                    JSONArray valueList = work.getValueList();
-                    if (tag == null || valueList == null) {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "Either tag or value is null!");
-                      }
-                    } else {
-                      if (DEBUG) {
-                        Log.d(LOG_TAG, "Got Work: tag = " + tag + " value = " + valueList.get(0));
-                      }
-                    }
-                    if (pendingTag == null) { // First time through this invocation
-                      pendingTag = tag;
-                      pendingValueList = valueList;
-                      pendingValue = valueList.getString(0);
-                    } else if (pendingTag.equals(tag)) { // work is for the same tag
-                      pendingValue = valueList.getString(0);
-                      pendingValueList.put(pendingValue);
-                    } else {    // Work is for a different tag, send what we have
-                      try {     // and add the new tag,incoming valuelist for the next round
-                        String jsonValueList = pendingValueList.toString();
-                        if (DEBUG) {
-                          Log.d(LOG_TAG, "pendingTag changed sending pendingTag, valueListLength = " + pendingValueList.length());
-                        }
-                        jEval(SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, 1, pendingTag, pendingValue, jsonValueList, projectID);
-                      } catch (JedisException e) {
-                        CloudDBError(e.getMessage());
-                        flushJedis(true);
-                        storeQueue.clear(); // Flush pending changes, we are in
-                        return;             // an error state
-                      }
-                      pendingTag = tag;
-                      pendingValueList = valueList;
-                      pendingValue = valueList.getString(0);
-                    }
+                  return;
+                }
+                commands.add(new String[] { pendingTag, pendingValue,
+                    pendingValueList.toString(), projectID });
+                try {
+                  if (DEBUG) {
+                    Log.d(LOG_TAG, "Sending " + commands.size() + " tags");
                   }
-                } catch (Exception e) {
-                Log.e(LOG_TAG, "Exception in store worker!", e);
+                  jEvalAll(SET_SUB_SCRIPT, SET_SUB_SCRIPT_SHA1, 1, commands);
+                  UpdateDone(pendingTag, "StoreValue");
+                } catch (JedisException e) {
+                  CloudDBError(e.getMessage());
+                  flushJedis(true);
+                  storeQueue.clear(); // Flush pending changes, we are in
+                                      // an error state
                 }
+              } catch (Exception e) {
+                Log.e(LOG_TAG, "Exception in store worker!", e);
               }
-            });
-        }
+            }
+          });
       }
-    } else {
-      CloudDBError("Cannot store values off-line.");
     }
   }
 
@@ -782,6 +794,41 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  /**
+   * `GetValues` asks `CloudDB` to get the values stored under each of the given tags,
+   * which are all fetched from the server together. A {@link #GotValue(String, Object)}
+   * event is triggered for each tag. If there is no value stored under a tag, the
+   * `valueIfTagNotThere`{:.variable.block} will be given.
+   *
+   * @param tags The list of tags whose values are to be retrieved.
+   * @param valueIfTagNotThere The value to pass to the event for tags that do not exist.
+   */
+  @SimpleFunction(description = "Get the Values for a list of tags. GotValue events are "
+      + "triggered for each tag once the values have been looked up together.")
+  public void GetValues(final YailList tags, final Object valueIfTagNotThere) {
+    checkProjectIDNotBlank();
+    final String[] tagArray = tags.toStringArray();
+    if (CloudConnected()) {
+      background.submit(new Runnable() {
+          public void run() {
+            final List<Object> values = getValuesByTags(tagArray, valueIfTagNotThere);
+            if (values == null) {
+              return;
+            }
+            androidUIHandler.post(new Runnable() {
+                public void run() {
+                  for (int i = 0; i < tagArray.length; i++) {
+                    GotValue(tagArray[i], values.get(i));
+                  }
+                }
+              });
+          }
+        });
+    } else {
+      CloudDBError("Cannot fetch variables while off-line.");
+    }
+  }
+
   /**
    * Gets the specified value from the underlying Redis database, or
    * returns the specified value if the tag is not present.
@@ -805,19 +852,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
       if (DEBUG) {
         Log.d(LOG_TAG, "finished call jedis.get()");
       }
-      if (returnValue != null) {
-        String val = JsonUtil.getJsonRepresentationIfValueFileName(form, returnValue);
-        if (val != null) {
-          value.set(val);
-        } else {
-          value.set(returnValue);
-        }
-      } else {
-        if (DEBUG) {
-          Log.d(CloudDB.LOG_TAG,"Value retrieved is null");
-        }
-        value.set(JsonUtil.getJsonRepresentation(valueIfTagNotThere));
-      }
+      value.set(toGotValue(returnValue, valueIfTagNotThere));
     } catch (JSONException e) {
       CloudDBError("JSON conversion error for " + tag);
       value.set(null);
@@ -834,6 +869,60 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
 
     return value;
   }
+
+  /**
+   * Gets the values of several tags from the underlying Redis database with a
+   * single request.
+   *
+   * @param tags  tags of the values to get
+   * @param valueIfTagNotThere  value to use for the tags that are not present
+   * @return  the values in the same order as the tags, or null in case of exceptions
+   */
+  private List<Object> getValuesByTags(final String[] tags, final Object valueIfTagNotThere) {
+    if (tags.length == 0) {
+      return Collections.emptyList();
+    }
+    String[] keys = new String[tags.length];
+    for (int i = 0; i < tags.length; i++) {
+      keys[i] = projectID + ":" + tags[i];
+    }
+    Jedis jedis = getJedis();
+    try {
+      List<String> returnValues = jedis.mget(keys);
+      List<Object> values = new ArrayList<Object>(tags.length);
+      for (String returnValue : returnValues) {
+        values.add(toGotValue(returnValue, valueIfTagNotThere));
+      }
+      return values;
+    } catch (JSONException e) {
+      CloudDBError("JSON conversion error for " + Arrays.toString(tags));
+    } catch (NullPointerException e) {
+      CloudDBError("System Error getting tags " + Arrays.toString(tags));
+      flushJedis(true);
+    } catch (JedisException e) {
+      Log.e(LOG_TAG, "Exception in GetValues", e);
+      CloudDBError(e.getMessage());
+      flushJedis(true);
+    }
+    return null;
+  }
+
+  /**
+   * Converts a value read from the Redis database into the value passed to
+   * {@link #GotValue(String, Object)}.
+   */
+  private String toGotValue(String returnValue, Object valueIfTagNotThere)
+      throws JSONException {
+    if (returnValue != null) {
+      String val = JsonUtil.getJsonRepresentationIfValueFileName(form, returnValue);
+      return val != null ? val : returnValue;
+    } else {
+      if (DEBUG) {
+        Log.d(CloudDB.LOG_TAG,"Value retrieved is null");
+      }
+      return JsonUtil.getJsonRepresentation(valueIfTagNotThere);
+    }
+  }
  
   /**
    * Returns `true`{:.logic.block} if we are on the network and will likely be able to connect to
@@ -1290,7 +1379,7 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
           if (DEBUG) {
             Log.d(LOG_TAG, "Killing background executor, returned tasks = " + tasks);
           }
-          background = Executors.newSingleThreadExecutor();
+          background = AsynchUtil.newSerialExecutor();
         }
       });
 
@@ -1364,6 +1453,49 @@ public class CloudDB extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  /**
+   * Runs a script once for each of the given argument lists, sending all of them to the
+   * server in a single pipeline rather than waiting for each result in turn.
+   *
+   * @return the result of each run, in order
+   */
+  public List<Object> jEvalAll(String script, String scriptsha1, int argcount,
+      List<String[]> argsList) throws JedisException {
+    Jedis jedis = getJedis();
+    Pipeline pipeline = jedis.pipelined();
+    List<Response<Object>> responses = new ArrayList<Response<Object>>();
+    for (String[] args : argsList) {
+      responses.add(pipeline.evalsha(scriptsha1, argcount, args));
+    }
+    pipeline.sync();
+    List<Object> results = new ArrayList<Object>();
+    List<Integer> missing = new ArrayList<Integer>();
+    for (int i = 0; i < responses.size(); i++) {
+      try {
+        results.add(responses.get(i).get());
+      } catch (JedisNoScriptException e) {
+        results.add(null);
+        missing.add(i);
+      }
+    }
+    if (!missing.isEmpty()) {
+      if (DEBUG) {
+        Log.d(LOG_TAG, "Got a JedisNoScriptException for " + scriptsha1);
+      }
+      // As in jEval, use regular eval if the server doesn't have the script loaded
+      pipeline = jedis.pipelined();
+      responses.clear();
+      for (int i : missing) {
+        responses.add(pipeline.eval(script, argcount, argsList.get(i)));
+      }
+      pipeline.sync();
+      for (int i = 0; i < missing.size(); i++) {
+        results.set(missing.get(i), responses.get(i).get());
+      }
+    }
+    return results;
+  }
+
   // We are synchronized because we are called simultaneously from two
   // different threads. Rather then do the work twice, the first one
   // does the work and the second one waits!
@@ -18,17 +18,22 @@ import com.google.appinventor.components.common.ComponentCategory;
 import com.google.appinventor.components.common.PropertyTypeConstants;
 import com.google.appinventor.components.common.YaVersion;
 
-import com.google.appinventor.components.runtime.util.ChartDataSourceUtil;
-import com.google.appinventor.components.runtime.util.CsvUtil;
-import com.google.appinventor.components.runtime.util.JsonUtil;
+import com.google.appinventor.components.runtime.util.AsynchUtil;
+import com.google.appinventor.components.runtime.util.DataTable;
+import com.google.appinventor.components.runtime.util.IOUtils;
 import com.google.appinventor.components.runtime.util.YailList;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+
 import java.util.ArrayList;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import org.json.JSONException;
@@ -54,9 +59,9 @@ import org.json.JSONException;
 @SimpleObject
 public class DataFile extends FileBase implements DataSource<YailList, Future<YailList>> {
 
-  private YailList rows;
-  private YailList columns;
-  private YailList columnNames; // Elements of the first column
+  // The parsed contents of the file. The Rows, Columns and ColumnNames
+  // lists are created from the table when they are first requested.
+  private volatile DataTable table;
 
   private final ExecutorService threadRunner; // Used to queue & execute asynchronous tasks
 
@@ -68,11 +73,9 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
   public DataFile(ComponentContainer container) {
     super(container);
 
-    rows = new YailList();
-    columns = new YailList();
-    columnNames = new YailList();
+    table = new DataTable();
 
-    threadRunner = Executors.newSingleThreadExecutor();
+    threadRunner = AsynchUtil.newSerialExecutor(container.$form());
   }
 
   /**
@@ -86,7 +89,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() {
-        return rows;
+        return table.getRows();
       }
     });
   }
@@ -103,7 +106,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() {
-        return columns;
+        return table.getColumns();
       }
     });
   }
@@ -121,7 +124,7 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     return getYailListPropertyHelper(new Callable<YailList>() {
       @Override
       public YailList call() {
-        return columnNames;
+        return table.getColumnNames();
       }
     });
   }
@@ -210,53 +213,74 @@ public class DataFile extends FileBase implements DataSource<YailList, Future<Ya
     // Get the index of the column (first row - column names)
     // 1 is subtracted from the index since YailList indexOf
     // returns an index that is 1-based.
-    int index = columnNames.indexOf(column) - 1;
+    DataTable table = this.table;
+    int index = table.getColumnNames().indexOf(column) - 1;
 
     // Column not found
     if (index < 0) {
       return new YailList();
     }
 
-    return (YailList) columns.getObject(index);
+    // Only the requested column is created from the table
+    return table.getColumn(index);
   }
 
   @Override
   protected void afterRead(final String result) {
     try {
-      // First character is a curly bracket; Assume JSON
-      // TODO: When fetching columns and rows, in the case of
-      // TODO: colums/rows being uneven lengths, the final rows and columns
-      // TODO: objects will differ (the transpose will fill missing entries
-      // TODO: with blank empty String entries, while the original List will
-      // TODO: have uneven sized Lists. For consistency, this should be
-      // TODO: handled, but currently there is a bit too much overhead in doing
-      // TODO: so due to YailLists not supporting the add() operation)
-      if (result.charAt(0) == '{') {
-        try {
-          // Parse columns from the result
-          columns = JsonUtil.getColumnsFromJson(result);
+      readTable(new StringReader(result));
+    } catch (IOException e) {
+      Log.e(this.getClass().getName(), "Unable to parse DataFile",  e);
+    }
+  }
+
+  @Override
+  protected void afterRead(InputStreamReader reader) throws IOException {
+    // Parse the file as it is read rather than reading it into a String first.
+    readTable(IOUtils.normalizeNewLines(reader));
+  }
 
-          // Construct row lists from columns
-          rows = ChartDataSourceUtil.getTranspose(columns);
+  /**
+   * Parses the contents of a CSV or JSON file into the table.
+   *
+   * @param reader  the reader for the file contents
+   * @throws IOException if the file cannot be read
+   */
+  private void readTable(Reader reader) throws IOException {
+    PushbackReader in = new PushbackReader(reader);
+    int first = in.read();
+    if (first == -1) {
+      Log.e(this.getClass().getName(), "Unable to parse DataFile: the file is empty");
+      return;
+    }
+    in.unread(first);
+
+    // First character is a curly bracket; Assume JSON. The whole text is
+    // needed since the JSON parser does not read from a stream, and the
+    // text is parsed as CSV if it turns out not to be JSON.
+    // TODO: When fetching columns and rows, in the case of
+    // TODO: colums/rows being uneven lengths, the final rows and columns
+    // TODO: objects will differ (the missing entries are filled with blank
+    // TODO: empty String entries in the lists built from the other
+    // TODO: direction, while the original List will have uneven sized Lists).
+    String json = (first == '{') ? IOUtils.readReader(in) : null;
+    DataTable result;
+    try {
+      if (json != null) {
+        try {
+          result = DataTable.fromJson(json);
         } catch (JSONException e) {
           // JSON parsing failed; Fallback to CSV
-          rows = CsvUtil.fromCsvTable(result);
-          columns = ChartDataSourceUtil.getTranspose(rows);
+          result = DataTable.fromCsv(new StringReader(json));
         }
       } else { // Assume CSV otherwise
-        // Parse rows from the result
-        rows = CsvUtil.fromCsvTable(result);
-
-        // Construct column lists from rows
-        columns = ChartDataSourceUtil.getTranspose(rows);
+        result = DataTable.fromCsv(in);
       }
-
-      // If rows size is non-zero, set column names to first row. Otherwise,
-      // set it to an empty List.
-      columnNames = (rows.size() > 0) ? ((YailList) rows.getObject(0)) : new YailList();
     } catch (Exception e) {
       Log.e(this.getClass().getName(), "Unable to parse DataFile",  e);
+      return;
     }
+    table = result;
   }
 
   /**
@@ -8,10 +8,12 @@ package com.google.appinventor.components.runtime;
 
 import android.util.Log;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * Dispatches events to component event handlers.
@@ -63,12 +65,13 @@ public class EventDispatcher {
   private static final class EventRegistry {
     private final HandlesEventDispatching dispatchDelegate;
 
-    // Mapping of event names to a set of event closures.
-    // Note that by using a Set here, we'll only have one closure corresponding to a
-    // given componentId-eventName.  We do not support invoking multiple handlers for a
-    // single event.
-    private final HashMap<String, Set<EventClosure>> eventClosuresMap =
-        new HashMap<String, Set<EventClosure>>();
+    // Mapping of event names to the event closures for that name.
+    // Note that we only keep one closure corresponding to a given componentId-eventName.
+    // We do not support invoking multiple handlers for a single event.
+    // The map and its arrays are never modified once published. Registering or
+    // unregistering a handler replaces the map, so dispatching an event needs no lock.
+    private volatile Map<String, EventClosure[]> eventClosuresMap =
+        Collections.emptyMap();
 
     EventRegistry(HandlesEventDispatching dispatchDelegate) {
       this.dispatchDelegate = dispatchDelegate;
@@ -77,8 +80,12 @@ public class EventDispatcher {
 
   private static final boolean DEBUG = false;
 
-  private static final Map<HandlesEventDispatching, EventRegistry>
-      mapDispatchDelegateToEventRegistry = new HashMap<HandlesEventDispatching, EventRegistry>();
+  private static final EventClosure[] NO_CLOSURES = new EventClosure[0];
+
+  // Replaced rather than modified, like the maps of the registries. Changes to either are
+  // made while holding the EventDispatcher class lock.
+  private static volatile Map<HandlesEventDispatching, EventRegistry>
+      mapDispatchDelegateToEventRegistry = Collections.emptyMap();
 
   private EventDispatcher() {
   }
@@ -86,14 +93,39 @@ public class EventDispatcher {
   private static EventRegistry getEventRegistry(HandlesEventDispatching dispatchDelegate) {
     EventRegistry er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
     if (er == null) {
-      er = new EventRegistry(dispatchDelegate);
-      mapDispatchDelegateToEventRegistry.put(dispatchDelegate, er);
+      synchronized (EventDispatcher.class) {
+        er = mapDispatchDelegateToEventRegistry.get(dispatchDelegate);
+        if (er == null) {
+          er = new EventRegistry(dispatchDelegate);
+          Map<HandlesEventDispatching, EventRegistry> updated =
+              new HashMap<HandlesEventDispatching, EventRegistry>(
+                  mapDispatchDelegateToEventRegistry);
+          updated.put(dispatchDelegate, er);
+          mapDispatchDelegateToEventRegistry = updated;
+        }
+      }
     }
     return er;
   }
 
   private static EventRegistry removeEventRegistry(HandlesEventDispatching dispatchDelegate) {
-    return mapDispatchDelegateToEventRegistry.remove(dispatchDelegate);
+    Map<HandlesEventDispatching, EventRegistry> updated =
+        new HashMap<HandlesEventDispatching, EventRegistry>(mapDispatchDelegateToEventRegistry);
+    EventRegistry er = updated.remove(dispatchDelegate);
+    mapDispatchDelegateToEventRegistry = updated;
+    return er;
+  }
+
+  private static void putEventClosures(EventRegistry er, String eventName,
+      EventClosure[] eventClosures) {
+    Map<String, EventClosure[]> updated =
+        new HashMap<String, EventClosure[]>(er.eventClosuresMap);
+    if (eventClosures.length == 0) {
+      updated.remove(eventName);
+    } else {
+      updated.put(eventName, eventClosures);
+    }
+    er.eventClosuresMap = updated;
   }
 
 
@@ -109,11 +141,19 @@ public class EventDispatcher {
   public static synchronized void registerEventForDelegation(HandlesEventDispatching dispatchDelegate,
                                                 String componentId, String eventName) {
     EventRegistry er = getEventRegistry(dispatchDelegate);
-    Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
-    Set<EventClosure> newEventClosures = eventClosures == null
-        ? new HashSet<EventClosure>() : new HashSet<>(eventClosures);
-    newEventClosures.add(new EventClosure(componentId, eventName));
-    er.eventClosuresMap.put(eventName, newEventClosures);
+    EventClosure[] eventClosures = er.eventClosuresMap.get(eventName);
+    if (eventClosures == null) {
+      eventClosures = NO_CLOSURES;
+    }
+    EventClosure eventClosure = new EventClosure(componentId, eventName);
+    for (EventClosure existing : eventClosures) {
+      if (existing.equals(eventClosure)) {
+        return;
+      }
+    }
+    EventClosure[] newEventClosures = Arrays.copyOf(eventClosures, eventClosures.length + 1);
+    newEventClosures[eventClosures.length] = eventClosure;
+    putEventClosures(er, eventName, newEventClosures);
 
     if (DEBUG) {
       Log.i("EventDispatcher", "Registered event closure for " +
@@ -133,11 +173,11 @@ public class EventDispatcher {
   public static synchronized void unregisterEventForDelegation(HandlesEventDispatching dispatchDelegate,
                                                   String componentId, String eventName) {
     EventRegistry er = getEventRegistry(dispatchDelegate);
-    Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
-    if (eventClosures == null || eventClosures.isEmpty()) {
+    EventClosure[] eventClosures = er.eventClosuresMap.get(eventName);
+    if (eventClosures == null) {
       return;
     }
-    Set<EventClosure> updated = new HashSet<>();
+    List<EventClosure> updated = new ArrayList<EventClosure>();
     for (EventClosure eventClosure : eventClosures) {
       if (eventClosure.componentId.equals(componentId)) {
         if (DEBUG) {
@@ -148,7 +188,7 @@ public class EventDispatcher {
         updated.add(eventClosure);
       }
     }
-    er.eventClosuresMap.put(eventName, updated);
+    putEventClosures(er, eventName, updated.toArray(NO_CLOSURES));
   }
 
   /**
@@ -158,7 +198,7 @@ public class EventDispatcher {
   // Don't delete this method. It's called from runtime.scm.
   public static synchronized void unregisterAllEventsForDelegation() {
     for (EventRegistry er : mapDispatchDelegateToEventRegistry.values()) {
-      er.eventClosuresMap.clear();
+      er.eventClosuresMap = Collections.emptyMap();
     }
   }
 
@@ -172,31 +212,37 @@ public class EventDispatcher {
   public static synchronized void removeDispatchDelegate(HandlesEventDispatching dispatchDelegate) {
     EventRegistry er = removeEventRegistry(dispatchDelegate);
     if (er != null) {
-      er.eventClosuresMap.clear();
+      er.eventClosuresMap = Collections.emptyMap();
     }
   }
 
   /**
    * Dispatches an event based on its name to any registered handlers.
    *
+   * <p>Finding the handlers takes no lock. The handlers themselves are run while holding the
+   * lock of the dispatchDelegate's registry, so that the handlers of one form never run at the
+   * same time even when events are raised on different threads.
+   *
    * @param component  the component raising the event
    * @param eventName  name of event being raised
    * @param args  arguments to the event handler
    */
-  public static synchronized boolean dispatchEvent(Component component, String eventName, Object...args) {
+  public static boolean dispatchEvent(Component component, String eventName, Object...args) {
     if (DEBUG) {
       Log.i("EventDispatcher", "Trying to dispatch event " + eventName);
     }
     args = OptionHelper.optionListsFromValues(component, eventName, args);
     boolean dispatched = false;
     HandlesEventDispatching dispatchDelegate = component.getDispatchDelegate();
-    if (dispatchDelegate.canDispatchEvent(component, eventName)) {
-      EventRegistry er = getEventRegistry(dispatchDelegate);
-      Set<EventClosure> eventClosures = er.eventClosuresMap.get(eventName);
-      if (eventClosures != null && eventClosures.size() > 0) {
-        dispatched = delegateDispatchEvent(dispatchDelegate, eventClosures, component, args);
+    EventRegistry er = getEventRegistry(dispatchDelegate);
+    EventClosure[] eventClosures = er.eventClosuresMap.get(eventName);
+    synchronized (er) {
+      if (dispatchDelegate.canDispatchEvent(component, eventName)) {
+        if (eventClosures != null) {
+          dispatched = delegateDispatchEvent(dispatchDelegate, eventClosures, component, args);
+        }
+        dispatchDelegate.dispatchGenericEvent(component, eventName, !dispatched, args);
       }
-      dispatchDelegate.dispatchGenericEvent(component, eventName, !dispatched, args);
     }
     return dispatched;
   }
@@ -204,14 +250,14 @@ public class EventDispatcher {
   /**
    * Delegates the dispatch of an event to the dispatch delegate.
    *
-   * @param eventClosures set of event closures matching the event name
+   * @param eventClosures event closures matching the event name
    * @param component the component that generated the event
    * @param args  arguments to event handler
    */
-  private static synchronized boolean delegateDispatchEvent(HandlesEventDispatching dispatchDelegate,
-                                               Set<EventClosure> eventClosures,
+  private static boolean delegateDispatchEvent(HandlesEventDispatching dispatchDelegate,
+                                               EventClosure[] eventClosures,
                                                Component component, Object... args) {
-    // The event closures set will contain all event closures matching the event name.
+    // The event closures will contain all event closures matching the event name.
     // We depend on the delegate's dispatchEvent method to check the registered event closure and
     // only dispatch the event if the registered component matches the component that generated the
     // event.  This should only be true for one (or zero) of the closures.
@@ -24,6 +24,7 @@ import com.google.appinventor.components.runtime.util.IOUtils;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
 
 /**
  * Base class for File-based components.
@@ -101,6 +102,12 @@ public abstract class FileBase extends AndroidNonvisibleComponent implements Com
   protected void readFromFile(final String fileName) {
     try {
       new FileStreamReadOperation(form, this, "ReadFrom", fileName, scope, true) {
+        @Override
+        protected boolean process(InputStreamReader reader) throws IOException {
+          afterRead(reader);
+          return true;
+        }
+
         @Override
         public boolean process(String contents) {
           final String text = IOUtils.normalizeNewLines(contents);
@@ -133,4 +140,18 @@ public abstract class FileBase extends AndroidNonvisibleComponent implements Com
    * @param result  the contents of the file that was read
    */
   protected abstract void afterRead(String result);
+
+  /**
+   * Reads the contents of the file from the given reader. The default
+   * implementation reads the whole file into a String, replacing CRLF line
+   * endings with LF, and passes it to {@link #afterRead(String)}. Components
+   * that can process the contents as they are read should override this
+   * method instead of holding the whole file in memory.
+   *
+   * @param reader  the reader for the file that was opened
+   * @throws IOException if the file cannot be read
+   */
+  protected void afterRead(InputStreamReader reader) throws IOException {
+    afterRead(IOUtils.normalizeNewLines(IOUtils.readReader(reader)));
+  }
 }
@@ -327,7 +327,8 @@ public class ListAdapterWithRecyclerView
       String imageName = dictItem.get(Component.LISTVIEW_KEY_IMAGE).toString();
       Drawable drawable = new BitmapDrawable();
       try {
-        drawable = MediaUtil.getBitmapDrawable(container.$form(), imageName);
+        drawable = MediaUtil.getBitmapDrawable(container.$form(), imageName,
+            imageWidth, imageHeight);
       } catch (IOException ioe) {
         Log.e(LOG_TAG, "onBindViewHolder Unable to load image " + imageName + ": " + ioe.getMessage());
       }
@@ -337,7 +338,8 @@ public class ListAdapterWithRecyclerView
       String imageName = dictItem.get(Component.LISTVIEW_KEY_IMAGE).toString();
       Drawable drawable = new BitmapDrawable();
       try {
-        drawable = MediaUtil.getBitmapDrawable(container.$form(), imageName);
+        drawable = MediaUtil.getBitmapDrawable(container.$form(), imageName,
+            imageWidth, imageHeight);
       } catch (IOException ioe) {
         Log.e(LOG_TAG, "onBindViewHolder Unable to load image " + imageName + ": " + ioe.getMessage());
       }
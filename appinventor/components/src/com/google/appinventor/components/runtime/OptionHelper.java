@@ -15,6 +15,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Includes helper methods for getting the abstract enum value associated with a concrete value for
@@ -23,8 +24,15 @@ import java.util.Map;
  */
 public class OptionHelper {
 
+  // Events are dispatched from any thread, so these caches must be safe to share.
   private static final Map<String, Map<String, Method>> componentMethods =
-      new HashMap<String, Map<String, Method>>();
+      new ConcurrentHashMap<String, Map<String, Method>>();
+
+  // The OptionList class of each parameter of a method, or null for parameters without an
+  // @Options annotation. Methods without any such parameter map to NO_OPTIONS.
+  private static final Map<Method, Class<?>[]> parameterOptions =
+      new ConcurrentHashMap<Method, Class<?>[]>();
+  private static final Class<?>[] NO_OPTIONS = new Class<?>[0];
     
   /**
    * Returns the OptionList version of the value if the function's return type has an @Options
@@ -82,33 +90,28 @@ public class OptionHelper {
     if (calledFunc == null) {
       return args;
     }
-    Annotation[][] paramAnnotations = calledFunc.getParameterAnnotations();
-    int i = 0;
-    for (Annotation[] annotations : paramAnnotations) {
-      for (Annotation annotation : annotations) {
-        if (annotation.annotationType() == Options.class) {
-          Options castAnnotation = (Options) annotation;
-          Class<?> optionListClass = castAnnotation.value();
-          try {
-            Method fromValue = optionListClass.getMethod("fromUnderlyingValue", args[i].getClass());
-            // Extensions might send values to events which aren't covered by the OptionList
-            // definition. In that case send the concrete value. See here for an example:
-            // https://github.com/BeksOmega/appinventor-sources/pull/24#discussion_r480355676
-            Object abstractVal = fromValue.invoke(optionListClass, args[i]);
-            if (abstractVal != null) {
-              args[i] = abstractVal;
-            }
-          } catch (NoSuchMethodException e) {
-            // If it doesn't exist just continue.
-          } catch (IllegalAccessException e) {
-            // If it's not accessible just continue.
-          } catch (InvocationTargetException e) {
-            // If it doesn't work just continue.
-          }
-          break;
+    Class<?>[] optionListClasses = getParameterOptions(calledFunc);
+    for (int i = 0; i < optionListClasses.length && i < args.length; i++) {
+      Class<?> optionListClass = optionListClasses[i];
+      if (optionListClass == null) {
+        continue;
+      }
+      try {
+        Method fromValue = optionListClass.getMethod("fromUnderlyingValue", args[i].getClass());
+        // Extensions might send values to events which aren't covered by the OptionList
+        // definition. In that case send the concrete value. See here for an example:
+        // https://github.com/BeksOmega/appinventor-sources/pull/24#discussion_r480355676
+        Object abstractVal = fromValue.invoke(optionListClass, args[i]);
+        if (abstractVal != null) {
+          args[i] = abstractVal;
         }
+      } catch (NoSuchMethodException e) {
+        // If it doesn't exist just continue.
+      } catch (IllegalAccessException e) {
+        // If it's not accessible just continue.
+      } catch (InvocationTargetException e) {
+        // If it doesn't work just continue.
       }
-      i++;
     }
     return args;
   }
@@ -133,6 +136,33 @@ public class OptionHelper {
     return methodMap.get(func);
   }
 
+  /**
+   * Returns the OptionList classes of the parameters of a method, reading its parameter
+   * annotations only the first time. Events call this each time they are raised.
+   */
+  private static Class<?>[] getParameterOptions(Method method) {
+    Class<?>[] optionListClasses = parameterOptions.get(method);
+    if (optionListClasses == null) {
+      Annotation[][] paramAnnotations = method.getParameterAnnotations();
+      optionListClasses = new Class<?>[paramAnnotations.length];
+      boolean hasOptions = false;
+      for (int i = 0; i < paramAnnotations.length; i++) {
+        for (Annotation annotation : paramAnnotations[i]) {
+          if (annotation.annotationType() == Options.class) {
+            optionListClasses[i] = ((Options) annotation).value();
+            hasOptions = true;
+            break;
+          }
+        }
+      }
+      if (!hasOptions) {
+        optionListClasses = NO_OPTIONS;
+      }
+      parameterOptions.put(method, optionListClasses);
+    }
+    return optionListClasses;
+  }
+
   /**
    * Returns a map populated with all relevant Methods of the given Class. This includes all events,
    * property getters, and non-void methods.
@@ -216,6 +216,15 @@ public class PieChartDataModel
         && p1.getY() == p2.getY(); // y value comparison
   }
 
+  @Override
+  protected Object getEntryKey(Entry entry) {
+    if (!(entry instanceof PieEntry) || ((PieEntry) entry).getLabel() == null
+        || Float.isNaN(entry.getY())) {
+      return null;
+    }
+    return Arrays.asList(((PieEntry) entry).getLabel(), entry.getY() + 0f);
+  }
+
   /**
    * Updates the colors of the Legend Entries based
    * on the colors of the Data Series.
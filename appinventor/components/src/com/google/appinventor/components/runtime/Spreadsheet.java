@@ -1989,7 +1989,8 @@ public class Spreadsheet extends AndroidNonvisibleComponent implements Component
           }
         });
 
-    AsynchUtil.runAsynchronously(getDataValueTask);
+    // This waits for the last request, so it must not take one of the threads requests run on.
+    AsynchUtil.runBlocking(getDataValueTask);
     return getDataValueTask;
   }
 
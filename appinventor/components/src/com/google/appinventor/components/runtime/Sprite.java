@@ -22,7 +22,10 @@ import com.google.appinventor.components.runtime.util.BoundingBox;
 import com.google.appinventor.components.runtime.util.TimerInternal;
 import com.google.appinventor.components.runtime.util.YailList;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -682,9 +685,27 @@ public abstract class Sprite extends VisibleComponent
       description = "Indicates whether a collision has been registered between this %type% " +
           "and the passed sprite (Ball or ImageSprite).")
   public boolean CollidingWith(Sprite other) {
+    // Collisions are checked in batches, so bring them up to date first.
+    canvas.checkPendingCollisions();
     return registeredCollisions.contains(other);
   }
 
+  /**
+   * Indicates whether a collision has been registered between this sprite and
+   * another one, without first checking for collisions caused by recent moves.
+   */
+  boolean hasRegisteredCollision(Sprite other) {
+    return registeredCollisions.contains(other);
+  }
+
+  /**
+   * Adds the sprites with which a collision has been registered to a
+   * collection.
+   */
+  void getRegisteredCollisions(Collection<Sprite> result) {
+    result.addAll(registeredCollisions);
+  }
+
   /**
    * Moves the sprite back in bounds if part of it extends out of bounds,
    * having no effect otherwise. If the sprite is too wide to fit on the
@@ -993,6 +1014,25 @@ public abstract class Sprite extends VisibleComponent
    * @return {@code true} if they are in collision, {@code false} otherwise
    */
   public static boolean colliding(Sprite sprite1, Sprite sprite2) {
+    // Rectangles and circles can be compared directly, instead of point by point.
+    Shape shape1 = sprite1.getShape();
+    Shape shape2 = sprite2.getShape();
+    if (shape1 == Shape.RECTANGLE && shape2 == Shape.RECTANGLE) {
+      return Math.max(sprite1.xLeft, sprite2.xLeft)
+          < Math.min(sprite1.xLeft + sprite1.Width(), sprite2.xLeft + sprite2.Width())
+          && Math.max(sprite1.yTop, sprite2.yTop)
+          < Math.min(sprite1.yTop + sprite1.Height(), sprite2.yTop + sprite2.Height());
+    } else if (shape1 == Shape.CIRCLE && shape2 == Shape.CIRCLE) {
+      double dx = sprite1.xCenter - sprite2.xCenter;
+      double dy = sprite1.yCenter - sprite2.yCenter;
+      double distance = ((Ball) sprite1).Radius() + ((Ball) sprite2).Radius();
+      return dx * dx + dy * dy <= distance * distance;
+    } else if (shape1 == Shape.CIRCLE && shape2 == Shape.RECTANGLE) {
+      return circleIntersectsRectangle((Ball) sprite1, sprite2);
+    } else if (shape1 == Shape.RECTANGLE && shape2 == Shape.CIRCLE) {
+      return circleIntersectsRectangle((Ball) sprite2, sprite1);
+    }
+
     // If the bounding boxes don't intersect, there can be no collision.
     BoundingBox rect1 = sprite1.getBoundingBox(1);
     BoundingBox rect2 = sprite2.getBoundingBox(1);
@@ -1014,6 +1054,62 @@ public abstract class Sprite extends VisibleComponent
     return false;
   }
 
+  private static boolean circleIntersectsRectangle(Ball ball, Sprite rectangle) {
+    // Find the point of the rectangle nearest to the center of the circle.
+    double x = Math.max(rectangle.xLeft,
+        Math.min(ball.xCenter, rectangle.xLeft + rectangle.Width()));
+    double y = Math.max(rectangle.yTop,
+        Math.min(ball.yCenter, rectangle.yTop + rectangle.Height()));
+    double dx = ball.xCenter - x;
+    double dy = ball.yCenter - y;
+    return dx * dx + dy * dy <= (double) ball.Radius() * ball.Radius();
+  }
+
+  /**
+   * The shapes for which {@link #colliding(Sprite, Sprite)} can find
+   * collisions without checking individual points.
+   */
+  enum Shape {
+    /** The sprite fills its bounding box, as with {@link ImageSprite}. */
+    RECTANGLE,
+    /** The sprite is a circle, as with {@link Ball}. */
+    CIRCLE,
+    /** The sprite has some other shape, defined by {@link #containsPoint}. */
+    OTHER
+  }
+
+  private static final Map<Class<?>, Shape> SHAPES = new HashMap<Class<?>, Shape>();
+
+  /**
+   * Determines the shape of this sprite from the class that implements
+   * {@link #containsPoint(double, double)}, so that a subclass with a shape
+   * of its own is still checked point by point.
+   */
+  Shape getShape() {
+    Class<?> clazz = getClass();
+    synchronized (SHAPES) {
+      Shape shape = SHAPES.get(clazz);
+      if (shape == null) {
+        Class<?> implementation;
+        try {
+          implementation = clazz.getMethod("containsPoint", double.class, double.class)
+              .getDeclaringClass();
+        } catch (NoSuchMethodException e) {
+          implementation = null;
+        }
+        if (implementation == Sprite.class) {
+          shape = Shape.RECTANGLE;
+        } else if (implementation == Ball.class) {
+          shape = Shape.CIRCLE;
+        } else {
+          shape = Shape.OTHER;
+        }
+        SHAPES.put(clazz, shape);
+      }
+      return shape;
+    }
+  }
+
   /**
    * Determines whether this sprite intersects with the given rectangle.
    *
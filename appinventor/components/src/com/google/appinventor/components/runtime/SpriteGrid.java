@@ -0,0 +1,167 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import com.google.appinventor.components.runtime.util.BoundingBox;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A uniform grid of square cells laid over a {@link Canvas}, used to find the sprites that
+ * might be colliding with a given sprite without comparing it to every other sprite.
+ *
+ * <p>Each sprite is recorded in every cell that its bounding box, including the one pixel
+ * border used by {@link Sprite#colliding(Sprite, Sprite)}, overlaps. Two sprites can only be
+ * colliding if they share a cell. A sprite's cells are updated in place when it moves, which
+ * usually means no change at all since sprites move a few pixels at a time.</p>
+ */
+final class SpriteGrid {
+  static final int DEFAULT_CELL_SIZE = 64;
+
+  // Sprites that would cover more cells than this are kept in a separate list and are
+  // candidates for every query, rather than being added to a huge number of cells.
+  private static final int MAX_CELLS_PER_SPRITE = 1024;
+
+  private final int cellSize;
+  private final Map<Long, List<Sprite>> cells = new HashMap<Long, List<Sprite>>();
+  private final Map<Sprite, int[]> extents = new HashMap<Sprite, int[]>();
+  private final Set<Sprite> oversized = new LinkedHashSet<Sprite>();
+
+  SpriteGrid() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  SpriteGrid(int cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Records the current position and size of a sprite, adding it to the grid if needed.
+   *
+   * @param sprite the sprite that has moved or changed size
+   */
+  void update(Sprite sprite) {
+    BoundingBox box = sprite.getBoundingBox(1);
+    int minCol = cell(box.getLeft());
+    int minRow = cell(box.getTop());
+    int maxCol = cell(box.getRight());
+    int maxRow = cell(box.getBottom());
+    int[] extent = extents.get(sprite);
+    if (extent != null) {
+      if (extent[0] == minCol && extent[1] == minRow
+          && extent[2] == maxCol && extent[3] == maxRow) {
+        return;
+      }
+      removeFromCells(sprite, extent);
+    } else {
+      extent = new int[4];
+      extents.put(sprite, extent);
+    }
+    extent[0] = minCol;
+    extent[1] = minRow;
+    extent[2] = maxCol;
+    extent[3] = maxRow;
+    if (isOversized(extent)) {
+      oversized.add(sprite);
+      return;
+    }
+    for (int col = minCol; col <= maxCol; col++) {
+      for (int row = minRow; row <= maxRow; row++) {
+        Long key = key(col, row);
+        List<Sprite> cell = cells.get(key);
+        if (cell == null) {
+          cell = new ArrayList<Sprite>(4);
+          cells.put(key, cell);
+        }
+        cell.add(sprite);
+      }
+    }
+  }
+
+  /**
+   * Removes a sprite from the grid.
+   *
+   * @param sprite the sprite to remove
+   */
+  void remove(Sprite sprite) {
+    int[] extent = extents.remove(sprite);
+    if (extent != null) {
+      removeFromCells(sprite, extent);
+    }
+  }
+
+  boolean contains(Sprite sprite) {
+    return extents.containsKey(sprite);
+  }
+
+  /**
+   * Adds the sprites that share a cell with the given sprite to a collection. The sprite must
+   * have been added with {@link #update(Sprite)}.
+   *
+   * @param sprite the sprite
+   * @param result the collection to which the other sprites are added; a set should be used,
+   *     since a sprite sharing several cells with the given sprite is added once per cell
+   */
+  void getNeighbors(Sprite sprite, Collection<Sprite> result) {
+    int[] extent = extents.get(sprite);
+    if (extent == null) {
+      return;
+    }
+    if (isOversized(extent)) {
+      // Every sprite is a candidate.
+      result.addAll(extents.keySet());
+    } else {
+      for (int col = extent[0]; col <= extent[2]; col++) {
+        for (int row = extent[1]; row <= extent[3]; row++) {
+          List<Sprite> cell = cells.get(key(col, row));
+          if (cell != null) {
+            result.addAll(cell);
+          }
+        }
+      }
+      result.addAll(oversized);
+    }
+    result.remove(sprite);
+  }
+
+  private void removeFromCells(Sprite sprite, int[] extent) {
+    if (isOversized(extent)) {
+      oversized.remove(sprite);
+      return;
+    }
+    for (int col = extent[0]; col <= extent[2]; col++) {
+      for (int row = extent[1]; row <= extent[3]; row++) {
+        Long key = key(col, row);
+        List<Sprite> cell = cells.get(key);
+        if (cell != null) {
+          cell.remove(sprite);
+          if (cell.isEmpty()) {
+            cells.remove(key);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isOversized(int[] extent) {
+    long cols = (long) extent[2] - extent[0] + 1;
+    long rows = (long) extent[3] - extent[1] + 1;
+    return cols * rows > MAX_CELLS_PER_SPRITE;
+  }
+
+  private int cell(double coordinate) {
+    return (int) Math.floor(coordinate / cellSize);
+  }
+
+  private static Long key(int col, int row) {
+    return ((long) col << 32) | (row & 0xffffffffL);
+  }
+}
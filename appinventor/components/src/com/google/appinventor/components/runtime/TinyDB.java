@@ -9,6 +9,7 @@ package com.google.appinventor.components.runtime;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import android.os.Handler;
 import android.util.Log;
 
 import com.google.appinventor.components.annotations.DesignerComponent;
@@ -29,7 +30,9 @@ import com.google.appinventor.components.runtime.util.YailDictionary;
 import com.google.appinventor.components.runtime.util.YailList;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -86,7 +89,7 @@ import org.json.JSONException;
 
 @SimpleObject
 public class TinyDB extends AndroidNonvisibleComponent implements Component, Deleteable,
-    ObservableDataSource<String, YailList> {
+    ObservableDataSource<String, YailList>, OnPauseListener, OnDestroyListener {
 
   public static final String DEFAULT_NAMESPACE = "TinyDB1";
 
@@ -101,6 +104,28 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
   // SharedPreferences listener used to notify observers
   private final SharedPreferences.OnSharedPreferenceChangeListener sharedPreferenceChangeListener;
 
+  // Decoded values of tags that were read before, so that reading a tag again does not
+  // parse its JSON again. Only immutable values are kept, since lists and dictionaries
+  // returned to the app may be modified by it. The values are shared by all the TinyDB
+  // components with the same Namespace, like the data store itself.
+  private static final Map<String, Map<String, Object>> DECODED_VALUES = new HashMap<>();
+  private Map<String, Object> decodedValues;
+
+  // JSON values of tags stored while BatchWrites is enabled that have not yet been written
+  // to the SharedPreferences. A null value marks a tag that has been cleared.
+  private final Map<String, String> pendingWrites = new LinkedHashMap<>();
+  private boolean batchWrites = false;
+  private boolean flushScheduled = false;
+  private final Handler androidUIHandler = new Handler();
+
+  private final Runnable flushRunnable = new Runnable() {
+    @Override
+    public void run() {
+      flushScheduled = false;
+      flush();
+    }
+  };
+
 
   /**
    * Creates a new TinyDB component.
@@ -114,12 +139,22 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     sharedPreferenceChangeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
       @Override
       public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        // The value may have been changed by another TinyDB with the same Namespace. A null
+        // key means that the whole store has been cleared.
+        if (key == null) {
+          decodedValues.clear();
+        } else {
+          decodedValues.remove(key);
+        }
+
         // Upon value change, notify the observers with the key and the value
         notifyDataObservers(key, GetValue(key, null));
       }
     };
 
     Namespace(DEFAULT_NAMESPACE);
+    form.registerForOnPause(this);
+    form.registerForOnDestroy(this);
   }
 
   /**
@@ -140,8 +175,15 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
 
     // SharedPreferences previously defined; Unregister the change listener.
     if (sharedPreferences != null) {
+      // Values stored under the old Namespace belong to it.
+      flush();
       sharedPreferences.unregisterOnSharedPreferenceChangeListener(sharedPreferenceChangeListener);
     }
+    decodedValues = DECODED_VALUES.get(namespace);
+    if (decodedValues == null) {
+      decodedValues = new HashMap<>();
+      DECODED_VALUES.put(namespace, decodedValues);
+    }
 
     sharedPreferences = context.getSharedPreferences(namespace, Context.MODE_PRIVATE);
 
@@ -154,6 +196,30 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     return namespace;
   }
 
+  /**
+   * Specifies whether stored values are written to the phone's storage together once the current
+   * event has been handled, instead of one at a time as they are stored. This makes storing many
+   * values in a loop much faster. Values can be read back immediately either way, but other
+   * `TinyDB` components with the same `Namespace` only see them once the event has been handled.
+   *
+   * @param batchWrites true if values should be written together
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR)
+  public void BatchWrites(boolean batchWrites) {
+    this.batchWrites = batchWrites;
+    if (!batchWrites) {
+      flush();
+    }
+  }
+
+  @SimpleProperty(description = "Whether stored values are written to storage together once "
+      + "the current event has been handled, instead of one at a time.")
+  public boolean BatchWrites() {
+    return batchWrites;
+  }
+
   /**
    * Store the given `valueToStore`{:.variable.block} under the given `tag`{:.text.block}.
    * The storage persists on the phone when the app is restarted.
@@ -165,13 +231,26 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
   @SimpleFunction(description = "Store the given value under the given tag.  The storage persists "
       + "on the phone when the app is restarted.")
   public void StoreValue(final String tag, final Object valueToStore) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    try {
-      sharedPrefsEditor.putString(tag, JsonUtil.getJsonRepresentation(valueToStore));
-      sharedPrefsEditor.commit();
-    } catch (JSONException e) {
-      throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
+    Map<String, String> values = new HashMap<>();
+    values.put(tag, toJson(valueToStore));
+    write(values);
+  }
+
+  /**
+   * Store each value of the given `values`{:.dictionary.block} under its key. All the values are
+   * written to storage together, which is much faster than storing them one at a time.
+   *
+   * @param values The dictionary of tags and the values to store under them.
+   */
+  @SimpleFunction(description = "Store each value of the given dictionary under its key. "
+      + "The values are written to storage together.")
+  public void StoreValues(final YailDictionary values) {
+    // Convert every value before writing any, so that nothing is stored if one fails.
+    Map<String, String> jsonValues = new LinkedHashMap<>();
+    for (Map.Entry<Object, Object> entry : values.entrySet()) {
+      jsonValues.put(entry.getKey().toString(), toJson(entry.getValue()));
     }
+    write(jsonValues);
   }
 
   /**
@@ -187,10 +266,30 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
       + "such tag, then return valueIfTagNotThere.")
   public Object GetValue(final String tag, final Object valueIfTagNotThere) {
     try {
+      // A value stored by this component that has not been written yet takes precedence. It is
+      // never put in the shared cache, since other TinyDBs with this Namespace cannot see it.
+      if (pendingWrites.containsKey(tag)) {
+        String value = pendingWrites.get(tag);
+        if (value == null || value.length() == 0) {
+          return valueIfTagNotThere;
+        }
+        return JsonUtil.getObjectFromJson(value, true);
+      }
+      Object decoded = decodedValues.get(tag);
+      if (decoded != null) {
+        return decoded;
+      }
       String value = sharedPreferences.getString(tag, "");
       // If there's no entry with tag as a key then return the empty string.
       //    was  return (value.length() == 0) ? "" : JsonUtil.getObjectFromJson(value);
-      return (value.length() == 0) ? valueIfTagNotThere : JsonUtil.getObjectFromJson(value, true);
+      if (value.length() == 0) {
+        return valueIfTagNotThere;
+      }
+      decoded = JsonUtil.getObjectFromJson(value, true);
+      if (decoded instanceof String || decoded instanceof Number || decoded instanceof Boolean) {
+        decodedValues.put(tag, decoded);
+      }
+      return decoded;
     } catch (JSONException e) {
       throw new YailRuntimeError("Value failed to convert from JSON.", "JSON Creation Error.");
     }
@@ -203,6 +302,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Return a list of all the tags in the data store.")
   public Object GetTags() {
+    flush();
     List<String> keyList = new ArrayList<String>();
     Map<String, ?> keyValues = sharedPreferences.getAll();
     // here is the simple way to get keys
@@ -217,10 +317,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entire data store.")
   public void ClearAll() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
-    notifyDataObservers(null, null); // Notify observers with null value to be interpreted as clear
+    clear();
   }
 
   /**
@@ -230,17 +327,25 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Clear the entry with the given tag.")
   public void ClearTag(final String tag) {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.remove(tag);
-    sharedPrefsEditor.commit();
+    Map<String, String> values = new HashMap<>();
+    values.put(tag, null);
+    write(values);
   }
 
   @Override
   public void onDelete() {
-    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
-    sharedPrefsEditor.clear();
-    sharedPrefsEditor.commit();
-    notifyDataObservers(null, null); // Notify observers with null value to be interpreted as clear
+    clear();
+  }
+
+  @Override
+  public void onPause() {
+    // Make sure that the values are on their way to storage before the app can be killed.
+    flush();
+  }
+
+  @Override
+  public void onDestroy() {
+    flush();
   }
 
   /**
@@ -291,6 +396,7 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
    */
   @SimpleFunction(description = "Retrieves all data entries of TinyDB in form of Dictionaries")
   public YailDictionary GetEntries() {
+    flush();
     Map<String, ?> keyValues = sharedPreferences.getAll();
     List<String> keyList = new ArrayList<>(keyValues.keySet());
 
@@ -305,4 +411,70 @@ public class TinyDB extends AndroidNonvisibleComponent implements Component, Del
     return dictionary;
   }
 
+  private static String toJson(Object value) {
+    try {
+      return JsonUtil.getJsonRepresentation(value);
+    } catch (JSONException e) {
+      throw new YailRuntimeError("Value failed to convert to JSON.", "JSON Creation Error.");
+    }
+  }
+
+  /**
+   * Writes JSON values to the data store, or removes the tags whose value is null. If
+   * BatchWrites is enabled, the values are kept until the current event has been handled
+   * and then written along with any others stored in the meantime.
+   */
+  private void write(Map<String, String> values) {
+    for (String tag : values.keySet()) {
+      decodedValues.remove(tag);
+    }
+    if (batchWrites) {
+      pendingWrites.putAll(values);
+      if (!flushScheduled) {
+        flushScheduled = true;
+        androidUIHandler.post(flushRunnable);
+      }
+    } else {
+      SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
+      putValues(sharedPrefsEditor, values);
+      sharedPrefsEditor.commit();
+    }
+  }
+
+  /**
+   * Writes the values stored while BatchWrites is enabled to the data store. The values are
+   * applied to the SharedPreferences at once and written to disk in the background.
+   */
+  private void flush() {
+    if (pendingWrites.isEmpty()) {
+      return;
+    }
+    SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
+    putValues(sharedPrefsEditor, pendingWrites);
+    // Another TinyDB with this Namespace may have cached the old values in the meantime.
+    for (String tag : pendingWrites.keySet()) {
+      decodedValues.remove(tag);
+    }
+    pendingWrites.clear();
+    sharedPrefsEditor.apply();
+  }
+
+  private static void putValues(SharedPreferences.Editor editor, Map<String, String> values) {
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      if (entry.getValue() == null) {
+        editor.remove(entry.getKey());
+      } else {
+        editor.putString(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void clear() {
+    pendingWrites.clear();
+    decodedValues.clear();
+    final SharedPreferences.Editor sharedPrefsEditor = sharedPreferences.edit();
+    sharedPrefsEditor.clear();
+    sharedPrefsEditor.commit();
+    notifyDataObservers(null, null); // Notify observers with null value to be interpreted as clear
+  }
 }
@@ -50,6 +50,7 @@ import com.google.appinventor.components.runtime.util.CsvUtil;
 import com.google.appinventor.components.runtime.util.ErrorMessages;
 import com.google.appinventor.components.runtime.util.FileUtil;
 import com.google.appinventor.components.runtime.util.GingerbreadUtil;
+import com.google.appinventor.components.runtime.util.IceCreamSandwichUtil;
 import com.google.appinventor.components.runtime.util.JsonUtil;
 import com.google.appinventor.components.runtime.util.MediaUtil;
 import com.google.appinventor.components.runtime.util.SdkLevel;
@@ -85,6 +86,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -159,25 +161,39 @@ public class Web extends AndroidNonvisibleComponent implements Component,
    * an asynchronous request is made. This avoids concurrency problems if the user changes a
    * property value after initiating an asynchronous request.
    */
-  private static class CapturedProperties {
+  @VisibleForTesting
+  static class CapturedProperties {
     final String urlString;
     final URL url;
     final boolean allowCookies;
+    final boolean cacheResponses;
     final boolean saveResponse;
     final String responseFileName;
     final int timeout;
     final Map<String, List<String>> requestHeaders;
+    final boolean acceptGzip;
     final Map<String, List<String>> cookies;
 
     CapturedProperties(Web web) throws MalformedURLException, InvalidRequestHeadersException {
       urlString = web.urlString;
       url = new URL(urlString);
       allowCookies = web.allowCookies;
+      cacheResponses = web.cacheResponses;
       saveResponse = web.saveResponse;
       responseFileName = web.responseFileName;
       timeout = web.timeout;
       requestHeaders = processRequestHeaders(web.requestHeaders);
 
+      // Ask for a compressed response, unless the app asked for a particular encoding.
+      boolean acceptEncoding = false;
+      for (String name : requestHeaders.keySet()) {
+        if (ACCEPT_ENCODING.equalsIgnoreCase(name)) {
+          acceptEncoding = true;
+          break;
+        }
+      }
+      acceptGzip = !acceptEncoding;
+
       Map<String, List<String>> cookiesTemp = null;
       if (allowCookies && web.cookieHandler != null) {
         try {
@@ -193,6 +209,13 @@ public class Web extends AndroidNonvisibleComponent implements Component,
   }
 
   private static final String LOG_TAG = "Web";
+  private static final String ACCEPT_ENCODING = "Accept-Encoding";
+  private static final String GZIP = "gzip";
+
+  // The response cache is shared by all Web components in the app.
+  private static final String RESPONSE_CACHE_DIRECTORY = "web";
+  private static final long RESPONSE_CACHE_SIZE = 10 * 1024 * 1024;
+  private static boolean responseCacheInstalled = false;
 
   private static final Map<String, String> mimeTypeToExtension;
   static {
@@ -217,6 +240,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
 
   private String urlString = "";
   private boolean allowCookies;
+  private boolean cacheResponses;
   private YailList requestHeaders = new YailList();
   private boolean saveResponse;
   private String responseFileName = "";
@@ -366,6 +390,34 @@ public class Web extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  /**
+   * Whether responses should be kept in a cache on the device. When a response is cached, a later
+   * request for the same URL is answered from the cache while the server says it is fresh, and
+   * otherwise asks the server whether it has changed, so that an unchanged response is not
+   * downloaded again. The server's Cache-Control, ETag and Last-Modified headers decide what is
+   * cached and for how long.
+   *
+   * @return whether responses should be cached
+   */
+  @SimpleProperty(category = PropertyCategory.BEHAVIOR,
+      description = "Whether responses should be kept in a cache on the device, so that a request "
+      + "for a response that has not changed is answered without downloading it again. The "
+      + "server decides which responses can be cached and for how long.")
+  public boolean CacheResponses() {
+    return cacheResponses;
+  }
+
+  /**
+   * Specifies whether responses should be kept in a cache on the device, so that a request for a
+   * response that has not changed is answered without downloading it again.
+   */
+  @DesignerProperty(editorType = PropertyTypeConstants.PROPERTY_TYPE_BOOLEAN,
+      defaultValue = "False")
+  @SimpleProperty
+  public void CacheResponses(boolean cacheResponses) {
+    this.cacheResponses = cacheResponses;
+  }
+
   /**
    * Returns whether the response should be saved in a file.
    */
@@ -473,7 +525,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }, null);
 
-    AsynchUtil.runAsynchronously(lastTask);
+    runRequest(webProps, lastTask);
   }
 
   /**
@@ -559,7 +611,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }, null);
 
-    AsynchUtil.runAsynchronously(lastTask);
+    runRequest(webProps, lastTask);
   }
   
   /**
@@ -638,7 +690,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       return;
     }
 
-    AsynchUtil.runAsynchronously(new Runnable() {
+    runRequest(webProps, new Runnable() {
       @Override
       public void run() {
         performRequest(webProps, null, path, "PATCH", METHOD);
@@ -729,7 +781,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }, null);
 
-    AsynchUtil.runAsynchronously(lastTask);
+    runRequest(webProps, lastTask);
   }
 
   /**
@@ -760,7 +812,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }, null);
 
-    AsynchUtil.runAsynchronously(lastTask);
+    runRequest(webProps, lastTask);
   }
 
   /*
@@ -809,7 +861,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }, null);
 
-    AsynchUtil.runAsynchronously(lastTask);
+    runRequest(webProps, lastTask);
   }
 
   /**
@@ -1166,6 +1218,18 @@ public class Web extends AndroidNonvisibleComponent implements Component,
     }
   }
 
+  /**
+   * Runs a request off the UI thread. A request without a timeout may never finish, so it gets
+   * a thread of its own rather than one of the shared threads that other requests wait for.
+   */
+  private static void runRequest(CapturedProperties webProps, Runnable request) {
+    if (webProps.timeout == 0) {
+      AsynchUtil.runBlocking(request);
+    } else {
+      AsynchUtil.runAsynchronously(request);
+    }
+  }
+
   /*
    * Perform a HTTP GET or POST request.
    * This method is always run on a different thread than the event thread. It does not use any
@@ -1222,7 +1286,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
             }
             // onGranted is running on the UI thread, and we are about to do network i/o, so
             // we have to run this asynchronously to get off the UI thread!
-            AsynchUtil.runAsynchronously(new Runnable() {
+            runRequest(webProps, new Runnable() {
                 @Override
                 public void run() {
                   me.performRequest(webProps, postData, postFile, httpVerb, method);
@@ -1233,10 +1297,15 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       return;
     }
 
+    if (webProps.cacheResponses) {
+      installResponseCache(form);
+    }
+
     try {
       // Open the connection.
       HttpURLConnection connection = openConnection(webProps, httpVerb);
       if (connection != null) {
+        boolean responseRead = false;
         try {
           if (postData != null) {
             writeRequestData(connection, postData);
@@ -1251,7 +1320,8 @@ public class Web extends AndroidNonvisibleComponent implements Component,
 
           if (saveResponse) {
             final String path = saveResponseContent(connection, webProps.responseFileName,
-              responseType);
+              responseType, webProps.acceptGzip);
+            responseRead = true;
 
             // Dispatch the event.
             activity.runOnUiThread(new Runnable() {
@@ -1261,7 +1331,9 @@ public class Web extends AndroidNonvisibleComponent implements Component,
                 }
               });
           } else {
-            final String responseContent = getResponseContent(connection, responseTextEncoding);
+            final String responseContent = getResponseContent(connection,
+                responseTextEncoding, webProps.acceptGzip);
+            responseRead = true;
 
             // Dispatch the event.
             activity.runOnUiThread(new Runnable() {
@@ -1296,7 +1368,11 @@ public class Web extends AndroidNonvisibleComponent implements Component,
             });
           throw new RequestTimeoutException();
         } finally {
-          connection.disconnect();
+          // Disconnecting closes the socket. Once the whole response has been read, the
+          // connection is left open so that the next request to the server can reuse it.
+          if (!responseRead) {
+            connection.disconnect();
+          }
         }
       }
     } catch (PermissionException e) {
@@ -1350,12 +1426,15 @@ public class Web extends AndroidNonvisibleComponent implements Component,
    * @throws ClassCastException
    * @throws ProtocolException thrown if the method in setRequestMethod is not correct
    */
-  private static HttpURLConnection openConnection(CapturedProperties webProps, String httpVerb)
+  @VisibleForTesting
+  static HttpURLConnection openConnection(CapturedProperties webProps, String httpVerb)
       throws IOException, ClassCastException, ProtocolException {
 
     HttpURLConnection connection = (HttpURLConnection) webProps.url.openConnection();
     connection.setConnectTimeout(webProps.timeout);
     connection.setReadTimeout(webProps.timeout);
+    // The response cache is shared, so components that do not use it must say so.
+    connection.setUseCaches(webProps.cacheResponses);
 
     if (httpVerb.equals("PUT") || httpVerb.equals("PATCH") || httpVerb.equals("DELETE")){
       // Set the Request Method; GET is the default, and if it is a POST, it will be marked as such
@@ -1371,6 +1450,11 @@ public class Web extends AndroidNonvisibleComponent implements Component,
       }
     }
 
+    // The compressed response is decompressed by getConnectionStream.
+    if (webProps.acceptGzip) {
+      connection.setRequestProperty(ACCEPT_ENCODING, GZIP);
+    }
+
     // Cookies
     if (webProps.cookies != null) {
       for (Map.Entry<String, List<String>> cookie : webProps.cookies.entrySet()) {
@@ -1451,17 +1535,20 @@ public class Web extends AndroidNonvisibleComponent implements Component,
     }
   }
 
-  private static String getResponseContent(HttpURLConnection connection, String encodingProperty) throws IOException {
+  @VisibleForTesting
+  static String getResponseContent(HttpURLConnection connection, String encodingProperty,
+      boolean decompress) throws IOException {
     // Use the content encoding to convert bytes to characters.
     String encoding = connection.getContentEncoding();
-    if (encoding == null) {
+    if (encoding == null || GZIP.equalsIgnoreCase(encoding)) {
       if (encodingProperty == null || encodingProperty.isEmpty()) {
         encoding = "UTF-8";
       } else {
         encoding = encodingProperty;
       }
     }
-    InputStreamReader reader = new InputStreamReader(getConnectionStream(connection), encoding);
+    InputStreamReader reader = new InputStreamReader(getConnectionStream(connection, decompress),
+        encoding);
     try {
       int contentLength = connection.getContentLength();
       StringBuilder sb = (contentLength != -1)
@@ -1479,7 +1566,7 @@ public class Web extends AndroidNonvisibleComponent implements Component,
   }
 
   private String saveResponseContent(HttpURLConnection connection,
-      String responseFileName, String responseType) throws IOException {
+      String responseFileName, String responseType, boolean decompress) throws IOException {
     File file = createFile(responseFileName, responseType);
 
     // Ensure the parent directory exists
@@ -1489,7 +1576,8 @@ public class Web extends AndroidNonvisibleComponent implements Component,
           parent.getAbsolutePath());
     }
 
-    BufferedInputStream in = new BufferedInputStream(getConnectionStream(connection), 0x1000);
+    BufferedInputStream in = new BufferedInputStream(getConnectionStream(connection, decompress),
+        0x1000);
     try {
       BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file), 0x1000);
       try {
@@ -1512,17 +1600,47 @@ public class Web extends AndroidNonvisibleComponent implements Component,
     return file.getAbsolutePath();
   }
 
-  private static InputStream getConnectionStream(HttpURLConnection connection) throws SocketTimeoutException {
+  private static InputStream getConnectionStream(HttpURLConnection connection, boolean decompress)
+      throws SocketTimeoutException {
     // According to the Android reference documentation for HttpURLConnection: If the HTTP response
     // indicates that an error occurred, getInputStream() will throw an IOException. Use
     // getErrorStream() to read the error response.
+    InputStream in;
     try {
-      return connection.getInputStream();
+      in = connection.getInputStream();
     } catch (SocketTimeoutException e) {
       throw e; //Rethrow exception - should not attempt to read stream for timeouts
     } catch (IOException e1) {
       // Use the error response for all other IO Exceptions.
-      return connection.getErrorStream();
+      in = connection.getErrorStream();
+    }
+    if (in != null && decompress && GZIP.equalsIgnoreCase(connection.getContentEncoding())) {
+      try {
+        in = new GZIPInputStream(in);
+      } catch (SocketTimeoutException e) {
+        throw e;
+      } catch (IOException e) {
+        Log.w(LOG_TAG, "Unable to decompress response", e);
+      }
+    }
+    return in;
+  }
+
+  /**
+   * Installs the cache used by components whose CacheResponses property is true, if it has not
+   * been installed yet. The cache is kept in the app's cache directory, and the least recently
+   * used responses are removed when it grows beyond {@link #RESPONSE_CACHE_SIZE}.
+   */
+  private static synchronized void installResponseCache(Form form) {
+    if (responseCacheInstalled) {
+      return;
+    }
+    responseCacheInstalled = true;
+    try {
+      IceCreamSandwichUtil.installHttpResponseCache(
+          new File(form.getCacheDir(), RESPONSE_CACHE_DIRECTORY), RESPONSE_CACHE_SIZE);
+    } catch (IOException e) {
+      Log.w(LOG_TAG, "Unable to install response cache", e);
     }
   }
 
@@ -1649,8 +1767,9 @@ public class Web extends AndroidNonvisibleComponent implements Component,
           }
         });
 
-    // Run and return the getDataValue FutureTask
-    AsynchUtil.runAsynchronously(getDataValueTask);
+    // Run and return the getDataValue FutureTask. It waits for the last request, so it must not
+    // take one of the threads that requests run on.
+    AsynchUtil.runBlocking(getDataValueTask);
     return getDataValueTask;
   }
 
@@ -29,7 +29,6 @@ import java.util.Date;
 import java.util.Formatter;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -61,7 +60,7 @@ public class AssetFetcher {
   private static final String LOG_TAG = AssetFetcher.class.getSimpleName();
 
   // We use a single threaded executor so we only load one asset at a time!
-  private static ExecutorService background = Executors.newSingleThreadExecutor();
+  private static ExecutorService background = AsynchUtil.newSerialExecutor();
 
   private static volatile boolean inError = false; // true means we are displaying the "End Application" Error dialog already
   private static final Object semaphore = new Object();
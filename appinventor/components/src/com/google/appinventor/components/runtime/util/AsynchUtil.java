@@ -11,11 +11,30 @@ import android.os.Looper;
 
 import android.util.Log;
 
+import com.google.appinventor.components.runtime.Form;
+import com.google.appinventor.components.runtime.OnDestroyListener;
 import com.google.appinventor.components.runtime.errors.YailRuntimeError;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Utilities for handling asynchronous calls.
  *
+ * <p>Background work runs on threads shared by the whole app rather than on a new thread for
+ * each call. There is a pool for work that mostly waits on files and the network, which is
+ * bounded so that an app sending many requests at once queues them instead of running out of
+ * memory, and a pool the size of the number of processors for work that keeps a processor
+ * busy. Work that may wait on other background work, or on a request that never times out,
+ * runs on threads created as needed instead, so that it can never starve the bounded pools.
+ * Components that need their work done in order can use a serial executor that borrows
+ * threads from the latter.</p>
+ *
  * @author markf@google.com (Mark Friedman)
  */
 
@@ -23,14 +42,85 @@ public class AsynchUtil {
 
   private static final String LOG_TAG = AsynchUtil.class.getSimpleName();
 
+  private static final int IO_THREADS = 16;
+  private static final int COMPUTATION_THREADS =
+      Math.max(1, Runtime.getRuntime().availableProcessors());
+  private static final long KEEP_ALIVE_SECONDS = 30;
+
+  private static final ThreadPoolExecutor IO_EXECUTOR = newPool("AsynchUtil-io", IO_THREADS);
+  private static final ThreadPoolExecutor COMPUTATION_EXECUTOR =
+      newPool("AsynchUtil-computation", COMPUTATION_THREADS);
+  private static final ThreadPoolExecutor BLOCKING_EXECUTOR = newBlockingPool();
+
   /**
-   * Make an asynchronous call in a separate thread.
+   * Make an asynchronous call in a separate thread. The call runs on a shared pool of threads
+   * meant for work that waits on files or the network, and is queued if all of them are busy.
+   * Calls that may block indefinitely, such as waiting for a connection, should use
+   * {@link #runBlocking(Runnable)} or {@link #runOnNewThread(Runnable)} instead.
    * @param call a {@link Runnable} to run in the thread.
    */
   public static void runAsynchronously(final Runnable call) {
+    IO_EXECUTOR.execute(call);
+  }
+
+  /**
+   * Make an asynchronous call that keeps a processor busy, such as decoding an image. At most
+   * one such call runs per processor at a time.
+   * @param call a {@link Runnable} to run in the thread.
+   */
+  public static void runComputation(final Runnable call) {
+    COMPUTATION_EXECUTOR.execute(call);
+  }
+
+  /**
+   * Make an asynchronous call that may block for a long time, such as one that waits for the
+   * result of other background work or sends a request without a timeout. The call runs on a
+   * thread of its own, which is reused by later calls once it is free.
+   * @param call a {@link Runnable} to run in the thread.
+   */
+  public static void runBlocking(final Runnable call) {
+    BLOCKING_EXECUTOR.execute(call);
+  }
+
+  /**
+   * Make an asynchronous call in a new thread of its own. This is only for calls that may not
+   * return for a long time, which would otherwise hold one of the shared threads.
+   * @param call a {@link Runnable} to run in the thread.
+   */
+  public static void runOnNewThread(final Runnable call) {
     Thread thread = new Thread(call);
     thread.start();
   }
+
+  /**
+   * Creates an executor that runs tasks one at a time, in the order they were submitted, on the
+   * threads used by {@link #runBlocking(Runnable)}. A task may wait on the result of work running
+   * on any of the shared pools, since it never takes one of their threads.
+   *
+   * @return a new serial executor
+   */
+  public static ExecutorService newSerialExecutor() {
+    return new SerialExecutor(BLOCKING_EXECUTOR);
+  }
+
+  /**
+   * Creates an executor that runs tasks one at a time, in the order they were submitted, on the
+   * threads used by {@link #runBlocking(Runnable)}. When the form is destroyed,
+   * tasks that have not started are cancelled and the running task is interrupted.
+   *
+   * @param form the form whose lifetime bounds the tasks
+   * @return a new serial executor
+   */
+  public static ExecutorService newSerialExecutor(Form form) {
+    final ExecutorService executor = newSerialExecutor();
+    form.registerForOnDestroy(new OnDestroyListener() {
+      @Override
+      public void onDestroy() {
+        executor.shutdownNow();
+      }
+    });
+    return executor;
+  }
   /**
    * Make an asynchronous call in a separate thread, with a callback that's run on the current
    * Android UI thread.
@@ -53,8 +143,41 @@ public class AsynchUtil {
         }
       }
     };
-    Thread thread = new Thread(runnable);
-    thread.start();
+    IO_EXECUTOR.execute(runnable);
+  }
+
+  private static ThreadPoolExecutor newPool(final String name, int threads) {
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    // Threads exit when there has been nothing to do for a while.
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  private static ThreadPoolExecutor newBlockingPool() {
+    // A new thread is started whenever none is free, and idle threads exit after a while.
+    return new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+        KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "AsynchUtil-blocking-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
   }
 
   public static boolean isUiThread() {
@@ -49,7 +49,8 @@ public final class ContinuationUtil {
    */
   public static <T> void callWithContinuation(final Callable<T> block,
       final Continuation<T> continuation) {
-    AsynchUtil.runAsynchronously(new Runnable() {
+    // The block may wait on other background work, so it must not take a thread of a bounded pool.
+    AsynchUtil.runBlocking(new Runnable() {
       @Override
       public void run() {
         try {
@@ -36,6 +36,18 @@ public final class CsvUtil {
     return YailList.makeList(csvList);
   }
 
+  /**
+   * Parses CSV rows from a reader into a table, one row at a time, so that
+   * the text never needs to be held in memory all at once.
+   */
+  static void fromCsvTable(Reader reader, DataTable table) throws Exception {
+    CsvParser csvParser = new CsvParser(reader);
+    while (csvParser.hasNext()) {
+      table.addRow(csvParser.next());
+    }
+    csvParser.throwAnyProblem();
+  }
+
   public static YailList fromCsvRow(String csvString) throws Exception {
     CsvParser csvParser = new CsvParser(new StringReader(csvString));
     if (csvParser.hasNext()) {
@@ -0,0 +1,339 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.json.JSONException;
+
+/**
+ * A table of strings parsed from CSV or JSON data, stored by column.
+ *
+ * <p>Columns whose values are all numbers are stored as an array of doubles,
+ * which takes a fraction of the memory of the equivalent strings. A value
+ * is only stored as a number if it can be turned back into exactly the
+ * string that was read, so the table always returns the original text.</p>
+ *
+ * <p>The rows and columns of the table are made available as YailLists, but
+ * these are only created when first requested, so a table whose columns
+ * are read one at a time (for instance, by a Chart) never holds a second
+ * copy of its contents.</p>
+ *
+ * <p>A table read from CSV keeps the length of each row, which need not be
+ * the same, and its columns are padded with empty strings to the number of
+ * rows. A table read from JSON keeps the length of each column, and its
+ * rows are padded with empty strings to the number of columns. This matches
+ * the result of transposing the parsed rows or columns with
+ * {@link ChartDataSourceUtil#getTranspose(YailList)}.</p>
+ */
+public final class DataTable {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final List<Column> columns = new ArrayList<>();
+
+  // The length of each row, for tables built from rows. Null for tables
+  // built from columns, whose rows all have one entry per column.
+  private int[] rowSizes;
+  private int rowCount;
+
+  private YailList[] rowLists;
+  private YailList[] columnLists;
+  private YailList rowsList;
+  private YailList columnsList;
+
+  /**
+   * Creates an empty table.
+   */
+  public DataTable() {
+  }
+
+  /**
+   * Reads a table from CSV text, one row at a time.
+   *
+   * @param reader the reader to parse the CSV text from
+   * @return the parsed table
+   * @throws Exception if the CSV text cannot be read or parsed
+   */
+  public static DataTable fromCsv(Reader reader) throws Exception {
+    DataTable table = new DataTable();
+    table.rowSizes = new int[INITIAL_CAPACITY];
+    CsvUtil.fromCsvTable(reader, table);
+    return table;
+  }
+
+  /**
+   * Reads a table from a JSON object, each key-value pair of which is a
+   * column. The first entry of each column is the key, followed by the
+   * elements of the value if it is a list, or the value itself otherwise.
+   *
+   * @param json the JSON text to parse
+   * @return the parsed table
+   * @throws JSONException if the JSON text cannot be parsed
+   */
+  public static DataTable fromJson(String json) throws JSONException {
+    DataTable table = new DataTable();
+    Object jsonObject = JsonUtil.getObjectFromJson(json);
+
+    // The parsed object is expected to be a List of key-value pairs. If
+    // that is not the case, the table is left empty.
+    if (jsonObject instanceof List) {
+      for (Object entry : (List<?>) jsonObject) {
+        Column column = new Column();
+        if (entry instanceof List) {
+          List<?> listEntry = (List<?>) entry;
+          column.add(listEntry.get(0).toString());
+          Object jsonValue = listEntry.get(1);
+          if (jsonValue instanceof List) {
+            for (Object jsonValueListEntry : (List<?>) jsonValue) {
+              column.add(jsonValueListEntry.toString());
+            }
+          } else {
+            column.add(jsonValue.toString());
+          }
+        }
+        table.columns.add(column);
+        table.rowCount = Math.max(table.rowCount, column.size);
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Appends a row to a table read from CSV.
+   */
+  void addRow(List<String> row) {
+    int size = row.size();
+    for (int i = columns.size(); i < size; i++) {
+      // A new column has an empty entry for each of the earlier rows.
+      Column column = new Column();
+      for (int j = 0; j < rowCount; j++) {
+        column.add("");
+      }
+      columns.add(column);
+    }
+    for (int i = 0; i < columns.size(); i++) {
+      columns.get(i).add(i < size ? row.get(i) : "");
+    }
+    if (rowCount == rowSizes.length) {
+      rowSizes = Arrays.copyOf(rowSizes, rowCount * 2);
+    }
+    rowSizes[rowCount++] = size;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  /**
+   * Returns the entry of the table at the given row and column, or the
+   * empty string if the column is shorter than the row index.
+   *
+   * @param row the 0-based index of the row
+   * @param column the 0-based index of the column
+   * @return the entry as it was read
+   */
+  public String get(int row, int column) {
+    Column c = columns.get(column);
+    return row < c.size ? c.get(row) : "";
+  }
+
+  /**
+   * Returns the entries of the first row of the table, which are the
+   * column names.
+   */
+  public synchronized YailList getColumnNames() {
+    return rowCount > 0 ? getRow(0) : new YailList();
+  }
+
+  /**
+   * Returns the rows of the table as a list of lists. The list is created
+   * the first time it is requested and the same list is returned afterward.
+   */
+  public synchronized YailList getRows() {
+    if (rowsList == null) {
+      Object[] rows = new Object[rowCount];
+      for (int i = 0; i < rowCount; i++) {
+        rows[i] = getRow(i);
+      }
+      rowsList = YailList.makeList(rows);
+    }
+    return rowsList;
+  }
+
+  /**
+   * Returns the columns of the table as a list of lists. The list is
+   * created the first time it is requested and the same list is returned
+   * afterward.
+   */
+  public synchronized YailList getColumns() {
+    if (columnsList == null) {
+      Object[] result = new Object[columns.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = getColumn(i);
+      }
+      columnsList = YailList.makeList(result);
+    }
+    return columnsList;
+  }
+
+  /**
+   * Returns a column of the table as a list. Only the requested column is
+   * created, and the same list is returned for later requests.
+   *
+   * @param index the 0-based index of the column
+   * @return the entries of the column
+   */
+  public synchronized YailList getColumn(int index) {
+    if (columnLists == null) {
+      columnLists = new YailList[columns.size()];
+    }
+    if (columnLists[index] == null) {
+      Column column = columns.get(index);
+      // Columns of a table read from CSV already hold an entry for every row.
+      String[] entries = new String[column.size];
+      for (int i = 0; i < entries.length; i++) {
+        entries[i] = column.get(i);
+      }
+      columnLists[index] = YailList.makeList(entries);
+    }
+    return columnLists[index];
+  }
+
+  private YailList getRow(int index) {
+    if (rowLists == null) {
+      rowLists = new YailList[rowCount];
+    }
+    if (rowLists[index] == null) {
+      int size = rowSizes == null ? columns.size() : rowSizes[index];
+      String[] entries = new String[size];
+      for (int i = 0; i < size; i++) {
+        entries[i] = get(index, i);
+      }
+      rowLists[index] = YailList.makeList(entries);
+    }
+    return rowLists[index];
+  }
+
+  /**
+   * A column of the table. The first entry, usually the column name, is
+   * kept as a string. The remaining entries are kept as numbers until one
+   * is found that cannot be, at which point the column switches to strings.
+   */
+  private static final class Column {
+    private String head;
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    // Marks the numbers that were written as integers, such as "3" rather than "3.0".
+    private BitSet integers = new BitSet();
+    private String[] strings;
+    private int size;
+
+    void add(String value) {
+      if (size == 0) {
+        head = value;
+        size = 1;
+        return;
+      }
+      int i = size - 1;
+      if (strings == null && !addNumber(i, value)) {
+        toStrings();
+      }
+      if (strings != null) {
+        if (i == strings.length) {
+          strings = Arrays.copyOf(strings, i * 2);
+        }
+        strings[i] = value;
+      }
+      size++;
+    }
+
+    String get(int index) {
+      if (index == 0) {
+        return head;
+      }
+      int i = index - 1;
+      if (strings != null) {
+        return strings[i];
+      } else if (integers.get(i)) {
+        return Long.toString((long) numbers[i]);
+      } else {
+        return Double.toString(numbers[i]);
+      }
+    }
+
+    private boolean addNumber(int i, String value) {
+      int length = value.length();
+      if (length == 0) {
+        return false;
+      }
+      char c = value.charAt(0);
+      if (c != '-' && (c < '0' || c > '9')) {
+        return false;
+      }
+      double number;
+      boolean integer = isInteger(value);
+      if (integer) {
+        number = Long.parseLong(value);
+      } else {
+        try {
+          number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+          return false;
+        }
+        // Values such as "2.50" or "1e3" would not be written back the same way.
+        if (!Double.toString(number).equals(value)) {
+          return false;
+        }
+      }
+      if (i == numbers.length) {
+        numbers = Arrays.copyOf(numbers, i * 2);
+      }
+      numbers[i] = number;
+      integers.set(i, integer);
+      return true;
+    }
+
+    private void toStrings() {
+      int count = size - 1;
+      String[] values = new String[Math.max(numbers.length, INITIAL_CAPACITY)];
+      for (int i = 0; i < count; i++) {
+        values[i] = get(i + 1);
+      }
+      strings = values;
+      numbers = null;
+      integers = null;
+    }
+
+    /**
+     * Tests whether a value is an integer without leading zeros that a
+     * double represents exactly.
+     */
+    private static boolean isInteger(String value) {
+      int start = value.charAt(0) == '-' ? 1 : 0;
+      int length = value.length() - start;
+      if (length == 0 || length > 15) {
+        return false;
+      }
+      if (value.charAt(start) == '0' && (length > 1 || start == 1)) {
+        return false;  // "007" and "-0" have other canonical forms
+      }
+      for (int i = start; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c < '0' || c > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
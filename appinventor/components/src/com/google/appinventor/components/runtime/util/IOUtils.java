@@ -13,6 +13,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
 
 public final class IOUtils {
   private static final int BUFFER_LENGTH = 4096;
@@ -81,6 +83,17 @@ public final class IOUtils {
    * @throws IOException if there is an underlying problem reading the stream
    */
   public static String readReader(InputStreamReader reader) throws IOException {
+    return readReader((Reader) reader);
+  }
+
+  /**
+   * Read a Reader object until the end of the stream.
+   *
+   * @param reader the reader to use
+   * @return a String containing the contents of the reader
+   * @throws IOException if there is an underlying problem reading the stream
+   */
+  public static String readReader(Reader reader) throws IOException {
     StringBuilder sb = new StringBuilder();
     char[] buffer = new char[BUFFER_LENGTH];
     int read;
@@ -103,6 +116,19 @@ public final class IOUtils {
     return s.replaceAll("\r\n", "\n");
   }
 
+  /**
+   * Replace Windows-style CRLF with Unix LF as characters are read from
+   * a Reader. This is equivalent to {@link #normalizeNewLines(String)},
+   * but does not require the whole contents to be read into memory.
+   *
+   * @param reader the reader to wrap
+   * @return a reader returning the contents of {@code reader} with CRLF
+   *     replaced by LF
+   */
+  public static Reader normalizeNewLines(Reader reader) {
+    return new NewLineNormalizingReader(reader);
+  }
+
   /**
    * Create the parent directory(-ies) of the given {@code file} if they don't exist. This does
    * not check for write permission, so callers are responsible for ensuring that the app has been
@@ -117,4 +143,54 @@ public final class IOUtils {
       throw new IOException("Unable to create directory for " + file);
     }
   }
+
+  private static final class NewLineNormalizingReader extends PushbackReader {
+    NewLineNormalizingReader(Reader in) {
+      super(in, 1);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int c = super.read();
+      if (c == '\r') {
+        int next = super.read();
+        if (next == '\n') {
+          return next;
+        } else if (next != -1) {
+          unread(next);
+        }
+      }
+      return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      int n = super.read(cbuf, off, len);
+      if (n <= 0) {
+        return n;
+      }
+      int end = off + n;
+      int out = off;
+      for (int i = off; i < end; i++) {
+        char c = cbuf[i];
+        if (c == '\r') {
+          if (i + 1 < end) {
+            if (cbuf[i + 1] == '\n') {
+              continue;  // Drop the CR, the LF is copied next
+            }
+          } else {
+            // The CR is the last character read, so look at the one after it.
+            int next = super.read();
+            if (next == '\n') {
+              c = '\n';
+            } else if (next != -1) {
+              unread(next);
+            }
+          }
+        }
+        cbuf[out++] = c;
+      }
+      return out - off;
+    }
+  }
 }
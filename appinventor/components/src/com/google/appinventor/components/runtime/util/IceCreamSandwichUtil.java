@@ -5,10 +5,14 @@
 
 package com.google.appinventor.components.runtime.util;
 
+import android.net.http.HttpResponseCache;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.widget.TextView;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * IceCreamSandwichUtil provides implementation of functionality that was added in Android Ice Cream
  * Sandwich 4.0 (API 14).
@@ -29,4 +33,19 @@ public final class IceCreamSandwichUtil {
       view.setAllCaps(allCaps);
     }
   }
+
+  /**
+   * Installs a cache for the responses of HttpURLConnections, which is used by connections that
+   * have not disabled caching. The cache is not installed on versions of Android that do not
+   * support it.
+   * @param directory the directory in which to store the cache
+   * @param maxSize the maximum size of the cache, in bytes
+   * @throws IOException if the cache cannot be created
+   */
+  public static void installHttpResponseCache(File directory, long maxSize) throws IOException {
+    if (VERSION.SDK_INT >= VERSION_CODES.ICE_CREAM_SANDWICH
+        && HttpResponseCache.getInstalled() == null) {
+      HttpResponseCache.install(directory, maxSize);
+    }
+  }
 }
@@ -0,0 +1,159 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import gnu.bytecode.ObjectType;
+import gnu.bytecode.Type;
+import gnu.expr.Compilation;
+import gnu.expr.GenericProc;
+import gnu.expr.Language;
+import gnu.expr.PrimProcedure;
+import gnu.kawa.reflect.ClassMethods;
+import gnu.lists.LList;
+import gnu.lists.Pair;
+import gnu.mapping.MethodProc;
+import gnu.mapping.Symbol;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import kawa.standard.Scheme;
+
+/**
+ * Calls methods on components from the YAIL runtime.
+ *
+ * <p>Kawa's {@code invoke} looks up the methods of the target's class by name
+ * on every call, which means reflecting over the class and creating a new
+ * procedure for each of its overloads. The methods called from blocks do not
+ * change while an app runs, so this class looks them up once for each class,
+ * method name and number of arguments, and reuses the resulting procedure.
+ * Arguments are converted to the parameter types exactly as {@code invoke}
+ * would convert them.</p>
+ */
+public final class InvokeUtil {
+
+  private static final ConcurrentMap<Key, MethodProc> METHODS =
+      new ConcurrentHashMap<Key, MethodProc>();
+
+  private InvokeUtil() {
+    // Utility classes should not be instantiated
+  }
+
+  /**
+   * Calls a method that takes no arguments, such as a property getter.
+   *
+   * @param target the object whose method is called
+   * @param methodName the name of the method, as a symbol or string
+   * @return the result of the method
+   * @throws Throwable if the method throws
+   */
+  public static Object invoke0(Object target, Object methodName) throws Throwable {
+    return getMethod(target, methodName, 0).applyN(new Object[] { target });
+  }
+
+  /**
+   * Calls a method that takes one argument, such as a property setter.
+   *
+   * @param target the object whose method is called
+   * @param methodName the name of the method, as a symbol or string
+   * @param arg the argument to the method
+   * @return the result of the method
+   * @throws Throwable if the method throws
+   */
+  public static Object invoke1(Object target, Object methodName, Object arg) throws Throwable {
+    return getMethod(target, methodName, 1).applyN(new Object[] { target, arg });
+  }
+
+  /**
+   * Calls a method with a list of arguments.
+   *
+   * @param target the object whose method is called
+   * @param methodName the name of the method, as a symbol or string
+   * @param args the arguments to the method
+   * @return the result of the method
+   * @throws Throwable if the method throws
+   */
+  public static Object invoke(Object target, Object methodName, LList args) throws Throwable {
+    Object[] argv = new Object[args.size() + 1];
+    argv[0] = target;
+    int i = 1;
+    for (Object p = args; p instanceof Pair; p = ((Pair) p).getCdr()) {
+      argv[i++] = ((Pair) p).getCar();
+    }
+    return getMethod(target, methodName, argv.length - 1).applyN(argv);
+  }
+
+  private static MethodProc getMethod(Object target, Object methodName, int arity) {
+    Key key = new Key(target.getClass(), getName(methodName), arity);
+    MethodProc method = METHODS.get(key);
+    if (method == null) {
+      method = lookupMethod(key);
+      MethodProc existing = METHODS.putIfAbsent(key, method);
+      if (existing != null) {
+        method = existing;
+      }
+    }
+    return method;
+  }
+
+  private static MethodProc lookupMethod(Key key) {
+    ObjectType type = (ObjectType) Type.make(key.clazz);
+    String name = Compilation.mangleName(key.name);
+    // YAIL is compiled as Scheme, which determines how arguments are converted.
+    Language language = Scheme.getInstance();
+    PrimProcedure[] methods = ClassMethods.getMethods(type, name, 'V', null, language);
+    // The receiver counts as an argument of a virtual method.
+    int count = ClassMethods.selectApplicable(methods, key.arity + 1);
+    if (count == 1) {
+      return methods[0];
+    } else if (count > 1) {
+      GenericProc proc = new GenericProc(name);
+      for (int i = 0; i < count; i++) {
+        proc.add(methods[i]);
+      }
+      return proc;
+    }
+    // No method takes this many arguments. Use all of the overloads so that
+    // calling them reports the same error as invoke.
+    MethodProc proc = ClassMethods.apply(type, name, 'V', language);
+    if (proc == null) {
+      throw new RuntimeException("invoke: no method named `" + name + "' in class "
+          + type.getName());
+    }
+    return proc;
+  }
+
+  private static String getName(Object methodName) {
+    if (methodName instanceof Symbol) {
+      return ((Symbol) methodName).getName();
+    }
+    return methodName.toString();
+  }
+
+  private static final class Key {
+    private final Class<?> clazz;
+    private final String name;
+    private final int arity;
+
+    Key(Class<?> clazz, String name, int arity) {
+      this.clazz = clazz;
+      this.name = name;
+      this.arity = arity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return clazz == other.clazz && arity == other.arity && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return (clazz.hashCode() * 31 + name.hashCode()) * 31 + arity;
+    }
+  }
+}
@@ -0,0 +1,359 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Parses JSON text in a single pass directly into the objects returned by
+ * {@link JsonUtil#getObjectFromJson(String, boolean)}, without first building
+ * a tree of {@link org.json.JSONObject} and {@link org.json.JSONArray}.
+ *
+ * <p>The parser only accepts strict JSON. The org.json tokener used before
+ * also accepts comments, unquoted and single quoted strings, octal and
+ * hexadecimal numbers, and other extensions, which apps may depend on. Text
+ * using any of them makes the parser give up with a
+ * {@link NotStrictJsonException}, and the caller then parses it the old way.
+ * For strict JSON, the results are the same as those of the org.json path:
+ * numbers become Integers, Longs or Doubles as the tokener would make them,
+ * and nested nulls and "true" and "false" strings are converted as by
+ * {@link JsonUtil#convertJsonItem(Object, boolean)}.</p>
+ */
+final class JsonParser {
+
+  /**
+   * Thrown when the text is not strict JSON, including when it is not JSON at all.
+   */
+  static final class NotStrictJsonException extends Exception {
+    private NotStrictJsonException() {
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      // Used for control flow only; the stack trace is never needed.
+      return this;
+    }
+  }
+
+  private static final NotStrictJsonException NOT_STRICT = new NotStrictJsonException();
+
+  private final String json;
+  private final int length;
+  private final boolean useDicts;
+  private int pos;
+
+  private JsonParser(String json, boolean useDicts) {
+    this.json = json;
+    this.length = json.length();
+    this.useDicts = useDicts;
+  }
+
+  /**
+   * Parses a JSON value.
+   *
+   * @param json the JSON text to parse
+   * @param useDicts true if JSON objects should be parsed as YailDictionary, false for
+   *     associative lists
+   * @return the parsed value
+   * @throws NotStrictJsonException if the text is not strict JSON
+   */
+  static Object parse(String json, boolean useDicts) throws NotStrictJsonException {
+    JsonParser parser = new JsonParser(json, useDicts);
+    parser.skipWhitespace();
+    Object value = parser.readValue(true);
+    parser.skipWhitespace();
+    if (parser.pos != parser.length) {
+      throw NOT_STRICT;
+    }
+    return value;
+  }
+
+  private Object readValue(boolean topLevel) throws NotStrictJsonException {
+    if (pos >= length) {
+      throw NOT_STRICT;
+    }
+    char c = json.charAt(pos);
+    switch (c) {
+      case '{':
+        return readObject();
+      case '[':
+        return readArray(topLevel);
+      case '"':
+        String value = readString();
+        if (!topLevel) {
+          if (value.equalsIgnoreCase("true")) {
+            return Boolean.TRUE;
+          } else if (value.equalsIgnoreCase("false")) {
+            return Boolean.FALSE;
+          }
+        }
+        return value;
+      case 't':
+        readLiteral("true");
+        return Boolean.TRUE;
+      case 'f':
+        readLiteral("false");
+        return Boolean.FALSE;
+      case 'n':
+        readLiteral("null");
+        // Nested nulls have always been converted to the string "null".
+        return topLevel ? null : "null";
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          return readNumber();
+        }
+        throw NOT_STRICT;
+    }
+  }
+
+  private Object readObject() throws NotStrictJsonException {
+    pos++;  // '{'
+    // The keys of JSON objects are given in sorted order, and the last of duplicate keys wins.
+    TreeMap<String, Object> entries = new TreeMap<String, Object>();
+    skipWhitespace();
+    if (peek() == '}') {
+      pos++;
+    } else {
+      while (true) {
+        if (peek() != '"') {
+          throw NOT_STRICT;
+        }
+        String key = readString();
+        skipWhitespace();
+        if (peek() != ':') {
+          throw NOT_STRICT;
+        }
+        pos++;
+        skipWhitespace();
+        entries.put(key, readValue(false));
+        skipWhitespace();
+        char c = peek();
+        pos++;
+        if (c == '}') {
+          break;
+        } else if (c != ',') {
+          throw NOT_STRICT;
+        }
+        skipWhitespace();
+      }
+    }
+    if (useDicts) {
+      YailDictionary result = new YailDictionary();
+      result.putAll(entries);
+      return result;
+    }
+    List<Object> result = new ArrayList<Object>(entries.size());
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      List<Object> pair = new ArrayList<Object>(2);
+      pair.add(entry.getKey());
+      pair.add(entry.getValue());
+      result.add(pair);
+    }
+    return result;
+  }
+
+  private Object readArray(boolean topLevel) throws NotStrictJsonException {
+    pos++;  // '['
+    List<Object> result = new ArrayList<Object>();
+    skipWhitespace();
+    if (peek() == ']') {
+      pos++;
+    } else {
+      while (true) {
+        result.add(readValue(false));
+        skipWhitespace();
+        char c = peek();
+        pos++;
+        if (c == ']') {
+          break;
+        } else if (c != ',') {
+          throw NOT_STRICT;
+        }
+        skipWhitespace();
+      }
+    }
+    // The top level array has always been returned as a plain list.
+    return useDicts && !topLevel ? YailList.makeList(result) : result;
+  }
+
+  private String readString() throws NotStrictJsonException {
+    int start = ++pos;  // skip '"'
+    // Most strings have no escapes and can be taken from the text as they are.
+    while (pos < length) {
+      char c = json.charAt(pos);
+      if (c == '"') {
+        return json.substring(start, pos++);
+      } else if (c == '\\') {
+        break;
+      }
+      pos++;
+    }
+    StringBuilder sb = new StringBuilder(json.substring(start, pos));
+    while (pos < length) {
+      char c = json.charAt(pos++);
+      if (c == '"') {
+        return sb.toString();
+      } else if (c != '\\') {
+        sb.append(c);
+        continue;
+      }
+      if (pos >= length) {
+        break;
+      }
+      c = json.charAt(pos++);
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          sb.append(c);
+          break;
+        case 'b':
+          sb.append('\b');
+          break;
+        case 'f':
+          sb.append('\f');
+          break;
+        case 'n':
+          sb.append('\n');
+          break;
+        case 'r':
+          sb.append('\r');
+          break;
+        case 't':
+          sb.append('\t');
+          break;
+        case 'u':
+          if (pos + 4 > length) {
+            throw NOT_STRICT;
+          }
+          int code = 0;
+          for (int i = 0; i < 4; i++) {
+            char h = json.charAt(pos++);
+            int digit = h >= '0' && h <= '9' ? h - '0'
+                : h >= 'a' && h <= 'f' ? h - 'a' + 10
+                : h >= 'A' && h <= 'F' ? h - 'A' + 10 : -1;
+            if (digit < 0) {
+              throw NOT_STRICT;
+            }
+            code = code * 16 + digit;
+          }
+          sb.append((char) code);
+          break;
+        default:
+          throw NOT_STRICT;
+      }
+    }
+    throw NOT_STRICT;  // unterminated string
+  }
+
+  private void readLiteral(String literal) throws NotStrictJsonException {
+    if (!json.startsWith(literal, pos)) {
+      throw NOT_STRICT;
+    }
+    pos += literal.length();
+    checkEndOfLiteral();
+  }
+
+  private Object readNumber() throws NotStrictJsonException {
+    int start = pos;
+    boolean integral = true;
+    if (peek() == '-') {
+      pos++;
+    }
+    if (peek() == '0') {
+      pos++;  // a leading zero makes the tokener read an octal number
+    } else if (!readDigits()) {
+      throw NOT_STRICT;
+    }
+    if (peek() == '.') {
+      integral = false;
+      pos++;
+      if (!readDigits()) {
+        throw NOT_STRICT;
+      }
+    }
+    if (peek() == 'e' || peek() == 'E') {
+      pos++;
+      if (peek() == '+' || peek() == '-') {
+        pos++;
+      }
+      if (!readDigits()) {
+        throw NOT_STRICT;
+      }
+    }
+    checkEndOfLiteral();
+    String literal = json.substring(start, pos);
+
+    // Convert the number as the org.json tokener does.
+    if (integral) {
+      try {
+        long value = Long.parseLong(literal);
+        if (value <= Integer.MAX_VALUE && value >= Integer.MIN_VALUE) {
+          return (int) value;
+        }
+        return value;
+      } catch (NumberFormatException e) {
+        // Exponents and integers too large for a long are parsed as doubles.
+      }
+    }
+    Double value = Double.valueOf(literal);
+    if (value.isInfinite()) {
+      // JSONObject rejects infinite values, so leave them for the tokener to report.
+      throw NOT_STRICT;
+    }
+    return value;
+  }
+
+  private boolean readDigits() {
+    int start = pos;
+    while (pos < length) {
+      char c = json.charAt(pos);
+      if (c < '0' || c > '9') {
+        break;
+      }
+      pos++;
+    }
+    return pos > start;
+  }
+
+  /**
+   * Checks that a literal or number is followed by the end of the text or by a character that
+   * can follow a value. The tokener would otherwise read a longer literal, such as "true1".
+   */
+  private void checkEndOfLiteral() throws NotStrictJsonException {
+    if (pos < length) {
+      switch (json.charAt(pos)) {
+        case ',':
+        case ']':
+        case '}':
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+          break;
+        default:
+          throw NOT_STRICT;
+      }
+    }
+  }
+
+  private char peek() {
+    return pos < length ? json.charAt(pos) : '\0';
+  }
+
+  private void skipWhitespace() {
+    while (pos < length) {
+      char c = json.charAt(pos);
+      if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+        break;
+      }
+      pos++;
+    }
+  }
+}
@@ -246,14 +246,39 @@ public class JsonUtil {
   }
 
   public static String getJsonRepresentation(Object value) throws JSONException {
+    // Nested values are all written to the same builder rather than being converted to strings
+    // and then copied into the representation of their parent.
+    StringBuilder sb = new StringBuilder();
+    appendJsonRepresentation(sb, value);
+    return sb.toString();
+  }
+
+  private static void appendJsonRepresentation(StringBuilder sb, Object value)
+      throws JSONException {
     if (value == null || value.equals(null)) {
-      return "null";
+      sb.append("null");
+      return;
     }
     if (value instanceof FString) {
-      return JSONObject.quote(value.toString());
+      sb.append(JSONObject.quote(value.toString()));
+      return;
     }
     if (value instanceof YailList) {
-      return ((YailList) value).toJSONString();
+      YailList list = (YailList) value;
+      try {
+        sb.append('[');
+        int size = list.size();
+        for (int i = 1; i <= size; i++) {
+          if (i > 1) {
+            sb.append(',');
+          }
+          appendJsonRepresentation(sb, list.get(i));
+        }
+        sb.append(']');
+      } catch (JSONException e) {
+        throw new YailRuntimeError("List failed to convert to JSON.", "JSON Creation Error.");
+      }
+      return;
     }
     // The Json tokener used in getObjectFromJson cannot handle
     // fractions.  So we Json encode fractions by first converting
@@ -263,19 +288,21 @@ public class JsonUtil {
     // StoreValue.  See the "warning" comment in runtime.scm at
     // call-component-method.
     if (value instanceof IntFraction) {
-      return JSONObject.numberToString((Number) ((IntFraction)value).doubleValue());
+      sb.append(JSONObject.numberToString((Number) ((IntFraction)value).doubleValue()));
+      return;
     }
     if (value instanceof Number) {
-      return JSONObject.numberToString((Number) value);
+      sb.append(JSONObject.numberToString((Number) value));
+      return;
     }
     if (value instanceof Boolean) {
-      return value.toString();
+      sb.append(value.toString());
+      return;
     }
     if (value instanceof List) {
       value = ((List)value).toArray();
     }
     if (value instanceof YailDictionary) {
-      StringBuilder sb = new StringBuilder();
       YailDictionary dict = (YailDictionary) value;
       String sep = "";
       sb.append('{');
@@ -283,24 +310,24 @@ public class JsonUtil {
         sb.append(sep);
         sb.append(JSONObject.quote(entry.getKey().toString()));
         sb.append(':');
-        sb.append(getJsonRepresentation(entry.getValue()));
+        appendJsonRepresentation(sb, entry.getValue());
         sep = ",";
       }
       sb.append('}');
-      return sb.toString();
+      return;
     }
     if (value.getClass().isArray()) {
-      StringBuilder sb = new StringBuilder();
       sb.append("[");
       String separator = "";
       for (Object o: (Object[]) value) {
-        sb.append(separator).append(getJsonRepresentation(o));
+        sb.append(separator);
+        appendJsonRepresentation(sb, o);
         separator = ",";
       }
       sb.append("]");
-      return sb.toString();
+      return;
     }
-    return JSONObject.quote(value.toString());
+    sb.append(JSONObject.quote(value.toString()));
   }
 
   /**
@@ -338,26 +365,31 @@ public class JsonUtil {
       // We handle this case explicitly since nextValue() appears to throw an error
       // when given the empty string.
       return "";
-    } else {
-      final Object value = (new JSONTokener(jsonString)).nextValue();
-      // Note that the JSONTokener may return a value equals() to null.
-      if (value == null || value.equals(JSONObject.NULL)) {
-        return null;
-      } else if ((value instanceof String) ||
-          (value instanceof Number) ||
-          (value instanceof Boolean)) {
-        return value;
-      } else if (value instanceof JSONArray) {
-        return getListFromJsonArray((JSONArray)value, useDicts);
-      } else if (value instanceof JSONObject) {
-        if (useDicts) {
-          return getDictionaryFromJsonObject((JSONObject) value);
-        } else {
-          return getListFromJsonObject((JSONObject) value);
-        }
+    }
+    try {
+      // Most JSON is strict and can be parsed in a single pass directly into YAIL values.
+      return JsonParser.parse(jsonString, useDicts);
+    } catch (JsonParser.NotStrictJsonException e) {
+      // Fall back to the lenient org.json tokener below.
+    }
+    final Object value = (new JSONTokener(jsonString)).nextValue();
+    // Note that the JSONTokener may return a value equals() to null.
+    if (value == null || value.equals(JSONObject.NULL)) {
+      return null;
+    } else if ((value instanceof String) ||
+        (value instanceof Number) ||
+        (value instanceof Boolean)) {
+      return value;
+    } else if (value instanceof JSONArray) {
+      return getListFromJsonArray((JSONArray)value, useDicts);
+    } else if (value instanceof JSONObject) {
+      if (useDicts) {
+        return getDictionaryFromJsonObject((JSONObject) value);
+      } else {
+        return getListFromJsonObject((JSONObject) value);
       }
-      throw new JSONException("Invalid JSON string.");
     }
+    throw new JSONException("Invalid JSON string.");
   }
 
   /**
@@ -444,60 +476,7 @@ public class JsonUtil {
    * @return  YailList of columns, where each entry is a YailList
    */
   public static YailList getColumnsFromJson(String json) throws JSONException {
-    // Parse object from JSON object
-    Object jsonObject = getObjectFromJson(json);
-
-    // Generate columns from parsed JSON object.
-    // Only proceed with column generation logic if the parsed
-    // object is a List. Otherwise, return empty columns
-    List<YailList> resultColumns = new ArrayList<>();
-
-    // JSON object is expected to be of type ArrayList.
-    // If that is not the case, parsing is not done.
-    if (jsonObject instanceof List) {
-      // Cast parsed object to List, which represents
-      // all the JSON entries
-      List<?> jsonList = (List<?>) jsonObject;
-
-      for (Object entry : jsonList) {
-        List<String> columnElements = new ArrayList<>();
-
-        // Expected type of the entry is a List (key, value pair)
-        // If this is not the case, add nothing to the column elements.
-        if (entry instanceof List) {
-          List<?> listEntry = (List<?>) entry;
-
-          // Add first value as a String to the column elements
-          // List. The first entry should always be a String,
-          // since it is the key.
-          columnElements.add(listEntry.get(0).toString());
-
-          // Get the value of the key-value pair
-          Object jsonValue = listEntry.get(1);
-
-          // List types require different handling
-          if (jsonValue instanceof List) {
-            // If the value is a List, then add all
-            // entries to the column
-            List<?> jsonValueList = (List<?>)jsonValue;
-
-            for (Object jsonValueListEntry : jsonValueList) {
-              columnElements.add(jsonValueListEntry.toString());
-            }
-          } else {
-            // If the value is not a List, then convert the value to a String and add it.
-            columnElements.add(jsonValue.toString());
-          }
-        }
-
-        // Convert parsed column elements to YailList, and add
-        // the column to the resulting columns list
-        resultColumns.add(YailList.makeList(columnElements));
-      }
-    }
-
-    // Construct and return a YailList from the resulting columns
-    return YailList.makeList(resultColumns);
+    return DataTable.fromJson(json).getColumns();
   }
 
   /**
@@ -100,7 +100,8 @@ public class ListViewArrayAdapterImageSingleText {
     drawable = null;
     if (imagePath != "") {
       try {
-        drawable = MediaUtil.getBitmapDrawable(container.$form(), imagePath);
+        drawable = MediaUtil.getBitmapDrawable(container.$form(), imagePath,
+            imageWidth, imageHeight);
       } catch (IOException ioe) {
         Log.e("Image", "Unable to load " + imagePath);
       }
@@ -108,7 +108,8 @@ public class ListViewArrayAdapterImageTwoText {
     Drawable drawable = null;
     if (imagePath != null) {
       try {
-        drawable = MediaUtil.getBitmapDrawable(container.$form(), imagePath);
+        drawable = MediaUtil.getBitmapDrawable(container.$form(), imagePath,
+            imageWidth, imageHeight);
       } catch (IOException ioe) {
         Log.e("Image", "Unable to load " + imagePath);
       }
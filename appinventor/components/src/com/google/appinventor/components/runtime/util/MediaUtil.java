@@ -28,6 +28,8 @@ import android.view.Display;
 import android.view.WindowManager;
 import android.widget.VideoView;
 
+import androidx.collection.LruCache;
+
 import com.google.appinventor.components.runtime.Form;
 import com.google.appinventor.components.runtime.ReplForm;
 import com.google.appinventor.components.runtime.errors.PermissionException;
@@ -73,6 +75,18 @@ public class MediaUtil {
   // tempFileMap maps cached media (assets, etc) to their respective temp files.
   private static final Map<String, File> tempFileMap = new HashMap<String, File>();
 
+  // bitmapCache holds recently decoded images, shared by all components, so that the same image
+  // shown in many places, such as the rows of a ListView or many ImageSprites, is decoded once.
+  // Its size is measured in bytes, and it may use up to an eighth of the heap.
+  private static final LruCache<String, Bitmap> bitmapCache =
+      new LruCache<String, Bitmap>(
+          (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE)) {
+        @Override
+        protected int sizeOf(String key, Bitmap bitmap) {
+          return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+      };
+
   private MediaUtil() {
   }
 
@@ -427,6 +441,23 @@ public class MediaUtil {
    */
   public static BitmapDrawable getBitmapDrawable(Form form, String mediaPath)
     throws IOException {
+    return getBitmapDrawable(form, mediaPath, 0, 0);
+  }
+
+  /**
+   * Loads the image specified by mediaPath and returns a {@link Drawable}, decoding it at no
+   * more than twice the size of the view that will show it.
+   *
+   * <p/>If mediaPath is null or empty, null is returned.
+   *
+   * @param form the Form
+   * @param mediaPath the path to the media
+   * @param viewWidth the width in pixels of the view showing the image, or 0 if not known
+   * @param viewHeight the height in pixels of the view showing the image, or 0 if not known
+   * @return a Drawable or null
+   */
+  public static BitmapDrawable getBitmapDrawable(Form form, String mediaPath, int viewWidth,
+      int viewHeight) throws IOException {
     if (mediaPath == null || mediaPath.length() == 0) {
       return null;
     }
@@ -441,7 +472,7 @@ public class MediaUtil {
           syncer.wakeup(result);
         }
       };
-    getBitmapDrawableAsync(form, mediaPath, continuation);
+    getBitmapDrawableAsync(form, mediaPath, -1, -1, viewWidth, viewHeight, continuation);
     syncer.waitfor();
     BitmapDrawable result = syncer.getResult();
     if (result == null) {
@@ -486,12 +517,30 @@ public class MediaUtil {
   public static void getBitmapDrawableAsync(final Form form, final String mediaPath,
       final int desiredWidth, final int desiredHeight,
       final AsyncCallbackPair<BitmapDrawable> continuation) {
+    getBitmapDrawableAsync(form, mediaPath, desiredWidth, desiredHeight, 0, 0, continuation);
+  }
+
+  private static void getBitmapDrawableAsync(final Form form, final String mediaPath,
+      final int desiredWidth, final int desiredHeight, final int viewWidth, final int viewHeight,
+      final AsyncCallbackPair<BitmapDrawable> continuation) {
     if (mediaPath == null || mediaPath.length() == 0) {
       continuation.onSuccess(null);
       return;
     }
 
     final MediaSource mediaSource = determineMediaSource(form, mediaPath);
+    final String cacheKey = getBitmapCacheKey(form, mediaPath, mediaSource,
+        desiredWidth, desiredHeight, viewWidth, viewHeight);
+    if (cacheKey != null) {
+      Bitmap cached = bitmapCache.get(cacheKey);
+      if (cached != null) {
+        // Each caller gets its own drawable, since drawables hold state such as their bounds.
+        BitmapDrawable drawable = new BitmapDrawable(form.getResources(), cached);
+        drawable.setTargetDensity(form.getResources().getDisplayMetrics());
+        continuation.onSuccess(drawable);
+        return;
+      }
+    }
 
     Runnable loadImage = new Runnable() {
       @Override
@@ -550,7 +599,8 @@ public class MediaUtil {
         buf = null;
         try {
           bis.mark(read);
-          BitmapFactory.Options options = getBitmapOptions(form, bis, mediaPath);
+          BitmapFactory.Options options =
+              getBitmapOptions(form, bis, mediaPath, viewWidth, viewHeight);
           bis.reset();
           BitmapDrawable originalBitmapDrawable = new BitmapDrawable(form.getResources(),
               decodeStream(bis, null, options));
@@ -570,6 +620,7 @@ public class MediaUtil {
           originalBitmapDrawable.setTargetDensity(form.getResources().getDisplayMetrics());
           boolean needsResize = desiredWidth > 0 && desiredHeight >= 0;
           if (!needsResize && (options.inSampleSize != 1 || form.deviceDensity() == 1.0f)) {
+            cacheBitmap(cacheKey, originalBitmapDrawable.getBitmap());
             continuation.onSuccess(originalBitmapDrawable);
             return;
           }
@@ -589,6 +640,7 @@ public class MediaUtil {
           scaledBitmapDrawable.setTargetDensity(form.getResources().getDisplayMetrics());
           originalBitmapDrawable = null; // So it will get GC'd on the next line
           System.gc();                   // We likely used a lot of memory, so gc now.
+          cacheBitmap(cacheKey, scaledBitmap);
           continuation.onSuccess(scaledBitmapDrawable);
         } catch (Exception e) {
           Log.w(LOG_TAG, "Exception while loading media.", e);
@@ -605,7 +657,68 @@ public class MediaUtil {
         }
       }
     };
-    AsynchUtil.runAsynchronously(loadImage);
+    switch (mediaSource) {
+      case URL:
+      case CONTENT_URI:
+      case CONTACT_URI:
+        // These may wait a long time on the network or another app, so they must not hold up
+        // the decoding of local images.
+        AsynchUtil.runAsynchronously(loadImage);
+        break;
+      default:
+        // Decoding is limited to one image per processor, since each one needs a lot of memory.
+        AsynchUtil.runComputation(loadImage);
+        break;
+    }
+  }
+
+  /**
+   * Returns the key under which the image at mediaPath is kept in the bitmap cache, or null if it
+   * must not be cached. Images from URLs and content providers, such as the picture from a web
+   * cam, may change at any time and are always loaded again. Files are keyed by their length and
+   * modification time, so that a file written over, such as by Canvas.SaveAs, is decoded again.
+   */
+  private static String getBitmapCacheKey(Form form, String mediaPath, MediaSource mediaSource,
+      int desiredWidth, int desiredHeight, int viewWidth, int viewHeight) {
+    String version;
+    try {
+      File file;
+      switch (mediaSource) {
+        case ASSET:
+          file = null;
+          break;
+        case REPL_ASSET:
+          file = new File(fileUrlToFilePath(form.getAssetPath(mediaPath)));
+          break;
+        case PRIVATE_DATA:
+        case SDCARD:
+          file = new File(mediaPath);
+          break;
+        case FILE_URL:
+          file = new File(fileUrlToFilePath(mediaPath));
+          break;
+        default:
+          return null;
+      }
+      if (file == null) {
+        version = "";
+      } else if (RUtil.needsFilePermission(form, mediaPath, null) || !file.isFile()) {
+        // Leave permission checks and missing files to the normal loading path.
+        return null;
+      } else {
+        version = file.length() + ":" + file.lastModified();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return mediaSource + ":" + mediaPath + "|" + version + "|" + desiredWidth + "x" + desiredHeight
+        + "|" + viewWidth + "x" + viewHeight;
+  }
+
+  private static void cacheBitmap(String cacheKey, Bitmap bitmap) {
+    if (cacheKey != null && bitmap != null) {
+      bitmapCache.put(cacheKey, bitmap);
+    }
   }
 
   private static Bitmap decodeStream(InputStream is, Rect outPadding, BitmapFactory.Options opts) {
@@ -641,7 +754,8 @@ public class MediaUtil {
     }
   }
 
-  private static BitmapFactory.Options getBitmapOptions(Form form, InputStream is, String mediaPath) {
+  private static BitmapFactory.Options getBitmapOptions(Form form, InputStream is, String mediaPath,
+      int viewWidth, int viewHeight) {
     // Get the size of the image.
     BitmapFactory.Options options = new BitmapFactory.Options();
     options.inJustDecodeBounds = true;
@@ -669,10 +783,8 @@ public class MediaUtil {
       maxHeight = (int) (display.getHeight() / form.deviceDensity());
     }
 
-    int sampleSize = 1;
-    while ((imageWidth / sampleSize > maxWidth) && (imageHeight / sampleSize > maxHeight)) {
-      sampleSize *= 2;
-    }
+    int sampleSize = getSampleSize(imageWidth, imageHeight, maxWidth, maxHeight,
+        viewWidth, viewHeight);
     options = new BitmapFactory.Options();
     Log.d(LOG_TAG, "getBitmapOptions: sampleSize = " + sampleSize + " mediaPath = " + mediaPath
       + " maxWidth = " + maxWidth + " maxHeight = " + maxHeight +
@@ -681,6 +793,24 @@ public class MediaUtil {
     return options;
   }
 
+  static int getSampleSize(int imageWidth, int imageHeight, int maxWidth, int maxHeight,
+      int viewWidth, int viewHeight) {
+    int sampleSize = 1;
+    while ((imageWidth / sampleSize > maxWidth) && (imageHeight / sampleSize > maxHeight)) {
+      sampleSize *= 2;
+    }
+    // If the size of the view showing the image is known, sample the image further as long as it
+    // still fills the view, so that, for example, thumbnails in a ListView don't use the memory of
+    // full size photos.
+    if (viewWidth > 0 && viewHeight > 0) {
+      while ((imageWidth / (sampleSize * 2) >= viewWidth)
+          && (imageHeight / (sampleSize * 2) >= viewHeight)) {
+        sampleSize *= 2;
+      }
+    }
+    return sampleSize;
+  }
+
   // SoundPool related methods
 
   /**
@@ -0,0 +1,124 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list backed by a circular array, so that elements can be added to or
+ * removed from either end in constant time.
+ *
+ * <p>This is meant for lists that behave like a sliding window, such as the
+ * entries of a Chart receiving real time data, where every new entry at the
+ * end is matched by the removal of the oldest one at the start. Removing the
+ * first element of an {@link java.util.ArrayList} moves every other element.
+ * Insertions and removals elsewhere move the elements on whichever side of
+ * the index is shorter.</p>
+ *
+ * @param <E> the type of the elements of the list
+ */
+public class RingBufferList<E> extends AbstractList<E> implements RandomAccess {
+  private static final int INITIAL_CAPACITY = 16;
+
+  // The capacity is always a power of two, so that indexes can be wrapped with a mask.
+  private Object[] elements = new Object[INITIAL_CAPACITY];
+  private int head;
+  private int size;
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public E get(int index) {
+    checkIndex(index, size - 1);
+    return (E) elements[position(index)];
+  }
+
+  @Override
+  public E set(int index, E element) {
+    checkIndex(index, size - 1);
+    int position = position(index);
+    @SuppressWarnings("unchecked")
+    E old = (E) elements[position];
+    elements[position] = element;
+    return old;
+  }
+
+  @Override
+  public void add(int index, E element) {
+    checkIndex(index, size);
+    if (size == elements.length) {
+      grow();
+    }
+    if (index < size / 2) {
+      head = (head - 1) & (elements.length - 1);
+      for (int i = 0; i < index; i++) {
+        elements[position(i)] = elements[position(i + 1)];
+      }
+    } else {
+      for (int i = size; i > index; i--) {
+        elements[position(i)] = elements[position(i - 1)];
+      }
+    }
+    elements[position(index)] = element;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public E remove(int index) {
+    checkIndex(index, size - 1);
+    @SuppressWarnings("unchecked")
+    E old = (E) elements[position(index)];
+    if (index < size / 2) {
+      for (int i = index; i > 0; i--) {
+        elements[position(i)] = elements[position(i - 1)];
+      }
+      elements[head] = null;
+      head = (head + 1) & (elements.length - 1);
+    } else {
+      for (int i = index; i < size - 1; i++) {
+        elements[position(i)] = elements[position(i + 1)];
+      }
+      elements[position(size - 1)] = null;
+    }
+    size--;
+    modCount++;
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(elements, null);
+    head = 0;
+    size = 0;
+    modCount++;
+  }
+
+  private int position(int index) {
+    return (head + index) & (elements.length - 1);
+  }
+
+  private void grow() {
+    Object[] grown = new Object[elements.length * 2];
+    for (int i = 0; i < size; i++) {
+      grown[i] = elements[position(i)];
+    }
+    elements = grown;
+    head = 0;
+  }
+
+  private void checkIndex(int index, int max) {
+    if (index < 0 || index > max) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+}
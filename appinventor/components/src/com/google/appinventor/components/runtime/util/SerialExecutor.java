@@ -0,0 +1,142 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An executor that runs its tasks one at a time, in the order they were submitted, using the
+ * threads of another executor.
+ *
+ * <p>Components that need their background work to happen in order, such as reading a file and
+ * then answering queries about its contents, used to create a single thread executor each. A
+ * serial executor gives the same guarantee while sharing the threads of {@link AsynchUtil}, so
+ * that it holds no thread at all while it has nothing to do. Its tasks may wait on the results
+ * of other background work, so the executor it borrows threads from should start a new thread
+ * whenever none is free rather than queue the task.</p>
+ *
+ * <p>{@link #shutdownNow()} cancels the tasks that have not started and interrupts the one that
+ * is running, if any.</p>
+ */
+public final class SerialExecutor extends AbstractExecutorService {
+  private final Executor executor;
+  private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+  private Runnable active;
+  private Thread runner;
+  private boolean shutdown;
+
+  /**
+   * Creates a new SerialExecutor.
+   *
+   * @param executor the executor whose threads run the tasks
+   */
+  public SerialExecutor(Executor executor) {
+    this.executor = executor;
+  }
+
+  @Override
+  public synchronized void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    if (shutdown) {
+      throw new RejectedExecutionException("Executor has been shut down");
+    }
+    tasks.add(command);
+    if (active == null) {
+      scheduleNext();
+    }
+  }
+
+  @Override
+  public synchronized void shutdown() {
+    shutdown = true;
+    notifyAll();
+  }
+
+  @Override
+  public synchronized List<Runnable> shutdownNow() {
+    shutdown = true;
+    List<Runnable> pending = new ArrayList<Runnable>(tasks);
+    tasks.clear();
+    for (Runnable task : pending) {
+      // Nothing will run these, so do not leave anyone waiting on their results.
+      if (task instanceof Future) {
+        ((Future<?>) task).cancel(false);
+      }
+    }
+    if (runner != null) {
+      runner.interrupt();
+    }
+    notifyAll();
+    return pending;
+  }
+
+  @Override
+  public synchronized boolean isShutdown() {
+    return shutdown;
+  }
+
+  @Override
+  public synchronized boolean isTerminated() {
+    return shutdown && active == null;
+  }
+
+  @Override
+  public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+      throws InterruptedException {
+    long remaining = unit.toNanos(timeout);
+    long deadline = System.nanoTime() + remaining;
+    while (!isTerminated()) {
+      if (remaining <= 0) {
+        return false;
+      }
+      TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      remaining = deadline - System.nanoTime();
+    }
+    return true;
+  }
+
+  private synchronized void scheduleNext() {
+    final Runnable task = tasks.poll();
+    if (task == null) {
+      active = null;
+      notifyAll();
+      return;
+    }
+    active = new Runnable() {
+      @Override
+      public void run() {
+        synchronized (SerialExecutor.this) {
+          runner = Thread.currentThread();
+        }
+        try {
+          task.run();
+        } finally {
+          synchronized (SerialExecutor.this) {
+            runner = null;
+          }
+          scheduleNext();
+        }
+      }
+    };
+    try {
+      executor.execute(active);
+    } catch (RejectedExecutionException e) {
+      active = null;
+      tasks.clear();
+      throw e;
+    }
+  }
+}
@@ -21,6 +21,14 @@ import org.json.JSONException;
  * by the Kawa framework. YailList is the main list primitive used
  * by App Inventor components.
  *
+ * <p>The contents of the list are still a chain of Pairs, so that Scheme
+ * code can walk them with car and cdr. In addition, a YailList keeps an
+ * array of the pairs in the chain so that size, getObject and setObject
+ * run in constant time, and appending to the list runs in amortized
+ * constant time. The array is checked against the chain before each use
+ * and rebuilt if the chain was changed behind its back, so code that
+ * changes the structure of the list should use the mutators below.</p>
+ *
  */
 @SuppressWarnings("rawtypes")
 public class YailList extends Pair implements YailObject {
@@ -35,6 +43,13 @@ public class YailList extends Pair implements YailObject {
   // legitimate Yail data types.  See the definition of sanitization
   // in runtime.scm.
 
+  // The pairs holding the elements of the list, in order. Only the first
+  // nodeCount entries are used; the rest are room to grow.
+  private transient Pair[] nodes;
+  private transient int nodeCount;
+  // The contents of the list when nodes was built.
+  private transient Object indexedContents;
+
   /**
    * Create an empty YailList.
    */
@@ -147,19 +162,7 @@ public class YailList extends Pair implements YailObject {
    */
   public String toJSONString() {
     try {
-      StringBuilder json = new StringBuilder();
-      String separator = "";
-      json.append('[');
-      int size = this.size();
-      for (int i = 1; i <= size; i++) {
-        Object value = get(i);
-        json.append(separator).append(JsonUtil.getJsonRepresentation(value));
-        separator = ",";
-      }
-      json.append(']');
-
-      return json.toString();
-
+      return JsonUtil.getJsonRepresentation(this);
     } catch (JSONException e) {
       throw new YailRuntimeError("List failed to convert to JSON.", "JSON Creation Error.");
     }
@@ -170,7 +173,31 @@ public class YailList extends Pair implements YailObject {
    */
   @Override
   public int size() {
-    return super.size() - 1;
+    if (index() == null) {
+      return super.size() - 1;
+    }
+    return nodeCount;
+  }
+
+  /**
+   * Return the item at the given position of the underlying Pair, where
+   * position 0 is the list header and position 1 is the first item.
+   */
+  @Override
+  public Object get(int index) {
+    Pair[] items = index();
+    if (items == null || index < 0 || index > nodeCount) {
+      return super.get(index);
+    } else if (index == 0) {
+      return car;
+    }
+    return items[index - 1].getCar();
+  }
+
+  @Override
+  public void setCdr(Object cdr) {
+    super.setCdr(cdr);
+    invalidateIndex();
   }
 
   /**
@@ -200,4 +227,143 @@ public class YailList extends Pair implements YailObject {
   public Object getObject(int index) {
     return get(index + 1);
   }
+
+  /**
+   * Replace the Object at the given index.
+   */
+  public void setObject(int index, Object value) {
+    checkIndex(index, size() - 1);
+    nodes[index].setCar(value);
+  }
+
+  /**
+   * Insert an Object so that it ends up at the given index. The index may
+   * be equal to the size of the list, in which case the Object is appended.
+   */
+  public void insertObject(int index, Object value) {
+    checkIndex(index, size());
+    if (index == nodeCount) {
+      appendNode(new Pair(value, LList.Empty));
+      return;
+    }
+    Pair node;
+    if (index == 0) {
+      node = new Pair(value, cdr);
+      cdr = node;
+    } else {
+      Pair previous = nodes[index - 1];
+      node = new Pair(value, previous.getCdr());
+      previous.setCdr(node);
+    }
+    ensureCapacity(nodeCount + 1);
+    System.arraycopy(nodes, index, nodes, index + 1, nodeCount - index);
+    nodes[index] = node;
+    nodeCount++;
+    indexedContents = cdr;
+  }
+
+  /**
+   * Remove the Object at the given index.
+   */
+  public void removeObject(int index) {
+    checkIndex(index, size() - 1);
+    Object next = nodes[index].getCdr();
+    if (index == 0) {
+      cdr = next;
+    } else {
+      nodes[index - 1].setCdr(next);
+    }
+    System.arraycopy(nodes, index + 1, nodes, index, nodeCount - index - 1);
+    nodes[--nodeCount] = null;
+    indexedContents = cdr;
+  }
+
+  /**
+   * Append the items of another YailList to the end of this one. The
+   * items are not copied, but the pairs holding them are, so the two
+   * lists do not share structure.
+   */
+  public void appendList(YailList other) {
+    // Copy the items first, in case other is this list.
+    Object[] items = other.toArray();
+    if (index() == null) {
+      throw new YailRuntimeError("YailList is not a proper list", "YailList Error.");
+    }
+    ensureCapacity(nodeCount + items.length);
+    for (Object item : items) {
+      appendNode(new Pair(item, LList.Empty));
+    }
+  }
+
+  /**
+   * Discard the index of the pairs in the list. It will be rebuilt the
+   * next time it is needed.
+   */
+  public void invalidateIndex() {
+    nodes = null;
+    nodeCount = 0;
+    indexedContents = null;
+  }
+
+  private void checkIndex(int index, int max) {
+    if (index < 0 || index > max || index() == null) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+  }
+
+  /**
+   * Link a new pair at the end of the chain and record it in the index,
+   * which must be valid.
+   */
+  private void appendNode(Pair node) {
+    if (nodeCount == 0) {
+      cdr = node;
+      indexedContents = node;
+    } else {
+      nodes[nodeCount - 1].setCdr(node);
+    }
+    ensureCapacity(nodeCount + 1);
+    nodes[nodeCount++] = node;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > nodes.length) {
+      Pair[] grown = new Pair[Math.max(capacity, nodes.length + (nodes.length >> 1))];
+      System.arraycopy(nodes, 0, grown, 0, nodeCount);
+      nodes = grown;
+    }
+  }
+
+  /**
+   * Return the pairs holding the elements of the list, rebuilding the
+   * index if the chain has changed since it was built, or null if the
+   * contents are not a proper list.
+   */
+  private Pair[] index() {
+    if (nodes != null && cdr == indexedContents
+        && (nodeCount == 0 ? cdr == LList.Empty
+            : nodes[nodeCount - 1].getCdr() == LList.Empty)) {
+      return nodes;
+    }
+    Pair[] result = new Pair[nodes == null ? 8 : Math.max(8, nodes.length)];
+    int count = 0;
+    Object p = cdr;
+    while (p instanceof Pair) {
+      if (count == result.length) {
+        Pair[] grown = new Pair[result.length + (result.length >> 1)];
+        System.arraycopy(result, 0, grown, 0, count);
+        result = grown;
+      }
+      result[count++] = (Pair) p;
+      p = ((Pair) p).getCdr();
+    }
+    if (p != LList.Empty) {
+      invalidateIndex();
+      return null;
+    }
+    nodes = result;
+    nodeCount = count;
+    indexedContents = cdr;
+    return nodes;
+  }
 }
@@ -1102,6 +1102,31 @@ public abstract class AbstractChartDataModel2DTest<M extends Chart2DDataModel<?,
     assertExpectedEntriesHelper(expectedEntries);
   }
 
+  /**
+   * Test case to ensure that entries are still found at the
+   * right index after the first time entries have been removed
+   * to make room for new ones.
+   */
+  @Test
+  public void testFindEntryIndexAfterTimeEntriesRemoved() {
+    model.setMaximumTimeEntries(3);
+
+    for (int i = 0; i < 10; i++) {
+      model.addTimeEntry(createTuple((float) i, 1f));
+    }
+
+    assertEquals(-1, model.findEntryIndex(createEntry(6f, 1f)));
+    assertEquals(0, model.findEntryIndex(createEntry(7f, 1f)));
+    assertEquals(2, model.findEntryIndex(createEntry(9f, 1f)));
+
+    model.removeEntryFromTuple(createTuple(8f, 1f));
+    model.addTimeEntry(createTuple(10f, 1f));
+
+    assertEquals(-1, model.findEntryIndex(createEntry(8f, 1f)));
+    assertEquals(1, model.findEntryIndex(createEntry(9f, 1f)));
+    assertEquals(2, model.findEntryIndex(createEntry(10f, 1f)));
+  }
+
   /**
    * Test to ensure that comparing two entries which
    * have the same x and y values returns true via
@@ -0,0 +1,120 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import com.google.appinventor.components.runtime.shadows.ShadowEventDispatcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.robolectric.util.Scheduler.IdleState;
+
+/**
+ * Tests the detection of collisions between the sprites on a {@link Canvas}.
+ */
+public class CanvasTest extends RobolectricTestBase {
+  private Canvas canvas;
+
+  @Before
+  public void setUp() {
+    super.setUp();
+    canvas = new Canvas(getForm());
+  }
+
+  @Test
+  public void testBallsCollide() {
+    Ball ball1 = createBall(10, 0, 0);
+    Ball ball2 = createBall(10, 25, 0);
+    assertFalse(ball1.CollidingWith(ball2));
+
+    // The bounding boxes overlap, but the circles do not.
+    ball2.MoveTo(17, 17);
+    assertFalse(ball1.CollidingWith(ball2));
+    ShadowEventDispatcher.assertEventNotFired(ball1, "CollidedWith");
+
+    ball2.MoveTo(19, 0);
+    assertTrue(ball1.CollidingWith(ball2));
+    assertTrue(ball2.CollidingWith(ball1));
+    ShadowEventDispatcher.assertEventFired(ball1, "CollidedWith", ball2);
+    ShadowEventDispatcher.assertEventFired(ball2, "CollidedWith", ball1);
+  }
+
+  @Test
+  public void testBallAndImageSpriteCollide() {
+    Ball ball = createBall(10, 0, 0);
+    ImageSprite sprite = createImageSprite(10, 10, 30, 30);
+    assertFalse(ball.CollidingWith(sprite));
+
+    // The bounding boxes overlap, but the corner of the sprite is outside the circle.
+    sprite.MoveTo(18, 18);
+    assertFalse(ball.CollidingWith(sprite));
+    assertFalse(sprite.CollidingWith(ball));
+
+    sprite.MoveTo(15, 15);
+    assertTrue(ball.CollidingWith(sprite));
+    assertTrue(sprite.CollidingWith(ball));
+    ShadowEventDispatcher.assertEventFired(sprite, "CollidedWith", ball);
+
+    sprite.MoveTo(30, 30);
+    assertFalse(ball.CollidingWith(sprite));
+    ShadowEventDispatcher.assertEventFired(sprite, "NoLongerCollidingWith", ball);
+  }
+
+  @Test
+  public void testRotatedImageSpritesCollide() {
+    // As documented on CollidedWith, a rotated ImageSprite collides using its unrotated position.
+    ImageSprite bar = createImageSprite(40, 4, 0, 0);
+    bar.Heading(90);
+    ImageSprite block = createImageSprite(4, 4, 18, 10);
+    assertFalse(bar.CollidingWith(block));
+
+    block.MoveTo(18, 2);
+    assertTrue(bar.CollidingWith(block));
+    ShadowEventDispatcher.assertEventFired(bar, "CollidedWith", block);
+
+    bar.Heading(45);
+    block.MoveTo(42, 2);
+    assertFalse(bar.CollidingWith(block));
+  }
+
+  @Test
+  public void testCollidingWithBeforeCollisionCheck() {
+    Ball ball1 = createBall(10, 0, 0);
+    Ball ball2 = createBall(10, 40, 0);
+    shadowOf(Looper.getMainLooper()).getScheduler().setIdleState(IdleState.PAUSED);
+
+    // The collision check for this move has been posted but has not run yet.
+    ball2.MoveTo(15, 0);
+    assertTrue(ball1.CollidingWith(ball2));
+
+    ball2.MoveTo(40, 0);
+    assertFalse(ball1.CollidingWith(ball2));
+
+    runAllEvents();
+    ShadowEventDispatcher.assertEventFired(ball1, "CollidedWith", ball2);
+    ShadowEventDispatcher.assertEventFired(ball1, "NoLongerCollidingWith", ball2);
+  }
+
+  private Ball createBall(int radius, double x, double y) {
+    Ball ball = new Ball(canvas);
+    ball.Radius(radius);
+    ball.MoveTo(x, y);
+    ball.Initialize();
+    return ball;
+  }
+
+  private ImageSprite createImageSprite(int width, int height, double x, double y) {
+    ImageSprite sprite = new ImageSprite(canvas);
+    sprite.Width(width);
+    sprite.Height(height);
+    sprite.MoveTo(x, y);
+    sprite.Initialize();
+    return sprite;
+  }
+}
@@ -0,0 +1,126 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the {@link EventDispatcher} class.
+ */
+public class EventDispatcherTest {
+  private final FakeDelegate delegate = new FakeDelegate();
+  private final Component button1 = new FakeComponent(delegate);
+  private final Component button2 = new FakeComponent(delegate);
+
+  @After
+  public void tearDown() {
+    EventDispatcher.removeDispatchDelegate(delegate);
+  }
+
+  @Test
+  public void testDispatchToRegisteredHandler() {
+    EventDispatcher.registerEventForDelegation(delegate, "Button1", "Click");
+    EventDispatcher.registerEventForDelegation(delegate, "Button1", "Click");
+    EventDispatcher.registerEventForDelegation(delegate, "Button2", "Click");
+
+    assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertEquals(Collections.singletonList("Button1.Click"), delegate.dispatched);
+    assertEquals(Collections.singletonList("Click:false"), delegate.generic);
+  }
+
+  @Test
+  public void testUnregister() {
+    EventDispatcher.registerEventForDelegation(delegate, "Button1", "Click");
+    EventDispatcher.registerEventForDelegation(delegate, "Button2", "Click");
+    EventDispatcher.unregisterEventForDelegation(delegate, "Button1", "Click");
+
+    assertFalse(EventDispatcher.dispatchEvent(button1, "Click"));
+    assertTrue(EventDispatcher.dispatchEvent(button2, "Click"));
+
+    EventDispatcher.unregisterAllEventsForDelegation();
+    assertFalse(EventDispatcher.dispatchEvent(button2, "Click"));
+    assertEquals(Collections.singletonList("Button2.Click"), delegate.dispatched);
+  }
+
+  @Test
+  public void testRegisterWhileDispatching() throws Exception {
+    EventDispatcher.registerEventForDelegation(delegate, "Button1", "Click");
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    Thread registering = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < 1000; i++) {
+            EventDispatcher.registerEventForDelegation(delegate, "Label" + i, "Click");
+          }
+        } catch (Throwable e) {
+          error.set(e);
+        }
+      }
+    });
+    registering.start();
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(EventDispatcher.dispatchEvent(button1, "Click"));
+    }
+    registering.join();
+    assertEquals(null, error.get());
+  }
+
+  private static class FakeComponent implements Component {
+    private final HandlesEventDispatching delegate;
+
+    FakeComponent(HandlesEventDispatching delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public HandlesEventDispatching getDispatchDelegate() {
+      return delegate;
+    }
+  }
+
+  private class FakeDelegate implements HandlesEventDispatching {
+    final List<String> dispatched = new ArrayList<String>();
+    final List<String> generic = new ArrayList<String>();
+
+    @Override
+    public boolean canDispatchEvent(Component component, String eventName) {
+      return true;
+    }
+
+    @Override
+    public boolean dispatchEvent(Component component, String componentName, String eventName,
+        Object[] args) {
+      Component target = componentName.equals("Button1") ? button1
+          : componentName.equals("Button2") ? button2 : null;
+      if (target != component) {
+        return false;
+      }
+      dispatched.add(componentName + "." + eventName);
+      return true;
+    }
+
+    @Override
+    public void dispatchErrorOccurredEvent(Component component, String functionName,
+        int errorCode, Object... args) {
+    }
+
+    @Override
+    public void dispatchGenericEvent(Component component, String eventName,
+        boolean notAlreadyHandled, Object[] args) {
+      generic.add(eventName + ":" + notAlreadyHandled);
+    }
+  }
+}
@@ -13,6 +13,10 @@ import static org.junit.Assert.assertTrue;
 import android.os.Handler;
 import android.view.View;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -295,4 +299,66 @@ public class SpriteTest {
     assertEquals(0.0, bigCat.X(), DELTA);
     assertEquals(0.0, bigCat.Y(), DELTA);
   }
+
+  @Test
+  public void testCollidingOtherShape() {
+    // A sprite that only occupies the upper left quarter of its bounding box
+    TestSprite corner = new TestSprite(canvasMock, handlerMock) {
+      @Override
+      public boolean containsPoint(double qx, double qy) {
+        return super.containsPoint(qx, qy)
+            && qx < xLeft + Width() / 2 && qy < yTop + Height() / 2;
+      }
+    };
+    corner.Width(20);
+    corner.Height(20);
+    corner.MoveTo(0, 0);
+    TestSprite sprite = TestSprite.createTestSprite(canvasMock, handlerMock, 5, 5);
+
+    assertEquals(Sprite.Shape.RECTANGLE, sprite.getShape());
+    assertEquals(Sprite.Shape.OTHER, corner.getShape());
+
+    sprite.MoveTo(14, 14);
+    assertFalse(Sprite.colliding(corner, sprite));
+    sprite.MoveTo(8, 8);
+    assertTrue(Sprite.colliding(corner, sprite));
+  }
+
+  @Test
+  public void testSpriteGrid() {
+    SpriteGrid grid = new SpriteGrid(10);
+    TestSprite sprite1 = TestSprite.createTestSprite(canvasMock, handlerMock, 5, 5);
+    TestSprite sprite2 = TestSprite.createTestSprite(canvasMock, handlerMock, 5, 5);
+    TestSprite big = TestSprite.createTestSprite(canvasMock, handlerMock, 1000, 1000);
+    sprite1.MoveTo(2, 2);
+    sprite2.MoveTo(52, 52);
+    grid.update(sprite1);
+    grid.update(sprite2);
+
+    Set<Sprite> neighbors = new HashSet<Sprite>();
+    grid.getNeighbors(sprite1, neighbors);
+    assertTrue(neighbors.isEmpty());
+
+    // Moving sprite2 next to sprite1 puts it in the same cell.
+    sprite2.MoveTo(6, 2);
+    grid.update(sprite2);
+    grid.getNeighbors(sprite1, neighbors);
+    assertEquals(Collections.singleton(sprite2), neighbors);
+
+    // A sprite covering many cells is a neighbor of every sprite.
+    big.MoveTo(100, 100);
+    grid.update(big);
+    neighbors.clear();
+    grid.getNeighbors(sprite1, neighbors);
+    assertTrue(neighbors.contains(big));
+    neighbors.clear();
+    grid.getNeighbors(big, neighbors);
+    assertEquals(2, neighbors.size());
+
+    grid.remove(sprite2);
+    assertFalse(grid.contains(sprite2));
+    neighbors.clear();
+    grid.getNeighbors(sprite1, neighbors);
+    assertEquals(Collections.<Sprite>singleton(big), neighbors);
+  }
 }
@@ -9,6 +9,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import com.google.appinventor.components.runtime.util.YailDictionary;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Before;
@@ -79,4 +80,46 @@ public class TinyDBTest extends RobolectricTestBase {
     assertEquals("Invalid TinyDB StoreValue","test-value-3",
         aTinyDB.GetValue("test-tag-3", "tag-not-found"));
   }
+
+  @Test
+  public void testStoreValues() {
+    aTinyDB.StoreValues(YailDictionary.makeDictionary("test-tag-3", "test-value-3",
+        "test-tag-1", "test-value-4"));
+    assertEquals("test-value-3", aTinyDB.GetValue("test-tag-3", "tag-not-found"));
+    assertEquals("test-value-4", aTinyDB.GetValue("test-tag-1", "tag-not-found"));
+    assertEquals(3, ((List<?>) aTinyDB.GetTags()).size());
+  }
+
+  @Test
+  public void testBatchWrites() {
+    aTinyDB.BatchWrites(true);
+    aTinyDB.StoreValue("test-tag-3", "test-value-3");
+    aTinyDB.ClearTag("test-tag-1");
+    assertEquals("test-value-3", aTinyDB.GetValue("test-tag-3", "tag-not-found"));
+    assertEquals("tag-not-found", aTinyDB.GetValue("test-tag-1", "tag-not-found"));
+    List<String> keyList = new ArrayList<>();
+    keyList.add("test-tag-2");
+    keyList.add("test-tag-3");
+    assertEquals(keyList, aTinyDB.GetTags());
+  }
+
+  @Test
+  public void testValueChangedByOtherTinyDB() {
+    assertEquals("test-value-1", aTinyDB.GetValue("test-tag-1", "tag-not-found"));
+    new TinyDB(getForm()).StoreValue("test-tag-1", "test-value-3");
+    assertEquals("test-value-3", aTinyDB.GetValue("test-tag-1", "tag-not-found"));
+  }
+
+  @Test
+  public void testPendingWriteIsNotSharedBeforeFlush() {
+    TinyDB other = new TinyDB(getForm());
+    aTinyDB.BatchWrites(true);
+    aTinyDB.StoreValue("test-tag-1", "test-value-3");
+    // The other TinyDB reads, and caches, the stored value while the write is pending.
+    assertEquals("test-value-1", other.GetValue("test-tag-1", "tag-not-found"));
+    assertEquals("test-value-3", aTinyDB.GetValue("test-tag-1", "tag-not-found"));
+    assertEquals("test-value-1", other.GetValue("test-tag-1", "tag-not-found"));
+    aTinyDB.GetTags();  // flushes the pending write
+    assertEquals("test-value-3", other.GetValue("test-tag-1", "tag-not-found"));
+  }
 }
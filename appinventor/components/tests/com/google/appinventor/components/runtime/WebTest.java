@@ -16,14 +16,22 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -244,4 +252,80 @@ public class WebTest {
       assertEquals(4, e.index);
     }
   }
+
+  @Test
+  public void testGzipResponseIsDecodedWhenAppDidNotSetAcceptEncoding() throws Exception {
+    web.Url("http://example.com/");
+    Web.CapturedProperties webProps = new Web.CapturedProperties(web);
+    assertTrue(webProps.acceptGzip);
+    assertEquals("gzip", Web.openConnection(webProps, "GET").getRequestProperty("Accept-Encoding"));
+
+    HttpURLConnection connection = newConnection(gzip("compressed text"), "gzip");
+    assertEquals("compressed text",
+        Web.getResponseContent(connection, "UTF-8", webProps.acceptGzip));
+  }
+
+  @Test
+  public void testRawResponseIsKeptWhenAppSetAcceptEncoding() throws Exception {
+    web.Url("http://example.com/");
+    web.RequestHeaders(YailList.makeList(new Object[] {
+        YailList.makeList(new String[] { "Accept-Encoding", "gzip" }) }));
+    Web.CapturedProperties webProps = new Web.CapturedProperties(web);
+    assertFalse(webProps.acceptGzip);
+    assertEquals("gzip", Web.openConnection(webProps, "GET").getRequestProperty("Accept-Encoding"));
+
+    // The app asked for the encoding itself, so it gets the compressed bytes unchanged.
+    byte[] body = gzip("compressed text");
+    HttpURLConnection connection = newConnection(body, "gzip");
+    assertEquals(new String(body, "ISO-8859-1"),
+        Web.getResponseContent(connection, "ISO-8859-1", webProps.acceptGzip));
+  }
+
+  @Test
+  public void testCacheResponsesSetsUseCaches() throws Exception {
+    web.Url("http://example.com/");
+    web.CacheResponses(false);
+    assertFalse(Web.openConnection(new Web.CapturedProperties(web), "GET").getUseCaches());
+    web.CacheResponses(true);
+    assertTrue(Web.openConnection(new Web.CapturedProperties(web), "GET").getUseCaches());
+  }
+
+  private static byte[] gzip(String text) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    try {
+      out.write(text.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static HttpURLConnection newConnection(final byte[] body, final String contentEncoding)
+      throws IOException {
+    return new HttpURLConnection(new URL("http://example.com/")) {
+      @Override
+      public void connect() {
+      }
+
+      @Override
+      public void disconnect() {
+      }
+
+      @Override
+      public boolean usingProxy() {
+        return false;
+      }
+
+      @Override
+      public InputStream getInputStream() {
+        return new ByteArrayInputStream(body);
+      }
+
+      @Override
+      public String getContentEncoding() {
+        return contentEncoding;
+      }
+    };
+  }
 }
@@ -57,6 +57,21 @@ public class ShadowAsynchUtil {
     runnables.add(callback);
   }
 
+  @Implementation
+  public static void runComputation(final Runnable call) {
+    runnables.add(call);
+  }
+
+  @Implementation
+  public static void runBlocking(final Runnable call) {
+    runnables.add(call);
+  }
+
+  @Implementation
+  public static void runOnNewThread(final Runnable call) {
+    runnables.add(call);
+  }
+
   @Implementation
   public static boolean isUiThread() {
     return runningOnUiThread;
@@ -0,0 +1,96 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DataTable} class.
+ */
+public class DataTableTest {
+
+  @Test
+  public void testNumbersAreReturnedAsRead() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(
+        "t,x,y\n0,1.5,-3\n100,0.25,12\n-7,1.0E-4,2.50\n"));
+    assertEquals(list("t", "0", "100", "-7"), table.getColumn(0));
+    assertEquals(list("x", "1.5", "0.25", "1.0E-4"), table.getColumn(1));
+    // "2.50" cannot be stored as a number, so the whole column is kept as text.
+    assertEquals(list("y", "-3", "12", "2.50"), table.getColumn(2));
+  }
+
+  @Test
+  public void testValuesWithOtherFormsAreKept() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader(
+        "a\n1\n007\n-0\n1e3\n1.50\n12345678901234567890\nNaN\n"));
+    assertEquals(list("a", "1", "007", "-0", "1e3", "1.50", "12345678901234567890", "NaN"),
+        table.getColumn(0));
+  }
+
+  @Test
+  public void testUnevenRowsCsv() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader("a,b\n1\n2,3,4\n"));
+    assertEquals(3, table.getRowCount());
+    assertEquals(3, table.getColumnCount());
+    assertEquals(YailList.makeList(Arrays.asList(list("a", "b"), list("1"), list("2", "3", "4"))),
+        table.getRows());
+    assertEquals(YailList.makeList(Arrays.asList(list("a", "1", "2"), list("b", "", "3"),
+        list("", "", "4"))), table.getColumns());
+    assertEquals(list("a", "b"), table.getColumnNames());
+  }
+
+  @Test
+  public void testUnevenColumnsJson() throws Exception {
+    DataTable table = DataTable.fromJson("{\"x\": [1, 2, 3], \"y\": 4}");
+    assertEquals(4, table.getRowCount());
+    YailList columns = table.getColumns();
+    assertEquals(2, columns.size());
+    YailList names = table.getColumnNames();
+    assertEquals(list("x", "1", "2", "3"), table.getColumn(names.indexOf("x") - 1));
+    assertEquals(list("y", "4"), table.getColumn(names.indexOf("y") - 1));
+    YailList lastRow = (YailList) table.getRows().getObject(3);
+    assertEquals(2, lastRow.size());
+    assertTrue(lastRow.contains("3"));
+    assertTrue(lastRow.contains(""));
+  }
+
+  @Test
+  public void testListsAreCreatedOnce() throws Exception {
+    DataTable table = DataTable.fromCsv(new StringReader("a,b\n1,2\n"));
+    YailList column = table.getColumn(1);
+    assertSame(column, table.getColumn(1));
+    assertSame(column, table.getColumns().getObject(1));
+    assertSame(table.getRows(), table.getRows());
+    assertSame(table.getColumnNames(), table.getRows().getObject(0));
+  }
+
+  @Test
+  public void testEmptyTable() throws Exception {
+    assertEquals(new YailList(), new DataTable().getRows());
+    assertEquals(new YailList(), new DataTable().getColumns());
+    assertEquals(new YailList(), new DataTable().getColumnNames());
+    assertEquals(new YailList(), DataTable.fromCsv(new StringReader("")).getRows());
+  }
+
+  @Test
+  public void testNormalizedNewLines() throws Exception {
+    DataTable table = DataTable.fromCsv(IOUtils.normalizeNewLines(new StringReader(
+        "a,b\r\n\"1\r\n2\",3\r\n")));
+    assertEquals(YailList.makeList(Arrays.asList(list("a", "b"), list("1\n2", "3"))),
+        table.getRows());
+  }
+
+  private static YailList list(String... values) {
+    return YailList.makeList(values);
+  }
+}
@@ -0,0 +1,85 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import gnu.lists.LList;
+import gnu.mapping.SimpleSymbol;
+import gnu.mapping.WrongArguments;
+import gnu.math.DFloNum;
+import gnu.math.IntNum;
+import org.junit.Test;
+
+/**
+ * Tests the {@link InvokeUtil} class.
+ */
+public class InvokeUtilTest {
+
+  public static class Thing {
+    private double x;
+
+    public double X() {
+      return x;
+    }
+
+    public void X(double x) {
+      this.x = x;
+    }
+
+    public String Join(String a) {
+      return a;
+    }
+
+    public String Join(String a, int b) {
+      return a + b;
+    }
+
+    public void Fail() {
+      throw new IllegalStateException("failed");
+    }
+  }
+
+  @Test
+  public void testPropertyGetterAndSetter() throws Throwable {
+    Thing thing = new Thing();
+    InvokeUtil.invoke1(thing, new SimpleSymbol("X"), IntNum.make(5));
+    assertEquals(5.0, thing.x, 0);
+    InvokeUtil.invoke1(thing, "X", new DFloNum(1.5));
+    assertEquals(1.5, InvokeUtil.invoke0(thing, new SimpleSymbol("X")));
+  }
+
+  @Test
+  public void testOverloadsAreSelectedByArity() throws Throwable {
+    Thing thing = new Thing();
+    assertEquals("a", InvokeUtil.invoke(thing, "Join", LList.list1("a")));
+    assertEquals("a3", InvokeUtil.invoke(thing, "Join", LList.list2("a", IntNum.make(3))));
+    // Again, now that the methods are cached.
+    assertEquals("b", InvokeUtil.invoke(thing, "Join", LList.list1("b")));
+    assertEquals("b4", InvokeUtil.invoke(thing, "Join", LList.list2("b", IntNum.make(4))));
+  }
+
+  @Test
+  public void testWrongNumberOfArguments() throws Throwable {
+    try {
+      InvokeUtil.invoke(new Thing(), "Join", LList.Empty);
+      fail();
+    } catch (WrongArguments e) {
+      // this is the intended behavior
+    }
+  }
+
+  @Test
+  public void testExceptionsArePropagated() throws Throwable {
+    try {
+      InvokeUtil.invoke(new Thing(), "Fail", LList.Empty);
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+  }
+}
@@ -232,4 +232,45 @@ public class JsonUtilTest {
     assertTrue(result.contains(expected2));
     assertTrue(result.contains(expected3));
   }
+
+  @Test
+  public void testGetObjectFromJsonNestedTypes() throws JSONException {
+    Object result = JsonUtil.getObjectFromJson(
+        "{\"b\": [1, 2147483648, 1.5, 1e2, null, \"TRUE\", false], \"a\": {\"c\": \"\\u00e9\"}}",
+        true);
+    assertTrue(result instanceof YailDictionary);
+    YailDictionary dict = (YailDictionary) result;
+    assertEquals(Arrays.asList("a", "b"), new ArrayList<Object>(dict.keySet()));
+    YailList list = (YailList) dict.get("b");
+    assertEquals(1, list.get(1));
+    assertEquals(2147483648L, list.get(2));
+    assertEquals(1.5, list.get(3));
+    assertEquals(100.0, list.get(4));
+    assertEquals("null", list.get(5));
+    assertEquals(true, list.get(6));
+    assertEquals(false, list.get(7));
+    assertEquals("\u00e9", ((YailDictionary) dict.get("a")).get("c"));
+
+    assertEquals(Arrays.asList(Arrays.asList("a", 1), Arrays.asList("b", Arrays.asList("x"))),
+        JsonUtil.getObjectFromJson("{\"b\": [\"x\"], \"a\": 1}", false));
+    assertEquals(null, JsonUtil.getObjectFromJson("null", true));
+    assertEquals("true", JsonUtil.getObjectFromJson("\"true\"", true));
+  }
+
+  @Test
+  public void testGetObjectFromJsonLenient() throws JSONException {
+    // Text that is not strict JSON is still parsed as before.
+    assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", 1)),
+        JsonUtil.getObjectFromJson("{c: 1, a: 'b'}", false));
+    assertEquals(Arrays.asList(1, "x"), JsonUtil.getObjectFromJson("[1, 'x']", false));
+  }
+
+  @Test
+  public void testGetJsonRepresentationRoundTrip() throws JSONException {
+    String json = "{\"a\":[1,2.5,\"x\\\"y\",[true,false]],\"b\":{\"c\":\"null\"}}";
+    Object value = JsonUtil.getObjectFromJson(json, true);
+    assertEquals(json, JsonUtil.getJsonRepresentation(value));
+    assertEquals("[1,2.5,\"x\\\"y\",[true,false]]",
+        ((YailList) ((YailDictionary) value).get("a")).toJSONString());
+  }
 }
@@ -87,4 +87,15 @@ public class MediaUtilTest extends TestCase {
       // Expected
     }
   }
+
+  public void testGetSampleSize() {
+    // Images no larger than the screen are not sampled.
+    assertEquals(1, MediaUtil.getSampleSize(800, 600, 1080, 1920, 0, 0));
+    // Images larger than the screen in both dimensions are sampled until one dimension fits.
+    assertEquals(4, MediaUtil.getSampleSize(4000, 6000, 1080, 1920, 0, 0));
+    // Images shown in a small view are sampled as long as they still fill the view.
+    assertEquals(16, MediaUtil.getSampleSize(4000, 6000, 1080, 1920, 200, 300));
+    assertEquals(8, MediaUtil.getSampleSize(4000, 6000, 1080, 1920, 200, 400));
+    assertEquals(1, MediaUtil.getSampleSize(300, 300, 1080, 1920, 200, 200));
+  }
 }
@@ -0,0 +1,78 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * Tests the {@link RingBufferList} class.
+ */
+public class RingBufferListTest {
+
+  @Test
+  public void testSlidingWindow() {
+    List<Integer> list = new RingBufferList<Integer>();
+    for (int i = 0; i < 100; i++) {
+      if (list.size() == 5) {
+        list.remove(0);
+      }
+      list.add(i);
+    }
+    assertEquals(5, list.size());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(95 + i, (int) list.get(i));
+    }
+  }
+
+  @Test
+  public void testMatchesArrayList() {
+    Random random = new Random(42);
+    List<Integer> expected = new ArrayList<Integer>();
+    List<Integer> actual = new RingBufferList<Integer>();
+    for (int i = 0; i < 10000; i++) {
+      int operation = random.nextInt(10);
+      if (operation < 4 || expected.isEmpty()) {
+        int index = random.nextInt(expected.size() + 1);
+        expected.add(index, i);
+        actual.add(index, i);
+      } else if (operation < 8) {
+        int index = random.nextInt(expected.size());
+        assertEquals(expected.remove(index), actual.remove(index));
+      } else if (operation < 9) {
+        int index = random.nextInt(expected.size());
+        assertEquals(expected.set(index, -i), actual.set(index, -i));
+      } else if (random.nextInt(50) == 0) {
+        expected.clear();
+        actual.clear();
+      }
+      assertEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testIndexOutOfBounds() {
+    List<Integer> list = new RingBufferList<Integer>();
+    list.add(1);
+    try {
+      list.get(1);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // this is the intended behavior
+    }
+    try {
+      list.add(2, 2);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // this is the intended behavior
+    }
+  }
+}
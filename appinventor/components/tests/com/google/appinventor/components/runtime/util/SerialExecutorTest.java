@@ -0,0 +1,105 @@
+// -*- mode: java; c-basic-offset: 2; -*-
+// Copyright 2023 MIT, All rights reserved
+// Released under the Apache License, Version 2.0
+// http://www.apache.org/licenses/LICENSE-2.0
+
+package com.google.appinventor.components.runtime.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link SerialExecutor} class.
+ */
+public class SerialExecutorTest {
+  private ExecutorService pool;
+  private SerialExecutor executor;
+
+  @Before
+  public void setUp() {
+    pool = Executors.newFixedThreadPool(4);
+    executor = new SerialExecutor(pool);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testTasksRunInOrder() throws Exception {
+    final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+    for (int i = 0; i < 100; i++) {
+      final int n = i;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          order.add(n);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i, (int) order.get(i));
+    }
+  }
+
+  @Test
+  public void testShutdownNowCancelsPendingTasks() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        started.countDown();
+        try {
+          Thread.sleep(10000);
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+        }
+      }
+    });
+    Future<?> pending = executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        fail("Task should have been cancelled");
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertEquals(1, executor.shutdownNow().size());
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    try {
+      pending.get();
+      fail();
+    } catch (CancellationException e) {
+      // this is the intended behavior
+    }
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+      fail();
+    } catch (RejectedExecutionException e) {
+      // this is the intended behavior
+    }
+  }
+}
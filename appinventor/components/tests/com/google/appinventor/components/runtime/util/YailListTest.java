@@ -7,6 +7,8 @@
 package com.google.appinventor.components.runtime.util;
 
 import gnu.lists.FString;
+import gnu.lists.LList;
+import gnu.lists.Pair;
 import gnu.math.IntNum;
 
 import org.junit.Test;
@@ -235,4 +237,70 @@ public class YailListTest {
     assertEquals(Long.toString(Long.MAX_VALUE), strings[0]);
     assertEquals(Long.toString(Long.MAX_VALUE), strings[1]);
   }
+
+  @Test
+  public void testSetObject() {
+    YailList yailList = YailList.makeList(new Object[] {"a", "b", "c"});
+    yailList.setObject(1, "x");
+    assertEquals("(a x c)", yailList.toString());
+    assertEquals("x", yailList.getObject(1));
+    try {
+      yailList.setObject(3, "y");
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // this is the intended behavior
+    }
+  }
+
+  @Test
+  public void testInsertAndRemoveObject() {
+    YailList yailList = new YailList();
+    yailList.insertObject(0, "b");
+    yailList.insertObject(0, "a");
+    yailList.insertObject(2, "d");
+    yailList.insertObject(2, "c");
+    assertEquals("(a b c d)", yailList.toString());
+    assertEquals(4, yailList.size());
+    yailList.removeObject(3);
+    yailList.removeObject(0);
+    assertEquals("(b c)", yailList.toString());
+    assertEquals(2, yailList.size());
+    assertEquals("c", yailList.getObject(1));
+    yailList.removeObject(1);
+    yailList.removeObject(0);
+    assertEquals(LList.Empty, yailList.getCdr());
+    assertEquals(0, yailList.size());
+  }
+
+  @Test
+  public void testAppendList() {
+    YailList yailList = new YailList();
+    YailList other = YailList.makeList(new Object[] {"a", "b"});
+    for (int i = 0; i < 100; i++) {
+      yailList.appendList(other);
+    }
+    assertEquals(200, yailList.size());
+    assertEquals("b", yailList.getObject(199));
+    yailList.appendList(yailList);
+    assertEquals(400, yailList.size());
+    // The pairs are copied, so changing one list does not change the other.
+    yailList.setObject(0, "x");
+    assertEquals("(a b)", other.toString());
+  }
+
+  @Test
+  public void testIndexFollowsChangesToPairs() {
+    YailList yailList = YailList.makeList(new Object[] {"a", "b", "c"});
+    assertEquals(3, yailList.size());
+    // Scheme code may change the underlying pairs directly.
+    Pair last = ((Pair) yailList.getCdr()).lastPair();
+    last.setCdr(new Pair("d", LList.Empty));
+    assertEquals(4, yailList.size());
+    assertEquals("d", yailList.getObject(3));
+    yailList.setCdr(new Pair("e", LList.Empty));
+    assertEquals(1, yailList.size());
+    assertEquals("e", yailList.getObject(0));
+    ((Pair) yailList.getCdr()).setCar("f");
+    assertEquals("f", yailList.getObject(0));
+  }
 }